@@ -26,8 +26,10 @@
 package ee.ria.xroad.signer.tokenmanager.token;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.PasswordStore;
+import ee.ria.xroad.common.util.ProcessMetrics;
 import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
 import ee.ria.xroad.signer.protocol.dto.KeyInfo;
 import ee.ria.xroad.signer.protocol.dto.TokenInfo;
@@ -36,6 +38,8 @@ import ee.ria.xroad.signer.tokenmanager.TokenManager;
 import ee.ria.xroad.signer.tokenmanager.module.ModuleConf;
 import ee.ria.xroad.signer.util.SignerUtil;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import iaik.pkcs.pkcs11.Mechanism;
 import iaik.pkcs.pkcs11.Session;
 import iaik.pkcs.pkcs11.Token;
@@ -68,6 +72,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
@@ -117,12 +125,18 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     // maps signature algorithm id and signing mechanism
     private final Map<String, Mechanism> signMechanisms;
 
-    // maps key id (hex) to RSAPrivateKey
-    private final Map<String, RSAPrivateKey> privateKeys = new HashMap<>();
+    // maps key id (hex) to RSAPrivateKey, key handles are valid in all sessions of the token
+    private final Map<String, RSAPrivateKey> privateKeys = new ConcurrentHashMap<>();
     private final Map<String, List<X509PublicKeyCertificate>> certs = new HashMap<>();
 
     private Session activeSession;
 
+    // sessions for signing in parallel, opened and closed together with the active session
+    private final int signSessionPoolSize;
+    private final List<Session> signSessions = new ArrayList<>();
+    private final BlockingQueue<Session> idleSignSessions = new LinkedBlockingQueue<>();
+    private final AtomicInteger signSessionsInUse = new AtomicInteger();
+
     /**
      * @param tokenInfo the token info
      * @param tokenType the token type
@@ -132,6 +146,20 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         this.tokenType = tokenType;
         this.signMechanisms = createSignMechanisms(tokenType.getSignMechanismName());
+
+        // login state is shared by all sessions, so per signing login requires signing one request at a time
+        this.signSessionPoolSize = tokenType.isPinVerificationPerSigning()
+                ? 0
+                : SystemProperties.getSignSessionPoolSize();
+
+        MetricRegistry metrics = ProcessMetrics.getMetrics();
+        String sessionsMetric = MetricRegistry.name(HardwareTokenWorker.class, tokenId, "sign-sessions");
+        String sessionsInUseMetric = MetricRegistry.name(HardwareTokenWorker.class, tokenId, "sign-sessions-in-use");
+        // a token worker is recreated when the module is reloaded
+        metrics.remove(sessionsMetric);
+        metrics.remove(sessionsInUseMetric);
+        metrics.register(sessionsMetric, (Gauge<Integer>) () -> signSessionPoolSize);
+        metrics.register(sessionsInUseMetric, (Gauge<Integer>) signSessionsInUse::get);
     }
 
     private static Map<String, Mechanism> createSignMechanisms(String signMechanismName) {
@@ -236,6 +264,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         updateTokenInfo();
     }
 
+    @Override
+    public boolean isConcurrentSigningSupported() {
+        return !signSessions.isEmpty();
+    }
+
     // ----------------------- Message handlers -------------------------------
 
     @Override
@@ -401,10 +434,26 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         log.trace("sign({}, {})", keyId, signatureAlgorithmId);
 
         assertActiveSession();
+
+        if (signSessions.isEmpty()) {
+            return sign(activeSession, keyId, signatureAlgorithmId, data);
+        }
+
+        Session session = idleSignSessions.take();
+        signSessionsInUse.incrementAndGet();
+        try {
+            return sign(session, keyId, signatureAlgorithmId, data);
+        } finally {
+            signSessionsInUse.decrementAndGet();
+            idleSignSessions.add(session);
+        }
+    }
+
+    private byte[] sign(Session session, String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
         pinVerificationPerSigningLogin();
         assertKeyAvailable(keyId);
 
-        RSAPrivateKey key = getPrivateKey(keyId);
+        RSAPrivateKey key = getPrivateKey(session, keyId);
         if (key == null) {
             throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
                     keyId, tokenId);
@@ -417,8 +466,8 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                 throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
                         "Unsupported signature algorithm '%s'", signatureAlgorithmId);
             }
-            activeSession.signInit(signMechanism, key);
-            return activeSession.sign(data);
+            session.signInit(signMechanism, key);
+            return session.sign(data);
         } finally {
             pinVerificationPerSigningLogout();
         }
@@ -490,12 +539,14 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
-    private RSAPrivateKey getPrivateKey(String keyId) throws Exception {
+    private RSAPrivateKey getPrivateKey(Session session, String keyId) throws Exception {
         RSAPrivateKey privateKey = privateKeys.get(keyId);
         if (privateKey == null) {
             log.debug("Key {} not found in cache, trying to find it from hardware token", keyId);
-            privateKey = findPrivateKey(activeSession, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
-            privateKeys.put(keyId, privateKey);
+            privateKey = findPrivateKey(session, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
+            if (privateKey != null) {
+                privateKeys.put(keyId, privateKey);
+            }
         }
         return privateKey;
     }
@@ -655,6 +706,16 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         if (getToken() != null) {
             activeSession = getToken().openSession(SERIAL_SESSION, true, null, null);
+
+            for (int i = 0; i < signSessionPoolSize; i++) {
+                Session session = getToken().openSession(SERIAL_SESSION, false, null, null);
+                signSessions.add(session);
+                idleSignSessions.add(session);
+            }
+
+            if (signSessionPoolSize > 0) {
+                log.debug("Opened {} signing session(s) on token '{}'", signSessionPoolSize, getWorkerId());
+            }
         }
     }
 
@@ -723,6 +784,8 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     }
 
     private void closeActiveSession() throws Exception {
+        closeSignSessions();
+
         if (activeSession != null) {
             try {
                 logout();
@@ -733,6 +796,20 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
+    private void closeSignSessions() {
+        // called with the token worker lock held, so none of the sessions is in use
+        for (Session session : signSessions) {
+            try {
+                session.closeSession();
+            } catch (Exception e) {
+                log.warn("Failed to close signing session on token '{}'", getWorkerId(), e);
+            }
+        }
+
+        signSessions.clear();
+        idleSignSessions.clear();
+    }
+
     private Token getToken() {
         return ((HardwareTokenType) tokenType).getToken();
     }
@@ -818,7 +895,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                 assertActiveSession();
                 pinVerificationPerSigningLogin();
                 byte[] dataToSign = out.toByteArray();
-                RSAPrivateKey privateKey = getPrivateKey(keyId);
+                RSAPrivateKey privateKey = getPrivateKey(activeSession, keyId);
                 if (privateKey == null) {
                     throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
                             keyId, tokenId);
@@ -31,6 +31,7 @@ import ee.ria.xroad.common.DiagnosticsStatus;
 import ee.ria.xroad.common.DiagnosticsUtils;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
+import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.messagelog.AbstractLogManager;
 import ee.ria.xroad.common.messagelog.LogMessage;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
@@ -39,6 +40,7 @@ import ee.ria.xroad.common.messagelog.RestLogMessage;
 import ee.ria.xroad.common.messagelog.SoapLogMessage;
 import ee.ria.xroad.common.messagelog.TimestampRecord;
 import ee.ria.xroad.common.util.JobManager;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.common.util.TimeUtils;
 
 import lombok.extern.slf4j.Slf4j;
@@ -49,7 +51,6 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Map;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 
@@ -74,11 +75,14 @@ public class LogManager extends AbstractLogManager {
     static final long MAX_LOGGABLE_BODY_SIZE = MessageLogProperties.getMaxLoggableBodySize();
     static final boolean TRUNCATED_BODY_ALLOWED = MessageLogProperties.isTruncatedBodyAllowed();
 
+    private static final long WRITE_TIMEOUT_SECONDS = 60;
+
     // Date at which a time-stamping first failed.
     private Instant timestampFailed;
 
     private final Timestamper timestamper;
     private final TimestamperJob timestamperJob;
+    private final MessageRecordWriter messageRecordWriter;
 
     // package private for testing
     final TaskQueue taskQueue;
@@ -89,10 +93,17 @@ public class LogManager extends AbstractLogManager {
         timestamper = getTimestamperImpl();
         taskQueue = getTaskQueueImpl(timestamper);
         timestamperJob = createTimestamperJob(taskQueue);
+        messageRecordWriter = MessageLogProperties.isGroupCommitEnabled()
+                ? new MessageRecordWriter(MessageLogProperties.getGroupCommitQueueSize(),
+                        MessageLogProperties.getGroupCommitMaxBatchSize())
+                : null;
     }
 
     @Override
     public void shutdown() {
+        if (messageRecordWriter != null) {
+            messageRecordWriter.shutdown();
+        }
         timestamperJob.shutdown();
         super.shutdown();
     }
@@ -125,6 +136,7 @@ public class LogManager extends AbstractLogManager {
             logRecord = createMessageRecord((RestLogMessage) message);
         }
         logRecord = saveMessageRecord(logRecord);
+        taskQueue.messageRecordsSaved(1);
 
         if (shouldTimestampImmediately) {
             timestampImmediately(logRecord);
@@ -150,6 +162,11 @@ public class LogManager extends AbstractLogManager {
         }
     }
 
+    @Override
+    public boolean isBodyLogged(ServiceId service, boolean clientSide) {
+        return MAX_LOGGABLE_BODY_SIZE > 0 && new MessageBodyManipulator().isBodyLogged(service, clientSide);
+    }
+
     @Override
     public Map<String, DiagnosticsStatus> getDiagnosticStatus() {
         return statusMap;
@@ -171,7 +188,9 @@ public class LogManager extends AbstractLogManager {
         Timestamper.TimestampResult result = timestamper.handleTimestampTask(new Timestamper.TimestampTask(logRecord));
 
         if (result instanceof Timestamper.TimestampSucceeded) {
-            return saveTimestampRecord((Timestamper.TimestampSucceeded) result);
+            TimestampRecord timestampRecord = saveTimestampRecord((Timestamper.TimestampSucceeded) result);
+            taskQueue.messageRecordsTimestamped(1);
+            return timestampRecord;
         } else if (result instanceof Timestamper.TimestampFailed) {
             Exception e = ((Timestamper.TimestampFailed) result).getCause();
 
@@ -245,6 +264,10 @@ public class LogManager extends AbstractLogManager {
     }
 
     protected MessageRecord saveMessageRecord(MessageRecord messageRecord) throws Exception {
+        if (messageRecordWriter != null) {
+            return messageRecordWriter.write(messageRecord, WRITE_TIMEOUT_SECONDS, SECONDS);
+        }
+
         LogRecordManager.saveMessageRecord(messageRecord);
         return messageRecord;
     }
@@ -370,7 +393,7 @@ public class LogManager extends AbstractLogManager {
         public TimestamperJob(Duration initialDelay, TaskQueue taskQueue) {
             log.trace("Initializing TimestamperJob");
             this.taskQueue = taskQueue;
-            this.taskScheduler = Executors.newSingleThreadScheduledExecutor();
+            this.taskScheduler = ThreadUtils.newSingleThreadScheduledExecutor("timestamper");
             schedule(initialDelay, this::handleStartTimestamping);
         }
 
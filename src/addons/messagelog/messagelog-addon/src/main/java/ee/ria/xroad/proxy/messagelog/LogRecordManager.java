@@ -63,6 +63,8 @@ public final class LogRecordManager {
 
     private static int configuredBatchSize = 0;
 
+    private static final RecordIdAllocator ID_ALLOCATOR = new RecordIdAllocator();
+
     private static final String UPDATE_LOG_RECORD_STATEMENT = "UPDATE logrecord SET timestamprecord = ?, "
             + "timestamphashchain = ?, signaturehash = NULL WHERE id = ? AND timestamprecord IS NULL";
 
@@ -142,24 +144,52 @@ public final class LogRecordManager {
         final boolean encrypt = encryption.encryptionEnabled();
 
         doInTransaction(session -> {
-            //the blob must be created within hibernate session
             messageRecord.setId(getNextRecordId(session));
+            prepareAndSave(session, messageRecord, encryption, encrypt);
+            return null;
+        });
+    }
 
-            if (encrypt) {
-                encryption.prepareEncryption(messageRecord);
-            }
+    /**
+     * Saves the message records to database in one transaction, using JDBC batching for the inserts.
+     * @param messageRecords the message records to be saved.
+     * @throws Exception if an error occurs while communicating with database.
+     */
+    static void saveMessageRecords(List<MessageRecord> messageRecords) throws Exception {
+        log.trace("saveMessageRecords({})", messageRecords.size());
 
-            InputStream is = messageRecord.getAttachmentStream();
-            if (is != null) {
-                messageRecord.setAttachment(
-                        session.getLobHelper().createBlob(is, messageRecord.getAttachmentStreamSize()));
-            }
+        final MessageRecordEncryption encryption = MessageRecordEncryption.getInstance();
+        final boolean encrypt = encryption.encryptionEnabled();
 
-            save(session, messageRecord);
+        doInTransaction(session -> {
+            session.setJdbcBatchSize(Math.max(messageRecords.size(), 1));
+
+            long[] ids = getNextRecordIds(session, messageRecords.size());
+            for (int i = 0; i < messageRecords.size(); i++) {
+                MessageRecord messageRecord = messageRecords.get(i);
+                messageRecord.setId(ids[i]);
+                prepareAndSave(session, messageRecord, encryption, encrypt);
+            }
             return null;
         });
     }
 
+    private static void prepareAndSave(Session session, MessageRecord messageRecord,
+                                       MessageRecordEncryption encryption, boolean encrypt) throws Exception {
+        if (encrypt) {
+            encryption.prepareEncryption(messageRecord);
+        }
+
+        //the blob must be created within hibernate session
+        InputStream is = messageRecord.getAttachmentStream();
+        if (is != null) {
+            messageRecord.setAttachment(
+                    session.getLobHelper().createBlob(is, messageRecord.getAttachmentStreamSize()));
+        }
+
+        save(session, messageRecord);
+    }
+
     /**
      * Saves the message record in the database.
      * @param messageRecord the message record to be updated.
@@ -211,7 +241,11 @@ public final class LogRecordManager {
     }
 
     static long getNextRecordId(Session session) {
-        return ((Number) session.createNativeQuery("SELECT nextval('logrecord_sequence')").getSingleResult()).longValue();
+        return ID_ALLOCATOR.nextId(session);
+    }
+
+    static long[] getNextRecordIds(Session session, int count) {
+        return ID_ALLOCATOR.nextIds(session, count);
     }
 
     /**
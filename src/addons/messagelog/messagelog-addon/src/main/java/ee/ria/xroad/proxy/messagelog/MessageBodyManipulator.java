@@ -26,6 +26,7 @@
 package ee.ria.xroad.proxy.messagelog;
 
 import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.message.SoapBuilder;
 import ee.ria.xroad.common.message.SoapHeader;
 import ee.ria.xroad.common.message.SoapMessageImpl;
@@ -132,15 +133,25 @@ public class MessageBodyManipulator {
      * @return true if this message's body is logged
      */
     public boolean isBodyLogged(LogMessage message) {
+        return isBodyLogged(message.getService(), message.isClientSide());
+    }
+
+    /**
+     * Tells whether the message body should be logged for messages exchanged with the given service.
+     * @param service the service
+     * @param clientSide whether the message is logged by the client proxy
+     * @return true if the message body is logged
+     */
+    public boolean isBodyLogged(ServiceId service, boolean clientSide) {
 
         Collection<ClientId> overrides;
-        if (message.isClientSide()) {
+        if (clientSide) {
             overrides = configurator.getRemoteProducerOverrides();
         } else {
             overrides = configurator.getLocalProducerOverrides();
         }
 
-        boolean producerSubsystemIsOverridden = isClientInCollection(message.getService().getClientId(), overrides);
+        boolean producerSubsystemIsOverridden = isClientInCollection(service.getClientId(), overrides);
 
         if (configurator.isMessageBodyLoggingEnabled()) {
             return !producerSubsystemIsOverridden;
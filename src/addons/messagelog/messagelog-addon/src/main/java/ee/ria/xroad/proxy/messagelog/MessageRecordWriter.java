@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+import ee.ria.xroad.common.util.ProcessMetrics;
+import ee.ria.xroad.common.util.ThreadUtils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes message records to the database in groups. Callers enqueue records and wait for the result,
+ * a single writer thread drains the queue and commits the collected records in one transaction.
+ * If a group commit fails, the records of the group are retried one by one so that a single bad record
+ * does not fail the whole group. Records with attachments are committed in their own transaction, as
+ * the attachment stream cannot be replayed after a failed group commit.
+ */
+@Slf4j
+class MessageRecordWriter {
+
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private static final String QUEUE_DEPTH = MetricRegistry.name(MessageRecordWriter.class, "queue-depth");
+    private static final String BATCH_SIZE = MetricRegistry.name(MessageRecordWriter.class, "batch-size");
+    private static final String COMMIT_LATENCY = MetricRegistry.name(MessageRecordWriter.class, "commit-latency");
+
+    private final BlockingQueue<PendingRecord> queue;
+    private final int maxBatchSize;
+    private final ExecutorService executor;
+
+    private final Histogram batchSizes;
+    private final Timer commitLatency;
+
+    private volatile boolean running = true;
+
+    MessageRecordWriter(int queueSize, int maxBatchSize) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+
+        MetricRegistry metrics = ProcessMetrics.getMetrics();
+        metrics.remove(QUEUE_DEPTH);
+        metrics.register(QUEUE_DEPTH, (Gauge<Integer>) queue::size);
+        batchSizes = metrics.histogram(BATCH_SIZE);
+        commitLatency = metrics.timer(COMMIT_LATENCY);
+
+        executor = ThreadUtils.newSingleThreadExecutor("messagelog-writer");
+        executor.execute(this::run);
+    }
+
+    /**
+     * Enqueues the message record for writing and waits until it has been committed. Blocks while the queue is
+     * full. If the writer has not taken the record when the timeout elapses, the record is withdrawn and will not
+     * be written. If the writer is already writing it, the result of the write is awaited, as the record and its
+     * attachment stream are still in use.
+     * @param messageRecord the message record
+     * @param timeout the maximum time to wait for the writer to take the record
+     * @param unit the unit of the timeout
+     * @return the committed message record
+     * @throws TimeoutException if the record was withdrawn because the writer did not take it in time
+     * @throws Exception if the record could not be written
+     */
+    MessageRecord write(MessageRecord messageRecord, long timeout, TimeUnit unit) throws Exception {
+        if (!running) {
+            throw new IllegalStateException("Message record writer has been shut down");
+        }
+
+        PendingRecord pending = new PendingRecord(messageRecord);
+        queue.put(pending);
+
+        try {
+            try {
+                return pending.result.get(timeout, unit);
+            } catch (TimeoutException e) {
+                if (pending.claim()) {
+                    TimeoutException timeoutException = new TimeoutException(
+                            "Message record was not written in " + unit.toSeconds(timeout) + " seconds");
+                    timeoutException.initCause(e);
+                    throw timeoutException;
+                }
+
+                log.warn("Message record was not written in {} seconds, waiting for the write in progress",
+                        unit.toSeconds(timeout));
+                return pending.result.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
+    }
+
+    /**
+     * Stops accepting new records and waits until the queued records have been written.
+     */
+    void shutdown() {
+        running = false;
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Message record writer did not finish in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        ProcessMetrics.getMetrics().remove(QUEUE_DEPTH);
+    }
+
+    private void run() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                log.warn("Message record writer interrupted");
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        failRemaining();
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        List<PendingRecord> group = new ArrayList<>(batch.size());
+        List<MessageRecord> records = new ArrayList<>(batch.size());
+
+        for (PendingRecord pending : batch) {
+            if (!pending.claim()) {
+                continue; // withdrawn by the caller after a timeout
+            }
+
+            if (pending.messageRecord.getAttachmentStream() != null) {
+                writeAlone(pending);
+            } else {
+                group.add(pending);
+                records.add(pending.messageRecord);
+            }
+        }
+
+        if (group.isEmpty()) {
+            return;
+        }
+
+        batchSizes.update(group.size());
+
+        try (Timer.Context ignored = commitLatency.time()) {
+            LogRecordManager.saveMessageRecords(records);
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                group.get(0).result.completeExceptionally(e);
+                return;
+            }
+
+            log.warn("Group commit of {} message records failed, retrying one by one", group.size(), e);
+            for (PendingRecord pending : group) {
+                pending.restore();
+                writeAlone(pending);
+            }
+            return;
+        }
+
+        for (PendingRecord pending : group) {
+            pending.result.complete(pending.messageRecord);
+        }
+    }
+
+    private void writeAlone(PendingRecord pending) {
+        try (Timer.Context ignored = commitLatency.time()) {
+            LogRecordManager.saveMessageRecord(pending.messageRecord);
+            pending.result.complete(pending.messageRecord);
+        } catch (Exception e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private void failRemaining() {
+        PendingRecord pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(
+                    new IllegalStateException("Message record writer stopped before record was written"));
+        }
+    }
+
+    private static final class PendingRecord {
+        private final MessageRecord messageRecord;
+        private final String message;
+        private final String keyId;
+        private final CompletableFuture<MessageRecord> result = new CompletableFuture<>();
+        // taken by the writer before writing the record, or by the caller to withdraw the record
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PendingRecord(MessageRecord messageRecord) {
+            this.messageRecord = messageRecord;
+            this.message = messageRecord.getMessage();
+            this.keyId = messageRecord.getKeyId();
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Restores the record to the state it was enqueued in. The failed attempt may have assigned an id and,
+         * with encryption enabled, replaced the message with a ciphertext whose IV is derived from that id.
+         */
+        void restore() {
+            messageRecord.setId(null);
+            messageRecord.setCipherMessage(null);
+            messageRecord.setMessage(message);
+            messageRecord.setKeyId(keyId);
+        }
+    }
+}
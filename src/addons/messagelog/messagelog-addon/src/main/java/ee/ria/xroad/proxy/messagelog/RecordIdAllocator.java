@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out log record ids from blocks reserved from {@code logrecord_sequence}.
+ * <p>
+ * The block size is the increment of the sequence. Each {@code nextval} reserves the ids
+ * {@code [value, value + increment)} for this process only, so blocks never overlap between restarts or between
+ * proxies sharing the database. Ids handed out by one process are strictly increasing.
+ * <p>
+ * Reserving a block is a database round trip, so the allocator is guarded by a {@link ReentrantLock} rather than a
+ * monitor, which would pin a virtual carrier thread for the duration of the query.
+ */
+@Slf4j
+final class RecordIdAllocator {
+
+    private static final String NEXTVAL_QUERY = "SELECT nextval('logrecord_sequence')";
+    private static final String INCREMENT_QUERY = "SELECT increment FROM information_schema.sequences"
+            + " WHERE lower(sequence_name) = 'logrecord_sequence'";
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long blockSize;
+    private long next;
+    private long limit;
+
+    /**
+     * Returns the next record id, reserving a new block from the sequence if the current one is used up.
+     * @param session the Hibernate session.
+     * @return the record id.
+     */
+    long nextId(Session session) {
+        lock.lock();
+        try {
+            return allocate(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the given number of record ids, in ascending order.
+     * @param session the Hibernate session.
+     * @param count the number of ids.
+     * @return the record ids.
+     */
+    long[] nextIds(Session session, int count) {
+        long[] ids = new long[count];
+
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                ids[i] = allocate(session);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+
+    private long allocate(Session session) {
+        if (next >= limit) {
+            reserveBlock(session);
+        }
+        return next++;
+    }
+
+    private void reserveBlock(Session session) {
+        if (blockSize == 0) {
+            blockSize = getSequenceIncrement(session);
+            log.debug("Reserving log record ids in blocks of {}", blockSize);
+        }
+
+        next = ((Number) session.createNativeQuery(NEXTVAL_QUERY).getSingleResult()).longValue();
+        limit = next + blockSize;
+    }
+
+    private static long getSequenceIncrement(Session session) {
+        Object increment = session.createNativeQuery(INCREMENT_QUERY)
+                .setMaxResults(1)
+                .uniqueResult();
+
+        if (increment == null) {
+            log.warn("Could not determine increment of logrecord_sequence, reserving ids one at a time");
+            return 1;
+        }
+
+        return Math.max(Long.parseLong(increment.toString().trim()), 1);
+    }
+}
@@ -26,33 +26,77 @@
 package ee.ria.xroad.proxy.messagelog;
 
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.util.ProcessMetrics;
 import ee.ria.xroad.proxy.messagelog.Timestamper.TimestampFailed;
 import ee.ria.xroad.proxy.messagelog.Timestamper.TimestampSucceeded;
 import ee.ria.xroad.proxy.messagelog.Timestamper.TimestampTask;
 
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.Session;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
 
 /**
  * Handles the TaskQueues -- adds tasks to the queue and sends the active queue for time-stamping.
+ *
+ * The queue consists of the message records that do not have a time-stamp yet. While a backlog is being
+ * time-stamped, consecutive rounds continue after the highest record id already handed to the time-stamper
+ * instead of scanning the table from the beginning. The cursor is reset when a round fails or reaches the end
+ * of the queue, so that records committed out of id order (or records of a failed round) are picked up by the
+ * next round.
  */
 @Slf4j
-@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
 public class TaskQueue {
 
     static final double TIMESTAMPED_RECORDS_RATIO_THRESHOLD = 0.7;
     static final int TIMESTAMP_RECORDS_LIMIT_RETRY_MODE = 1;
 
+    private static final String PENDING = MetricRegistry.name(TaskQueue.class, "pending");
+
+    private static final long UNKNOWN = -1;
+
     private final Timestamper timestamper;
     private final LogManager logManager;
 
+    // highest message record id handed to the time-stamper in the current run over the queue, 0 when starting over
+    private final AtomicLong lastHandedId = new AtomicLong();
+
+    // number of message records waiting for a time-stamp, UNKNOWN until counted by a round reaching the queue end
+    private final AtomicLong pending = new AtomicLong(UNKNOWN);
+
+    TaskQueue(Timestamper timestamper, LogManager logManager) {
+        this.timestamper = timestamper;
+        this.logManager = logManager;
+
+        MetricRegistry metrics = ProcessMetrics.getMetrics();
+        metrics.remove(PENDING);
+        metrics.register(PENDING, (Gauge<Long>) pending::get);
+    }
+
+    /**
+     * Registers message records that were saved without a time-stamp.
+     *
+     * @param count number of saved message records
+     */
+    void messageRecordsSaved(int count) {
+        pending.updateAndGet(value -> value == UNKNOWN ? UNKNOWN : value + count);
+    }
+
+    /**
+     * Registers message records that got a time-stamp.
+     *
+     * @param count number of time-stamped message records
+     */
+    void messageRecordsTimestamped(int count) {
+        pending.updateAndGet(value -> value == UNKNOWN ? UNKNOWN : Math.max(0, value - count));
+    }
+
     protected void handleTimestampSucceeded(TimestampSucceeded message) {
         log.trace("handleTimestampSucceeded");
 
@@ -65,6 +109,7 @@ public class TaskQueue {
 
         try {
             saveTimestampRecord(message);
+            messageRecordsTimestamped(message.getMessageRecords().length);
         } catch (Exception e) {
             log.error("Failed to save time-stamp record to database", e);
 
@@ -97,6 +142,9 @@ public class TaskQueue {
      * @param cause possible exception that caused the failure. Used for diagnostics error code.
      */
     private void indicateFailure(Exception cause) {
+        // the records handed to the time-stamper are still in the queue, start over from the lowest one
+        lastHandedId.set(0);
+
         // If the timestamping task queue is currently empty, it means some previous timestamping task was successful
         // already. In that case do not indicate failure to the LogManager, otherwise the message logging may block
         // (in non-timestamp-immediately mode) in case further no more messages are logged until the acceptable
@@ -136,15 +184,30 @@ public class TaskQueue {
 
     private void handleStartTimestamping(int timestampRecordsLimit) {
         List<Task> timestampTasks;
+        final long afterId = lastHandedId.get();
+        // records saved or time-stamped while the queue is read are counted on top of what the query returns
+        final long pendingBefore = pending.get();
 
         try {
-            timestampTasks = doInTransaction(session -> getTimestampTasks(session, timestampRecordsLimit));
+            timestampTasks = doInTransaction(session -> getTimestampTasks(session, afterId, timestampRecordsLimit));
         } catch (Exception e) {
             log.error("Error getting time-stamp tasks", e);
 
             return;
         }
 
+        if (timestampTasks.size() < timestampRecordsLimit) {
+            // reached the end of the queue, the next round starts over to pick up records committed out of order
+            lastHandedId.set(0);
+            if (afterId == 0) {
+                // a full scan that reached the end has seen the whole queue, resynchronize the pending count
+                resyncPending(pendingBefore, timestampTasks.size());
+            }
+        } else {
+            final long lastId = timestampTasks.get(timestampTasks.size() - 1).getMessageRecordNo();
+            lastHandedId.accumulateAndGet(lastId, Math::max);
+        }
+
         if (timestampTasks.isEmpty()) {
             log.trace("Nothing to time-stamp, task queue is empty");
             indicateSuccess();
@@ -171,6 +234,16 @@ public class TaskQueue {
 
     }
 
+    private void resyncPending(long pendingBefore, int queued) {
+        if (pendingBefore == UNKNOWN) {
+            pending.compareAndSet(UNKNOWN, queued);
+        } else {
+            // apply the difference instead of overwriting, so that concurrent updates since the snapshot are kept
+            final long correction = queued - pendingBefore;
+            pending.updateAndGet(value -> Math.max(0, value + correction));
+        }
+    }
+
     private TimestampTask createTimestampTask(List<Task> timestampTasks) {
         Long[] messageRecords = new Long[timestampTasks.size()];
         String[] signatureHashes = new String[timestampTasks.size()];
@@ -183,6 +256,7 @@ public class TaskQueue {
         return new TimestampTask(messageRecords, signatureHashes);
     }
 
+    // the pending count only covers the records of this process, the decision is made on the database
     private static boolean isTaskQueueEmpty() {
         try {
             return doInTransaction(TaskQueue::getTasksQueueSize) == 0L;
@@ -194,8 +268,11 @@ public class TaskQueue {
     }
 
     @SuppressWarnings("unchecked")
-    private List<Task> getTimestampTasks(Session session, int timestampRecordsLimit) {
-        return session.createQuery(getTaskQueueQuery()).setMaxResults(timestampRecordsLimit).list();
+    private List<Task> getTimestampTasks(Session session, long afterId, int timestampRecordsLimit) {
+        return session.createQuery(getTaskQueueKeysetQuery())
+                .setParameter("afterId", afterId)
+                .setMaxResults(timestampRecordsLimit)
+                .list();
     }
 
     private static Long getTasksQueueSize(Session session) {
@@ -207,6 +284,11 @@ public class TaskQueue {
                 + "from MessageRecord m where m.timestampRecord is null order by m.id";
     }
 
+    private static String getTaskQueueKeysetQuery() {
+        return "select new " + Task.class.getName() + "(m.id, m.signatureHash) "
+                + "from MessageRecord m where m.timestampRecord is null and m.id > :afterId order by m.id";
+    }
+
     private static String getTaskQueueSizeQuery() {
         return "select COUNT(*) from MessageRecord m where m.timestampRecord is null";
     }
@@ -439,6 +439,39 @@ public class MessageLogTest extends AbstractMessageLogTest {
         assertNull(findByQueryId("foo", "02-04-2014 12:34:56.100", "02-04-2014 12:34:59.100"));
     }
 
+    /**
+     * Logs messages through the group-commit writer and expects them to be saved.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void logWithGroupCommit() throws Exception {
+        log.trace("logWithGroupCommit()");
+
+        System.setProperty(MessageLogProperties.GROUP_COMMIT_ENABLED, "true");
+        try {
+            // recreate log manager with group commit enabled
+            testTearDown();
+            testSetUp();
+            initLogManager();
+
+            log("02-04-2014 12:34:56.100", createMessage("message1"));
+            log("02-04-2014 12:34:57.100", createMessage("message2"));
+            log("02-04-2014 12:34:58.100", createMessage("message3"));
+
+            assertTaskQueueSize(3);
+
+            assertMessageRecord(findByQueryId("message1", "02-04-2014 12:34:50.100", "02-04-2014 12:34:59.100"),
+                    "message1");
+            assertMessageRecord(findByQueryId("message2", "02-04-2014 12:34:50.100", "02-04-2014 12:34:59.100"),
+                    "message2");
+            assertMessageRecord(findByQueryId("message3", "02-04-2014 12:34:50.100", "02-04-2014 12:34:59.100"),
+                    "message3");
+        } finally {
+            System.clearProperty(MessageLogProperties.GROUP_COMMIT_ENABLED);
+        }
+    }
+
     /**
      * Wants to time-stamp, but no TSP urls configured.
      *
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.message.SoapMessageImpl;
+import ee.ria.xroad.common.messagelog.AbstractLogManager;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+import ee.ria.xroad.common.util.ProcessMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ee.ria.xroad.proxy.messagelog.TestUtil.createMessage;
+import static ee.ria.xroad.proxy.messagelog.TestUtil.createSignature;
+
+/**
+ * Time-stamping task queue performance test program. Fills the message log with records waiting for a
+ * time-stamp and measures how fast the task queue hands them to the (dummy) time-stamper.
+ *
+ * Usage: TimestampQueuePerformanceTest [number of records, 10 000 000 by default]
+ */
+@Slf4j
+public class TimestampQueuePerformanceTest extends AbstractMessageLogTest {
+
+    private static final long DEFAULT_NUM_RECORDS = 10_000_000;
+
+    // number of records saved in one transaction while filling the queue
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    /**
+     * Main program access point.
+     *
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        long numRecords = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_NUM_RECORDS;
+
+        log.info("Starting time-stamping task queue performance test with {} records...", numRecords);
+
+        new TimestampQueuePerformanceTest().run(numRecords);
+    }
+
+    void run(long numRecords) throws Exception {
+        TestUtil.initForTest();
+        TestUtil.cleanUpDatabase();
+        testSetUp();
+        initLogManager();
+
+        try {
+            fillTaskQueue(numRecords);
+            timestamp(numRecords);
+        } finally {
+            testTearDown();
+        }
+    }
+
+    @Override
+    protected Class<? extends AbstractLogManager> getLogManagerImpl() {
+        return TestLogManager.class;
+    }
+
+    private void fillTaskQueue(long numRecords) throws Exception {
+        final SoapMessageImpl message = createMessage();
+        final String signature = createSignature().getSignatureXml();
+        final String signatureHash = LogManager.signatureHash(signature);
+
+        final long start = System.currentTimeMillis();
+        final List<MessageRecord> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+
+        for (long i = 0; i < numRecords; i++) {
+            MessageRecord messageRecord = new MessageRecord(message, signature, message.getClient(), null);
+            messageRecord.setTime(System.currentTimeMillis());
+            messageRecord.setSignatureHash(signatureHash);
+            batch.add(messageRecord);
+
+            if (batch.size() == INSERT_BATCH_SIZE || i == numRecords - 1) {
+                LogRecordManager.saveMessageRecords(batch);
+                batch.clear();
+            }
+        }
+
+        log.info("Saved {} message records in {} ms", numRecords, System.currentTimeMillis() - start);
+    }
+
+    private void timestamp(long numRecords) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        // consecutive rounds are started by the task queue itself for as long as the rounds are full
+        logManager.taskQueue.handleStartTimestamping();
+
+        final long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Time-stamped {} message records in {} ms ({} records/s), pending {}",
+                numRecords, elapsed, numRecords * 1000 / elapsed,
+                ProcessMetrics.getMetrics().getGauges().get(TaskQueue.class.getName() + ".pending").getValue());
+
+        TestUtil.assertTaskQueueSize(0);
+    }
+}
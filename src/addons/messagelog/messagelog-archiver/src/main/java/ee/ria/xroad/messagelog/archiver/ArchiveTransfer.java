@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.messagelog.archiver;
+
+import ee.ria.xroad.common.util.ThreadUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Runs the archive transfer shell command in a background thread so that archiving does not wait for it.
+ * The command transfers all archive files in the archive directory, so requests made while a transfer is
+ * already waiting to be run are coalesced into one.
+ */
+@Slf4j
+final class ArchiveTransfer {
+
+    private final ExecutorService executor = ThreadUtils.newSingleThreadExecutor("messagelog-archive-transfer");
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /**
+     * Requests the transfer command to be run.
+     *
+     * @param transferCommand the shell command, nothing is done if blank
+     */
+    void request(String transferCommand) {
+        if (isBlank(transferCommand) || !pending.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            // archives created while the command is running need another transfer
+            pending.set(false);
+            runTransferCommand(transferCommand);
+        });
+    }
+
+    /**
+     * Stops accepting new transfer requests. An already requested transfer is still run.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static void runTransferCommand(String transferCommand) {
+        log.info("Transferring archives with shell command: \t{}", transferCommand);
+        Process process = null;
+        try {
+            String[] command = new String[]{"/bin/bash", "-c", transferCommand};
+            String standardError = null;
+
+            process = new ProcessBuilder(command).redirectOutput(Paths.get("/dev/null").toFile()).start();
+
+            try (InputStream error = process.getErrorStream()) {
+                standardError = IOUtils.toString(error, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                // We can ignore it.
+                log.error("Could not read standard error", e);
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                String errorMsg = String.format("Running archive transfer command '%s' exited with status '%d'",
+                        transferCommand, exitCode);
+                log.error(
+                        "{}\n -- STANDARD ERROR START\n{}\n"
+                                + " -- STANDARD ERROR END",
+                        errorMsg,
+                        standardError);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while executing transfer command '{}'", transferCommand, e);
+        } catch (Exception e) {
+            log.error("Failed to execute archive transfer command '{}'", transferCommand, e);
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
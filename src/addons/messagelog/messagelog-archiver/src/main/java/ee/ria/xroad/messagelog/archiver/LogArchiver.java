@@ -32,120 +32,213 @@ import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.common.messagelog.archive.ArchiveDigest;
 import ee.ria.xroad.common.messagelog.archive.DigestEntry;
+import ee.ria.xroad.common.messagelog.archive.Grouping;
+import ee.ria.xroad.common.messagelog.archive.GroupingStrategy;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveBase;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveWriter;
+import ee.ria.xroad.common.util.ProcessMetrics;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.messagelog.database.MessageRecordEncryption;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
 import org.hibernate.Session;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveTransactionBatchSize;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveTransferCommand;
+import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveWorkers;
 import static ee.ria.xroad.messagelog.database.MessageLogDatabaseCtx.doInTransaction;
-import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
  * Reads all non-archived time-stamped records from the database, writes them
  * to archive file and marks the records as archived.
+ *
+ * The records are archived per archive group (see {@link GroupingStrategy}), the groups are archived in
+ * parallel by a pool of workers. Each group has its own archive digest chain and is archived in its own
+ * transactions, so the groups do not depend on each other.
  */
 @Slf4j
 public class LogArchiver implements Job {
 
     private static final String PROPERTY_NAME_ARCHIVED = "archived";
+    private static final String PROPERTY_NAME_MEMBER_CLASS = "memberClass";
+    private static final String PROPERTY_NAME_MEMBER_CODE = "memberCode";
+    private static final String PROPERTY_NAME_SUBSYSTEM_CODE = "subsystemCode";
+
+    private static final String METRICS_PREFIX = "LogArchiver";
+    private static final String DEFAULT_GROUP_METRICS_NAME = "default";
 
     public static final int FETCH_SIZE = 10;
 
+    private static final ArchiveTransfer ARCHIVE_TRANSFER = new ArchiveTransfer();
+
+    // backlog gauges of the groups with pending records, the values are refreshed on every archiving run
+    private static final Map<String, AtomicLong> BACKLOG = new ConcurrentHashMap<>();
+
     private final Path archivePath = Paths.get(MessageLogProperties.getArchivePath());
+    private final GroupingStrategy groupingStrategy = MessageLogProperties.getArchiveGrouping();
 
     @Override
     public void execute(JobExecutionContext context) {
         try {
             Long maxRecordId = doInTransaction(this::getMaxRecordId);
             if (maxRecordId != null) {
-                while (handleArchive(maxRecordId)) {
-                    // body intentionally empty
-                }
+                archive(maxRecordId);
             }
             onArchivingDone();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while archiving log records", ex);
         } catch (Exception ex) {
             log.error("Failed to archive log records", ex);
         }
     }
 
+    /**
+     * Stops the background transfer of archive files.
+     */
+    public static void shutdown() {
+        ARCHIVE_TRANSFER.shutdown();
+    }
+
     private void markArchived(Session session, List<Long> recordIds) {
         session.createQuery("UPDATE AbstractLogRecord r SET r.archived = true WHERE r.id in (?1)")
                 .setParameter(1, recordIds)
                 .executeUpdate();
     }
 
-    private boolean handleArchive(long maxRecordId) throws Exception {
-        return doInTransaction(session -> {
-            final int limit = getArchiveTransactionBatchSize();
-            final String archiveTransferCommand = getArchiveTransferCommand();
-            final long start = System.currentTimeMillis();
-            final MessageRecordEncryption messageRecordEncryption = MessageRecordEncryption.getInstance();
-
-            int recordsArchived = 0;
-            log.info("Archiving log records...");
-
-            try (LogArchiveWriter archiveWriter = createLogArchiveWriter(session)) {
-                List<Long> recordIds = new ArrayList<>(100);
-                try (Stream<MessageRecord> records = getNonArchivedMessageRecords(session, maxRecordId, limit)) {
-                    for (Iterator<MessageRecord> it = records.iterator(); it.hasNext(); ) {
-                        MessageRecord messageRecord = it.next();
-                        recordIds.add(messageRecord.getId());
-                        messageRecordEncryption.prepareDecryption(messageRecord);
-                        if (archiveWriter.write(messageRecord)) {
-                            runTransferCommand(archiveTransferCommand);
-                        }
-                        //evict record from persistence context to avoid running out of memory
-                        session.detach(messageRecord);
-                        recordsArchived++;
-
-                        if (recordsArchived % 100 == 0) {
-                            markArchived(session, recordIds);
-                            recordIds.clear();
-                        }
+    private void archive(long maxRecordId) throws Exception {
+        final Map<String, ArchiveGroup> groups = doInTransaction(session -> getArchiveGroups(session, maxRecordId));
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        final int workers = Math.min(getArchiveWorkers(), groups.size());
+        final long start = System.currentTimeMillis();
+        log.info("Archiving log records of {} archive group(s) using {} worker(s)...", groups.size(), workers);
+
+        final ExecutorService executor = ThreadUtils.newFixedThreadPool(workers, "messagelog-archiver");
+        int recordsArchived = 0;
+        Exception failure = null;
+        try {
+            final List<Future<Integer>> results = new ArrayList<>(groups.size());
+            for (ArchiveGroup group : groups.values()) {
+                results.add(executor.submit(() -> archiveGroup(group, maxRecordId)));
+            }
+
+            for (Future<Integer> result : results) {
+                try {
+                    recordsArchived += result.get();
+                } catch (ExecutionException e) {
+                    // the other groups are independent, let them finish
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception cause ? cause : e;
                     }
                 }
-                if (recordsArchived > 0) {
-                    if (recordIds.size() > 0) {
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (recordsArchived > 0) {
+            doInTransaction(this::markTimestampRecordsArchived);
+            log.info("Archived {} log records in {} ms", recordsArchived, System.currentTimeMillis() - start);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int archiveGroup(ArchiveGroup group, long maxRecordId) throws Exception {
+        final int limit = getArchiveTransactionBatchSize();
+        int recordsArchived = 0;
+        int batch;
+        try {
+            do {
+                batch = doInTransaction(session -> handleArchive(session, group, maxRecordId, limit));
+                group.archived(batch);
+                recordsArchived += batch;
+                //try to continue if the batch was full (there might be more)
+            } while (batch == limit);
+        } catch (Exception e) {
+            log.error("Failed to archive log records of archive group {}", group, e);
+            throw e;
+        }
+        return recordsArchived;
+    }
+
+    private int handleArchive(Session session, ArchiveGroup group, long maxRecordId, int limit) {
+        final String archiveTransferCommand = getArchiveTransferCommand();
+        final long start = System.currentTimeMillis();
+        final MessageRecordEncryption messageRecordEncryption = MessageRecordEncryption.getInstance();
+
+        int recordsArchived = 0;
+        log.info("Archiving log records of archive group {}...", group);
+
+        try (LogArchiveWriter archiveWriter = createLogArchiveWriter(session)) {
+            List<Long> recordIds = new ArrayList<>(100);
+            try (Stream<MessageRecord> records = getNonArchivedMessageRecords(session, group, maxRecordId, limit)) {
+                for (Iterator<MessageRecord> it = records.iterator(); it.hasNext(); ) {
+                    MessageRecord messageRecord = it.next();
+                    recordIds.add(messageRecord.getId());
+                    messageRecordEncryption.prepareDecryption(messageRecord);
+                    if (archiveWriter.write(messageRecord)) {
+                        ARCHIVE_TRANSFER.request(archiveTransferCommand);
+                    }
+                    //evict record from persistence context to avoid running out of memory
+                    session.detach(messageRecord);
+                    recordsArchived++;
+
+                    if (recordsArchived % 100 == 0) {
                         markArchived(session, recordIds);
                         recordIds.clear();
                     }
-                    markTimestampRecordsArchived(session);
-                }
-                session.flush();
-            } catch (Exception e) {
-                throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, e);
-            } finally {
-                if (recordsArchived > 0) {
-                    runTransferCommand(archiveTransferCommand);
-                    log.info("Archived {} log records in {} ms", recordsArchived, System.currentTimeMillis() - start);
                 }
             }
-            //try to continue if the batch was full (there might be more)
-            return recordsArchived == limit;
-        });
+            if (!recordIds.isEmpty()) {
+                markArchived(session, recordIds);
+                recordIds.clear();
+            }
+            session.flush();
+        } catch (Exception e) {
+            throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, e);
+        } finally {
+            if (recordsArchived > 0) {
+                ARCHIVE_TRANSFER.request(archiveTransferCommand);
+                log.info("Archived {} log records of archive group {} in {} ms", recordsArchived, group,
+                        System.currentTimeMillis() - start);
+            }
+        }
+        return recordsArchived;
     }
 
     private LogArchiveWriter createLogArchiveWriter(Session session) throws IOException {
@@ -189,22 +282,79 @@ public class LogArchiver implements Job {
         return session.createQuery(query).uniqueResult();
     }
 
-    protected Stream<MessageRecord> getNonArchivedMessageRecords(Session session, Long maxId, int limit) {
+    /**
+     * Finds the archive groups that have non-archived time-stamped records and counts the records of each group.
+     */
+    protected Map<String, ArchiveGroup> getArchiveGroups(Session session, long maxId) {
+        final List<Object[]> rows = session
+                .createQuery(""
+                        + "SELECT m.memberClass, m.memberCode, m.subsystemCode, count(m.id) FROM MessageRecord m "
+                        + "WHERE m.timestampRecord IS NOT NULL AND m.archived = false AND m.id <= :maxId "
+                        + "GROUP BY m.memberClass, m.memberCode, m.subsystemCode", Object[].class)
+                .setParameter("maxId", maxId)
+                .list();
+
+        BACKLOG.values().forEach(backlog -> backlog.set(0));
+
+        final Map<String, ArchiveGroup> groups = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            final String memberClass = (String) row[0];
+            final String memberCode = (String) row[1];
+            final String subsystemCode = (String) row[2];
+            final Grouping grouping = groupingStrategy.forMember(memberClass, memberCode, subsystemCode);
+
+            groups.computeIfAbsent(grouping.name(),
+                            name -> new ArchiveGroup(name, memberClass, memberCode, subsystemCode))
+                    .addBacklog(((Number) row[3]).longValue());
+        }
+
+        removeStaleGroupMetrics(groups);
+        return groups;
+    }
+
+    // groups without pending records drop their metrics, so that the registry does not keep a gauge
+    // for every group that has ever been archived
+    private static void removeStaleGroupMetrics(Map<String, ArchiveGroup> groups) {
+        final Set<String> active = groups.values().stream()
+                .map(ArchiveGroup::toString)
+                .collect(Collectors.toSet());
+        final MetricRegistry metrics = ProcessMetrics.getMetrics();
+
+        BACKLOG.keySet().removeIf(key -> {
+            if (active.contains(key)) {
+                return false;
+            }
+            metrics.remove(MetricRegistry.name(METRICS_PREFIX, key, "backlog"));
+            metrics.remove(MetricRegistry.name(METRICS_PREFIX, key, "records"));
+            return true;
+        });
+    }
+
+    protected Stream<MessageRecord> getNonArchivedMessageRecords(Session session, ArchiveGroup group, Long maxId,
+            int limit) {
         final CriteriaBuilder cb = session.getCriteriaBuilder();
         final CriteriaQuery<MessageRecord> query = cb.createQuery(MessageRecord.class);
         final Root<MessageRecord> m = query.from(MessageRecord.class);
 
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isNotNull(m.get("timestampRecord")));
+        predicates.add(cb.isFalse(m.get(PROPERTY_NAME_ARCHIVED)));
+        predicates.add(cb.lessThanOrEqualTo(m.get("id"), maxId));
+
+        if (groupingStrategy != GroupingStrategy.NONE) {
+            predicates.add(cb.equal(m.get(PROPERTY_NAME_MEMBER_CLASS), group.memberClass));
+            predicates.add(cb.equal(m.get(PROPERTY_NAME_MEMBER_CODE), group.memberCode));
+        }
+        if (groupingStrategy == GroupingStrategy.SUBSYSTEM) {
+            predicates.add(group.subsystemCode == null
+                    ? cb.isNull(m.get(PROPERTY_NAME_SUBSYSTEM_CODE))
+                    : cb.equal(m.get(PROPERTY_NAME_SUBSYSTEM_CODE), group.subsystemCode));
+        }
+
         query.select(m)
-                .where(cb.and(
-                        cb.isNotNull(m.get("timestampRecord")),
-                        cb.isFalse(m.get(PROPERTY_NAME_ARCHIVED)),
-                        cb.lessThanOrEqualTo(m.get("id"), maxId)))
-                .orderBy(
-                        // order is important for archive grouping
-                        cb.asc(m.get("memberClass")),
-                        cb.asc(m.get("memberCode")),
-                        cb.asc(m.get("subsystemCode")),
-                        cb.asc(m.get("id")));
+                .where(predicates.toArray(new Predicate[0]))
+                // the archive digest chain of a group follows the record order
+                .orderBy(cb.asc(m.get("id")));
 
         return session
                 .createQuery(query)
@@ -220,45 +370,50 @@ public class LogArchiver implements Job {
         //hook for testing
     }
 
-    private static void runTransferCommand(String transferCommand) {
-        if (isBlank(transferCommand)) {
-            return;
+    /**
+     * Records of one archive group together with the group's progress metrics: archived records per second
+     * ("LogArchiver.&lt;group&gt;.records") and the number of records still waiting for archiving
+     * ("LogArchiver.&lt;group&gt;.backlog").
+     */
+    protected static final class ArchiveGroup {
+        private final String name;
+        private final String memberClass;
+        private final String memberCode;
+        private final String subsystemCode;
+
+        private final AtomicLong backlog;
+        private final Meter records;
+
+        ArchiveGroup(String name, String memberClass, String memberCode, String subsystemCode) {
+            this.name = name;
+            this.memberClass = memberClass;
+            this.memberCode = memberCode;
+            this.subsystemCode = subsystemCode;
+
+            final String metricsName = name == null ? DEFAULT_GROUP_METRICS_NAME : name;
+            final MetricRegistry metrics = ProcessMetrics.getMetrics();
+            this.backlog = BACKLOG.computeIfAbsent(metricsName, key -> {
+                AtomicLong value = new AtomicLong();
+                metrics.register(MetricRegistry.name(METRICS_PREFIX, key, "backlog"), (Gauge<Long>) value::get);
+                return value;
+            });
+            this.records = metrics.meter(MetricRegistry.name(METRICS_PREFIX, metricsName, "records"));
         }
 
-        log.info("Transferring archives with shell command: \t{}", transferCommand);
-        Process process = null;
-        try {
-            String[] command = new String[]{"/bin/bash", "-c", transferCommand};
-            String standardError = null;
-
-            process = new ProcessBuilder(command).redirectOutput(Paths.get("/dev/null").toFile()).start();
+        void addBacklog(long count) {
+            backlog.addAndGet(count);
+        }
 
-            try (InputStream error = process.getErrorStream()) {
-                standardError = IOUtils.toString(error, StandardCharsets.UTF_8);
-            } catch (IOException e) {
-                // We can ignore it.
-                log.error("Could not read standard error", e);
+        void archived(int count) {
+            if (count > 0) {
+                records.mark(count);
+                backlog.updateAndGet(value -> Math.max(0, value - count));
             }
+        }
 
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                String errorMsg = String.format("Running archive transfer command '%s' exited with status '%d'",
-                        transferCommand, exitCode);
-                log.error(
-                        "{}\n -- STANDARD ERROR START\n{}\n"
-                                + " -- STANDARD ERROR END",
-                        errorMsg,
-                        standardError);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while executing transfer command '{}'", transferCommand, e);
-        } catch (Exception e) {
-            log.error("Failed to execute archive transfer command '{}'", transferCommand, e);
-        } finally {
-            if (process != null && process.isAlive()) {
-                process.destroyForcibly();
-            }
+        @Override
+        public String toString() {
+            return name == null ? DEFAULT_GROUP_METRICS_NAME : name;
         }
     }
 
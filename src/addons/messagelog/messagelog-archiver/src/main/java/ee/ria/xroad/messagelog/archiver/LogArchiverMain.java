@@ -30,7 +30,9 @@ import ee.ria.xroad.common.SystemPropertiesLoader;
 import ee.ria.xroad.common.Version;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.util.JobManager;
+import ee.ria.xroad.common.util.ProcessMetrics;
 
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.JobDataMap;
 
@@ -41,6 +43,7 @@ import static ee.ria.xroad.common.SystemProperties.CONF_FILE_NODE;
 public final class LogArchiverMain {
 
     private static JobManager jobManager;
+    private static JmxReporter metricsReporter;
 
     private LogArchiverMain() {
     }
@@ -55,6 +58,11 @@ public final class LogArchiverMain {
                     .withLocalOptional(CONF_FILE_NODE)
                     .load();
 
+            metricsReporter = JmxReporter.forRegistry(ProcessMetrics.getMetrics())
+                    .inDomain("xroad.messagelog-archiver")
+                    .build();
+            metricsReporter.start();
+
             jobManager = new JobManager();
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -67,6 +75,11 @@ public final class LogArchiverMain {
                 } catch (Exception e) {
                     log.warn("JobManager failed to stop", e);
                 }
+                LogArchiver.shutdown();
+                if (metricsReporter != null) {
+                    metricsReporter.stop();
+                    metricsReporter = null;
+                }
             }));
 
             jobManager.registerJob(LogArchiver.class, "ArchiverJob", MessageLogProperties.getArchiveInterval(),
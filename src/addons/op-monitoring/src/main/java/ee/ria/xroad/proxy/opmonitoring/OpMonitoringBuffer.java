@@ -28,34 +28,52 @@ package ee.ria.xroad.proxy.opmonitoring;
 import ee.ria.xroad.common.opmonitoring.AbstractOpMonitoringBuffer;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
+import ee.ria.xroad.common.util.ProcessMetrics;
+import ee.ria.xroad.common.util.ThreadUtils;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Operational monitoring buffer. This buffer is used for gathering
  * operational data and for periodically sending the data to the operational
  * monitoring daemon (using OpMonitoringDaemonSender).
+ * <p>
+ * Records are stored in a preallocated lock-free ring that drops the oldest record on overflow. A single drainer
+ * thread collects the records into messages of up to max-records-in-message records, waiting at most
+ * max-linger-millis for a message to fill up.
  */
 @Slf4j
 public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
+    private static final String BUFFER_SIZE_METRIC = MetricRegistry.name(OpMonitoringBuffer.class, "size");
+    private static final String DROPPED_METRIC = MetricRegistry.name(OpMonitoringBuffer.class, "dropped");
+
+    private static final int DROP_LOG_INTERVAL = 1000;
+
     private final int maxBufferSize = OpMonitoringSystemProperties.getOpMonitorBufferSize();
     private final int maxRecordsInMessage = OpMonitoringSystemProperties.getOpMonitorBufferMaxRecordsInMessage();
+    private final long maxLingerNanos =
+            TimeUnit.MILLISECONDS.toNanos(OpMonitoringSystemProperties.getOpMonitorBufferMaxLingerMillis());
+    private final long sendingIntervalNanos =
+            TimeUnit.SECONDS.toNanos(OpMonitoringSystemProperties.getOpMonitorBufferSendingIntervalSeconds());
 
     private final ExecutorService executorService;
-    private final ScheduledExecutorService taskScheduler;
     private final OpMonitoringDataProcessor opMonitoringDataProcessor;
     private final OpMonitoringDaemonSender sender;
 
-    final BlockingDeque<OpMonitoringData> buffer = new LinkedBlockingDeque<>();
+    final OpMonitoringRingBuffer<OpMonitoringData> buffer;
+
+    private volatile boolean running = true;
+    private volatile Thread drainerThread;
+    private volatile List<OpMonitoringData> failedData;
+    private volatile long retryAt;
 
     /**
      * Constructor.
@@ -68,13 +86,16 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
 
             sender = null;
             executorService = null;
-            taskScheduler = null;
             opMonitoringDataProcessor = null;
+            buffer = null;
         } else {
+            buffer = new OpMonitoringRingBuffer<>(maxBufferSize);
             sender = createSender();
-            executorService = Executors.newSingleThreadExecutor();
-            taskScheduler = Executors.newSingleThreadScheduledExecutor();
             opMonitoringDataProcessor = createDataProcessor();
+            registerMetrics();
+
+            executorService = ThreadUtils.newSingleThreadExecutor("op-monitoring-buffer");
+            executorService.execute(this::drain);
         }
     }
 
@@ -91,88 +112,131 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         if (ignoreOpMonitoringData()) {
             return;
         }
-        executorService.execute(() -> {
+
+        if (buffer.add(data)) {
+            long dropped = buffer.getDroppedCount();
+            if (dropped % DROP_LOG_INTERVAL == 1) {
+                log.warn("Operational monitoring buffer overflow (limit: {}), removing oldest record. "
+                        + "Records dropped so far: {}", maxBufferSize, dropped);
+            }
+        }
+
+        if (maxLingerNanos == 0 || buffer.size() >= maxRecordsInMessage) {
+            wakeUpDrainer();
+        }
+    }
+
+    private void drain() {
+        drainerThread = Thread.currentThread();
+        long firstSeen = 0;
+
+        while (running) {
             try {
-                data.setSecurityServerInternalIp(opMonitoringDataProcessor.getIpAddress());
-
-                buffer.addLast(data);
-                if (buffer.size() > maxBufferSize) {
-                    synchronized (buffer) {
-                        if (buffer.size() > maxBufferSize) {
-                            buffer.removeFirst();
-                            log.warn("Operational monitoring buffer overflow (limit: {}), removing oldest record. Current size: {}",
-                                    maxBufferSize, buffer.size());
-                        }
+                if (!sender.isReady()) {
+                    LockSupport.parkNanos(this, sendingIntervalNanos);
+                    continue;
+                }
+
+                if (failedData != null) {
+                    long waitNanos = retryAt - System.nanoTime();
+                    if (waitNanos > 0) {
+                        LockSupport.parkNanos(this, waitNanos);
+                        continue;
+                    }
+
+                    List<OpMonitoringData> retry = failedData;
+                    failedData = null;
+                    sender.sendMessage(retry);
+                    continue;
+                }
+
+                if (buffer.isEmpty()) {
+                    firstSeen = 0;
+                    LockSupport.parkNanos(this, sendingIntervalNanos);
+                    continue;
+                }
+
+                if (buffer.size() < maxRecordsInMessage && maxLingerNanos > 0) {
+                    long now = System.nanoTime();
+                    if (firstSeen == 0) {
+                        firstSeen = now;
+                    }
+
+                    long waitNanos = firstSeen + maxLingerNanos - now;
+                    if (waitNanos > 0) {
+                        LockSupport.parkNanos(this, waitNanos);
+                        continue;
                     }
                 }
+
+                firstSeen = 0;
                 sendInternal();
             } catch (Exception e) {
                 log.error("Failed to process OpMonitoringData..", e);
             }
-        });
-    }
-
-    private void send() {
-        executorService.execute(() -> {
-            try {
-                this.sendInternal();
-            } catch (Exception e) {
-                log.error("Failed to send message", e);
-            }
-        });
+        }
     }
 
     private void sendInternal() {
-        if (!canSend()) {
+        final List<OpMonitoringData> dataToProcess = new ArrayList<>(maxRecordsInMessage);
+
+        // the size counts records that are still being added, so the buffer may yield fewer records or none
+        if (buffer.drainTo(dataToProcess, maxRecordsInMessage) == 0) {
             return;
         }
 
-        final List<OpMonitoringData> dataToProcess = new ArrayList<>();
-
-        buffer.drainTo(dataToProcess, maxRecordsInMessage);
         if (log.isDebugEnabled()) {
             log.debug("Op monitoring remaining buffer records count {}", buffer.size());
         }
 
+        String ipAddress = opMonitoringDataProcessor.getIpAddress();
+        dataToProcess.forEach(data -> data.setSecurityServerInternalIp(ipAddress));
+
         sender.sendMessage(dataToProcess);
     }
 
-    private boolean canSend() {
-        return !buffer.isEmpty() && sender.isReady();
+    private void wakeUpDrainer() {
+        Thread thread = drainerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
     }
 
     void sendingSuccess(int count) {
         log.trace("Sent {} messages from buffer", count);
 
-        if (canSend()) {
-            send();
-        }
+        wakeUpDrainer();
+    }
+
+    void sendingFailure(List<OpMonitoringData> failed) {
+        // Retried by the drainer after the sending interval.
+        retryAt = System.nanoTime() + sendingIntervalNanos;
+        failedData = failed;
+
+        wakeUpDrainer();
     }
 
-    void sendingFailure(List<OpMonitoringData> failedData) {
-        failedData.forEach(buffer::addFirst);
-        // Do not worry, scheduled sending retries.
+    private void registerMetrics() {
+        MetricRegistry metrics = ProcessMetrics.getMetrics();
+        metrics.remove(BUFFER_SIZE_METRIC);
+        metrics.remove(DROPPED_METRIC);
+        metrics.register(BUFFER_SIZE_METRIC, (Gauge<Integer>) buffer::size);
+        metrics.register(DROPPED_METRIC, (Gauge<Long>) buffer::getDroppedCount);
     }
 
     @Override
     public void start() {
-        if (ignoreOpMonitoringData()) {
-            return;
-        }
-
-        var sendingIntervalSeconds = OpMonitoringSystemProperties.getOpMonitorBufferSendingIntervalSeconds();
-        taskScheduler.scheduleWithFixedDelay(this::send, sendingIntervalSeconds, sendingIntervalSeconds, TimeUnit.SECONDS);
-
+        // The drainer is started by the constructor, records stored before start() are sent as well.
     }
 
     @Override
     public void stop() {
+        running = false;
+
         if (executorService != null) {
+            wakeUpDrainer();
             executorService.shutdown();
         }
-        if (taskScheduler != null) {
-            taskScheduler.shutdown();
-        }
 
         if (sender != null) {
             sender.stop();
@@ -184,7 +248,7 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
     }
 
     int getCurrentBufferSize() {
-        return buffer.size();
+        return buffer == null ? 0 : buffer.size();
     }
 
 }
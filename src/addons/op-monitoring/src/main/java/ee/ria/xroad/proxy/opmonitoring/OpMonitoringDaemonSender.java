@@ -29,6 +29,7 @@ import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringDaemonEndpoints;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringDaemonHttpClient;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse;
 import ee.ria.xroad.common.util.HttpSender;
@@ -36,6 +37,7 @@ import ee.ria.xroad.common.util.JsonUtils;
 import ee.ria.xroad.common.util.MimeTypes;
 import ee.ria.xroad.common.util.MimeUtils;
 import ee.ria.xroad.common.util.StartStop;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.common.util.TimeUtils;
 
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -44,11 +46,11 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse.STATUS_ERROR;
@@ -66,13 +68,16 @@ public class OpMonitoringDaemonSender implements StartStop {
     private static final int CONNECTION_TIMEOUT_MILLISECONDS = TimeUtils.secondsToMillis(
             OpMonitoringSystemProperties.getOpMonitorBufferConnectionTimeoutSeconds());
 
+    private static final boolean BINARY_TRANSPORT =
+            OpMonitoringSystemProperties.isOpMonitorBufferBinaryTransportEnabled();
+
     private static final int SOCKET_TIMEOUT_MILLISECONDS = TimeUtils.secondsToMillis(
             OpMonitoringSystemProperties.getOpMonitorBufferSocketTimeoutSeconds());
 
     private final OpMonitoringDataProcessor opMonitoringDataProcessor = new OpMonitoringDataProcessor();
     private final OpMonitoringBuffer opMonitoringBuffer;
     private final CloseableHttpClient httpClient;
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService executorService = ThreadUtils.newSingleThreadExecutor("op-monitoring-daemon-sender");
 
     private final AtomicBoolean processing = new AtomicBoolean(false);
 
@@ -82,13 +87,18 @@ public class OpMonitoringDaemonSender implements StartStop {
     }
 
     void sendMessage(final List<OpMonitoringData> dataToProcess) {
+        // mark busy before handing over, so that the buffer does not hand out the next message in the meantime
+        processing.set(true);
         executorService.execute(() -> {
             try {
-                processing.set(true);
-                var json = opMonitoringDataProcessor.prepareMonitoringMessage(dataToProcess);
-                log.trace("onReceive: {}", json);
+                if (BINARY_TRANSPORT) {
+                    send(opMonitoringDataProcessor.prepareBinaryMonitoringMessage(dataToProcess));
+                } else {
+                    var json = opMonitoringDataProcessor.prepareMonitoringMessage(dataToProcess);
+                    log.trace("onReceive: {}", json);
 
-                send(json);
+                    send(json);
+                }
 
                 processing.set(false);
                 opMonitoringBuffer.sendingSuccess(dataToProcess.size());
@@ -111,27 +121,43 @@ public class OpMonitoringDaemonSender implements StartStop {
 
             sender.doPost(getAddress(), json, MimeTypes.JSON);
 
-            String responseJson = IOUtils.toString(sender.getResponseContent(), MimeUtils.UTF8);
-            StoreOpMonitoringDataResponse response;
+            handleResponse(sender);
+        }
+    }
 
-            try {
-                response = OBJECT_READER.readValue(responseJson, StoreOpMonitoringDataResponse.class);
-            } catch (Exception e) {
-                throw new Exception("Received invalid response: " + responseJson);
-            }
+    private void send(byte[] message) throws Exception {
+        try (HttpSender sender = new HttpSender(httpClient)) {
+            sender.setConnectionTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
+            sender.setSocketTimeout(SOCKET_TIMEOUT_MILLISECONDS);
 
-            if (STATUS_OK.equals(response.getStatus())) {
-                log.trace("Received OK response");
+            sender.doPost(getAddress(), new ByteArrayInputStream(message), message.length,
+                    OpMonitoringDataBinaryCodec.CONTENT_TYPE);
 
-                return;
-            }
+            handleResponse(sender);
+        }
+    }
 
-            if (STATUS_ERROR.equals(response.getStatus())) {
-                throw new Exception("Received error response" + (StringUtils.isBlank(response.getErrorMessage())
-                        ? "" : ": " + response.getErrorMessage()));
-            } else {
-                throw new Exception("Received invalid response: " + responseJson);
-            }
+    private static void handleResponse(HttpSender sender) throws Exception {
+        String responseJson = IOUtils.toString(sender.getResponseContent(), MimeUtils.UTF8);
+        StoreOpMonitoringDataResponse response;
+
+        try {
+            response = OBJECT_READER.readValue(responseJson, StoreOpMonitoringDataResponse.class);
+        } catch (Exception e) {
+            throw new Exception("Received invalid response: " + responseJson);
+        }
+
+        if (STATUS_OK.equals(response.getStatus())) {
+            log.trace("Received OK response");
+
+            return;
+        }
+
+        if (STATUS_ERROR.equals(response.getStatus())) {
+            throw new Exception("Received error response" + (StringUtils.isBlank(response.getErrorMessage())
+                    ? "" : ": " + response.getErrorMessage()));
+        } else {
+            throw new Exception("Received invalid response: " + responseJson);
         }
     }
 
@@ -26,6 +26,7 @@
 package ee.ria.xroad.proxy.opmonitoring;
 
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
 import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataRequest;
 import ee.ria.xroad.common.util.JsonUtils;
 
@@ -34,8 +35,11 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.net.NetworkInterface;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static java.net.NetworkInterface.getNetworkInterfaces;
 import static java.util.Collections.list;
@@ -59,6 +63,16 @@ public class OpMonitoringDataProcessor {
         return OBJECT_WRITER.writeValueAsString(request);
     }
 
+    byte[] prepareBinaryMonitoringMessage(List<OpMonitoringData> dataToProcess) throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>(dataToProcess.size());
+
+        for (OpMonitoringData data : dataToProcess) {
+            records.add(data.getData());
+        }
+
+        return OpMonitoringDataBinaryCodec.encode(records);
+    }
+
     String getIpAddress() {
         try {
             if (ipAddress == null) {
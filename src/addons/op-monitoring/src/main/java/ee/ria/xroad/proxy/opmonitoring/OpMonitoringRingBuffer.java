@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.opmonitoring;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Preallocated lock-free bounded ring buffer for operational monitoring records. Any number of threads may add
+ * records. When the ring is full, the oldest record is dropped to make room for the new one and the drop is
+ * counted.
+ * <p>
+ * Each slot carries a sequence number that tells whether the slot is free for the producer at a given position
+ * or holds a published record for the consumer at that position (bounded MPMC queue by D. Vyukov). Dropping the
+ * oldest record is done by the producer taking the record as a consumer would.
+ *
+ * @param <T> type of the records
+ */
+final class OpMonitoringRingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    OpMonitoringRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the record, dropping the oldest record if the buffer is full.
+     *
+     * @param record the record
+     * @return true if an older record was dropped
+     */
+    boolean add(T record) {
+        boolean droppedOldest = false;
+
+        while (!offer(record)) {
+            if (poll() != null) {
+                dropped.incrementAndGet();
+                droppedOldest = true;
+            }
+        }
+
+        return droppedOldest;
+    }
+
+    /**
+     * Removes the oldest record.
+     *
+     * @return the record or null if the buffer is empty or the oldest record is still being added
+     */
+    T poll() {
+        while (true) {
+            long position = head.get();
+            int index = index(position);
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T record = slots.getAndSet(index, null);
+                    sequences.set(index, position + capacity);
+
+                    return record;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves up to the given number of the oldest records to the target list.
+     *
+     * @param target     the list to add the records to
+     * @param maxRecords maximum number of records to move
+     * @return number of records moved
+     */
+    int drainTo(List<? super T> target, int maxRecords) {
+        int count = 0;
+        T record;
+
+        while (count < maxRecords && (record = poll()) != null) {
+            target.add(record);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return approximate number of records in the buffer, including records that are being added and cannot be
+     * polled yet
+     */
+    int size() {
+        long size = tail.get() - head.get();
+
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return number of records dropped because the buffer was full
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private boolean offer(T record) {
+        while (true) {
+            long position = tail.get();
+            int index = index(position);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, record);
+                    sequences.set(index, position + 1);
+
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+}
@@ -46,6 +46,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -53,8 +55,6 @@ import java.util.stream.IntStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
@@ -186,13 +186,13 @@ class OpMonitoringBufferTest {
                 .atMost(Duration.ofSeconds(20))
                 .pollDelay(Duration.ofSeconds(1))
                 .untilAsserted(() -> {
-                    assertEquals(2, opMonitoringBuffer.buffer.size());
-                    assertFalse(opMonitoringBuffer.buffer.contains(opMonitoringData1));
-                    assertTrue(opMonitoringBuffer.buffer.contains(opMonitoringData2));
-                    assertTrue(opMonitoringBuffer.buffer.contains(opMonitoringData3));
+                    assertEquals(2, opMonitoringBuffer.getCurrentBufferSize());
+                    assertEquals(1, opMonitoringBuffer.buffer.getDroppedCount());
                 });
 
-//
+        List<OpMonitoringData> remaining = new ArrayList<>();
+        opMonitoringBuffer.buffer.drainTo(remaining, Integer.MAX_VALUE);
+        assertEquals(List.of(opMonitoringData2, opMonitoringData3), remaining);
     }
 
     @SneakyThrows
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.opmonitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests operational monitoring ring buffer.
+ */
+class OpMonitoringRingBufferTest {
+
+    @Test
+    void keepsInsertionOrder() {
+        OpMonitoringRingBuffer<Integer> ring = new OpMonitoringRingBuffer<>(3);
+
+        assertFalse(ring.add(1));
+        assertFalse(ring.add(2));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drainTo(drained, 10));
+        assertEquals(List.of(1, 2), drained);
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void dropsOldestOnOverflow() {
+        OpMonitoringRingBuffer<Integer> ring = new OpMonitoringRingBuffer<>(3);
+
+        IntStream.rangeClosed(1, 5).forEach(ring::add);
+
+        assertEquals(3, ring.size());
+        assertEquals(2, ring.getDroppedCount());
+
+        List<Integer> drained = new ArrayList<>();
+        ring.drainTo(drained, 10);
+        assertEquals(List.of(3, 4, 5), drained);
+    }
+
+    @Test
+    void concurrentProducersLoseNothingWithinCapacity() throws Exception {
+        int producers = 8;
+        int perProducer = 10_000;
+        OpMonitoringRingBuffer<Integer> ring = new OpMonitoringRingBuffer<>(producers * perProducer);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+
+        try {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                executor.execute(() -> IntStream.range(base, base + perProducer).forEach(ring::add));
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        ring.drainTo(drained, Integer.MAX_VALUE);
+
+        Set<Integer> unique = new HashSet<>(drained);
+        assertEquals(producers * perProducer, unique.size());
+        assertEquals(0, ring.getDroppedCount());
+    }
+}
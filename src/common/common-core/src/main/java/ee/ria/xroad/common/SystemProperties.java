@@ -48,6 +48,10 @@ public final class SystemProperties {
     public static final String TEMP_FILES_PATH =
             PREFIX + "common.temp-files-path";
 
+    /** Property name of the size up to which cached content is kept in memory instead of a temporary file. */
+    public static final String TEMP_FILES_MEMORY_THRESHOLD =
+            PREFIX + "common.temp-files-memory-threshold";
+
     /** Property name of the downloaded global configuration directory. */
     public static final String CONFIGURATION_PATH =
             PREFIX + "common.configuration-path";
@@ -277,6 +281,34 @@ public final class SystemProperties {
     private static final String CLIENTPROXY_POOL_REUSE_CONNECTIONS =
             PREFIX + "proxy.pool-enable-connection-reuse";
 
+    /**
+     * Property name of the on/off switch for processing SOAP requests in the client proxy as a single streaming
+     * stage on the request thread instead of handing the request body over to a separate SOAP handler thread
+     */
+    private static final String CLIENTPROXY_SOAP_STREAMING_PIPELINE_ENABLED =
+            PREFIX + "proxy.client-soap-streaming-pipeline-enabled";
+
+    /**
+     * Property name of the on/off switch for running the client and server proxy request handling (and the
+     * executors created by the proxy) on virtual threads, if supported by the runtime
+     */
+    private static final String PROXY_VIRTUAL_THREADS_ENABLED = PREFIX + "proxy.virtual-threads-enabled";
+
+    /**
+     * Property name of the maximum number of concurrently in-flight signing batches per signing key
+     */
+    private static final String PROXY_BATCH_SIGNER_MAX_IN_FLIGHT = PREFIX + "proxy.batch-signer-max-in-flight";
+
+    /**
+     * Property name of the maximum number of signing requests in one signing batch
+     */
+    private static final String PROXY_BATCH_SIGNER_MAX_BATCH_SIZE = PREFIX + "proxy.batch-signer-max-batch-size";
+
+    /**
+     * Property name of the time the batch signer waits for more signing requests before sending a batch
+     */
+    private static final String PROXY_BATCH_SIGNER_LINGER_MS = PREFIX + "proxy.batch-signer-linger-ms";
+
     private static final String PROXY_HEALTH_CHECK_INTERFACE = PREFIX + "proxy.health-check-interface";
 
     public static final String PROXY_HEALTH_CHECK_PORT = PREFIX + "proxy.health-check-port";
@@ -350,6 +382,16 @@ public final class SystemProperties {
      **/
     private static final String DEFAULT_CLIENTPROXY_POOL_REUSE_CONNECTIONS = "false";
 
+    private static final String DEFAULT_CLIENTPROXY_SOAP_STREAMING_PIPELINE_ENABLED = "false";
+
+    private static final String DEFAULT_PROXY_VIRTUAL_THREADS_ENABLED = "false";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNER_MAX_IN_FLIGHT = "1";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNER_MAX_BATCH_SIZE = "0";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNER_LINGER_MS = "0";
+
     private static final String DEFAULT_PROXY_HEALTH_CHECK_INTERFACE = "0.0.0.0";
 
     private static final String DEFAULT_PROXY_HEALTH_CHECK_PORT = "0";
@@ -413,6 +455,26 @@ public final class SystemProperties {
 
     public static final String DEFAULT_SIGNER_MODULE_MANAGER_UPDATE_INTERVAL = "60";
 
+    public static final String SIGNER_OCSP_FETCH_PARALLELISM =
+            PREFIX + "signer.ocsp-fetch-parallelism";
+
+    private static final String DEFAULT_SIGNER_OCSP_FETCH_PARALLELISM = "4";
+
+    public static final String SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY =
+            PREFIX + "signer.ocsp-responder-max-concurrency";
+
+    private static final String DEFAULT_SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY = "2";
+
+    public static final String SIGNER_OCSP_HEDGE_DELAY_MS =
+            PREFIX + "signer.ocsp-hedge-delay-ms";
+
+    private static final String DEFAULT_SIGNER_OCSP_HEDGE_DELAY_MS = "10000";
+
+    public static final String SIGNER_SIGN_SESSION_POOL_SIZE =
+            PREFIX + "signer.sign-session-pool-size";
+
+    private static final String DEFAULT_SIGNER_SIGN_SESSION_POOL_SIZE = "0";
+
     // AntiDos ----------------------------------------------------------------
 
     /** Property name of the AntiDos on/off switch */
@@ -435,6 +497,10 @@ public final class SystemProperties {
     public static final String ANTIDOS_MAX_HEAP_USAGE =
             PREFIX + "anti-dos.max-heap-usage";
 
+    /** Property name of the number of connections processed in turn from a known partner */
+    public static final String ANTIDOS_KNOWN_PARTNER_WEIGHT =
+            PREFIX + "anti-dos.known-partner-weight";
+
     // Configuration client ---------------------------------------------------
 
     public static final String CONFIGURATION_CLIENT_PORT =
@@ -874,6 +940,14 @@ public final class SystemProperties {
         return System.getProperty(TEMP_FILES_PATH, DefaultFilepaths.TEMP_FILES_PATH);
     }
 
+    /**
+     * @return the size in bytes up to which message bodies and attachments are cached in memory before
+     * they are written to a temporary file, '65536' by default.
+     */
+    public static int getTempFilesMemoryThreshold() {
+        return Integer.parseInt(System.getProperty(TEMP_FILES_MEMORY_THRESHOLD, "65536"));
+    }
+
     /**
      * @return path to the directory where OCSP responses are stored, '/var/cache/xroad/' by default.
      */
@@ -1008,6 +1082,40 @@ public final class SystemProperties {
                 DEFAULT_SIGNER_MODULE_MANAGER_UPDATE_INTERVAL));
     }
 
+    /**
+     * @return the number of certificates the signer queries OCSP responses for concurrently, 4 by default
+     */
+    public static int getOcspFetchParallelism() {
+        return Math.max(1, Integer.parseInt(System.getProperty(SIGNER_OCSP_FETCH_PARALLELISM,
+                DEFAULT_SIGNER_OCSP_FETCH_PARALLELISM)));
+    }
+
+    /**
+     * @return the maximum number of concurrent requests the signer sends to one OCSP responder, 2 by default
+     */
+    public static int getOcspResponderMaxConcurrency() {
+        return Math.max(1, Integer.parseInt(System.getProperty(SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY,
+                DEFAULT_SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY)));
+    }
+
+    /**
+     * @return the time in milliseconds after which the signer sends the OCSP request also to the next responder
+     * if the previous one has not answered, non-positive value disables hedging, 10000 by default
+     */
+    public static int getOcspHedgeDelayMs() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_HEDGE_DELAY_MS,
+                DEFAULT_SIGNER_OCSP_HEDGE_DELAY_MS));
+    }
+
+    /**
+     * @return the number of PKCS#11 sessions per hardware token that the signer uses for signing in parallel,
+     * 0 (signing one request at a time on the token management session) by default
+     */
+    public static int getSignSessionPoolSize() {
+        return Math.max(0, Integer.parseInt(System.getProperty(SIGNER_SIGN_SESSION_POOL_SIZE,
+                DEFAULT_SIGNER_SIGN_SESSION_POOL_SIZE)));
+    }
+
     /**
      * @return the HTTP port on which the configuration client is listening, '5665' by default.
      */
@@ -1314,6 +1422,16 @@ public final class SystemProperties {
         return Double.parseDouble(System.getProperty(ANTIDOS_MAX_HEAP_USAGE, "1.1"));
     }
 
+    /**
+     * @return the number of waiting connections Anti-Dos processes in turn from a
+     * security server known from global configuration before moving on to the next
+     * partner, '1' by default. Connections from unknown addresses are always
+     * processed one at a time.
+     */
+    public static int getAntiDosKnownPartnerWeight() {
+        return Math.max(1, Integer.parseInt(System.getProperty(ANTIDOS_KNOWN_PARTNER_WEIGHT, "1")));
+    }
+
     /**
      * @return whether Anti-Dos should be used, 'true' by default.
      */
@@ -1521,6 +1639,51 @@ public final class SystemProperties {
                 DEFAULT_CLIENTPROXY_FASTEST_CONNECTING_SSL_URI_CACHE_PERIOD));
     }
 
+    /**
+     * @return true if the client proxy should parse, encode and send SOAP requests as a single streaming stage
+     * on the request thread, 'false' by default.
+     */
+    public static boolean isClientProxySoapStreamingPipelineEnabled() {
+        return Boolean.parseBoolean(System.getProperty(CLIENTPROXY_SOAP_STREAMING_PIPELINE_ENABLED,
+                DEFAULT_CLIENTPROXY_SOAP_STREAMING_PIPELINE_ENABLED));
+    }
+
+    /**
+     * @return true if the proxy should use virtual threads for request handling when the runtime supports them,
+     * 'false' by default.
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return Boolean.parseBoolean(System.getProperty(PROXY_VIRTUAL_THREADS_ENABLED,
+                DEFAULT_PROXY_VIRTUAL_THREADS_ENABLED));
+    }
+
+    /**
+     * @return the maximum number of signing batches per signing key that are sent to the signer concurrently,
+     * '1' by default.
+     */
+    public static int getBatchSignerMaxInFlight() {
+        return Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNER_MAX_IN_FLIGHT,
+                DEFAULT_PROXY_BATCH_SIGNER_MAX_IN_FLIGHT));
+    }
+
+    /**
+     * @return the maximum number of signing requests in one signing batch, non-positive value means no limit,
+     * '0' by default.
+     */
+    public static int getBatchSignerMaxBatchSize() {
+        return Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNER_MAX_BATCH_SIZE,
+                DEFAULT_PROXY_BATCH_SIGNER_MAX_BATCH_SIZE));
+    }
+
+    /**
+     * @return the time in milliseconds the batch signer waits for more signing requests before sending a batch,
+     * '0' by default.
+     */
+    public static int getBatchSignerLingerMs() {
+        return Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNER_LINGER_MS,
+                DEFAULT_PROXY_BATCH_SIGNER_LINGER_MS));
+    }
+
     /**
      * @return the time in milliseconds, after which connections in a pool should be check for validity, ie.
      * after this time, check if pooled connections are still alive, don't just assume they are.
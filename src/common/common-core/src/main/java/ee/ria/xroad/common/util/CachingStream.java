@@ -27,42 +27,58 @@ package ee.ria.xroad.common.util;
 
 import ee.ria.xroad.common.DefaultFilepaths;
 import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.SystemProperties;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Caches stuff in a temporary file.
+ * Caches stuff in memory, or in a temporary file once the cached content exceeds the memory threshold.
+ * The memory is allocated in chunks, so that the cache never has to be copied to grow.
  */
 @Slf4j
 public class CachingStream extends FilterOutputStream {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final int memoryThreshold;
+
+    private List<byte[]> chunks = new ArrayList<>();
+    private long size;
+    private volatile boolean consumed;
+
     private SeekableByteChannel channel;
     private Path tempFile;
 
     /**
-     * Constructs a new caching stream that caches data in a temporary file.
+     * Constructs a new caching stream that caches data in memory up to
+     * {@link SystemProperties#getTempFilesMemoryThreshold()} bytes and in a temporary file beyond that.
+     */
+    public CachingStream() {
+        this(SystemProperties.getTempFilesMemoryThreshold());
+    }
+
+    /**
+     * Constructs a new caching stream that caches data in memory up to the given number of bytes
+     * and in a temporary file beyond that.
      *
-     * @throws IOException if I/O errors occurred
+     * @param memoryThreshold maximum number of bytes cached in memory
      */
-    public CachingStream() throws IOException {
-        // Construct the parent class with null stream and replace it later.
+    public CachingStream(int memoryThreshold) {
+        // Construct the parent class with null stream, it is set when the
+        // contents are moved to a temporary file.
         super(null);
 
-        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
-        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
-                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
-
-        // Now that we are set up, we can set the output stream in the
-        // parent class.
-        out = Channels.newOutputStream(channel);
+        this.memoryThreshold = memoryThreshold;
     }
 
     @Override
@@ -71,10 +87,50 @@ public class CachingStream extends FilterOutputStream {
         flush();
     }
 
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        // prevent FilterOutputStream from writing inefficiently
-        out.write(b, off, len);
+        if (consumed) {
+            throw new IOException("Cache has been consumed");
+        }
+
+        if (out == null && size + len > memoryThreshold) {
+            moveToTempFile();
+        }
+
+        if (out != null) {
+            // prevent FilterOutputStream from writing inefficiently
+            out.write(b, off, len);
+            size += len;
+            return;
+        }
+
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int position = (int) (size % CHUNK_SIZE);
+            if (position == 0) {
+                chunks.add(new byte[CHUNK_SIZE]);
+            }
+
+            int count = Math.min(remaining, CHUNK_SIZE - position);
+            System.arraycopy(b, offset, chunks.get(chunks.size() - 1), position, count);
+
+            offset += count;
+            remaining -= count;
+            size += count;
+        }
     }
 
     /**
@@ -83,6 +139,10 @@ public class CachingStream extends FilterOutputStream {
      * @see #consume() to free resources used by the cache.
      */
     public CacheInputStream getCachedContents() {
+        if (channel == null) {
+            return new CacheInputStream(new ChunkInputStream(), size);
+        }
+
         try {
             return new CacheInputStream(channel);
         } catch (IOException ex) { // the position shouldn't really throw
@@ -94,11 +154,92 @@ public class CachingStream extends FilterOutputStream {
      * Finalize caching stream. Use to avoid file handle leaks.
      */
     public void consume() {
-        try {
-            channel.close();
-        } catch (IOException e) {
-            log.warn("Error closing channel of the temporary file '{}'", tempFile.toString(), e);
+        if (consumed) {
+            return;
+        }
+        consumed = true;
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing channel of the temporary file '{}'", tempFile.toString(), e);
+            }
+        } else {
+            releaseChunks();
+        }
+    }
+
+    private void moveToTempFile() throws IOException {
+        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
+        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        out = Channels.newOutputStream(channel);
+
+        long remaining = size;
+        for (byte[] chunk : chunks) {
+            int count = (int) Math.min(remaining, CHUNK_SIZE);
+            out.write(chunk, 0, count);
+            remaining -= count;
         }
+
+        releaseChunks();
+    }
+
+    private void releaseChunks() {
+        // the chunks are not reused, a reader still holding them may be reading after the cache is consumed
+        chunks = new ArrayList<>();
     }
 
+    private final class ChunkInputStream extends InputStream {
+        private final List<byte[]> content = chunks;
+        private final long length = size;
+        private long position;
+
+        @Override
+        public int read() throws IOException {
+            if (consumed) {
+                throw new IOException("Cache has been consumed");
+            }
+            if (position >= length) {
+                return -1;
+            }
+
+            int b = content.get((int) (position / CHUNK_SIZE))[(int) (position % CHUNK_SIZE)] & 0xff;
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (consumed) {
+                throw new IOException("Cache has been consumed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= length) {
+                return -1;
+            }
+
+            int chunkPosition = (int) (position % CHUNK_SIZE);
+            int count = (int) Math.min(Math.min(len, CHUNK_SIZE - chunkPosition), length - position);
+            System.arraycopy(content.get((int) (position / CHUNK_SIZE)), chunkPosition, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+    }
 }
@@ -63,12 +63,21 @@ public abstract class SchemaValidator {
         }
 
         try {
-            Validator validator = schema.newValidator();
-            validator.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-
-            validator.validate(source);
+            createValidator(schema).validate(source);
         } catch (SAXException e) {
             throw new CodedException(errorCode, e);
         }
     }
+
+    /**
+     * Creates a validator for the schema with secure processing enabled.
+     * @param schema the schema
+     * @return the validator
+     * @throws SAXException if secure processing can not be enabled
+     */
+    public static Validator createValidator(Schema schema) throws SAXException {
+        Validator validator = schema.newValidator();
+        validator.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        return validator;
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class contains utility methods for creating threads and executors.
+ * If virtual threads are enabled (see {@link SystemProperties#isVirtualThreadsEnabled()}) and supported by
+ * the runtime, the created threads are virtual threads. Otherwise platform threads are used.
+ */
+@Slf4j
+public final class ThreadUtils {
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    private ThreadUtils() {
+    }
+
+    /**
+     * @return true if virtual threads are enabled and supported by the runtime
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return VIRTUAL_THREAD_FACTORY != null && SystemProperties.isVirtualThreadsEnabled();
+    }
+
+    /**
+     * Creates a thread factory for threads with the given name prefix.
+     *
+     * @param namePrefix name prefix of the created threads
+     * @return the thread factory
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory delegate = isVirtualThreadsEnabled() ? VIRTUAL_THREAD_FACTORY : Executors.defaultThreadFactory();
+
+        return r -> {
+            Thread thread = delegate.newThread(r);
+            thread.setName(namePrefix + "-" + counter.incrementAndGet());
+
+            return thread;
+        };
+    }
+
+    /**
+     * Creates an executor that reuses a fixed number of threads.
+     *
+     * @param threads number of threads in the pool
+     * @param namePrefix name prefix of the created threads
+     * @return the executor
+     */
+    public static ExecutorService newFixedThreadPool(int threads, String namePrefix) {
+        return Executors.newFixedThreadPool(threads, threadFactory(namePrefix));
+    }
+
+    /**
+     * Creates an unbounded executor that starts a new thread for a task if no idle thread is available.
+     *
+     * @param namePrefix name prefix of the created threads
+     * @return the executor
+     */
+    public static ExecutorService newCachedThreadPool(String namePrefix) {
+        return Executors.newCachedThreadPool(threadFactory(namePrefix));
+    }
+
+    /**
+     * Creates a single-threaded executor.
+     *
+     * @param namePrefix name prefix of the created thread
+     * @return the executor
+     */
+    public static ExecutorService newSingleThreadExecutor(String namePrefix) {
+        return Executors.newSingleThreadExecutor(threadFactory(namePrefix));
+    }
+
+    /**
+     * Creates a single-threaded executor that can schedule tasks.
+     *
+     * @param namePrefix name prefix of the created thread
+     * @return the executor
+     */
+    public static ScheduledExecutorService newSingleThreadScheduledExecutor(String namePrefix) {
+        return Executors.newSingleThreadScheduledExecutor(threadFactory(namePrefix));
+    }
+
+    /**
+     * Virtual threads are available from Java 21 onwards, the factory is looked up reflectively so that
+     * the code can be compiled and run on older runtimes.
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Exception | LinkageError e) {
+            log.debug("Virtual threads are not supported by the runtime");
+
+            return null;
+        }
+    }
+}
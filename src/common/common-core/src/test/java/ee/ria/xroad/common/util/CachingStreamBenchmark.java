@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Measures the body handling part of REST exchanges per second for 1 KB and 1 MB bodies. Each exchange passes
+ * the request and the response body through a cache and reads the cached contents once more for the message log,
+ * as the client and server proxies do. Caching only in temporary files and caching in memory are compared to
+ * not caching bodies that are not logged.
+ */
+@Slf4j
+public final class CachingStreamBenchmark {
+    private static final int KB = 1024;
+    private static final int MB = 1024 * KB;
+
+    private CachingStreamBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty(SystemProperties.TEMP_FILES_PATH) == null) {
+            System.setProperty(SystemProperties.TEMP_FILES_PATH,
+                    Paths.get(System.getProperty("java.io.tmpdir"), "caching-stream-benchmark").toString());
+        }
+
+        for (int size : new int[] {KB, MB}) {
+            byte[] body = new byte[size];
+            new Random(size).nextBytes(body);
+            int exchanges = size == KB ? 20_000 : 200;
+
+            // Warmup
+            run(body, exchanges, 0, false);
+            run(body, exchanges, SystemProperties.getTempFilesMemoryThreshold(), false);
+            run(body, exchanges, -1, false);
+
+            run(body, exchanges, 0, true);
+            run(body, exchanges, SystemProperties.getTempFilesMemoryThreshold(), true);
+            run(body, exchanges, -1, true);
+        }
+    }
+
+    private static void run(byte[] body, int exchanges, int memoryThreshold, boolean report) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < exchanges; i++) {
+            // request and response body
+            exchangeBody(body, memoryThreshold);
+            exchangeBody(body, memoryThreshold);
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (report) {
+            String mode = memoryThreshold < 0 ? "not cached"
+                    : memoryThreshold == 0 ? "temp file" : "memory threshold " + memoryThreshold;
+            log.info("{} byte body, {}: {} exchanges/s", body.length, mode, exchanges * 1_000_000_000L / nanos);
+        }
+    }
+
+    private static void exchangeBody(byte[] body, int memoryThreshold) throws IOException {
+        OutputStream encoder = OutputStream.nullOutputStream();
+
+        if (memoryThreshold < 0) {
+            IOUtils.copy(new ByteArrayInputStream(body), encoder);
+            return;
+        }
+
+        CachingStream cache = new CachingStream(memoryThreshold);
+        try (InputStream tee = new TeeInputStream(new ByteArrayInputStream(body), cache)) {
+            IOUtils.copy(tee, encoder);
+            IOUtils.copy(cache.getCachedContents(), OutputStream.nullOutputStream());
+        } finally {
+            cache.consume();
+        }
+    }
+}
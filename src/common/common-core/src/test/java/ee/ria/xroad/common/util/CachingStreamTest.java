@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests caching content in memory and in temporary files.
+ */
+public class CachingStreamTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempDir.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+    }
+
+    @Test
+    public void smallContentIsCachedInMemory() throws Exception {
+        useUnwritableTempFilesPath();
+        byte[] content = randomBytes(10_000);
+
+        CachingStream cache = new CachingStream(content.length);
+        write(cache, content);
+
+        assertCachedContents(content, cache);
+        // Cached contents can be read more than once
+        assertCachedContents(content, cache);
+
+        cache.consume();
+    }
+
+    @Test(expected = IOException.class)
+    public void largeContentNeedsTempFile() throws Exception {
+        useUnwritableTempFilesPath();
+
+        CachingStream cache = new CachingStream(10_000);
+        write(cache, randomBytes(10_001));
+    }
+
+    @Test
+    public void largeContentIsMovedToTempFile() throws Exception {
+        byte[] content = randomBytes(100_000);
+
+        CachingStream cache = new CachingStream(10_000);
+        write(cache, content);
+
+        assertCachedContents(content, cache);
+        assertCachedContents(content, cache);
+
+        cache.consume();
+    }
+
+    @Test
+    public void emptyContent() throws Exception {
+        CachingStream cache = new CachingStream(0);
+        cache.close();
+
+        assertCachedContents(new byte[0], cache);
+
+        cache.consume();
+    }
+
+    @Test(expected = IOException.class)
+    public void consumedContentCannotBeRead() throws Exception {
+        CachingStream cache = new CachingStream(100);
+        write(cache, randomBytes(10));
+
+        InputStream contents = cache.getCachedContents();
+        cache.consume();
+
+        contents.read();
+    }
+
+    private static void write(CachingStream cache, byte[] content) throws IOException {
+        // Write single bytes and blocks of varying size, crossing the chunk boundaries
+        int offset = 0;
+        int length = 1;
+        while (offset < content.length) {
+            if (length == 1) {
+                cache.write(content[offset]);
+            } else {
+                cache.write(content, offset, Math.min(length, content.length - offset));
+            }
+            offset += length;
+            length = length * 3 % 5000 + 1;
+        }
+        cache.close();
+    }
+
+    private static void assertCachedContents(byte[] expected, CachingStream cache) throws IOException {
+        CacheInputStream contents = cache.getCachedContents();
+
+        assertEquals(expected.length, contents.size());
+        assertArrayEquals(expected, IOUtils.toByteArray(contents));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private void useUnwritableTempFilesPath() throws IOException {
+        // The parent of the temporary files directory is a regular file
+        System.setProperty(SystemProperties.TEMP_FILES_PATH,
+                tempDir.newFile().toPath().resolve("tmp").toString());
+    }
+}
@@ -44,9 +44,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static ee.ria.xroad.common.ErrorCodes.X_DATABASE_ERROR;
 
@@ -56,7 +57,11 @@ import static ee.ria.xroad.common.ErrorCodes.X_DATABASE_ERROR;
 @Slf4j
 @NoArgsConstructor
 public final class HibernateUtil {
-    private static final Map<String, SessionFactoryCtx> SESSION_FACTORY_CACHE = new HashMap<>();
+    private static final Map<String, SessionFactoryCtx> SESSION_FACTORY_CACHE = new ConcurrentHashMap<>();
+
+    // Guards creating and closing session factories. A lock is used instead of synchronized methods so that
+    // (virtual) threads looking up an existing session factory are never blocked.
+    private static final ReentrantLock SESSION_FACTORY_LOCK = new ReentrantLock();
 
     private record SessionFactoryCtx(SessionFactory sessionFactory) {
     }
@@ -68,7 +73,7 @@ public final class HibernateUtil {
      * @param name the name of the session factory
      * @return the session factory
      */
-    public static synchronized SessionFactory getSessionFactory(String name) {
+    public static SessionFactory getSessionFactory(String name) {
         return getSessionFactory(name, null);
     }
 
@@ -80,20 +85,30 @@ public final class HibernateUtil {
      * @param interceptor the interceptor to use on sessions created with this factory
      * @return the session factory
      */
-    public static synchronized SessionFactory getSessionFactory(String name, Interceptor interceptor) {
-        if (SESSION_FACTORY_CACHE.containsKey(name)) {
-            return SESSION_FACTORY_CACHE.get(name).sessionFactory();
-        } else {
-            try {
-                SessionFactoryCtx ctx = createSessionFactoryCtx(name, interceptor);
-                SESSION_FACTORY_CACHE.put(name, ctx);
-
-                return ctx.sessionFactory();
-            } catch (Exception e) {
-                log.error("Failed to create session factory", e);
-
-                throw new CodedException(X_DATABASE_ERROR, e);
+    public static SessionFactory getSessionFactory(String name, Interceptor interceptor) {
+        SessionFactoryCtx existing = SESSION_FACTORY_CACHE.get(name);
+        if (existing != null) {
+            return existing.sessionFactory();
+        }
+
+        SESSION_FACTORY_LOCK.lock();
+        try {
+            if (SESSION_FACTORY_CACHE.containsKey(name)) {
+                return SESSION_FACTORY_CACHE.get(name).sessionFactory();
+            } else {
+                try {
+                    SessionFactoryCtx ctx = createSessionFactoryCtx(name, interceptor);
+                    SESSION_FACTORY_CACHE.put(name, ctx);
+
+                    return ctx.sessionFactory();
+                } catch (Exception e) {
+                    log.error("Failed to create session factory", e);
+
+                    throw new CodedException(X_DATABASE_ERROR, e);
+                }
             }
+        } finally {
+            SESSION_FACTORY_LOCK.unlock();
         }
     }
 
@@ -102,28 +117,38 @@ public final class HibernateUtil {
      *
      * @param name the name of the session factory to close
      */
-    public static synchronized void closeSessionFactory(String name) {
+    public static void closeSessionFactory(String name) {
         log.trace("closeSessionFactory({})", name);
 
-        if (SESSION_FACTORY_CACHE.containsKey(name)) {
-            closeSessionFactory(SESSION_FACTORY_CACHE.get(name));
-            SESSION_FACTORY_CACHE.remove(name);
+        SESSION_FACTORY_LOCK.lock();
+        try {
+            if (SESSION_FACTORY_CACHE.containsKey(name)) {
+                closeSessionFactory(SESSION_FACTORY_CACHE.get(name));
+                SESSION_FACTORY_CACHE.remove(name);
+            }
+        } finally {
+            SESSION_FACTORY_LOCK.unlock();
         }
     }
 
     /**
      * Closes all session factories in the cache. Should be called when the main program exits.
      */
-    public static synchronized void closeSessionFactories() {
+    public static void closeSessionFactories() {
         log.trace("closeSessionFactories()");
 
-        Collection<SessionFactoryCtx> sessionFactories = new ArrayList<>(SESSION_FACTORY_CACHE.values());
+        SESSION_FACTORY_LOCK.lock();
+        try {
+            Collection<SessionFactoryCtx> sessionFactories = new ArrayList<>(SESSION_FACTORY_CACHE.values());
 
-        for (SessionFactoryCtx ctx : sessionFactories) {
-            closeSessionFactory(ctx);
-        }
+            for (SessionFactoryCtx ctx : sessionFactories) {
+                closeSessionFactory(ctx);
+            }
 
-        SESSION_FACTORY_CACHE.clear();
+            SESSION_FACTORY_CACHE.clear();
+        } finally {
+            SESSION_FACTORY_LOCK.unlock();
+        }
     }
 
     private static void closeSessionFactory(SessionFactoryCtx ctx) {
@@ -73,6 +73,9 @@ public class SharedParameters {
     private final Map<SecurityServerId, Set<ClientId>> securityServerClients = new HashMap<>();
     private final Set<String> knownAddresses = new HashSet<>();
     private final Map<SecurityServerId, SecurityServer> securityServersById = new HashMap<>();
+    private final Map<ClientId, String> memberNames = new HashMap<>();
+    private final Map<String, GlobalGroup> globalGroupsByCode = new HashMap<>();
+    private final Map<String, Set<ClientId>> globalGroupMembers = new HashMap<>();
 
     public SharedParameters(String instanceIdentifier, List<ConfigurationSource> sources, List<ApprovedCA> approvedCAs,
                             List<ApprovedTSA> approvedTSAs, List<Member> members, List<SecurityServer> securityServers,
@@ -90,6 +93,8 @@ public class SharedParameters {
         cacheCaCerts();
         cacheKnownAddresses();
         cacheSecurityServers();
+        cacheMembers();
+        cacheGlobalGroups();
     }
 
     private void cacheCaCerts() throws CertificateEncodingException, IOException {
@@ -166,6 +171,41 @@ public class SharedParameters {
         }
     }
 
+    private void cacheMembers() {
+        for (Member member : members) {
+            ClientId memberId = ClientId.Conf.create(instanceIdentifier, member.getMemberClass().getCode(),
+                    member.getMemberCode());
+            memberNames.putIfAbsent(memberId, member.getName());
+        }
+    }
+
+    private void cacheGlobalGroups() {
+        for (GlobalGroup group : globalGroups) {
+            globalGroupsByCode.putIfAbsent(group.getGroupCode(), group);
+            globalGroupMembers.computeIfAbsent(group.getGroupCode(), k -> new HashSet<>())
+                    .addAll(group.getGroupMembers());
+        }
+    }
+
+    /**
+     * @param memberId member or subsystem identifier
+     * @return the name of the member, or null if the member is not found
+     */
+    public String findMemberName(ClientId memberId) {
+        return memberNames.get(ClientId.Conf.create(memberId.getXRoadInstance(), memberId.getMemberClass(),
+                memberId.getMemberCode()));
+    }
+
+    /**
+     * @param groupCode global group code
+     * @param subjectId client identifier
+     * @return true if the global group exists and has the given client as a member
+     */
+    public boolean isGlobalGroupMember(String groupCode, ClientId subjectId) {
+        Set<ClientId> groupMembers = globalGroupMembers.get(groupCode);
+        return groupMembers != null && groupMembers.contains(subjectId);
+    }
+
     private void addServerClient(ClientId client, SecurityServer server) {
         // Add the mapping from client to security server address.
         if (isNotBlank(server.getAddress())) {
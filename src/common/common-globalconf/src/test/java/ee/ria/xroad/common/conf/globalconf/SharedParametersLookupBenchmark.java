@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.identifier.ClientId;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost of the member name and global group membership lookups of SharedParameters as the
+ * number of members grows. The cost per lookup should stay flat.
+ */
+@Slf4j
+public final class SharedParametersLookupBenchmark {
+    private static final String INSTANCE = "EE";
+    private static final int[] MEMBER_COUNTS = {1_000, 10_000, 100_000};
+    private static final int LOOKUPS = 1_000_000;
+
+    private SharedParametersLookupBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        // Warmup
+        run(MEMBER_COUNTS[0], false);
+
+        for (int memberCount : MEMBER_COUNTS) {
+            run(memberCount, true);
+        }
+    }
+
+    private static void run(int memberCount, boolean report) throws Exception {
+        SharedParameters parameters = createSharedParameters(memberCount);
+
+        ClientId[] subjects = new ClientId[memberCount];
+        for (int i = 0; i < memberCount; i++) {
+            subjects[i] = ClientId.Conf.create(INSTANCE, "GOV", Integer.toString(i), "sub");
+        }
+
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (parameters.findMemberName(subjects[i % memberCount]) != null) {
+                found++;
+            }
+        }
+        long memberNameNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (parameters.isGlobalGroupMember("group", subjects[i % memberCount])) {
+                found++;
+            }
+        }
+        long groupMemberNanos = System.nanoTime() - start;
+
+        if (report) {
+            log.info("{} members: findMemberName {} ns/lookup, isGlobalGroupMember {} ns/lookup ({} found)",
+                    memberCount, memberNameNanos / LOOKUPS, groupMemberNanos / LOOKUPS, found);
+        }
+    }
+
+    private static SharedParameters createSharedParameters(int memberCount) throws Exception {
+        SharedParameters.MemberClass memberClass = new SharedParameters.MemberClass();
+        memberClass.setCode("GOV");
+
+        SharedParameters.Subsystem subsystem = new SharedParameters.Subsystem();
+        subsystem.setSubsystemCode("sub");
+
+        List<SharedParameters.Member> members = new ArrayList<>(memberCount);
+        List<ClientId> groupMembers = new ArrayList<>(memberCount / 2);
+
+        for (int i = 0; i < memberCount; i++) {
+            SharedParameters.Member member = new SharedParameters.Member();
+            member.setMemberClass(memberClass);
+            member.setMemberCode(Integer.toString(i));
+            member.setName("Member " + i);
+            member.setSubsystems(List.of(subsystem));
+            members.add(member);
+
+            if (i % 2 == 0) {
+                groupMembers.add(ClientId.Conf.create(INSTANCE, "GOV", Integer.toString(i), "sub"));
+            }
+        }
+
+        SharedParameters.GlobalGroup group = new SharedParameters.GlobalGroup();
+        group.setGroupCode("group");
+        group.setGroupMembers(groupMembers);
+
+        return new SharedParameters(INSTANCE, List.of(), List.of(), List.of(), members, List.of(), List.of(group),
+                new SharedParameters.GlobalSettings());
+    }
+}
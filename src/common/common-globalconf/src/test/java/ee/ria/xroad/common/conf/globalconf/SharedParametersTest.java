@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.identifier.ClientId;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the member and global group lookups of SharedParameters.
+ */
+public class SharedParametersTest {
+
+    private static final String INSTANCE = "EE";
+
+    @Test
+    public void findMemberName() throws Exception {
+        SharedParameters parameters = createSharedParameters();
+
+        assertEquals("Member 1", parameters.findMemberName(ClientId.Conf.create(INSTANCE, "GOV", "1")));
+        assertEquals("Member 1", parameters.findMemberName(ClientId.Conf.create(INSTANCE, "GOV", "1", "sub")));
+        assertNull(parameters.findMemberName(ClientId.Conf.create(INSTANCE, "COM", "1")));
+        assertNull(parameters.findMemberName(ClientId.Conf.create("FI", "GOV", "1")));
+    }
+
+    @Test
+    public void isGlobalGroupMember() throws Exception {
+        SharedParameters parameters = createSharedParameters();
+
+        assertTrue(parameters.isGlobalGroupMember("group", ClientId.Conf.create(INSTANCE, "GOV", "1", "sub")));
+        assertFalse(parameters.isGlobalGroupMember("group", ClientId.Conf.create(INSTANCE, "GOV", "1")));
+        assertFalse(parameters.isGlobalGroupMember("group", ClientId.Conf.create(INSTANCE, "GOV", "2", "sub")));
+        assertFalse(parameters.isGlobalGroupMember("other", ClientId.Conf.create(INSTANCE, "GOV", "1", "sub")));
+        assertEquals("Test group", parameters.getGlobalGroupsByCode().get("group").getDescription());
+    }
+
+    private static SharedParameters createSharedParameters() throws Exception {
+        SharedParameters.MemberClass memberClass = new SharedParameters.MemberClass();
+        memberClass.setCode("GOV");
+
+        List<SharedParameters.Member> members = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            SharedParameters.Member member = new SharedParameters.Member();
+            member.setMemberClass(memberClass);
+            member.setMemberCode(Integer.toString(i));
+            member.setName("Member " + i);
+            member.setSubsystems(List.of());
+            members.add(member);
+        }
+
+        SharedParameters.GlobalGroup group = new SharedParameters.GlobalGroup();
+        group.setGroupCode("group");
+        group.setDescription("Test group");
+        group.setGroupMembers(List.of(ClientId.Conf.create(INSTANCE, "GOV", "1", "sub")));
+
+        return new SharedParameters(INSTANCE, List.of(), List.of(), List.of(), members, List.of(), List.of(group),
+                new SharedParameters.GlobalSettings());
+    }
+}
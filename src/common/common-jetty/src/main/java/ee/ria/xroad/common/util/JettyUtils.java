@@ -30,6 +30,8 @@ import org.eclipse.jetty.http.HttpURI;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
 
 import java.util.Optional;
 
@@ -117,6 +119,20 @@ public final class JettyUtils {
         response.getHeaders().put(HttpHeader.CONTENT_LENGTH, length);
     }
 
+    /**
+     * Configures the thread pool of the server to run blocking handlers on virtual threads, if virtual threads
+     * are enabled and supported by the runtime. Jetty's own threads (acceptors, selectors) remain platform
+     * threads, so the thread pool limits need not be raised to support more in-flight requests.
+     *
+     * @param server the server to configure
+     */
+    public static void configureVirtualThreads(final Server server) {
+        if (ThreadUtils.isVirtualThreadsEnabled() && VirtualThreads.areSupported()
+                && server.getThreadPool() instanceof VirtualThreads.Configurable pool) {
+            pool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+        }
+    }
+
     private JettyUtils() {
     }
 }
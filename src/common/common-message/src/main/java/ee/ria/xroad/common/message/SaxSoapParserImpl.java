@@ -32,6 +32,7 @@ import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.identifier.XRoadObjectType;
 import ee.ria.xroad.common.util.HeaderValueUtils;
 import ee.ria.xroad.common.util.MimeUtils;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.common.util.XmlUtils;
 
 import jakarta.xml.soap.SOAPException;
@@ -55,7 +56,6 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -169,6 +169,13 @@ public class SaxSoapParserImpl implements SoapParser {
 
     private static final SAXParserFactory PARSER_FACTORY = createSaxParserFactory();
 
+    private static final int INITIAL_CAPTURE_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_RETAINED_CAPTURE_BUFFER_SIZE = 64 * 1024;
+
+    // the parser and the capture buffers are reused by the thread for the following messages, unless virtual
+    // threads are in use, as those are not pooled and the resources would be retained per message
+    private static final ThreadLocal<ParserResources> PARSER_RESOURCES = ThreadLocal.withInitial(ParserResources::new);
+
     @Override
     public Soap parse(String contentType, InputStream is) {
         String mimeType = MimeUtils.getBaseContentType(contentType);
@@ -192,28 +199,34 @@ public class SaxSoapParserImpl implements SoapParser {
     private Soap parseMessage(InputStream is, String mimeType, String contentType, String charset) throws Exception {
         log.trace("parseMessage({}, {})", mimeType, charset);
 
-        ByteArrayOutputStream rawXml = new ByteArrayOutputStream();
-        ByteArrayOutputStream processedXml = new ByteArrayOutputStream();
+        ParserResources resources = ParserResources.acquire();
+        try {
+            // the raw XML is needed for faults, the processed XML is only captured if it is going to be used
+            boolean processedXmlRequired = isProcessedXmlRequired();
+            ReusableByteArrayOutputStream rawXml = resources.rawXml;
+
+            InputStream proxyStream = excludeUtf8Bom(contentType, new TeeInputStream(is, rawXml));
+            Writer outputWriter = processedXmlRequired
+                    ? new OutputStreamWriter(resources.processedXml, charset) : Writer.nullWriter();
+            XRoadSoapHandler handler = handleSoap(resources.getParser(), outputWriter, proxyStream);
+
+            CodedException fault = handler.getFault();
+            if (fault != null) {
+                return createSoapFault(charset, rawXml.toByteArray(), fault);
+            }
 
-        InputStream proxyStream = excludeUtf8Bom(contentType, new TeeInputStream(is, rawXml));
-        Writer outputWriter = new OutputStreamWriter(processedXml, charset);
-        XRoadSoapHandler handler = handleSoap(outputWriter, proxyStream);
+            byte[] xmlBytes = processedXmlRequired ? resources.processedXml.toByteArray() : rawXml.toByteArray();
 
-        CodedException fault = handler.getFault();
-        if (fault != null) {
-            return createSoapFault(charset, rawXml, fault);
+            return createSoapMessage(contentType, charset, handler, xmlBytes);
+        } finally {
+            resources.release();
         }
-
-        byte[] xmlBytes = isProcessedXmlRequired() ? processedXml.toByteArray() : rawXml.toByteArray();
-
-        return createSoapMessage(contentType, charset, handler, xmlBytes);
     }
 
-    private XRoadSoapHandler handleSoap(Writer writer, InputStream inputStream)
+    private XRoadSoapHandler handleSoap(SAXParser saxParser, Writer writer, InputStream inputStream)
             throws Exception {
         try (BufferedWriter out = new BufferedWriter(writer)) {
             XRoadSoapHandler handler = new XRoadSoapHandler(out);
-            SAXParser saxParser = PARSER_FACTORY.newSAXParser();
             XMLReader xmlReader = saxParser.getXMLReader();
             xmlReader.setProperty(LEXICAL_HANDLER_PROPERTY, handler);
             // ensure both builtin entities and character entities are reported to the parser
@@ -233,11 +246,10 @@ public class SaxSoapParserImpl implements SoapParser {
                 null, handler.getServiceName(), handler.isRpc(), contentType);
     }
 
-    private static Soap createSoapFault(String charset,
-                                        ByteArrayOutputStream rawXml, CodedException fault) {
+    private static Soap createSoapFault(String charset, byte[] rawXml, CodedException fault) {
         return new SoapFault(fault.getFaultCode(), fault.getFaultString(),
                 fault.getFaultActor(), fault.getFaultDetail(),
-                rawXml.toByteArray(), charset);
+                rawXml, charset);
     }
 
     @SneakyThrows
@@ -298,6 +310,59 @@ public class SaxSoapParserImpl implements SoapParser {
         return new SoapHeaderHandler(header);
     }
 
+    /**
+     * SAX parser and capture buffers of a thread. A nested parse on the same thread gets its own instance, as does
+     * every parse when virtual threads are enabled.
+     */
+    private static final class ParserResources {
+        private final ReusableByteArrayOutputStream rawXml =
+                new ReusableByteArrayOutputStream(INITIAL_CAPTURE_BUFFER_SIZE, MAX_RETAINED_CAPTURE_BUFFER_SIZE);
+        private final ReusableByteArrayOutputStream processedXml =
+                new ReusableByteArrayOutputStream(INITIAL_CAPTURE_BUFFER_SIZE, MAX_RETAINED_CAPTURE_BUFFER_SIZE);
+
+        private SAXParser parser;
+        private boolean inUse;
+
+        static ParserResources acquire() {
+            if (ThreadUtils.isVirtualThreadsEnabled()) {
+                return new ParserResources();
+            }
+
+            ParserResources resources = PARSER_RESOURCES.get();
+            if (resources.inUse) {
+                resources = new ParserResources();
+            }
+
+            resources.inUse = true;
+            return resources;
+        }
+
+        SAXParser getParser() throws Exception {
+            if (parser == null) {
+                parser = PARSER_FACTORY.newSAXParser();
+            }
+
+            return parser;
+        }
+
+        void release() {
+            rawXml.reset();
+            processedXml.reset();
+
+            if (parser != null) {
+                try {
+                    // also drops the references to the handler and the input of the previous parse
+                    parser.reset();
+                } catch (Exception e) {
+                    log.warn("Failed to reset SAX parser, discarding it", e);
+                    parser = null;
+                }
+            }
+
+            inUse = false;
+        }
+    }
+
     @RequiredArgsConstructor
     private final class XRoadSoapHandler extends DefaultHandler2 {
         private static final String NAMESPACE_PREFIX_SEPARATOR = ":";
@@ -34,6 +34,7 @@ import org.apache.james.mime4j.parser.MimeStreamParser;
 import org.apache.james.mime4j.stream.BodyDescriptor;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -63,6 +64,9 @@ public class SoapMessageDecoder {
     private final String baseContentType;
     private final SoapParser parser;
 
+    private MimeTokenStream pendingParts;
+    private MultipartHandler pendingHandler;
+
     /**
      * Callback interface for handling the outcome of the decoding process.
      */
@@ -154,6 +158,63 @@ public class SoapMessageDecoder {
         callback.onCompleted();
     }
 
+    /**
+     * Decodes only the SOAP part of the message from the given input stream.
+     * For multipart messages the attachments are left unread in the stream
+     * and must be decoded afterwards with {@link #parseAttachments()}. This
+     * allows the caller to act on the SOAP message (e.g. open a connection to
+     * the receiver) before the rest of the stream is consumed, without
+     * handing the stream over to another thread.
+     *
+     * @param soapStream input stream with the SOAP message data
+     * @throws Exception if any errors occur
+     */
+    public void parseSoap(InputStream soapStream) throws Exception {
+        if (baseContentType == null) {
+            throw new CodedException(X_INVALID_REQUEST,
+                    "Could not get content type from request");
+        }
+
+        try {
+            switch (baseContentType.toLowerCase()) {
+                case TEXT_XML:
+                case XOP_XML:
+                    readSoapMessage(soapStream);
+                    break;
+                case MULTIPART_RELATED:
+                    readMultipartSoap(soapStream);
+                    break;
+                default:
+                    throw new CodedException(X_INVALID_CONTENT_TYPE,
+                            "Invalid content type: %s", baseContentType);
+            }
+        } catch (Exception e) {
+            pendingParts = null;
+            callback.onError(e);
+        }
+    }
+
+    /**
+     * Decodes the attachments remaining in the stream after
+     * {@link #parseSoap(InputStream)} and completes the decoding process.
+     *
+     * @throws Exception if any errors occur
+     */
+    public void parseAttachments() throws Exception {
+        try {
+            if (pendingParts != null) {
+                readMultipartRest();
+            }
+        } catch (Exception e) {
+            callback.onError(e);
+        } finally {
+            pendingParts = null;
+            pendingHandler = null;
+        }
+
+        callback.onCompleted();
+    }
+
     private void readSoapMessage(InputStream is) throws Exception {
         log.trace("readSoapMessage");
 
@@ -191,6 +252,68 @@ public class SoapMessageDecoder {
         }
     }
 
+    private void readMultipartSoap(InputStream is) throws Exception {
+        log.trace("readMultipartSoap");
+
+        MimeConfig config = new MimeConfig.Builder().setHeadlessParsing(contentType).build();
+
+        pendingParts = new MimeTokenStream(config);
+        pendingHandler = new MultipartHandler();
+        try {
+            Field field = pendingParts.parseHeadless(is, contentType);
+
+            pendingHandler.startHeader();
+            pendingHandler.field(field);
+
+            // Advance until the first (SOAP) part has been read.
+            while (pendingHandler.soapBody == null && nextToken()) {
+                // continue
+            }
+        } catch (MimeException ex) {
+            throw new CodedException(X_MIME_PARSING_FAILED, ex);
+        }
+    }
+
+    private void readMultipartRest() throws Exception {
+        log.trace("readMultipartRest");
+
+        try {
+            while (nextToken()) {
+                // continue
+            }
+        } catch (MimeException ex) {
+            throw new CodedException(X_MIME_PARSING_FAILED, ex);
+        }
+    }
+
+    /**
+     * Dispatches the current token of the pending MIME token stream to the
+     * multipart handler and advances the stream.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean nextToken() throws MimeException, IOException {
+        switch (pendingParts.getState()) {
+            case T_START_HEADER:
+                pendingHandler.startHeader();
+                break;
+            case T_FIELD:
+                pendingHandler.field(pendingParts.getField());
+                break;
+            case T_BODY:
+                pendingHandler.body(pendingParts.getBodyDescriptor(), pendingParts.getInputStream());
+                break;
+            case T_END_OF_STREAM:
+                return false;
+            default:
+                break;
+        }
+
+        pendingParts.next();
+
+        return true;
+    }
+
     private final class MultipartHandler extends AbstractContentHandler {
         private Map<String, String> headers;
         private String partContentType;
@@ -42,8 +42,18 @@ import static ee.ria.xroad.common.util.XmlUtils.getElementById;
 @RequiredArgsConstructor
 public class IdResolver extends ResourceResolverSpi {
 
+    private static final IdResolver OWNER_DOCUMENT_RESOLVER = new IdResolver(null);
+
     private final Document document;
 
+    /**
+     * Returns a shared resolver that resolves the id in the document containing the reference.
+     * @return the resolver
+     */
+    public static IdResolver forOwnerDocument() {
+        return OWNER_DOCUMENT_RESOLVER;
+    }
+
     @Override
     public boolean engineCanResolveURI(ResourceResolverContext context) {
         return context.attr.getValue().startsWith("#");
@@ -52,7 +62,8 @@ public class IdResolver extends ResourceResolverSpi {
 
     @Override
     public XMLSignatureInput engineResolveURI(ResourceResolverContext context) throws ResourceResolverException {
-        Element elem = getElementById(document, context.attr.getValue().substring(1));
+        Document doc = document != null ? document : context.attr.getOwnerDocument();
+        Element elem = getElementById(doc, context.attr.getValue().substring(1));
 
         return elem == null ? null : new XMLSignatureNodeInput(elem);
     }
@@ -25,14 +25,19 @@
  */
 package ee.ria.xroad.common.signature;
 
+import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ErrorCodes;
 import ee.ria.xroad.common.util.SchemaValidator;
 
+import org.xml.sax.SAXException;
+
 import javax.xml.transform.Source;
 import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
 
 /**
  * Validates signature XML according to schema.
+ * Validators are created once per thread and reused, a validator that failed is discarded.
  */
 public class SignatureSchemaValidator extends SchemaValidator {
 
@@ -40,6 +45,8 @@ public class SignatureSchemaValidator extends SchemaValidator {
 
     private static Schema schema;
 
+    private static final ThreadLocal<Validator> VALIDATOR = new ThreadLocal<>();
+
     static {
         schema = createSchema(FILE);
     }
@@ -50,6 +57,20 @@ public class SignatureSchemaValidator extends SchemaValidator {
      * @throws Exception if validation is unsuccessful
      */
     public static void validate(Source source) throws Exception {
-        validate(schema, source, ErrorCodes.X_MALFORMED_SIGNATURE);
+        Validator validator = VALIDATOR.get();
+        if (validator == null) {
+            validator = createValidator(schema);
+            VALIDATOR.set(validator);
+        }
+
+        try {
+            validator.validate(source);
+        } catch (SAXException e) {
+            VALIDATOR.remove();
+            throw new CodedException(ErrorCodes.X_MALFORMED_SIGNATURE, e);
+        } catch (Exception e) {
+            VALIDATOR.remove();
+            throw e;
+        }
     }
 }
@@ -30,6 +30,7 @@ import ee.ria.xroad.common.CodedException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.xml.security.c14n.Canonicalizer;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -233,7 +234,7 @@ public final class XmlUtils {
 
     /**
      * Returns the element that has an ID attribute matching the input.
-     * The search is performed using XPath evaluation.
+     * The search walks the document in document order, same as the XPath expression //*[@Id = 'id'].
      * @param doc the document
      * @param id the id
      * @return the element or null, if the element cannot be found
@@ -243,16 +244,35 @@ public final class XmlUtils {
             id = id.substring(1);
         }
 
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xpath = factory.newXPath();
+        return findElementById(doc.getDocumentElement(), id);
+    }
 
-            return (Element) xpath.evaluate("//*[@Id = '" + id + "']", doc, XPathConstants.NODE);
-        } catch (XPathExpressionException e) {
-            log.warn(ELEMENT_NOT_FOUND_WARNING, e);
+    // iterative, the signature documents come from the peer and may be nested arbitrarily deep
+    private static Element findElementById(Element root, String id) {
+        for (Node node = root; node != null; node = nextInDocumentOrder(node, root)) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                Attr idAttr = ((Element) node).getAttributeNode("Id");
+                if (idAttr != null && id.equals(idAttr.getValue())) {
+                    return (Element) node;
+                }
+            }
+        }
 
-            return null;
+        return null;
+    }
+
+    private static Node nextInDocumentOrder(Node node, Node root) {
+        if (node.getFirstChild() != null) {
+            return node.getFirstChild();
         }
+
+        for (Node current = node; current != root; current = current.getParentNode()) {
+            if (current.getNextSibling() != null) {
+                return current.getNextSibling();
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.message;
+
+import com.sun.management.ThreadMXBean;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures the throughput and the allocation rate of {@link SaxSoapParserImpl} for messages of different
+ * sizes. Bytes allocated per parse should stay close to the size of the message.
+ */
+@Slf4j
+public final class SaxSoapParserBenchmark {
+    private static final String CONTENT_TYPE = "text/xml; charset=UTF-8";
+    private static final int[] MESSAGE_SIZES = {2 * 1024, 100 * 1024, 5 * 1024 * 1024};
+    private static final long RUN_NANOS = 5_000_000_000L;
+
+    private static final String ENVELOPE_START = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\"\n"
+            + "        xmlns:xroad=\"http://x-road.eu/xsd/xroad.xsd\"\n"
+            + "        xmlns:id=\"http://x-road.eu/xsd/identifiers\">\n"
+            + "    <SOAP-ENV:Header>\n"
+            + "        <xroad:client id:objectType=\"MEMBER\">\n"
+            + "            <id:xRoadInstance>EE</id:xRoadInstance>\n"
+            + "            <id:memberClass>BUSINESS</id:memberClass>\n"
+            + "            <id:memberCode>consumer</id:memberCode>\n"
+            + "        </xroad:client>\n"
+            + "        <xroad:service id:objectType=\"SERVICE\">\n"
+            + "            <id:xRoadInstance>EE</id:xRoadInstance>\n"
+            + "            <id:memberClass>BUSINESS</id:memberClass>\n"
+            + "            <id:memberCode>producer</id:memberCode>\n"
+            + "            <id:serviceCode>testQuery</id:serviceCode>\n"
+            + "        </xroad:service>\n"
+            + "        <xroad:id>1234567890</xroad:id>\n"
+            + "        <xroad:protocolVersion>4.0</xroad:protocolVersion>\n"
+            + "    </SOAP-ENV:Header>\n"
+            + "    <SOAP-ENV:Body>\n"
+            + "        <ns1:testQuery xmlns:ns1=\"http://consumer.ee.x-road.eu\">\n";
+    private static final String ENVELOPE_END = "        </ns1:testQuery>\n"
+            + "    </SOAP-ENV:Body>\n"
+            + "</SOAP-ENV:Envelope>\n";
+    private static final String ITEM = "            <item><name>foo</name><age>35</age></item>\n";
+
+    private SaxSoapParserBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        // Warmup
+        run(MESSAGE_SIZES[0], false);
+
+        for (int size : MESSAGE_SIZES) {
+            run(size, true);
+        }
+    }
+
+    private static void run(int size, boolean report) {
+        byte[] message = createMessage(size);
+        SaxSoapParserImpl parser = new SaxSoapParserImpl();
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long ops = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            if (!(parser.parse(CONTENT_TYPE, new ByteArrayInputStream(message)) instanceof SoapMessageImpl)) {
+                throw new IllegalStateException("Benchmark message was not parsed as a SOAP message");
+            }
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < RUN_NANOS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        if (report) {
+            log.info("{} byte message: {} ops/s, {} bytes allocated/op", message.length,
+                    ops * 1_000_000_000L / elapsed, allocated / ops);
+        }
+    }
+
+    private static byte[] createMessage(int size) {
+        StringBuilder sb = new StringBuilder(size + ITEM.length()).append(ENVELOPE_START);
+        while (sb.length() + ITEM.length() + ENVELOPE_END.length() <= size) {
+            sb.append(ITEM);
+        }
+
+        return sb.append(ENVELOPE_END).toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
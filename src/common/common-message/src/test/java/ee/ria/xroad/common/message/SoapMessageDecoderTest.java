@@ -0,0 +1,131 @@
+/*\
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.message;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ee.ria.xroad.common.message.SoapMessageTestUtil.QUERY_DIR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the staged (SOAP first, attachments later) decoding of SOAP messages.
+ */
+public class SoapMessageDecoderTest {
+
+    private static final String MULTIPART_CONTENT_TYPE =
+            "multipart/related; charset=UTF-8; boundary=jetty771207119h3h10dty";
+
+    /**
+     * Test that the SOAP part of a multipart message is decoded before the attachments are read.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void stagedMultipart() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(MULTIPART_CONTENT_TYPE, callback);
+
+        try (InputStream is = new FileInputStream(QUERY_DIR + "attachm.query")) {
+            decoder.parseSoap(is);
+
+            assertNotNull(callback.soap);
+            assertTrue(callback.attachments.isEmpty());
+            assertFalse(callback.completed);
+
+            decoder.parseAttachments();
+        }
+
+        assertEquals(1, callback.attachments.size());
+        assertTrue(callback.attachments.get(0).contains("blaah"));
+        assertTrue(callback.completed);
+        assertNull(callback.error);
+    }
+
+    /**
+     * Test that a plain SOAP message is decoded completely in the first stage.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void stagedPlainSoap() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder("text/xml; charset=UTF-8", callback);
+
+        try (InputStream is = new FileInputStream(QUERY_DIR + "simple.query")) {
+            decoder.parseSoap(is);
+            decoder.parseAttachments();
+        }
+
+        assertNotNull(callback.soap);
+        assertTrue(callback.attachments.isEmpty());
+        assertTrue(callback.completed);
+        assertNull(callback.error);
+    }
+
+    private static final class RecordingCallback implements SoapMessageDecoder.Callback {
+        private SoapMessage soap;
+        private final List<String> attachments = new ArrayList<>();
+        private boolean completed;
+        private Exception error;
+
+        @Override
+        public void soap(SoapMessage message, Map<String, String> additionalHeaders) {
+            soap = message;
+        }
+
+        @Override
+        public void attachment(String contentType, InputStream content, Map<String, String> additionalHeaders)
+                throws Exception {
+            attachments.add(IOUtils.toString(content, "UTF-8"));
+        }
+
+        @Override
+        public void fault(SoapFault fault) {
+            error = fault.toCodedException();
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+
+        @Override
+        public void onError(Exception t) {
+            error = t;
+        }
+    }
+}
@@ -25,6 +25,7 @@
  */
 package ee.ria.xroad.common.message;
 
+import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ExpectedCodedException;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.ServiceId;
@@ -62,6 +63,7 @@ import static ee.ria.xroad.common.message.SoapUtils.getChildElements;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * This class tests the basic functionality (parsing the soap message etc.) of the SoapMessage class.
@@ -416,6 +418,35 @@ public class SoapMessageTest {
         assertTrue(Arrays.areEqual(in, out));
     }
 
+    /**
+     * Test that messages parsed one after another on the same thread do not share their bytes and that
+     * a failed parse does not affect the next one.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void consecutiveMessagesAreIndependent() throws Exception {
+        byte[] first = fileToBytes("simple.query");
+        byte[] second = fileToBytes("simple-rpc.query");
+        SaxSoapParserImpl parser = new SaxSoapParserImpl();
+
+        Soap firstMessage = parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(first));
+        Soap secondMessage = parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(second));
+
+        try {
+            parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream("<SOAP-ENV:Envelope".getBytes()));
+            fail("Parsing a truncated message should fail");
+        } catch (CodedException expected) {
+            // the parser and the buffers are reused after a failed parse
+        }
+
+        Soap thirdMessage = parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(first));
+
+        assertTrue(Arrays.areEqual(first, messageToBytes(firstMessage)));
+        assertTrue(Arrays.areEqual(second, messageToBytes(secondMessage)));
+        assertTrue(Arrays.areEqual(first, messageToBytes(thirdMessage)));
+    }
+
     /**
      * Test protocol version.
      *
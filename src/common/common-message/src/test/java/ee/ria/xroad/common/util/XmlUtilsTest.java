@@ -28,6 +28,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -45,7 +46,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Unit tests for {@link XmlUtils}
@@ -104,6 +108,33 @@ public class XmlUtilsTest {
         reader.parse(new InputSource(getXXEFileInjectionDocument()));
     }
 
+    @Test
+    public void getElementByIdReturnsFirstMatchInDocumentOrder() throws Exception {
+        Document document = XmlUtils.parseDocument("<root><a><b Id=\"x\" n=\"1\"/></a><c Id=\"x\" n=\"2\"/>"
+                + "<d Id=\"y\"/></root>");
+
+        assertEquals("1", XmlUtils.getElementById(document, "#x").getAttribute("n"));
+        assertEquals("d", XmlUtils.getElementById(document, "y").getTagName());
+        assertNull(XmlUtils.getElementById(document, "z"));
+    }
+
+    @Test
+    public void getElementByIdFindsDeeplyNestedElement() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element parent = document.createElement("root");
+        document.appendChild(parent);
+
+        for (int i = 0; i < 100_000; i++) {
+            Element child = document.createElement("nested");
+            parent.appendChild(child);
+            parent = child;
+        }
+        parent.setAttribute("Id", "deep");
+
+        assertSame(parent, XmlUtils.getElementById(document, "deep"));
+        assertNull(XmlUtils.getElementById(document, "missing"));
+    }
+
     private InputStream getXXEFileInjectionDocument() {
         return new ByteArrayInputStream(String.format("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
                         + "<!DOCTYPE test ["
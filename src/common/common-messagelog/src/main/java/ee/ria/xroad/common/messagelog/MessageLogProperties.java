@@ -59,6 +59,10 @@ public final class MessageLogProperties {
 
     private static final int DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE = 10000;
     private static final int DEFAULT_CLEAN_TRANSACTION_BATCH_SIZE = 10000;
+    private static final int DEFAULT_ARCHIVE_WORKERS = 2;
+
+    private static final int DEFAULT_GROUP_COMMIT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE = 100;
 
     private static final long DEFAULT_MAX_LOGGABLE_MESSAGE_BODY_SIZE = 10 * 1024 * 1024;
     private static final long MAX_LOGGABLE_MESSAGE_BODY_SIZE_LIMIT = 1024 * 1024 * 1024;
@@ -96,12 +100,32 @@ public final class MessageLogProperties {
 
     public static final String ARCHIVE_TRANSACTION_BATCH = PREFIX + "archive-transaction-batch";
 
+    /**
+     * Property name of the number of archive groups archived in parallel.
+     */
+    public static final String ARCHIVE_WORKERS = PREFIX + "archive-workers";
+
     public static final String CLEAN_INTERVAL = PREFIX + "clean-interval";
 
     private static final String CLEAN_TRANSACTION_BATCH = "clean-transaction-batch";
 
     public static final String HASH_ALGO_ID = PREFIX + "hash-algo-id";
 
+    /**
+     * Property name for toggling the group commit writer for message records on/off.
+     */
+    public static final String GROUP_COMMIT_ENABLED = PREFIX + "group-commit-enabled";
+
+    /**
+     * Property name of the maximum number of message records waiting to be written by the group commit writer.
+     */
+    public static final String GROUP_COMMIT_QUEUE_SIZE = PREFIX + "group-commit-queue-size";
+
+    /**
+     * Property name of the maximum number of message records written in one group commit transaction.
+     */
+    public static final String GROUP_COMMIT_MAX_BATCH_SIZE = PREFIX + "group-commit-max-batch-size";
+
     public static final String ARCHIVE_TRANSFER_COMMAND = PREFIX + "archive-transfer-command";
 
     /**
@@ -230,6 +254,29 @@ public final class MessageLogProperties {
                 DEFAULT_ACCEPTABLE_TIMESTAMP_FAILURE_PERIOD);
     }
 
+    /**
+     * @return true if message records are written to the database in batches by a group commit writer instead
+     * of one transaction per record. 'false' by default.
+     */
+    public static boolean isGroupCommitEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(GROUP_COMMIT_ENABLED, "false"));
+    }
+
+    /**
+     * @return the maximum number of message records waiting to be written by the group commit writer. When the
+     * queue is full, logging a message blocks until there is room. '10000' by default.
+     */
+    public static int getGroupCommitQueueSize() {
+        return getInt(System.getProperty(GROUP_COMMIT_QUEUE_SIZE), DEFAULT_GROUP_COMMIT_QUEUE_SIZE);
+    }
+
+    /**
+     * @return the maximum number of message records written in one group commit transaction. '100' by default.
+     */
+    public static int getGroupCommitMaxBatchSize() {
+        return getInt(System.getProperty(GROUP_COMMIT_MAX_BATCH_SIZE), DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE);
+    }
+
     /**
      * @return the time interval as Cron expression for archiving time-stamped records.
      */
@@ -244,6 +291,13 @@ public final class MessageLogProperties {
         return getInt(System.getProperty(ARCHIVE_TRANSACTION_BATCH), DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE);
     }
 
+    /**
+     * @return number of archive groups (see {@link #getArchiveGrouping()}) archived in parallel, '2' by default.
+     */
+    public static int getArchiveWorkers() {
+        return Math.max(1, getInt(System.getProperty(ARCHIVE_WORKERS), DEFAULT_ARCHIVE_WORKERS));
+    }
+
     /**
      * @return the time interval as Cron expression for cleaning archived records from online database.
      */
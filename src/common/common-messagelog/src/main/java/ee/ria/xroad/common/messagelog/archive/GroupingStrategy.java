@@ -51,8 +51,12 @@ public enum GroupingStrategy {
     };
 
     public Grouping forRecord(MessageRecord record) {
+        return forMember(record.getMemberClass(), record.getMemberCode(), record.getSubsystemCode());
+    }
+
+    public Grouping forMember(String memberClass, String memberCode, String subsystemCode) {
         return forClient(ClientId.Conf.create(GlobalConf.getInstanceIdentifier(),
-                record.getMemberClass(), record.getMemberCode(), record.getSubsystemCode()));
+                memberClass, memberCode, subsystemCode));
     }
 
     public abstract Grouping forClient(ClientId clientId);
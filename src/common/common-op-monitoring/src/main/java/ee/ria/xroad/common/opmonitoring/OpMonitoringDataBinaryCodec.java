@@ -0,0 +1,267 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.opmonitoring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary encoding of operational monitoring records, used instead of JSON between the operational
+ * monitoring buffer and the operational monitoring daemon when binary transport is enabled.
+ * <p>
+ * A message consists of a format version, a table of the field names used in the message and the records.
+ * Each record is a list of fields referring to the name table by index, followed by a type tag and the value:
+ * <pre>
+ * version:u8 nameCount:i32 (name:str)* recordCount:i32 (fieldCount:u16 (nameIndex:u16 type:u8 value)*)*
+ * </pre>
+ * Strings are encoded as i32 length followed by UTF-8 bytes.
+ */
+public final class OpMonitoringDataBinaryCodec {
+
+    public static final String CONTENT_TYPE = "application/x-road-opmonitoring-records";
+
+    private static final int VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_LONG = 2;
+    private static final int TYPE_INTEGER = 3;
+    private static final int TYPE_BOOLEAN = 4;
+
+    private static final int MAX_NAMES = 0xFFFF;
+    private static final int MAX_RECORDS = 1024 * 1024;
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+    private static final int MAX_INITIAL_RECORDS = 1024;
+
+    private OpMonitoringDataBinaryCodec() {
+    }
+
+    /**
+     * Encodes the records.
+     *
+     * @param records the records as field name to value maps
+     * @return the encoded message
+     * @throws IOException if encoding fails
+     */
+    public static byte[] encode(List<Map<String, Object>> records) throws IOException {
+        Map<String, Integer> names = new LinkedHashMap<>();
+        for (Map<String, Object> record : records) {
+            for (String name : record.keySet()) {
+                names.putIfAbsent(name, names.size());
+            }
+        }
+
+        if (names.size() > MAX_NAMES) {
+            throw new IOException("Too many distinct field names: " + names.size());
+        }
+
+        if (records.size() > MAX_RECORDS) {
+            throw new IOException("Too many records: " + records.size());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(VERSION);
+        out.writeInt(names.size());
+        for (String name : names.keySet()) {
+            writeString(out, name);
+        }
+
+        out.writeInt(records.size());
+        for (Map<String, Object> record : records) {
+            out.writeShort(record.size());
+
+            for (Map.Entry<String, Object> field : record.entrySet()) {
+                out.writeShort(names.get(field.getKey()));
+                writeValue(out, field.getValue());
+            }
+        }
+
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the records from the stream.
+     *
+     * @param is the stream
+     * @return the records as field name to value maps
+     * @throws IOException if the stream does not contain a valid message
+     */
+    public static List<Map<String, Object>> decode(InputStream is) throws IOException {
+        return decode(is, new RecordBinder<>() {
+            @Override
+            public Map<String, Object> newRecord() {
+                return new HashMap<>();
+            }
+
+            @Override
+            public void set(Map<String, Object> record, String name, Object value) {
+                record.put(name, value);
+            }
+        });
+    }
+
+    /**
+     * Decodes the records from the stream, binding the field values directly to records created by the binder.
+     *
+     * @param is     the stream
+     * @param binder creates the records and sets their fields
+     * @param <R>    type of the records
+     * @return the records
+     * @throws IOException if the stream does not contain a valid message
+     */
+    public static <R> List<R> decode(InputStream is, RecordBinder<R> binder) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported operational monitoring data format version " + version);
+        }
+
+        int nameCount = readCount(in, MAX_NAMES);
+        String[] names = new String[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            names[i] = readString(in);
+        }
+
+        int recordCount = readCount(in, MAX_RECORDS);
+        List<R> records = new ArrayList<>(Math.min(recordCount, MAX_INITIAL_RECORDS));
+
+        for (int i = 0; i < recordCount; i++) {
+            int fieldCount = in.readUnsignedShort();
+            R record = binder.newRecord();
+
+            for (int j = 0; j < fieldCount; j++) {
+                int nameIndex = in.readUnsignedShort();
+                if (nameIndex >= nameCount) {
+                    throw new IOException("Invalid field name index " + nameIndex);
+                }
+
+                binder.set(record, names[nameIndex], readValue(in));
+            }
+
+            records.add(record);
+        }
+
+        return records;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Long longValue) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(longValue);
+        } else if (value instanceof Integer intValue) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(intValue);
+        } else if (value instanceof Boolean booleanValue) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(booleanValue);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+
+        return switch (type) {
+            case TYPE_NULL -> null;
+            case TYPE_STRING -> readString(in);
+            case TYPE_LONG -> in.readLong();
+            case TYPE_INTEGER -> in.readInt();
+            case TYPE_BOOLEAN -> in.readBoolean();
+            default -> throw new IOException("Invalid value type " + type);
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readCount(in, MAX_STRING_BYTES);
+
+        // the buffer grows as the bytes are read, so a truncated message cannot make it allocate the full length
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("String value truncated: " + bytes.length + " of " + length + " bytes");
+        }
+
+        return new String(bytes, UTF_8);
+    }
+
+    private static int readCount(DataInputStream in, int max) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Invalid length " + count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates records and sets their fields while a message is decoded.
+     *
+     * @param <R> type of the records
+     */
+    public interface RecordBinder<R> {
+
+        /**
+         * @return a new empty record
+         */
+        R newRecord();
+
+        /**
+         * Sets a field of the record.
+         *
+         * @param record the record
+         * @param name   the field name
+         * @param value  the decoded value: null, {@link String}, {@link Long}, {@link Integer} or {@link Boolean}
+         * @throws IOException if the value is not valid for the field
+         */
+        void set(R record, String name, Object value) throws IOException;
+    }
+}
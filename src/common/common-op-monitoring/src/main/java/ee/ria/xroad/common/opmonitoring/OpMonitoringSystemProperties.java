@@ -29,6 +29,8 @@ import ee.ria.xroad.common.PortNumbers;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.temporal.ChronoUnit;
+
 import static ee.ria.xroad.common.SystemProperties.PREFIX;
 import static ee.ria.xroad.common.SystemProperties.getConfPath;
 
@@ -61,6 +63,18 @@ public final class OpMonitoringSystemProperties {
     private static final String OP_MONITOR_BUFFER_SENDING_INTERVAL_SECONDS =
             PREFIX + "op-monitor-buffer.sending-interval-seconds";
 
+    /**
+     * Property name of the maximum time the operational monitoring buffer waits for a message to fill up.
+     */
+    private static final String OP_MONITOR_BUFFER_MAX_LINGER_MILLIS =
+            PREFIX + "op-monitor-buffer.max-linger-millis";
+
+    /**
+     * Property name of the on/off switch for sending operational monitoring records in binary format.
+     */
+    private static final String OP_MONITOR_BUFFER_BINARY_TRANSPORT_ENABLED =
+            PREFIX + "op-monitor-buffer.binary-transport-enabled";
+
 
     /**
      * Property name of the operational monitoring buffer HTTP client SO_TIMEOUT seconds.
@@ -134,6 +148,12 @@ public final class OpMonitoringSystemProperties {
     private static final String OP_MONITOR_HEALTH_STATISTICS_PERIOD_SECONDS =
             PREFIX + "op-monitor.health-statistics-period-seconds";
 
+    /**
+     * Property name of the granularity in seconds of the sliding time window used for health statistics.
+     */
+    private static final String OP_MONITOR_HEALTH_STATISTICS_GRANULARITY_SECONDS =
+            PREFIX + "op-monitor.health-statistics-granularity-seconds";
+
     /**
      * Property name of the period in days for keeping operational data records in the database.
      */
@@ -153,6 +173,18 @@ public final class OpMonitoringSystemProperties {
     private static final String OP_MONITOR_MAX_RECORDS_IN_PAYLOAD =
             PREFIX + "op-monitor.max-records-in-payload";
 
+    /**
+     * Property name of the toggle for storing operational data records using PostgreSQL COPY.
+     */
+    private static final String OP_MONITOR_BULK_COPY_ENABLED =
+            PREFIX + "op-monitor.bulk-copy-enabled";
+
+    /**
+     * Property name of the length of the operational data table partitions, 'day' or 'hour'.
+     */
+    private static final String OP_MONITOR_PARTITION_INTERVAL =
+            PREFIX + "op-monitor.partition-interval";
+
     private OpMonitoringSystemProperties() {
     }
 
@@ -179,6 +211,22 @@ public final class OpMonitoringSystemProperties {
         return Long.parseLong(System.getProperty(OP_MONITOR_BUFFER_SENDING_INTERVAL_SECONDS, "5"));
     }
 
+    /**
+     * @return the maximum time in milliseconds the operational monitoring buffer waits for more records before
+     * sending a message with less than max-records-in-message records, '0' by default.
+     */
+    public static long getOpMonitorBufferMaxLingerMillis() {
+        return Long.parseLong(System.getProperty(OP_MONITOR_BUFFER_MAX_LINGER_MILLIS, "0"));
+    }
+
+    /**
+     * @return true if the operational monitoring buffer sends records to the operational monitoring daemon in
+     * binary format instead of JSON, 'false' by default.
+     */
+    public static boolean isOpMonitorBufferBinaryTransportEnabled() {
+        return Boolean.parseBoolean(System.getProperty(OP_MONITOR_BUFFER_BINARY_TRANSPORT_ENABLED, "false"));
+    }
+
     /**
      * @return the operational monitoring buffer HTTP client SO_TIMEOUT in seconds, '60' by default.
      */
@@ -252,6 +300,40 @@ public final class OpMonitoringSystemProperties {
         return Integer.parseInt(System.getProperty(OP_MONITOR_HEALTH_STATISTICS_PERIOD_SECONDS, "600"));
     }
 
+    /**
+     * @return the granularity in seconds of the sliding time window that is used for gathering health statistics
+     * about services, 10 by default.
+     */
+    public static int getOpMonitorHealthStatisticsGranularitySeconds() {
+        return Integer.parseInt(System.getProperty(OP_MONITOR_HEALTH_STATISTICS_GRANULARITY_SECONDS, "10"));
+    }
+
+    /**
+     * @return whether the operational monitoring daemon stores operational data records using PostgreSQL
+     * COPY instead of Hibernate, 'true' by default.
+     */
+    public static boolean isOpMonitorBulkCopyEnabled() {
+        return Boolean.parseBoolean(System.getProperty(OP_MONITOR_BULK_COPY_ENABLED, "true"));
+    }
+
+    /**
+     * @return the length of the operational data table partitions, {@link ChronoUnit#DAYS} by default. Partitions
+     * are used only if the operational monitoring database is partitioned.
+     */
+    public static ChronoUnit getOpMonitorPartitionInterval() {
+        String interval = System.getProperty(OP_MONITOR_PARTITION_INTERVAL, "day");
+
+        if ("hour".equalsIgnoreCase(interval)) {
+            return ChronoUnit.HOURS;
+        }
+
+        if (!"day".equalsIgnoreCase(interval)) {
+            log.warn("Property {} has invalid value, using default 'day'", OP_MONITOR_PARTITION_INTERVAL);
+        }
+
+        return ChronoUnit.DAYS;
+    }
+
     /**
      * @return the period in days for keeping operational data records in the database, 7 days by default.
      */
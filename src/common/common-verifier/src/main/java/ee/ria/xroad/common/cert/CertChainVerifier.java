@@ -31,7 +31,9 @@ import ee.ria.xroad.common.conf.globalconfextension.GlobalConfExtensions;
 import ee.ria.xroad.common.ocsp.OcspVerifier;
 import ee.ria.xroad.common.ocsp.OcspVerifierOptions;
 
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
 
 import java.security.cert.CertPath;
 import java.security.cert.CertPathBuilder;
@@ -45,6 +47,7 @@ import java.security.cert.PKIXCertPathValidatorResult;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509CertSelector;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
@@ -56,6 +59,7 @@ import static ee.ria.xroad.common.ErrorCodes.X_CERT_VALIDATION;
 import static ee.ria.xroad.common.ErrorCodes.X_INVALID_CERT_PATH_X;
 import static ee.ria.xroad.common.ErrorCodes.translateWithPrefix;
 import static ee.ria.xroad.common.cert.CertHelper.getOcspResponseForCert;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Certificate chain verifier.
@@ -121,7 +125,7 @@ public class CertChainVerifier {
      * @param atDate the date at which to verify the chain
      */
     public void verifyChainOnly(Date atDate) {
-        verifyImpl(null, atDate);
+        verifyImpl(null, atDate, 0, false);
     }
 
     /**
@@ -132,6 +136,8 @@ public class CertChainVerifier {
      * OCSP response is found and verified.
      * If verification fails, throws CodedException with error code
      * InvalidCertPath...
+     * Successful verifications are cached, a verification of the same chain
+     * with the same OCSP responses is not repeated while the result holds.
      * @param ocspResponses list of OCSP responses that are used to
      *                      validate the certificates.
      * @param atDate The date at which the verification is performed.
@@ -142,10 +148,33 @@ public class CertChainVerifier {
                     "List of OCSP responses cannot be null or empty");
         }
 
-        verifyImpl(ocspResponses, atDate);
+        int ocspFreshnessSeconds;
+        boolean verifyOcspNextUpdate;
+        try {
+            ocspFreshnessSeconds = GlobalConf.getOcspFreshnessSeconds();
+            verifyOcspNextUpdate = GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate();
+        } catch (Exception ex) {
+            throw translateWithPrefix(X_INVALID_CERT_PATH_X, ex);
+        }
+
+        if (atDate == null) {
+            verifyImpl(ocspResponses, null, ocspFreshnessSeconds, verifyOcspNextUpdate);
+            return;
+        }
+
+        VerifiedCertChainCache.Key key = VerifiedCertChainCache.Key.create(certChain, ocspResponses,
+                ocspFreshnessSeconds, verifyOcspNextUpdate);
+        CertPath cachedPath = VerifiedCertChainCache.get(key, atDate);
+        if (cachedPath != null) {
+            certPath = cachedPath;
+            return;
+        }
+
+        VerifiedCertChainCache.put(key, verifyImpl(ocspResponses, atDate, ocspFreshnessSeconds, verifyOcspNextUpdate));
     }
 
-    private void verifyImpl(List<OCSPResp> ocspResponses, Date atDate) {
+    private VerifiedCertChainCache.Entry verifyImpl(List<OCSPResp> ocspResponses, Date atDate,
+                                                    int ocspFreshnessSeconds, boolean verifyOcspNextUpdate) {
         pkixParams.setDate(atDate);
         try {
             certPath = buildCertPath(pkixParams);
@@ -154,9 +183,10 @@ public class CertChainVerifier {
                     verifyCertPath(certPath, pkixParams);
 
             if (ocspResponses != null) {
-                verifyOcspResponses(
-                        getCerts(), ocspResponses, pkixResult, atDate);
+                return verifyOcspResponses(getCerts(), ocspResponses, pkixResult, atDate,
+                        ocspFreshnessSeconds, verifyOcspNextUpdate);
             }
+            return null;
         } catch (CertPathBuilderException ex) {
             throw translateWithPrefix(X_CANNOT_CREATE_CERT_PATH, ex);
         } catch (Exception ex) {
@@ -164,9 +194,18 @@ public class CertChainVerifier {
         }
     }
 
-    private void verifyOcspResponses(List<X509Certificate> certs,
-                                     List<OCSPResp> ocspResponses, PKIXCertPathValidatorResult result,
-                                     Date atDate) throws Exception {
+    private VerifiedCertChainCache.Entry verifyOcspResponses(List<X509Certificate> certs,
+                                                             List<OCSPResp> ocspResponses,
+                                                             PKIXCertPathValidatorResult result, Date atDate,
+                                                             int ocspFreshnessSeconds,
+                                                             boolean verifyOcspNextUpdate) throws Exception {
+        OcspVerifier verifier = new OcspVerifier(ocspFreshnessSeconds,
+                new OcspVerifierOptions(verifyOcspNextUpdate));
+
+        List<X509Certificate> issuers = new ArrayList<>(certs.size());
+        long validFrom = Long.MIN_VALUE;
+        long validUntil = Long.MAX_VALUE;
+
         for (X509Certificate subject : certs) {
             X509Certificate issuer =
                     GlobalConf.getCaCert(certChain.getInstanceIdentifier(),
@@ -179,11 +218,23 @@ public class CertChainVerifier {
                                 + subject.getSubjectX500Principal().getName());
             }
 
-            OcspVerifier verifier = new OcspVerifier(GlobalConf.getOcspFreshnessSeconds(),
-                    new OcspVerifierOptions(GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate()));
             verifier.verifyValidityAndStatus(response, subject, issuer,
                     atDate);
+
+            // The verification result holds while the certificate is valid
+            // and the OCSP response is fresh.
+            SingleResp singleResp = ((BasicOCSPResp) response.getResponseObject()).getResponses()[0];
+            validFrom = Math.max(validFrom, subject.getNotBefore().getTime());
+            validUntil = Math.min(validUntil, subject.getNotAfter().getTime());
+            validUntil = Math.min(validUntil,
+                    singleResp.getThisUpdate().getTime() + SECONDS.toMillis(ocspFreshnessSeconds));
+            if (verifyOcspNextUpdate && singleResp.getNextUpdate() != null) {
+                validUntil = Math.min(validUntil, singleResp.getNextUpdate().getTime());
+            }
+            issuers.add(issuer);
         }
+
+        return new VerifiedCertChainCache.Entry(certPath, List.copyOf(issuers), validFrom, validUntil);
     }
 
     private static CertPath buildCertPath(PKIXBuilderParameters pkixParams)
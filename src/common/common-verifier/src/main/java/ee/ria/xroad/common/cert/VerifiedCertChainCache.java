@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.cert;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.util.ProcessMetrics;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+
+import java.security.cert.CertPath;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Remembers successful certificate chain verifications.
+ * <p>
+ * An entry is used only if the verification date falls into the period during which the original
+ * verification result holds: all certificates of the path are valid and all OCSP responses are fresh
+ * (and not past their nextUpdate when that is verified). The CA certificates are looked up from the global
+ * configuration again on every hit, other global configuration changes are picked up when the entry expires
+ * (after the OCSP verifier cache period, same as the OCSP response validity cache).
+ */
+@Slf4j
+final class VerifiedCertChainCache {
+
+    static final String HITS = MetricRegistry.name(CertChainVerifier.class, "cache", "hits");
+    static final String MISSES = MetricRegistry.name(CertChainVerifier.class, "cache", "misses");
+    static final String HIT_RATIO = MetricRegistry.name(CertChainVerifier.class, "cache", "hitRatio");
+
+    private static final int MAX_SIZE = 1000;
+
+    private static final Cache<Key, Entry> CACHE = CacheBuilder.newBuilder()
+            .expireAfterWrite(SystemProperties.getOcspVerifierCachePeriod(), SECONDS)
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    private static final Meter HIT_METER;
+    private static final Meter MISS_METER;
+
+    static {
+        MetricRegistry metrics = ProcessMetrics.getMetrics();
+        HIT_METER = metrics.meter(HITS);
+        MISS_METER = metrics.meter(MISSES);
+        metrics.gauge(HIT_RATIO, () -> new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(HIT_METER.getOneMinuteRate(),
+                        HIT_METER.getOneMinuteRate() + MISS_METER.getOneMinuteRate());
+            }
+        });
+    }
+
+    private VerifiedCertChainCache() {
+    }
+
+    /**
+     * Identifies a verification: the chain, the OCSP responses and the OCSP verification parameters.
+     */
+    record Key(String instanceIdentifier, X509Certificate endEntityCert, X509Certificate trustedRootCert,
+               Set<X509Certificate> additionalCerts, List<OCSPResp> ocspResponses, int ocspFreshnessSeconds,
+               boolean verifyOcspNextUpdate) {
+
+        static Key create(CertChain certChain, List<OCSPResp> ocspResponses, int ocspFreshnessSeconds,
+                          boolean verifyOcspNextUpdate) {
+            return new Key(certChain.getInstanceIdentifier(), certChain.getEndEntityCert(),
+                    certChain.getTrustedRootCert(),
+                    Collections.unmodifiableSet(new HashSet<>(certChain.getAdditionalCerts())),
+                    Collections.unmodifiableList(new ArrayList<>(ocspResponses)),
+                    ocspFreshnessSeconds, verifyOcspNextUpdate);
+        }
+    }
+
+    /**
+     * Successfully verified certificate path, the issuers of the path certificates and the
+     * period [validFrom, validUntil] (milliseconds since epoch, inclusive) the verification result holds for.
+     */
+    record Entry(CertPath certPath, List<X509Certificate> issuers, long validFrom, long validUntil) {
+    }
+
+    /**
+     * Returns the certificate path of a cached verification that holds at the given date or null if there is none.
+     */
+    static CertPath get(Key key, Date atDate) {
+        Entry entry = CACHE.getIfPresent(key);
+        if (entry != null && isValidAt(entry, atDate) && issuersUnchanged(key, entry)) {
+            HIT_METER.mark();
+            return entry.certPath();
+        }
+
+        MISS_METER.mark();
+        return null;
+    }
+
+    static void put(Key key, Entry entry) {
+        CACHE.put(key, entry);
+    }
+
+    static void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+
+    static long hitCount() {
+        return HIT_METER.getCount();
+    }
+
+    static long missCount() {
+        return MISS_METER.getCount();
+    }
+
+    private static boolean isValidAt(Entry entry, Date atDate) {
+        long at = atDate.getTime();
+        return at >= entry.validFrom() && at <= entry.validUntil();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean issuersUnchanged(Key key, Entry entry) {
+        List<X509Certificate> certs = (List<X509Certificate>) entry.certPath().getCertificates();
+        try {
+            for (int i = 0; i < certs.size(); i++) {
+                if (!entry.issuers().get(i).equals(GlobalConf.getCaCert(key.instanceIdentifier(), certs.get(i)))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.trace("CA certificate lookup failed, verifying the chain again", e);
+            return false;
+        }
+    }
+}
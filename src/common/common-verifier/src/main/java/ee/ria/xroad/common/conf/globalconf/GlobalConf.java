@@ -42,6 +42,7 @@ import java.security.cert.X509Certificate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ee.ria.xroad.common.ErrorCodes.X_OUTDATED_GLOBALCONF;
 
@@ -53,6 +54,8 @@ public final class GlobalConf {
 
     private static volatile GlobalConfProvider instance;
 
+    private static final AtomicLong VERSION = new AtomicLong();
+
     private GlobalConf() {
     }
 
@@ -82,6 +85,7 @@ public final class GlobalConf {
             log.debug("reloading instance");
             instance.reload();
         }
+        VERSION.incrementAndGet();
     }
 
     /**
@@ -94,6 +98,7 @@ public final class GlobalConf {
         synchronized (GlobalConf.class) {
             instance = conf;
         }
+        VERSION.incrementAndGet();
     }
 
     /**
@@ -105,6 +110,16 @@ public final class GlobalConf {
         synchronized (GlobalConf.class) {
             instance = null;
         }
+        VERSION.incrementAndGet();
+    }
+
+    /**
+     * Returns a number that changes every time the configuration is reloaded or replaced. Callers that derive
+     * data from the configuration can use it to detect that the derived data needs to be recomputed.
+     * @return the current configuration version
+     */
+    public static long getVersion() {
+        return VERSION.get();
     }
 
     // ------------------------------------------------------------------------
@@ -172,11 +172,7 @@ public class GlobalConfImpl implements GlobalConfProvider {
             throw new CodedException(X_INTERNAL_ERROR, e);
         }
 
-        return p.flatMap(params -> params.getMembers().stream()
-                .filter(m -> createMemberId(p.get(), m).memberEquals(clientId))
-                .map(SharedParameters.Member::getName)
-                .findFirst()
-        ).orElse(null);
+        return p.map(params -> params.findMemberName(clientId)).orElse(null);
     }
 
     @Override
@@ -205,11 +201,9 @@ public class GlobalConfImpl implements GlobalConfProvider {
             throw new CodedException(X_INTERNAL_ERROR, e);
         }
 
-        return p.flatMap(params -> params.getGlobalGroups().stream()
-                .filter(g -> g.getGroupCode().equals(globalGroupId.getGroupCode()))
+        return p.map(params -> params.getGlobalGroupsByCode().get(globalGroupId.getGroupCode()))
                 .map(SharedParameters.GlobalGroup::getDescription)
-                .findFirst()
-        ).orElse(null);
+                .orElse(null);
     }
 
     @Override
@@ -543,18 +537,11 @@ public class GlobalConfImpl implements GlobalConfProvider {
 
     @Override
     public boolean isSubjectInGlobalGroup(ClientId subjectId, GlobalGroupId groupId) {
-        return findGlobalGroup(groupId)
-                .filter(group -> group.getGroupMembers().stream().anyMatch(m -> m.equals(subjectId)))
+        return confDir.findShared(groupId.getXRoadInstance())
+                .filter(params -> params.isGlobalGroupMember(groupId.getGroupCode(), subjectId))
                 .isPresent();
     }
 
-    Optional<SharedParameters.GlobalGroup> findGlobalGroup(GlobalGroupId groupId) {
-        Optional<SharedParameters> sharedParameters = confDir.findShared(groupId.getXRoadInstance());
-        return sharedParameters.flatMap(params -> params.getGlobalGroups().stream()
-                .filter(g -> g.getGroupCode().equals(groupId.getGroupCode()))
-                .findFirst());
-    }
-
     @Override
     public boolean isSecurityServerClient(ClientId clientId,
                                           SecurityServerId securityServerId) {
@@ -0,0 +1,397 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structural check of signature XML against the layout produced by SignatureXmlBuilder.
+ * <p>
+ * Everything the check accepts is also valid according to the XAdES schema, so the schema validation can be
+ * skipped for matching signatures. The check is stricter than the schema: element order and multiplicity follow
+ * the builder, only whitespace is allowed between elements and the values are checked against conservative
+ * subsets of the schema types. Anything else (e.g. signatures with time-stamps added by the message log) is left
+ * to the schema validation.
+ */
+final class SignatureTemplate {
+
+    private static final String NS_DS = "http://www.w3.org/2000/09/xmldsig#";
+    private static final String NS_XADES = "http://uri.etsi.org/01903/v1.3.2#";
+
+    private static final String ID = "Id";
+    private static final String ALGORITHM = "Algorithm";
+
+    private static final Pattern NC_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9._-]*");
+    private static final Pattern INTEGER = Pattern.compile("[+-]?[0-9]+");
+    private static final Pattern DATE_TIME = Pattern.compile("([1-9][0-9]{3})-(0[1-9]|1[0-2])-(0[1-9]|[12][0-9]|3[01])"
+            + "T([01][0-9]|2[0-3]):[0-5][0-9]:[0-5][0-9](\\.[0-9]+)?(Z|[+-](0[0-9]|1[0-3]):[0-5][0-9])?");
+    private static final Pattern ANY_URI = createAnyUriPattern();
+    private static final Set<String> QUALIFIERS = Set.of("OIDAsURI", "OIDAsURN");
+
+    private static final ElementSpec SIGNATURE = createSignatureSpec();
+
+    private final Set<String> ids = new HashSet<>();
+
+    private SignatureTemplate() {
+    }
+
+    /**
+     * @param signatureNode the ds:Signature node
+     * @return true if the signature follows the layout of SignatureXmlBuilder
+     */
+    static boolean matches(Node signatureNode) {
+        return signatureNode instanceof Element element && new SignatureTemplate().match(element, SIGNATURE);
+    }
+
+    private boolean match(Element element, ElementSpec spec) {
+        if (!spec.is(element) || !matchAttributes(element, spec)) {
+            return false;
+        }
+
+        return spec.text == Text.NONE ? matchChildren(element, spec) : matchText(element, spec.text);
+    }
+
+    private boolean matchAttributes(Element element, ElementSpec spec) {
+        NamedNodeMap attributes = element.getAttributes();
+        int requiredCount = 0;
+
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attr = (Attr) attributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI())) {
+                continue;
+            }
+
+            Value value = attr.getNamespaceURI() == null ? spec.attributes.get(attr.getLocalName()) : null;
+            if (value == null || !isValid(value, attr.getValue())) {
+                return false;
+            }
+
+            if (spec.required.contains(attr.getLocalName())) {
+                requiredCount++;
+            }
+        }
+
+        return requiredCount == spec.required.size();
+    }
+
+    private boolean matchChildren(Element element, ElementSpec spec) {
+        List<Element> children = new ArrayList<>();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                children.add((Element) child);
+            } else if (child.getNodeType() != Node.TEXT_NODE || !isWhitespace(child.getNodeValue())) {
+                return false;
+            }
+        }
+
+        int index = 0;
+        for (Particle particle : spec.children) {
+            int count = 0;
+            while (count < particle.max && index < children.size() && particle.element.is(children.get(index))) {
+                if (!match(children.get(index), particle.element)) {
+                    return false;
+                }
+                index++;
+                count++;
+            }
+
+            if (count < particle.min) {
+                return false;
+            }
+        }
+
+        return index == children.size();
+    }
+
+    private static boolean matchText(Element element, Text text) {
+        StringBuilder content = new StringBuilder();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() != Node.TEXT_NODE) {
+                return false;
+            }
+            content.append(child.getNodeValue());
+        }
+
+        String value = content.toString();
+        return switch (text) {
+            case STRING -> true;
+            case BASE64 -> isBase64(value);
+            case INTEGER -> INTEGER.matcher(value).matches();
+            case DATE_TIME -> isDateTime(value);
+            case ANY_URI -> isAnyUri(value);
+            default -> false;
+        };
+    }
+
+    private boolean isValid(Value value, String content) {
+        return switch (value) {
+            // IDs must be unique within the signature
+            case ID -> NC_NAME.matcher(content).matches() && ids.add(content);
+            case ANY_URI -> isAnyUri(content);
+            case QUALIFIER -> QUALIFIERS.contains(content);
+        };
+    }
+
+    private static boolean isWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isXmlWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isXmlWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Checks the value the same way as the schema validator: whitespace is ignored, the padding must be
+     * complete and the unused bits before the padding must be zero.
+     */
+    static boolean isBase64(String value) {
+        int length = 0;
+        int padding = 0;
+        int last = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isXmlWhitespace(c)) {
+                continue;
+            }
+
+            if (c == '=') {
+                padding++;
+            } else {
+                int bits = base64Value(c);
+                if (bits < 0 || padding > 0) {
+                    return false;
+                }
+                last = bits;
+            }
+            length++;
+        }
+
+        if (length % 4 != 0 || padding > 2) {
+            return false;
+        }
+
+        return switch (padding) {
+            case 1 -> (last & 0x3) == 0;
+            case 2 -> (last & 0xf) == 0;
+            default -> true;
+        };
+    }
+
+    private static int base64Value(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+') {
+            return 62;
+        } else if (c == '/') {
+            return 63;
+        }
+        return -1;
+    }
+
+    static boolean isDateTime(String value) {
+        Matcher matcher = DATE_TIME.matcher(value);
+        return matcher.matches() && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))
+                .isValidDay(Integer.parseInt(matcher.group(3)));
+    }
+
+    static boolean isAnyUri(String value) {
+        return ANY_URI.matcher(value).matches();
+    }
+
+    /**
+     * Matches fragment references (#id), relative paths (/message.xml) and absolute URIs with a host name
+     * or an opaque part (http://www.w3.org/2001/04/xmlenc#sha512, urn:oid:1.3.6.1.4.1.3516.16.2).
+     * Percent-encoding, query strings, ports and IP addresses are not accepted.
+     */
+    private static Pattern createAnyUriPattern() {
+        String pchar = "[A-Za-z0-9._~!$&'()*+,;=:@-]";
+        String segment = "[A-Za-z0-9._~!$&'()*+,;=@-]";
+        String label = "[A-Za-z0-9](?:[A-Za-z0-9-]*[A-Za-z0-9])?";
+        String host = "(?:" + label + "\\.)*[A-Za-z](?:[A-Za-z0-9-]*[A-Za-z0-9])?";
+        String fragment = "(?:#[A-Za-z0-9._~!$&'()*+,;=:@/?-]*)?";
+
+        String absolute = "[A-Za-z][A-Za-z0-9+.-]*:(?://" + host + "(?:/" + pchar + "*)*|" + pchar + "(?:" + pchar
+                + "|/)*)";
+        String relative = "(?:/?" + segment + "+(?:/" + segment + "+)*)?";
+
+        return Pattern.compile("(?:" + absolute + "|" + relative + ")" + fragment);
+    }
+
+    private static ElementSpec createSignatureSpec() {
+        ElementSpec digestMethod = ds("DigestMethod").attribute(ALGORITHM, Value.ANY_URI, true);
+        ElementSpec digestValue = ds("DigestValue").text(Text.BASE64);
+
+        ElementSpec cert = xades("Cert").attribute("URI", Value.ANY_URI, false).children(
+                one(xades("CertDigest").children(one(digestMethod), one(digestValue))),
+                one(xades("IssuerSerial").children(
+                        one(ds("X509IssuerName").text(Text.STRING)),
+                        one(ds("X509SerialNumber").text(Text.INTEGER)))));
+
+        ElementSpec signaturePolicyId = xades("SignaturePolicyId").children(
+                one(xades("SigPolicyId").children(
+                        one(xades("Identifier").attribute("Qualifier", Value.QUALIFIER, false).text(Text.ANY_URI)),
+                        optional(xades("Description").text(Text.STRING)))),
+                one(xades("SigPolicyHash").children(one(digestMethod), one(digestValue))),
+                optional(xades("SigPolicyQualifiers").children(
+                        many(xades("SigPolicyQualifier").children(one(xades("SPURI").text(Text.ANY_URI)))))));
+
+        ElementSpec signedProperties = xades("SignedProperties").attribute(ID, Value.ID, false).children(
+                one(xades("SignedSignatureProperties").children(
+                        one(xades("SigningTime").text(Text.DATE_TIME)),
+                        one(xades("SigningCertificate").children(many(cert))),
+                        optional(xades("SignaturePolicyIdentifier").children(one(signaturePolicyId))))),
+                one(xades("SignedDataObjectProperties").children(
+                        many(xades("DataObjectFormat").attribute("ObjectReference", Value.ANY_URI, true).children(
+                                one(xades("MimeType").text(Text.STRING)))))));
+
+        ElementSpec unsignedProperties = xades("UnsignedProperties").attribute(ID, Value.ID, false).children(
+                one(xades("UnsignedSignatureProperties").attribute(ID, Value.ID, false).children(
+                        optional(xades("CompleteCertificateRefs").attribute(ID, Value.ID, false).children(
+                                one(xades("CertRefs").children(many(cert))))),
+                        optional(xades("CertificateValues").attribute(ID, Value.ID, false).children(
+                                many(encapsulated("EncapsulatedX509Certificate")))),
+                        one(xades("RevocationValues").attribute(ID, Value.ID, false).children(
+                                one(xades("OCSPValues").children(many(encapsulated("EncapsulatedOCSPValue")))))))));
+
+        return ds("Signature").attribute(ID, Value.ID, false).children(
+                one(ds("SignedInfo").attribute(ID, Value.ID, false).children(
+                        one(ds("CanonicalizationMethod").attribute(ALGORITHM, Value.ANY_URI, true)),
+                        one(ds("SignatureMethod").attribute(ALGORITHM, Value.ANY_URI, true)),
+                        many(ds("Reference")
+                                .attribute(ID, Value.ID, false)
+                                .attribute("URI", Value.ANY_URI, false)
+                                .attribute("Type", Value.ANY_URI, false)
+                                .children(one(digestMethod), one(digestValue))))),
+                one(ds("SignatureValue").attribute(ID, Value.ID, false).text(Text.BASE64)),
+                one(ds("KeyInfo").attribute(ID, Value.ID, false).children(
+                        one(ds("X509Data").children(many(ds("X509Certificate").text(Text.BASE64)))))),
+                one(ds("Object").children(
+                        one(xades("QualifyingProperties")
+                                .attribute("Target", Value.ANY_URI, true)
+                                .attribute(ID, Value.ID, false)
+                                .children(one(signedProperties), one(unsignedProperties))))));
+    }
+
+    private static ElementSpec encapsulated(String name) {
+        return xades(name)
+                .attribute(ID, Value.ID, false)
+                .attribute("Encoding", Value.ANY_URI, false)
+                .text(Text.BASE64);
+    }
+
+    private static ElementSpec ds(String name) {
+        return new ElementSpec(NS_DS, name);
+    }
+
+    private static ElementSpec xades(String name) {
+        return new ElementSpec(NS_XADES, name);
+    }
+
+    private static Particle one(ElementSpec element) {
+        return new Particle(element, 1, 1);
+    }
+
+    private static Particle optional(ElementSpec element) {
+        return new Particle(element, 0, 1);
+    }
+
+    private static Particle many(ElementSpec element) {
+        return new Particle(element, 1, Integer.MAX_VALUE);
+    }
+
+    private enum Text {
+        NONE, STRING, BASE64, INTEGER, DATE_TIME, ANY_URI
+    }
+
+    private enum Value {
+        ID, ANY_URI, QUALIFIER
+    }
+
+    private record Particle(ElementSpec element, int min, int max) {
+    }
+
+    private static final class ElementSpec {
+        private final String namespace;
+        private final String name;
+        private final Map<String, Value> attributes = new HashMap<>();
+        private final Set<String> required = new HashSet<>();
+        private final List<Particle> children = new ArrayList<>();
+        private Text text = Text.NONE;
+
+        ElementSpec(String namespace, String name) {
+            this.namespace = namespace;
+            this.name = name;
+        }
+
+        ElementSpec attribute(String attributeName, Value value, boolean isRequired) {
+            attributes.put(attributeName, value);
+            if (isRequired) {
+                required.add(attributeName);
+            }
+            return this;
+        }
+
+        ElementSpec text(Text content) {
+            this.text = content;
+            return this;
+        }
+
+        ElementSpec children(Particle... particles) {
+            children.addAll(Arrays.asList(particles));
+            return this;
+        }
+
+        boolean is(Element element) {
+            return namespace.equals(element.getNamespaceURI()) && name.equals(element.getLocalName());
+        }
+    }
+}
@@ -286,7 +286,11 @@ public class SignatureVerifier {
     private void verifySchema() throws Exception {
         Node signatureNode =
                 signature.getDocument().getDocumentElement().getFirstChild();
-        SignatureSchemaValidator.validate(new DOMSource(signatureNode));
+
+        // signatures created by X-Road are known to conform to the schema
+        if (!SignatureTemplate.matches(signatureNode)) {
+            SignatureSchemaValidator.validate(new DOMSource(signatureNode));
+        }
     }
 
     private void verifyHashChain() throws Exception {
@@ -321,7 +325,7 @@ public class SignatureVerifier {
             throws Exception {
         XMLSignature s = signature.getXmlSignature();
 
-        s.addResourceResolver(new IdResolver(signature.getDocument()));
+        s.addResourceResolver(IdResolver.forOwnerDocument());
 
         if (resourceResolver == null) {
             s.addResourceResolver(new SignatureResourceResolverImpl());
@@ -340,8 +344,7 @@ public class SignatureVerifier {
         // to find any existing ts-manifests and verify their digests.
         List<Manifest> tsManifests = signature.getTimestampManifests();
         for (Manifest manifest : tsManifests) {
-            manifest.addResourceResolver(
-                    new IdResolver(signature.getDocument()));
+            manifest.addResourceResolver(IdResolver.forOwnerDocument());
             try {
                 if (!manifest.verifyReferences()) {
                     throw new CodedException(X_INVALID_REFERENCE,
@@ -46,6 +46,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -241,6 +242,41 @@ public class CertChainTest {
         }
     }
 
+    /**
+     * Tests that a successful verification is served from the cache while the result holds
+     * and verified again after that.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void cachedVerification() throws Exception {
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        X509Certificate interCa1 = TestCertUtil.getCertChainCert("ca_1.p12");
+        X509Certificate interCa2 = TestCertUtil.getCertChainCert("ca_2.p12");
+        X509Certificate interCa3 = TestCertUtil.getCertChainCert("ca_3.p12");
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_3.p12");
+        List<X509Certificate> intermediates = Arrays.asList(interCa1, interCa2, interCa3);
+        List<OCSPResp> ocsp = getAllOcspResponses();
+
+        VerifiedCertChainCache.invalidateAll();
+        long hits = VerifiedCertChainCache.hitCount();
+
+        verify(new CertChain("EE", userCert, rootCa, intermediates), ocsp, makeDate(rootCa.getNotBefore(), 1));
+        assertEquals(hits, VerifiedCertChainCache.hitCount());
+
+        CertChainVerifier verifier = new CertChainVerifier(new CertChain("EE", userCert, rootCa, intermediates));
+        verifier.verify(ocsp, makeDate(rootCa.getNotBefore(), 2));
+        assertEquals(hits + 1, VerifiedCertChainCache.hitCount());
+        assertEquals(Arrays.asList(userCert, interCa3, interCa2, interCa1), verifier.getCerts());
+
+        try {
+            verify(new CertChain("EE", userCert, rootCa, intermediates), ocsp, makeDate(userCert.getNotAfter(), 1));
+            fail("Verification of an expired certificate should fail");
+        } catch (CodedException e) {
+            assertEquals(hits + 1, VerifiedCertChainCache.hitCount());
+        }
+    }
+
     // -- Utility methods
 
     private static void verify(CertChain chain, List<OCSPResp> ocspResponses,
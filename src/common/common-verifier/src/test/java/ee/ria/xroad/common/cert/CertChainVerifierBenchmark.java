@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.cert;
+
+import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.conf.globalconf.EmptyGlobalConf;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Measures certificate chain verifications per second with and without the verified chain cache,
+ * using a chain with three intermediate CA certificates.
+ */
+@Slf4j
+public final class CertChainVerifierBenchmark {
+    private static final int VERIFICATIONS = 5_000;
+
+    private CertChainVerifierBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        List<X509Certificate> caCerts = List.of(TestCertUtil.getCertChainCert("ca_1.p12"),
+                TestCertUtil.getCertChainCert("ca_2.p12"), TestCertUtil.getCertChainCert("ca_3.p12"));
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_3.p12");
+
+        GlobalConf.reload(new BenchmarkGlobalConf(rootCa, caCerts));
+
+        List<X509Certificate> certs = new ArrayList<>(caCerts);
+        certs.add(userCert);
+        List<OCSPResp> ocspResponses = new ArrayList<>();
+        for (X509Certificate cert : certs) {
+            ocspResponses.add(OcspTestUtils.createOCSPResponse(cert, getIssuer(cert, rootCa, caCerts),
+                    TestCertUtil.getOcspSigner().certChain[0], TestCertUtil.getOcspSigner().key,
+                    CertificateStatus.GOOD));
+        }
+
+        CertChain chain = new CertChain("EE", userCert, rootCa, caCerts);
+        Date atDate = new Date(userCert.getNotBefore().getTime() + 1000L * 60 * 60 * 24);
+
+        // Warmup
+        run(chain, ocspResponses, atDate, false, false);
+        run(chain, ocspResponses, atDate, true, false);
+
+        run(chain, ocspResponses, atDate, false, true);
+        run(chain, ocspResponses, atDate, true, true);
+    }
+
+    private static void run(CertChain chain, List<OCSPResp> ocspResponses, Date atDate, boolean cached,
+                            boolean report) {
+        VerifiedCertChainCache.invalidateAll();
+        long hits = VerifiedCertChainCache.hitCount();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < VERIFICATIONS; i++) {
+            if (!cached) {
+                VerifiedCertChainCache.invalidateAll();
+            }
+            new CertChainVerifier(chain).verify(ocspResponses, atDate);
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (report) {
+            log.info("{}: {} verifications/s ({} cache hits)", cached ? "cached" : "uncached",
+                    VERIFICATIONS * 1_000_000_000L / nanos, VerifiedCertChainCache.hitCount() - hits);
+        }
+    }
+
+    private static X509Certificate getIssuer(X509Certificate cert, X509Certificate rootCa,
+                                             List<X509Certificate> caCerts) {
+        return caCerts.stream()
+                .filter(ca -> ca.getSubjectX500Principal().equals(cert.getIssuerX500Principal()))
+                .findFirst()
+                .orElse(rootCa);
+    }
+
+    private static final class BenchmarkGlobalConf extends EmptyGlobalConf {
+        private final X509Certificate rootCa;
+        private final List<X509Certificate> caCerts;
+
+        BenchmarkGlobalConf(X509Certificate rootCa, List<X509Certificate> caCerts) {
+            this.rootCa = rootCa;
+            this.caCerts = caCerts;
+        }
+
+        @Override
+        public List<X509Certificate> getOcspResponderCertificates() {
+            return List.of(TestCertUtil.getOcspSigner().certChain[0]);
+        }
+
+        @Override
+        public X509Certificate getCaCert(String instanceIdentifier, X509Certificate orgCert) {
+            return getIssuer(orgCert, rootCa, caCerts);
+        }
+    }
+}
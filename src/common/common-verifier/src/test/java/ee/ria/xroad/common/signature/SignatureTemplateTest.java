@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import ee.ria.xroad.common.util.XmlUtils;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the structural signature check that replaces schema validation for signatures created by X-Road.
+ */
+public class SignatureTemplateTest {
+
+    @Test
+    public void signaturesCreatedByXRoadMatch() throws Exception {
+        assertTrue(SignatureTemplate.matches(signatureNode(load("../common-test/src/test/signatures/sign-0.xml"))));
+        assertTrue(SignatureTemplate.matches(signatureNode(load("src/test/signatures/batch-sig.xml"))));
+    }
+
+    @Test
+    public void otherSignaturesDoNotMatch() throws Exception {
+        assertFalse(SignatureTemplate.matches(signatureNode(load("src/test/signatures/sign-0-schema-fail.xml"))));
+        assertFalse(SignatureTemplate.matches(signatureNode(load("src/test/signatures/xades.signature.ts.xml"))));
+        assertFalse(SignatureTemplate.matches(
+                signatureNode(load("src/test/signatures/extra-certs-digest-invalid.xml"))));
+    }
+
+    @Test
+    public void duplicateIdDoesNotMatch() throws Exception {
+        Document document = load("../common-test/src/test/signatures/sign-0.xml");
+        Element signatureValue = (Element) document.getElementsByTagNameNS("*", "SignatureValue").item(0);
+        signatureValue.setAttribute("Id", "signed-properties");
+
+        assertFalse(SignatureTemplate.matches(signatureNode(document)));
+    }
+
+    @Test
+    public void unexpectedContentDoesNotMatch() throws Exception {
+        Document document = load("../common-test/src/test/signatures/sign-0.xml");
+        document.getElementsByTagNameNS("*", "SigningTime").item(0).appendChild(document.createComment("x"));
+
+        assertFalse(SignatureTemplate.matches(signatureNode(document)));
+    }
+
+    @Test
+    public void valuesAreCheckedAsInSchema() {
+        assertTrue(SignatureTemplate.isBase64(" QUI=\r\n"));
+        assertTrue(SignatureTemplate.isBase64(""));
+        assertFalse(SignatureTemplate.isBase64("QUJ="));
+        assertFalse(SignatureTemplate.isBase64("QU=I"));
+        assertFalse(SignatureTemplate.isBase64("QUJDQ"));
+
+        assertTrue(SignatureTemplate.isDateTime("2017-09-08T09:15:11.580Z"));
+        assertTrue(SignatureTemplate.isDateTime("2016-02-29T09:15:11+03:00"));
+        assertFalse(SignatureTemplate.isDateTime("2017-02-29T09:15:11Z"));
+        assertFalse(SignatureTemplate.isDateTime(" 2017-09-08T09:15:11Z"));
+
+        assertTrue(SignatureTemplate.isAnyUri("#signed-properties"));
+        assertTrue(SignatureTemplate.isAnyUri("/message.xml"));
+        assertTrue(SignatureTemplate.isAnyUri("http://www.w3.org/2001/04/xmlenc#sha512"));
+        assertTrue(SignatureTemplate.isAnyUri("urn:oid:1.3.6.1.4.1.3516.16.2"));
+        assertFalse(SignatureTemplate.isAnyUri("a b"));
+        assertFalse(SignatureTemplate.isAnyUri("%zz"));
+        assertFalse(SignatureTemplate.isAnyUri("#a#b"));
+    }
+
+    private static Document load(String fileName) throws Exception {
+        try (InputStream in = new FileInputStream(fileName)) {
+            return XmlUtils.parseDocument(in);
+        }
+    }
+
+    private static Node signatureNode(Document document) {
+        return document.getDocumentElement().getFirstChild();
+    }
+}
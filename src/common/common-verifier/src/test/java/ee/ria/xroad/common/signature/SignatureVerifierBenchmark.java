@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.conf.globalconf.TestGlobalConfImpl;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.util.MessageFileNames;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA512_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+
+/**
+ * Measures signatures verified per second per core, running one verifying thread per available processor.
+ */
+@Slf4j
+public final class SignatureVerifierBenchmark {
+    private static final int VERIFICATIONS_PER_THREAD = 2_000;
+
+    private static final ClientId SIGNER_ID = ClientId.Conf.create("EE", "BUSINESS", "consumer");
+
+    private SignatureVerifierBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        System.setProperty(SystemProperties.CONFIGURATION_PATH,
+                "../common-globalconf/src/test/resources/globalconf_good_v2");
+        System.setProperty(SystemProperties.CONFIGURATION_ANCHOR_FILE,
+                "../common-globalconf/src/test/resources/configuration-anchor1.xml");
+
+        GlobalConf.reload(new TestGlobalConfImpl() {
+            @Override
+            public X509Certificate getCaCert(String instanceIdentifier, X509Certificate memberCert) {
+                return TestCertUtil.getCaCert();
+            }
+        });
+
+        byte[] signatureBytes = Files.readAllBytes(Paths.get("../common-test/src/test/signatures/sign-0.xml"));
+        byte[] messageBytes = Files.readAllBytes(Paths.get("../common-test/src/test/signatures/message-0.xml"));
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Warmup
+            run(executor, threads, signatureBytes, messageBytes, false);
+
+            run(executor, threads, signatureBytes, messageBytes, true);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void run(ExecutorService executor, int threads, byte[] signatureBytes, byte[] messageBytes,
+                            boolean report) throws Exception {
+        Callable<Void> task = () -> {
+            for (int i = 0; i < VERIFICATIONS_PER_THREAD; i++) {
+                verify(signatureBytes, messageBytes);
+            }
+            return null;
+        };
+
+        List<Future<Void>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(task));
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (report) {
+            long perSecond = (long) threads * VERIFICATIONS_PER_THREAD * 1_000_000_000L / nanos;
+            log.info("{} threads: {} signatures/s, {} signatures/s per core", threads, perSecond, perSecond / threads);
+        }
+    }
+
+    private static void verify(byte[] signatureBytes, byte[] messageBytes) throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(new Signature(new ByteArrayInputStream(signatureBytes)));
+        verifier.addPart(new MessagePart(MessageFileNames.MESSAGE, SHA512_ID,
+                calculateDigest(SHA512_ID, messageBytes), messageBytes));
+        verifier.verify(SIGNER_ID, createValidationDate());
+    }
+
+    private static Date createValidationDate() {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2014, 9, 30);
+
+        return cal.getTime();
+    }
+}
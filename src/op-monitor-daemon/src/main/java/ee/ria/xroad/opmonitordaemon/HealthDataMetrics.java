@@ -29,26 +29,17 @@ import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData.SecurityServerType;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 
-import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.SlidingTimeWindowReservoir;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getLastRequestTimestampGaugeName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestCounterName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestDurationName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestSizeName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getResponseSizeName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getServiceTypeName;
-
 /**
  * Health data metrics forwarded over JMX. Also, these metrics are used when
  * health data is requested using the getSecurityServerHealthData SOAP request.
@@ -60,19 +51,22 @@ final class HealthDataMetrics {
             OpMonitoringSystemProperties
                     .getOpMonitorHealthStatisticsPeriodSeconds();
 
+    private static final int OP_MONITOR_HEALTH_STATS_GRANULARITY_SECONDS =
+            Math.max(1, Math.min(OpMonitoringSystemProperties
+                    .getOpMonitorHealthStatisticsGranularitySeconds(),
+                    OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS));
+
     // The names of metrics that are registered when the operational
     // monitoring daemon starts.
     static final String STATISTICS_PERIOD_SECONDS = "statisticsPeriodSeconds";
     static final String MONITORING_STARTUP_TIMESTAMP =
             "monitoringStartupTimestamp";
 
-    // The timestamps of last successful and unsuccessful requests are stored
-    // for each service that is handled for, and are provided when the
-    // respective gauge is queried.
-    private static Map<String, Long> requestTimestamps = new HashMap<>();
-
-    // Stores the service types of the services
-    private static Map<String, String> serviceTypes = new HashMap<>();
+    // The health metrics of each service are kept per metric registry so
+    // that records can be processed without looking the metrics up from the
+    // registry.
+    private static final Map<MetricRegistry, Map<ServiceId, ServiceHealthMetrics>> SERVICE_METRICS =
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     private HealthDataMetrics() {
     }
@@ -99,6 +93,10 @@ final class HealthDataMetrics {
      */
     static void processRecords(MetricRegistry registry,
                                List<OperationalDataRecord> records) {
+        Map<ServiceId, ServiceHealthMetrics> services =
+                SERVICE_METRICS.computeIfAbsent(registry,
+                        r -> new ConcurrentHashMap<>());
+
         for (OperationalDataRecord rec : records) {
             if (!SecurityServerType.PRODUCER.equals(
                     SecurityServerType.fromString(rec.getSecurityServerType()))) {
@@ -114,91 +112,12 @@ final class HealthDataMetrics {
                 continue;
             }
 
-            registerOrUpdateGauges(registry, serviceId, rec);
-            registerOrUpdateCounters(registry, serviceId, rec);
-
-            if (rec.getSucceeded()) {
-                // Statistics of request duration and the sizes of the request
-                // and response are computed over the successful requests only.
-                registerOrUpdateHistograms(registry, serviceId, rec);
-            }
-        }
-    }
-
-    private static void registerOrUpdateGauges(MetricRegistry registry,
-                                               ServiceId serviceId, OperationalDataRecord rec) {
-        // last request timestamp
-        String expectedGaugeName = getLastRequestTimestampGaugeName(serviceId,
-                rec.getSucceeded());
-        requestTimestamps.put(expectedGaugeName, rec.getResponseOutTs());
-        Gauge gauge = HealthDataMetricsUtil.findGauge(registry,
-                expectedGaugeName);
-        if (gauge == null) {
-            registry.register(expectedGaugeName,
-                    (Gauge<Long>) () -> requestTimestamps.get(
-                            expectedGaugeName));
-        }
-
-        // service type
-        String serviceTypeGaugeName = getServiceTypeName(serviceId);
-        serviceTypes.put(serviceTypeGaugeName, rec.getServiceType());
-        Gauge serviceTypeGauge = HealthDataMetricsUtil.findGauge(registry,
-                serviceTypeGaugeName);
-        if (serviceTypeGauge == null) {
-            registry.register(serviceTypeGaugeName,
-                    (Gauge<String>) () -> serviceTypes.get(serviceTypeGaugeName));
-        }
-    }
-
-    private static void registerOrUpdateCounters(MetricRegistry registry,
-                                                 ServiceId serviceId, OperationalDataRecord rec) {
-        String expectedCounterName = getRequestCounterName(serviceId,
-                rec.getSucceeded());
-        Counter counter = HealthDataMetricsUtil.findCounter(registry,
-                expectedCounterName);
-
-        if (counter == null) {
-            // Register and increment a new counter.
-            counter = new SlidingTimeWindowCounter(
-                    OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS, TimeUnit.SECONDS);
-            registry.register(expectedCounterName, counter);
-        }
-
-        counter.inc();
-    }
-
-    private static void registerOrUpdateHistograms(MetricRegistry registry,
-                                                   ServiceId serviceId, OperationalDataRecord rec) {
-        registerOrUpdateHistogram(registry, getRequestDurationName(serviceId), getRequestDuration(rec));
-
-        registerOrUpdateHistogram(registry, getRequestSizeName(serviceId), rec.getRequestSize());
-        registerOrUpdateHistogram(registry, getResponseSizeName(serviceId), rec.getResponseSize());
-    }
-
-    private static void registerOrUpdateHistogram(MetricRegistry registry, String histogramName, Long newValue) {
-
-        if (newValue == null) return;
-
-        Histogram histogram = HealthDataMetricsUtil.findHistogram(registry, histogramName);
-
-        if (histogram == null) {
-            // Add a histogram corresponding to the service and update it.
-            histogram = registry.register(histogramName,
-                    new Histogram(new SlidingTimeWindowReservoir(
+            services.computeIfAbsent(serviceId,
+                    id -> new ServiceHealthMetrics(id,
                             OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS,
-                            TimeUnit.SECONDS)));
+                            OP_MONITOR_HEALTH_STATS_GRANULARITY_SECONDS))
+                    .update(registry, rec);
         }
-
-        histogram.update(newValue);
-    }
-
-    /**
-     * @param record an operational data record
-     * @return the duration of the request (the difference between the
-     * response out timestamp and the request in timestamp of the request.
-     */
-    private static Long getRequestDuration(OperationalDataRecord record) {
-        return record.getResponseOutTs() - record.getRequestInTs();
     }
 
     /**
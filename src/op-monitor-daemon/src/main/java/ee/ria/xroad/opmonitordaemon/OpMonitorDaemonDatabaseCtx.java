@@ -30,6 +30,9 @@ import ee.ria.xroad.common.db.TransactionCallback;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.EmptyInterceptor;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.type.Type;
 
 import java.io.Serializable;
@@ -39,6 +42,16 @@ import java.io.Serializable;
  */
 final class OpMonitorDaemonDatabaseCtx {
 
+    /**
+     * Maximum length of the fault string of an operational data record in the database.
+     */
+    static final int FAULT_MAX_LENGTH = 2048;
+
+    /**
+     * Maximum length of the other string fields of an operational data record in the database.
+     */
+    static final int MAX_LENGTH = 255;
+
     private static final DatabaseCtx CTX = new DatabaseCtx("op-monitor",
             new StringValueTruncator());
 
@@ -64,14 +77,20 @@ final class OpMonitorDaemonDatabaseCtx {
         return CTX.doInTransaction(callback);
     }
 
+    /**
+     * @param session database session
+     * @return true if the session is connected to a PostgreSQL database
+     */
+    static boolean isPostgreSQL(Session session) {
+        return session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
     private static final class StringValueTruncator extends EmptyInterceptor {
         private static final long serialVersionUID = 1L;
 
         private static final String SOAP_FAULT_STRING = "faultString";
 
-        private static final int FAULT_MAX_LENGTH = 2048;
-        private static final int MAX_LENGTH = 255;
-
         @Override
         public boolean onFlushDirty(Object entity, Serializable id,
                                     Object[] currentState, Object[] previousState,
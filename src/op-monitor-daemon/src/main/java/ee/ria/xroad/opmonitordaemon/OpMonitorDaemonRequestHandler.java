@@ -26,6 +26,7 @@
 package ee.ria.xroad.opmonitordaemon;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
 import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse;
 import ee.ria.xroad.common.util.HandlerBase;
 import ee.ria.xroad.common.util.JsonUtils;
@@ -123,8 +124,8 @@ class OpMonitorDaemonRequestHandler extends HandlerBase {
         }
     }
 
-    // Requests to store data are HTTP requests with JSON payload. Errors
-    // must be reported in JSON format.
+    // Requests to store data are HTTP requests with JSON or binary payload.
+    // Errors must be reported in JSON format.
     private void handleStoreRequest(Request request,
                                     Response response,
                                     Callback callback) throws IOException {
@@ -136,15 +137,17 @@ class OpMonitorDaemonRequestHandler extends HandlerBase {
             String contentType = MimeUtils.getBaseContentType(
                     getContentType(request));
 
-            if (!MimeTypes.JSON.equalsIgnoreCase(contentType)) {
+            boolean binary = OpMonitoringDataBinaryCodec.CONTENT_TYPE.equalsIgnoreCase(contentType);
+
+            if (!binary && !MimeTypes.JSON.equalsIgnoreCase(contentType)) {
                 throw new RuntimeException(invalidContentTypeError(request,
-                        MimeTypes.JSON));
+                        MimeTypes.JSON + " or " + OpMonitoringDataBinaryCodec.CONTENT_TYPE));
             }
 
             log.info("Received store request from {}", getRemoteAddr(request));
 
             new StoreRequestProcessor(
-                    RequestWrapper.of(request), healthMetricRegistry).process();
+                    RequestWrapper.of(request), healthMetricRegistry, binary).process();
         } catch (Throwable t) { // We want to catch serious errors as well
             log.error("Error while handling data store request", t);
 
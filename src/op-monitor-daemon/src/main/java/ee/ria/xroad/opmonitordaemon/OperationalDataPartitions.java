@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.hibernate.Session;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access to the partitions of the operational_data table. On PostgreSQL the table is range partitioned on
+ * monitoring_data_ts. The daemon decides which partitions to create and drop, the partitions are created and
+ * dropped with database functions (see the op-monitor database changelog) so that the daemon database user needs
+ * no DDL privileges. Queries restricting monitoring_data_ts are pruned to the matching partitions by the database.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class OperationalDataPartitions {
+
+    /**
+     * A partition of the operational_data table.
+     * @param name       table name of the partition
+     * @param lowerBound lowest monitoring data timestamp of the partition in seconds, inclusive, or null if the
+     *                   partition has no lower bound
+     * @param upperBound end of the partition in seconds, exclusive, or null for the default partition
+     */
+    record Partition(String name, Long lowerBound, Long upperBound) {
+
+        boolean overlaps(long fromTs, long toTs) {
+            return upperBound != null && upperBound > fromTs && (lowerBound == null || lowerBound < toTs);
+        }
+    }
+
+    /**
+     * @param session database session
+     * @return true if the operational_data table is partitioned
+     */
+    static boolean isPartitioned(Session session) {
+        if (!OpMonitorDaemonDatabaseCtx.isPostgreSQL(session)) {
+            return false;
+        }
+
+        return session.createNativeQuery(
+                        "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('operational_data')",
+                        Long.class)
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * Creates the missing partitions covering the given range of monitoring data timestamps.
+     * @param session database session
+     * @param fromTs  start of the range in seconds, inclusive
+     * @param toTs    end of the range in seconds, exclusive
+     * @param interval length of a partition
+     * @return the number of created partitions
+     */
+    static int createPartitions(Session session, long fromTs, long toTs, ChronoUnit interval) {
+        long length = interval.getDuration().getSeconds();
+        int created = 0;
+
+        for (long periodStart : missingPeriods(getPartitions(session), fromTs, toTs, interval)) {
+            boolean result = session.createNativeQuery(
+                            "SELECT create_operational_data_partition(:lowerBound, :upperBound)", Boolean.class)
+                    .setParameter("lowerBound", periodStart)
+                    .setParameter("upperBound", periodStart + length)
+                    .getSingleResult();
+
+            if (result) {
+                created++;
+            }
+        }
+
+        return created;
+    }
+
+    /**
+     * Drops the partitions that only hold records older than the given timestamp. Such records are also deleted
+     * from the default partition and from the legacy partition until the legacy partition can be dropped.
+     * @param session  database session
+     * @param beforeTs monitoring data timestamp in seconds
+     * @return the number of dropped partitions
+     */
+    static int dropPartitions(Session session, long beforeTs) {
+        List<Partition> partitions = getPartitions(session);
+        int dropped = 0;
+
+        for (Partition partition : expiredPartitions(partitions, beforeTs)) {
+            boolean result = session.createNativeQuery(
+                            "SELECT drop_operational_data_partition(:partition, :beforeTs)", Boolean.class)
+                    .setParameter("partition", partition.name())
+                    .setParameter("beforeTs", beforeTs)
+                    .getSingleResult();
+
+            if (result) {
+                dropped++;
+            }
+        }
+
+        for (Partition partition : legacyPartitions(partitions, beforeTs)) {
+            session.createNativeQuery("SELECT delete_legacy_operational_data(:partition, :beforeTs)", Integer.class)
+                    .setParameter("partition", partition.name())
+                    .setParameter("beforeTs", beforeTs)
+                    .getSingleResult();
+        }
+
+        session.createNativeQuery("SELECT delete_default_operational_data(:beforeTs)", Integer.class)
+                .setParameter("beforeTs", beforeTs)
+                .getSingleResult();
+
+        return dropped;
+    }
+
+    /**
+     * Returns the start timestamps of the periods in the given range that are not covered by any partition. The
+     * periods are aligned to the partition interval (UTC).
+     * @param partitions existing partitions
+     * @param fromTs     start of the range in seconds, inclusive
+     * @param toTs       end of the range in seconds, exclusive
+     * @param interval   length of a partition
+     * @return the start timestamps of the missing periods in seconds, in ascending order
+     */
+    static List<Long> missingPeriods(List<Partition> partitions, long fromTs, long toTs, ChronoUnit interval) {
+        long length = interval.getDuration().getSeconds();
+        List<Long> periods = new ArrayList<>();
+
+        for (long periodStart = Math.floorDiv(fromTs, length) * length; periodStart < toTs; periodStart += length) {
+            if (!isCovered(partitions, periodStart, periodStart + length)) {
+                periods.add(periodStart);
+            }
+        }
+
+        return periods;
+    }
+
+    /**
+     * @param partitions existing partitions
+     * @param beforeTs   monitoring data timestamp in seconds
+     * @return the partitions that only hold records older than the given timestamp, never the default partition
+     */
+    static List<Partition> expiredPartitions(List<Partition> partitions, long beforeTs) {
+        return partitions.stream()
+                .filter(partition -> partition.upperBound() != null && partition.upperBound() <= beforeTs)
+                .toList();
+    }
+
+    /**
+     * The partition without a lower bound is the table that held the records before the table was partitioned. It
+     * ends at the end of the migration day, so it can only be dropped after all its records have expired; until then
+     * the expired records are deleted from it.
+     * @param partitions existing partitions
+     * @param beforeTs   monitoring data timestamp in seconds
+     * @return the partitions without a lower bound that also hold records newer than the given timestamp, never the
+     * default partition
+     */
+    static List<Partition> legacyPartitions(List<Partition> partitions, long beforeTs) {
+        return partitions.stream()
+                .filter(partition -> partition.lowerBound() == null && partition.upperBound() != null
+                        && partition.upperBound() > beforeTs)
+                .toList();
+    }
+
+    private static boolean isCovered(List<Partition> partitions, long fromTs, long toTs) {
+        for (Partition partition : partitions) {
+            if (partition.overlaps(fromTs, toTs)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static List<Partition> getPartitions(Session session) {
+        List<Object[]> rows = session.createNativeQuery(
+                        "SELECT partition_name, lower_bound, upper_bound FROM operational_data_partitions()",
+                        Object[].class)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new Partition(row[0].toString(), toLong(row[1]), toLong(row[2])))
+                .toList();
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+}
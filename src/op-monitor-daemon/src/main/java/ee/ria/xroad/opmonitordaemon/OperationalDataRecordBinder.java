@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
+
+import java.io.IOException;
+
+/**
+ * Binds fields decoded by {@link OpMonitoringDataBinaryCodec} directly to {@link OperationalDataRecord} instances.
+ * Field names and value conversions follow the JSON mapping of the record, unknown fields are ignored.
+ */
+final class OperationalDataRecordBinder implements OpMonitoringDataBinaryCodec.RecordBinder<OperationalDataRecord> {
+
+    static final OperationalDataRecordBinder INSTANCE = new OperationalDataRecordBinder();
+
+    private OperationalDataRecordBinder() {
+    }
+
+    @Override
+    public OperationalDataRecord newRecord() {
+        return new OperationalDataRecord();
+    }
+
+    @Override
+    public void set(OperationalDataRecord record, String name, Object value) throws IOException {
+        try {
+            setField(record, name, value);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid value of field " + name, e);
+        }
+    }
+
+    private static void setField(OperationalDataRecord record, String name, Object value) {
+        switch (name) {
+            case "monitoringDataTs" -> record.setMonitoringDataTs(toLong(value));
+            case "securityServerInternalIp" -> record.setSecurityServerInternalIp(toStringValue(value));
+            case "securityServerType" -> record.setSecurityServerType(toStringValue(value));
+            case "requestInTs" -> record.setRequestInTs(toLong(value));
+            case "requestOutTs" -> record.setRequestOutTs(toLong(value));
+            case "responseInTs" -> record.setResponseInTs(toLong(value));
+            case "responseOutTs" -> record.setResponseOutTs(toLong(value));
+            case "clientXRoadInstance" -> record.setClientXRoadInstance(toStringValue(value));
+            case "clientMemberClass" -> record.setClientMemberClass(toStringValue(value));
+            case "clientMemberCode" -> record.setClientMemberCode(toStringValue(value));
+            case "clientSubsystemCode" -> record.setClientSubsystemCode(toStringValue(value));
+            case "serviceXRoadInstance" -> record.setServiceXRoadInstance(toStringValue(value));
+            case "serviceMemberClass" -> record.setServiceMemberClass(toStringValue(value));
+            case "serviceMemberCode" -> record.setServiceMemberCode(toStringValue(value));
+            case "serviceSubsystemCode" -> record.setServiceSubsystemCode(toStringValue(value));
+            case "serviceCode" -> record.setServiceCode(toStringValue(value));
+            case "serviceVersion" -> record.setServiceVersion(toStringValue(value));
+            case "representedPartyClass" -> record.setRepresentedPartyClass(toStringValue(value));
+            case "representedPartyCode" -> record.setRepresentedPartyCode(toStringValue(value));
+            case "messageId" -> record.setMessageId(toStringValue(value));
+            case "messageUserId" -> record.setMessageUserId(toStringValue(value));
+            case "messageIssue" -> record.setMessageIssue(toStringValue(value));
+            case "messageProtocolVersion" -> record.setMessageProtocolVersion(toStringValue(value));
+            case "clientSecurityServerAddress" -> record.setClientSecurityServerAddress(toStringValue(value));
+            case "serviceSecurityServerAddress" -> record.setServiceSecurityServerAddress(toStringValue(value));
+            case "requestSize" -> record.setRequestSize(toLong(value));
+            case "responseSize" -> record.setResponseSize(toLong(value));
+            case "requestMimeSize" -> record.setRequestMimeSize(toLong(value));
+            case "requestAttachmentCount" -> record.setRequestAttachmentCount(toInteger(value));
+            case "responseMimeSize" -> record.setResponseMimeSize(toLong(value));
+            case "responseAttachmentCount" -> record.setResponseAttachmentCount(toInteger(value));
+            case "succeeded" -> record.setSucceeded(toBoolean(value));
+            case "faultCode" -> record.setFaultCode(toStringValue(value));
+            case "faultString" -> record.setFaultString(toStringValue(value));
+            case "xRequestId" -> record.setXRequestId(toStringValue(value));
+            case "statusCode" -> record.setStatusCode(toInteger(value));
+            case "serviceType" -> record.setServiceType(toStringValue(value));
+            default -> {
+                // ignored like unknown properties in JSON
+            }
+        }
+    }
+
+    private static String toStringValue(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Long toLong(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        return value instanceof Number number ? number.longValue() : Long.valueOf(value.toString());
+    }
+
+    private static Integer toInteger(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        return value instanceof Number number ? Integer.valueOf(number.intValue()) : Integer.valueOf(value.toString());
+    }
+
+    private static Boolean toBoolean(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return (Boolean) value;
+        }
+
+        String text = value.toString();
+        if (!"true".equals(text) && !"false".equals(text)) {
+            throw new IllegalArgumentException("Invalid boolean value " + text);
+        }
+
+        return Boolean.valueOf(text);
+    }
+}
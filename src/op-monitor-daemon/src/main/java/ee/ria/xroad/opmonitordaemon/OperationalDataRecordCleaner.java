@@ -32,12 +32,14 @@ import ee.ria.xroad.common.util.TimeUtils;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.SchedulerException;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.TimeUnit;
@@ -45,12 +47,17 @@ import java.util.concurrent.TimeUnit;
 import static ee.ria.xroad.opmonitordaemon.OpMonitorDaemonDatabaseCtx.doInTransaction;
 
 /**
- * Deletes outdated operational data records from the database.
+ * Deletes outdated operational data records from the database. If the operational data table is
+ * partitioned, the partitions are created ahead of time and outdated records are removed by dropping
+ * whole partitions instead.
  */
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 final class OperationalDataRecordCleaner {
 
+    // Partitions are created for this period ahead, comfortably longer than the default cleanup interval.
+    private static final Duration PARTITIONS_AHEAD = Duration.ofDays(2);
+
     /**
      * Initializes the operational data recorder cleaner creating an operational
      * data records cleaner job and scheduling a
@@ -59,6 +66,14 @@ final class OperationalDataRecordCleaner {
      * @param jobManager the job manager
      */
     public static void init(JobManager jobManager) {
+        try {
+            doInTransaction(session -> OperationalDataPartitions.isPartitioned(session)
+                    ? createPartitions(session, TimeUtils.now())
+                    : 0);
+        } catch (Exception e) {
+            log.error("Failed to create operational data partitions", e);
+        }
+
         registerCronJob(jobManager, OpMonitoringSystemProperties.getOpMonitorCleanInterval());
     }
 
@@ -80,9 +95,15 @@ final class OperationalDataRecordCleaner {
         log.trace("cleanRecords({})", before);
 
         return doInTransaction(session -> {
+            long beforeTs = TimeUnit.MILLISECONDS.toSeconds(before.toEpochMilli());
+
+            if (OperationalDataPartitions.isPartitioned(session)) {
+                return dropPartitions(session, beforeTs);
+            }
+
             String hql =
                     "delete OperationalDataRecord r where r.monitoringDataTs < "
-                            + TimeUnit.MILLISECONDS.toSeconds(before.toEpochMilli());
+                            + beforeTs;
 
             int removed = session.createQuery(hql).executeUpdate();
 
@@ -98,6 +119,34 @@ final class OperationalDataRecordCleaner {
         });
     }
 
+    private static int dropPartitions(Session session, long beforeTs) {
+        int dropped = OperationalDataPartitions.dropPartitions(session, beforeTs);
+
+        if (dropped == 0) {
+            log.info("No outdated operational data partitions to drop from"
+                    + " the database");
+        } else {
+            log.info("Dropped {} outdated operational data partitions from"
+                    + " the database", dropped);
+        }
+
+        createPartitions(session, TimeUtils.now());
+
+        return dropped;
+    }
+
+    private static int createPartitions(Session session, Instant now) {
+        ChronoUnit interval = OpMonitoringSystemProperties.getOpMonitorPartitionInterval();
+        long fromTs = now.getEpochSecond();
+        long toTs = now.plus(PARTITIONS_AHEAD).getEpochSecond();
+
+        int created = OperationalDataPartitions.createPartitions(session, fromTs, toTs, interval);
+
+        log.debug("Created {} operational data partitions", created);
+
+        return created;
+    }
+
     private static void registerCronJob(JobManager jobManager, String cronExpression) {
 
         try {
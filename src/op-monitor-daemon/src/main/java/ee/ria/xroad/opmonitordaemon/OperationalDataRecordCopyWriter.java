@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static ee.ria.xroad.opmonitordaemon.OpMonitorDaemonDatabaseCtx.FAULT_MAX_LENGTH;
+import static ee.ria.xroad.opmonitordaemon.OpMonitorDaemonDatabaseCtx.MAX_LENGTH;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stores operational data records in the operational_data table using the PostgreSQL COPY protocol.
+ * The rows are encoded in the COPY text format straight from the records and streamed to the
+ * database in chunks, so there is no per-entity work in Hibernate. The record IDs are still
+ * taken from the Hibernate ID generator of OperationalDataRecord so that the two ways of
+ * storing records can be mixed.
+ */
+@Slf4j
+final class OperationalDataRecordCopyWriter {
+
+    static final String COPY_SQL = "COPY operational_data (id, monitoring_data_ts, security_server_internal_ip, "
+            + "security_server_type, request_in_ts, request_out_ts, response_in_ts, response_out_ts, "
+            + "client_xroad_instance, client_member_class, client_member_code, client_subsystem_code, "
+            + "service_xroad_instance, service_member_class, service_member_code, service_subsystem_code, "
+            + "service_code, service_version, represented_party_class, represented_party_code, "
+            + "message_id, message_user_id, message_issue, message_protocol_version, "
+            + "client_security_server_address, service_security_server_address, "
+            + "request_size, request_mime_size, request_attachment_count, "
+            + "response_size, response_mime_size, response_attachment_count, "
+            + "succeeded, fault_code, fault_string, x_request_id, status_code, service_type) FROM STDIN";
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final String NULL = "\\N";
+
+    private OperationalDataRecordCopyWriter() {
+    }
+
+    /**
+     * @param session database session
+     * @return true if the session is connected to a database that supports COPY
+     */
+    static boolean isSupported(Session session) {
+        return OpMonitorDaemonDatabaseCtx.isPostgreSQL(session);
+    }
+
+    /**
+     * Assigns an ID and the given monitoring data timestamp to each record and copies the records to the
+     * database within the current transaction of the session.
+     * @param session database session
+     * @param records records to store
+     * @param timestamp monitoring data timestamp of the records
+     */
+    static void write(Session session, List<OperationalDataRecord> records, long timestamp) {
+        SharedSessionContractImplementor sessionImpl = session.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionImpl.getFactory()
+                .getMappingMetamodel().getEntityDescriptor(OperationalDataRecord.class).getGenerator();
+
+        for (OperationalDataRecord record : records) {
+            record.setMonitoringDataTs(timestamp);
+            record.setId((Long) generator.generate(sessionImpl, record, null, EventType.INSERT));
+        }
+
+        session.doWork(connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+
+            try {
+                StringBuilder rows = new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 4);
+
+                for (OperationalDataRecord record : records) {
+                    appendRow(rows, record);
+
+                    if (rows.length() >= CHUNK_SIZE) {
+                        writeChunk(copyIn, rows);
+                    }
+                }
+
+                writeChunk(copyIn, rows);
+
+                long copied = copyIn.endCopy();
+
+                log.trace("Copied {} operational data records", copied);
+            } finally {
+                if (copyIn.isActive()) {
+                    cancel(copyIn);
+                }
+            }
+        });
+    }
+
+    private static void writeChunk(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        if (rows.length() > 0) {
+            byte[] chunk = rows.toString().getBytes(UTF_8);
+            copyIn.writeToCopy(chunk, 0, chunk.length);
+            rows.setLength(0);
+        }
+    }
+
+    private static void cancel(CopyIn copyIn) {
+        try {
+            copyIn.cancelCopy();
+        } catch (SQLException e) {
+            log.warn("Cancelling operational data copy failed", e);
+        }
+    }
+
+    /**
+     * Appends the record as a row in the COPY text format, the columns in the order of {@link #COPY_SQL}.
+     * @param rows buffer to append to
+     * @param record operational data record
+     */
+    static void appendRow(StringBuilder rows, OperationalDataRecord record) {
+        append(rows, record.getId()).append('\t');
+        append(rows, record.getMonitoringDataTs()).append('\t');
+        append(rows, record.getSecurityServerInternalIp(), MAX_LENGTH).append('\t');
+        append(rows, record.getSecurityServerType(), MAX_LENGTH).append('\t');
+        append(rows, record.getRequestInTs()).append('\t');
+        append(rows, record.getRequestOutTs()).append('\t');
+        append(rows, record.getResponseInTs()).append('\t');
+        append(rows, record.getResponseOutTs()).append('\t');
+        append(rows, record.getClientXRoadInstance(), MAX_LENGTH).append('\t');
+        append(rows, record.getClientMemberClass(), MAX_LENGTH).append('\t');
+        append(rows, record.getClientMemberCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getClientSubsystemCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceXRoadInstance(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceMemberClass(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceMemberCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceSubsystemCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceVersion(), MAX_LENGTH).append('\t');
+        append(rows, record.getRepresentedPartyClass(), MAX_LENGTH).append('\t');
+        append(rows, record.getRepresentedPartyCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getMessageId(), MAX_LENGTH).append('\t');
+        append(rows, record.getMessageUserId(), MAX_LENGTH).append('\t');
+        append(rows, record.getMessageIssue(), MAX_LENGTH).append('\t');
+        append(rows, record.getMessageProtocolVersion(), MAX_LENGTH).append('\t');
+        append(rows, record.getClientSecurityServerAddress(), MAX_LENGTH).append('\t');
+        append(rows, record.getServiceSecurityServerAddress(), MAX_LENGTH).append('\t');
+        append(rows, record.getRequestSize()).append('\t');
+        append(rows, record.getRequestMimeSize()).append('\t');
+        append(rows, record.getRequestAttachmentCount()).append('\t');
+        append(rows, record.getResponseSize()).append('\t');
+        append(rows, record.getResponseMimeSize()).append('\t');
+        append(rows, record.getResponseAttachmentCount()).append('\t');
+        append(rows, record.getSucceeded()).append('\t');
+        append(rows, record.getFaultCode(), MAX_LENGTH).append('\t');
+        append(rows, record.getFaultString(), FAULT_MAX_LENGTH).append('\t');
+        append(rows, record.getXRequestId(), MAX_LENGTH).append('\t');
+        append(rows, record.getStatusCode()).append('\t');
+        append(rows, record.getServiceType(), MAX_LENGTH).append('\n');
+    }
+
+    private static StringBuilder append(StringBuilder rows, Number value) {
+        return value == null ? rows.append(NULL) : rows.append(value.longValue());
+    }
+
+    private static StringBuilder append(StringBuilder rows, Boolean value) {
+        return value == null ? rows.append(NULL) : rows.append(value ? 't' : 'f');
+    }
+
+    private static StringBuilder append(StringBuilder rows, String value, int maxLength) {
+        if (value == null) {
+            return rows.append(NULL);
+        }
+
+        // Truncate the same way as StringValueTruncator does for records stored with Hibernate.
+        int length = Math.min(value.length(), maxLength);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '\\':
+                    rows.append("\\\\");
+                    break;
+                case '\t':
+                    rows.append("\\t");
+                    break;
+                case '\n':
+                    rows.append("\\n");
+                    break;
+                case '\r':
+                    rows.append("\\r");
+                    break;
+                default:
+                    rows.append(c);
+            }
+        }
+
+        return rows;
+    }
+}
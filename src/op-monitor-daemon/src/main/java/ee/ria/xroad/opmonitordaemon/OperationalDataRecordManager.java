@@ -29,8 +29,10 @@ import ee.ria.xroad.common.db.HibernateUtil;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 
+import jakarta.persistence.Tuple;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
@@ -51,11 +53,15 @@ final class OperationalDataRecordManager {
 
     private static final int DEFAULT_BATCH_SIZE = 50;
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     @Setter
     private static int maxRecordsInPayload = OpMonitoringSystemProperties.getOpMonitorMaxRecordsInPayload();
 
     private static int configuredBatchSize = 0;
 
+    private static final boolean BULK_COPY_ENABLED = OpMonitoringSystemProperties.isOpMonitorBulkCopyEnabled();
+
     private OperationalDataRecordManager() {
     }
 
@@ -87,7 +93,41 @@ final class OperationalDataRecordManager {
         return records;
     }
 
+    /**
+     * Streams the operational data records matching the search criteria to the given consumer in the order of
+     * monitoringDataTs, reading them from a database cursor. The number of streamed records is limited the same
+     * way as in {@link #queryRecords(long, long, ClientId, ClientId, Set)}.
+     * @param recordsFrom           records from timestamp seconds
+     * @param recordsTo             records to timestamp seconds
+     * @param clientFilter          filter records by client (if not null)
+     * @param serviceProviderFilter filter records by service provider (if not null)
+     * @param outputFields          list of the requested operational data field
+     * @param consumer              consumer of the records
+     * @return the timestamp to continue from if some records were left out, otherwise null
+     * @throws Exception if an error occurs
+     */
+    static Long streamRecords(long recordsFrom, long recordsTo, ClientId clientFilter,
+                              ClientId serviceProviderFilter, Set<String> outputFields,
+                              RecordConsumer consumer) throws Exception {
+        return doInTransaction(session -> streamOperationalDataInTransaction(session, recordsFrom, recordsTo,
+                clientFilter, serviceProviderFilter, outputFields, consumer));
+    }
+
+    /**
+     * Consumer of streamed operational data records.
+     */
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(OperationalDataRecord record) throws Exception;
+    }
+
     private static Void storeInTransaction(Session session, List<OperationalDataRecord> records, long timestamp) {
+        if (BULK_COPY_ENABLED && OperationalDataRecordCopyWriter.isSupported(session)) {
+            OperationalDataRecordCopyWriter.write(session, records, timestamp);
+
+            return null;
+        }
+
         int storedCount = 0;
         int batchSize = getConfiguredBatchSize(session);
 
@@ -167,6 +207,49 @@ final class OperationalDataRecordManager {
         return records;
     }
 
+    /**
+     * Same as {@link #queryOperationalDataInTransaction} but with a single ordered query: once maxRecordsInPayload
+     * records have been streamed, the records with the same monitoringDataTs as the last one are still included
+     * and the first record with a later timestamp indicates the overflow.
+     */
+    private static Long streamOperationalDataInTransaction(Session session, long recordsFrom, long recordsTo,
+                                                           ClientId clientFilter, ClientId serviceProviderFilter,
+                                                           Set<String> outputFields,
+                                                           RecordConsumer consumer) throws Exception {
+        final OperationalDataRecordQuery
+                query = new OperationalDataRecordQuery(session, clientFilter, serviceProviderFilter, outputFields);
+        query.between(recordsFrom, recordsTo);
+        query.orderByAsc(MONITORING_DATA_TS);
+
+        boolean removeMonitoringDataTs = !outputFields.isEmpty() && !outputFields.contains(MONITORING_DATA_TS);
+        int count = 0;
+        long lastMonitoringDataTs = 0;
+
+        try (ScrollableResults<Tuple> results = query.scroll(STREAM_FETCH_SIZE)) {
+            while (results.next()) {
+                OperationalDataRecord record = OperationalDataRecordQuery.toRecord(results.get());
+                long monitoringDataTs = record.getMonitoringDataTs();
+
+                if (count >= maxRecordsInPayload && monitoringDataTs != lastMonitoringDataTs) {
+                    log.debug("Records overflow, set nextRecordsFrom to {}", lastMonitoringDataTs + 1);
+
+                    return lastMonitoringDataTs + 1;
+                }
+
+                if (removeMonitoringDataTs) {
+                    record.setMonitoringDataTs(null);
+                }
+
+                consumer.accept(record);
+
+                lastMonitoringDataTs = monitoringDataTs;
+                count++;
+            }
+        }
+
+        return null;
+    }
+
     private static void removeMonitoringDataTsIfNotSpecified(OperationalDataRecords records, Set<String> outputFields) {
         if (!outputFields.isEmpty() && !outputFields.contains(MONITORING_DATA_TS)) {
             records.getRecords().forEach(i -> i.setMonitoringDataTs(null));
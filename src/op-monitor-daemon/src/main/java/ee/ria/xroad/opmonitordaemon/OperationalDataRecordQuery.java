@@ -36,7 +36,10 @@ import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Selection;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.query.Query;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -155,14 +158,28 @@ final class OperationalDataRecordQuery {
     }
 
     List<OperationalDataRecord> list() {
+        return transform(createQuery()
+                .setMaxResults(maxRecords)
+                .getResultList());
+    }
+
+    /**
+     * Opens a forward-only cursor over the query results, fetching the given number of rows at a time
+     * instead of loading the whole result into memory. Use {@link #toRecord} to transform the rows.
+     */
+    ScrollableResults<Tuple> scroll(int fetchSize) {
+        return createQuery()
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    private Query<Tuple> createQuery() {
         query.multiselect(projection).where(pred);
         if (order != null) {
             query.orderBy(order);
         }
-        return transform(session.createQuery(query)
-                .setReadOnly(true)
-                .setMaxResults(maxRecords)
-                .getResultList());
+        return session.createQuery(query)
+                .setReadOnly(true);
     }
 
     void between(long fromTs, long toTs) {
@@ -186,20 +203,28 @@ final class OperationalDataRecordQuery {
         List<OperationalDataRecord> tmp = new ArrayList<>(result.size());
 
         for (Tuple t : result) {
-            final OperationalDataRecord record = new OperationalDataRecord();
-            for (TupleElement<?> te : t.getElements()) {
-                final Method method = SETTERS.get(te.getAlias());
-                if (method != null) {
-                    try {
-                        method.invoke(record, t.get(te));
-                    } catch (InvocationTargetException | IllegalAccessException e) {
-                        throw new IllegalArgumentException("Unable to transform", e);
-                    }
+            tmp.add(toRecord(t));
+        }
+        return tmp;
+    }
+
+    /**
+     * Transforms a single Tuple to an OperationalDataRecord
+     * @see #transform
+     */
+    static OperationalDataRecord toRecord(Tuple t) {
+        final OperationalDataRecord record = new OperationalDataRecord();
+        for (TupleElement<?> te : t.getElements()) {
+            final Method method = SETTERS.get(te.getAlias());
+            if (method != null) {
+                try {
+                    method.invoke(record, t.get(te));
+                } catch (InvocationTargetException | IllegalAccessException e) {
+                    throw new IllegalArgumentException("Unable to transform", e);
                 }
             }
-            tmp.add(record);
         }
-        return tmp;
+        return record;
     }
 
     /*
@@ -40,10 +40,13 @@ import ee.ria.xroad.opmonitordaemon.message.GetSecurityServerOperationalDataResp
 import ee.ria.xroad.opmonitordaemon.message.GetSecurityServerOperationalDataType;
 import ee.ria.xroad.opmonitordaemon.message.SearchCriteriaType;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.Marshaller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.lang3.mutable.MutableInt;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -51,6 +54,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 import static ee.ria.xroad.common.ErrorCodes.CLIENT_X;
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
@@ -166,7 +170,6 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
             ClientId filterByServiceProvider,
             Set<String> outputFields,
             long recordsAvailableBefore) throws IOException {
-        OperationalDataRecords responseRecords;
         GetSecurityServerOperationalDataResponseType opDataResponse =
                 OBJECT_FACTORY
                         .createGetSecurityServerOperationalDataResponseType();
@@ -181,22 +184,35 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
             opDataResponse.setNextRecordsFrom(recordsAvailableBefore);
         }
 
-        responseRecords = getOperationalDataRecords(filterByClient,
-                recordsFrom, recordsTo, filterByServiceProvider, outputFields);
-
-        opDataResponse.setRecordsCount(responseRecords.size());
-        String payload = responseRecords.getPayload(OBJECT_WRITER);
-
-        // Optimize memory usage: release records memory before compressing
-        // operation.
-        responseRecords.getRecords().clear();
+        // The records are written from the database cursor straight into
+        // the compressed payload, only the compressed payload is kept in
+        // memory until the response is sent.
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        MutableInt recordsCount = new MutableInt();
+        Long nextRecordsFrom;
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(payload);
+             JsonGenerator generator = OBJECT_WRITER.createGenerator(gzip)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("records");
+
+            nextRecordsFrom = streamOperationalDataRecords(filterByClient,
+                    recordsFrom, recordsTo, filterByServiceProvider,
+                    outputFields, record -> {
+                        OBJECT_WRITER.writeValue(generator, record);
+                        recordsCount.increment();
+                    });
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
 
-        opDataResponse.setRecords(createAttachmentDataSource(compress(payload),
-                CID, MimeTypes.GZIP));
+        opDataResponse.setRecordsCount(recordsCount.intValue());
+        opDataResponse.setRecords(createAttachmentDataSource(
+                payload.toByteArray(), CID, MimeTypes.GZIP));
 
-        if (responseRecords.getNextRecordsFrom() != null) {
-            opDataResponse.setNextRecordsFrom(
-                    responseRecords.getNextRecordsFrom());
+        if (nextRecordsFrom != null) {
+            opDataResponse.setNextRecordsFrom(nextRecordsFrom);
         }
 
         return opDataResponse;
@@ -208,13 +224,14 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
                 opDataResponse);
     }
 
-    protected OperationalDataRecords getOperationalDataRecords(
+    protected Long streamOperationalDataRecords(
             ClientId filterByClient, long recordsFrom, long recordsTo,
-            ClientId filterByServiceProvider, Set<String> outputFields) {
+            ClientId filterByServiceProvider, Set<String> outputFields,
+            OperationalDataRecordManager.RecordConsumer consumer) {
         try {
-            return OperationalDataRecordManager.queryRecords(recordsFrom,
+            return OperationalDataRecordManager.streamRecords(recordsFrom,
                     recordsTo, filterByClient, filterByServiceProvider,
-                    outputFields);
+                    outputFields, consumer);
         } catch (Exception e) {
             log.error("Failed to get records for response", e);
 
@@ -47,7 +47,6 @@ import jakarta.xml.bind.ValidationEvent;
 import jakarta.xml.bind.attachment.AttachmentMarshaller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jaxb.runtime.api.AccessorException;
 import org.xml.sax.SAXException;
@@ -56,14 +55,11 @@ import javax.xml.XMLConstants;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
-import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.zip.GZIPOutputStream;
 
 import static ee.ria.xroad.common.ErrorCodes.CLIENT_X;
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
@@ -193,19 +189,6 @@ abstract class QueryRequestHandler {
         };
     }
 
-    static byte[] compress(String data) throws IOException {
-        byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(
-                dataBytes.length)) {
-            GZIPOutputStream gzip = new GZIPOutputStream(bos);
-            gzip.write(dataBytes);
-            gzip.close();
-
-            return bos.toByteArray();
-        }
-    }
-
     private static Map<String, String> getAdditionalAttachmentHeaders(
             String cid) {
         Map<String, String> additionalHeaders = new HashMap<>();
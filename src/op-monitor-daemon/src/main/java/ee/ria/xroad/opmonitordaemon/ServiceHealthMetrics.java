@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getLastRequestTimestampGaugeName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestCounterName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestDurationName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestSizeName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getResponseSizeName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getServiceTypeName;
+
+/**
+ * The health data metrics of one service. The metrics are registered in the
+ * metric registry when the first record needing them is processed, after that
+ * the metrics are updated directly without looking them up from the registry.
+ */
+final class ServiceHealthMetrics {
+
+    private final ServiceId serviceId;
+    private final int periodSeconds;
+    private final int granularitySeconds;
+
+    // The values of the last request timestamp and service type gauges.
+    private volatile Long lastSuccessfulRequestTimestamp;
+    private volatile Long lastUnsuccessfulRequestTimestamp;
+    private volatile String serviceType;
+
+    private volatile Counter successfulRequestCount;
+    private volatile Counter unsuccessfulRequestCount;
+
+    private volatile Histogram requestDuration;
+    private volatile Histogram requestSize;
+    private volatile Histogram responseSize;
+
+    ServiceHealthMetrics(ServiceId serviceId, int periodSeconds, int granularitySeconds) {
+        this.serviceId = serviceId;
+        this.periodSeconds = periodSeconds;
+        this.granularitySeconds = granularitySeconds;
+    }
+
+    /**
+     * Updates the metrics with the data of a record handled in the producer role.
+     * @param registry the metric registry where the metrics are registered
+     * @param rec      an operational data record of this service
+     */
+    void update(MetricRegistry registry, OperationalDataRecord rec) {
+        boolean succeeded = rec.getSucceeded();
+
+        if (succeeded) {
+            lastSuccessfulRequestTimestamp = rec.getResponseOutTs();
+        } else {
+            lastUnsuccessfulRequestTimestamp = rec.getResponseOutTs();
+        }
+
+        serviceType = rec.getServiceType();
+
+        requestCounter(registry, succeeded).inc();
+
+        if (succeeded) {
+            // Statistics of request duration and the sizes of the request
+            // and response are computed over the successful requests only.
+            updateHistograms(registry, rec);
+        }
+    }
+
+    private Counter requestCounter(MetricRegistry registry, boolean succeeded) {
+        Counter counter = succeeded ? successfulRequestCount : unsuccessfulRequestCount;
+
+        return counter != null ? counter : registerRequestMetrics(registry, succeeded);
+    }
+
+    private synchronized Counter registerRequestMetrics(MetricRegistry registry, boolean succeeded) {
+        Counter counter = succeeded ? successfulRequestCount : unsuccessfulRequestCount;
+
+        if (counter != null) {
+            return counter;
+        }
+
+        if (successfulRequestCount == null && unsuccessfulRequestCount == null) {
+            registry.register(getServiceTypeName(serviceId), (Gauge<String>) () -> serviceType);
+        }
+
+        registry.register(getLastRequestTimestampGaugeName(serviceId, succeeded), succeeded
+                ? (Gauge<Long>) () -> lastSuccessfulRequestTimestamp
+                : (Gauge<Long>) () -> lastUnsuccessfulRequestTimestamp);
+
+        counter = registry.register(getRequestCounterName(serviceId, succeeded),
+                new SlidingTimeWindowCounter(periodSeconds, granularitySeconds, TimeUnit.SECONDS));
+
+        if (succeeded) {
+            successfulRequestCount = counter;
+        } else {
+            unsuccessfulRequestCount = counter;
+        }
+
+        return counter;
+    }
+
+    private void updateHistograms(MetricRegistry registry, OperationalDataRecord rec) {
+        Long duration = rec.getResponseOutTs() - rec.getRequestInTs();
+        Long reqSize = rec.getRequestSize();
+        Long respSize = rec.getResponseSize();
+
+        if (requestDuration == null) {
+            requestDuration = registerHistogram(registry, getRequestDurationName(serviceId));
+        }
+
+        requestDuration.update(duration);
+
+        if (reqSize != null) {
+            if (requestSize == null) {
+                requestSize = registerHistogram(registry, getRequestSizeName(serviceId));
+            }
+
+            requestSize.update(reqSize);
+        }
+
+        if (respSize != null) {
+            if (responseSize == null) {
+                responseSize = registerHistogram(registry, getResponseSizeName(serviceId));
+            }
+
+            responseSize.update(respSize);
+        }
+    }
+
+    private Histogram registerHistogram(MetricRegistry registry, String name) {
+        // returns the already registered histogram if another thread got here first
+        return registry.histogram(name, () -> new Histogram(new SlidingTimeWindowHistogramReservoir(
+                periodSeconds, granularitySeconds, TimeUnit.SECONDS)));
+    }
+}
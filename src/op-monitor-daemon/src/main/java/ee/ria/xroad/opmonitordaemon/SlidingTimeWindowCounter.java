@@ -25,15 +25,18 @@
  */
 package ee.ria.xroad.opmonitordaemon;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Reservoir;
-import com.codahale.metrics.SlidingTimeWindowReservoir;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * A counter metric that uses the sliding time window reservoir internally to
- * support periodic and configurable resetting.
+ * A counter metric that counts the increments made during a sliding window of
+ * time to support periodic and configurable resetting.
+ * The increments are collected to a ring of per-period buckets, so incrementing
+ * takes constant time and memory and reading the count is proportional to the
+ * number of buckets.
  * This counter does not support manually decrementing the count (the dec()
  * methods raise a runtime exception).
  * We extend Counter instead of implementing the Metric and Counting
@@ -42,36 +45,50 @@ import java.util.concurrent.TimeUnit;
  */
 class SlidingTimeWindowCounter extends Counter {
 
-    private final Reservoir reservoir;
+    private final TimeWindowBuckets<CountBucket> buckets;
 
     /**
      * Creates a counter with the given window of time.
      *
-     * @param window     the window of time
-     * @param windowUnit the unit of {@code window}
+     * @param window      the window of time
+     * @param granularity the period of time counted in one bucket
+     * @param unit        the unit of {@code window} and {@code granularity}
      */
-    SlidingTimeWindowCounter(long window, TimeUnit windowUnit) {
-        reservoir = new SlidingTimeWindowReservoir(window, windowUnit);
+    SlidingTimeWindowCounter(long window, long granularity, TimeUnit unit) {
+        this(window, granularity, unit, Clock.defaultClock());
     }
 
     /**
-     * @return the snapshot size of the sliding time window reservoir.
+     * Creates a counter with the given window of time and clock.
+     *
+     * @param window      the window of time
+     * @param granularity the period of time counted in one bucket
+     * @param unit        the unit of {@code window} and {@code granularity}
+     * @param clock       the clock
+     */
+    SlidingTimeWindowCounter(long window, long granularity, TimeUnit unit, Clock clock) {
+        buckets = new TimeWindowBuckets<>(window, granularity, unit, CountBucket::new, clock);
+    }
+
+    /**
+     * @return the number of increments inside the time window.
      */
     @Override
     public long getCount() {
-        return reservoir.getSnapshot().size();
+        long[] count = new long[1];
+        buckets.forEachInWindow(bucket -> count[0] += bucket.count.sum());
+
+        return count[0];
     }
 
     @Override
     public void inc() {
-        reservoir.update(1L);
+        inc(1L);
     }
 
     @Override
     public void inc(long n) {
-        for (int i = 0; i < n; ++i) {
-            inc();
-        }
+        buckets.current().count.add(n);
     }
 
     @Override
@@ -84,4 +101,12 @@ class SlidingTimeWindowCounter extends Counter {
         throw new RuntimeException("This counter can be incremented only");
     }
 
+    private static final class CountBucket extends TimeWindowBuckets.Bucket {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        protected void reset() {
+            count.reset();
+        }
+    }
 }
@@ -0,0 +1,291 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * A histogram reservoir over a sliding window of time that uses constant
+ * memory regardless of the number of updates.
+ * The count, sum, sum of squares, minimum and maximum of the values are kept
+ * per granularity period, so the minimum, maximum, mean and standard deviation
+ * of the snapshot are exact. Quantiles are computed from log-linear value
+ * bins (in the manner of HDR histograms) with a relative error of at most
+ * 1/8. A bucket only stores the bins that received values, so its size
+ * depends on the spread of the values rather than on the range of the bins.
+ */
+class SlidingTimeWindowHistogramReservoir implements Reservoir {
+
+    // 2^SUB_BIN_BITS bins per power of two
+    private static final int SUB_BIN_BITS = 3;
+    private static final int SUB_BINS = 1 << SUB_BIN_BITS;
+    private static final int BIN_COUNT = (Long.SIZE - SUB_BIN_BITS) * SUB_BINS;
+
+    private final TimeWindowBuckets<ValueBucket> buckets;
+
+    /**
+     * Creates a reservoir with the given window of time.
+     *
+     * @param window      the window of time
+     * @param granularity the period of time collected in one bucket
+     * @param unit        the unit of {@code window} and {@code granularity}
+     */
+    SlidingTimeWindowHistogramReservoir(long window, long granularity, TimeUnit unit) {
+        this(window, granularity, unit, Clock.defaultClock());
+    }
+
+    /**
+     * Creates a reservoir with the given window of time and clock.
+     *
+     * @param window      the window of time
+     * @param granularity the period of time collected in one bucket
+     * @param unit        the unit of {@code window} and {@code granularity}
+     * @param clock       the clock
+     */
+    SlidingTimeWindowHistogramReservoir(long window, long granularity, TimeUnit unit, Clock clock) {
+        buckets = new TimeWindowBuckets<>(window, granularity, unit, ValueBucket::new, clock);
+    }
+
+    @Override
+    public int size() {
+        long[] count = new long[1];
+        buckets.forEachInWindow(bucket -> count[0] += bucket.count());
+
+        return (int) Math.min(count[0], Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        buckets.current().update(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        WindowSnapshot snapshot = new WindowSnapshot();
+        buckets.forEachInWindow(bucket -> bucket.addTo(snapshot));
+
+        return snapshot;
+    }
+
+    static int binIndex(long value) {
+        if (value < SUB_BINS) {
+            return (int) Math.max(value, 0);
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BIN_BITS;
+
+        return (shift + 1) * SUB_BINS + (int) ((value >>> shift) & (SUB_BINS - 1));
+    }
+
+    static long binValue(int index) {
+        if (index < SUB_BINS) {
+            return index;
+        }
+
+        int shift = index / SUB_BINS - 1;
+        long lowerBound = (long) (SUB_BINS + index % SUB_BINS) << shift;
+
+        // the middle of the bin
+        return lowerBound + ((1L << shift) >> 1);
+    }
+
+    private static final class ValueBucket extends TimeWindowBuckets.Bucket {
+        private static final int[] NO_BIN_INDEXES = new int[0];
+        private static final long[] NO_BIN_COUNTS = new long[0];
+        private static final int MIN_BIN_CAPACITY = 8;
+
+        private long count;
+        private long sum;
+        private double sumOfSquares;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        // the populated bins sorted by bin index, the arrays are kept for the later periods of the bucket
+        private int[] binIndexes = NO_BIN_INDEXES;
+        private long[] binCounts = NO_BIN_COUNTS;
+        private int binsUsed;
+
+        synchronized void update(long value) {
+            addToBin(binIndex(value));
+            sum += value;
+            sumOfSquares += (double) value * value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            count++;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized void addTo(WindowSnapshot snapshot) {
+            if (count == 0) {
+                return;
+            }
+
+            snapshot.count += count;
+            snapshot.sum += sum;
+            snapshot.sumOfSquares += sumOfSquares;
+            snapshot.min = Math.min(snapshot.min, min);
+            snapshot.max = Math.max(snapshot.max, max);
+
+            for (int i = 0; i < binsUsed; i++) {
+                snapshot.binCounts[binIndexes[i]] += binCounts[i];
+            }
+        }
+
+        private void addToBin(int index) {
+            int position = Arrays.binarySearch(binIndexes, 0, binsUsed, index);
+            if (position >= 0) {
+                binCounts[position]++;
+                return;
+            }
+
+            position = -position - 1;
+
+            if (binsUsed == binIndexes.length) {
+                int capacity = Math.min(Math.max(MIN_BIN_CAPACITY, binsUsed * 2), BIN_COUNT);
+                binIndexes = Arrays.copyOf(binIndexes, capacity);
+                binCounts = Arrays.copyOf(binCounts, capacity);
+            }
+
+            System.arraycopy(binIndexes, position, binIndexes, position + 1, binsUsed - position);
+            System.arraycopy(binCounts, position, binCounts, position + 1, binsUsed - position);
+            binIndexes[position] = index;
+            binCounts[position] = 1;
+            binsUsed++;
+        }
+
+        // called with the lock of the bucket held
+        @Override
+        protected void reset() {
+            count = 0;
+            sum = 0;
+            sumOfSquares = 0.0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            binsUsed = 0;
+        }
+    }
+
+    /**
+     * Snapshot of the values inside the time window.
+     */
+    private static final class WindowSnapshot extends Snapshot {
+        private final long[] binCounts = new long[BIN_COUNT];
+        private long count;
+        private long sum;
+        private double sumOfSquares;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+
+            if (count == 0) {
+                return 0.0;
+            }
+
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+
+            for (int i = 0; i < BIN_COUNT; i++) {
+                seen += binCounts[i];
+                if (seen >= rank && binCounts[i] > 0) {
+                    return Math.min(Math.max(binValue(i), getMin()), getMax());
+                }
+            }
+
+            return getMax();
+        }
+
+        /**
+         * @return one representative value for each non-empty value bin, the
+         * individual values are not stored.
+         */
+        @Override
+        public long[] getValues() {
+            return IntStream.range(0, BIN_COUNT)
+                    .filter(i -> binCounts[i] > 0)
+                    .mapToLong(i -> Math.min(Math.max(binValue(i), getMin()), getMax()))
+                    .toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        @Override
+        public double getMean() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        @Override
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        @Override
+        public double getStdDev() {
+            if (count <= 1) {
+                return 0.0;
+            }
+
+            // sample standard deviation, as computed by the uniform snapshot of Dropwizard reservoirs
+            double variance = (sumOfSquares - (double) sum * sum / count) / (count - 1);
+
+            return Math.sqrt(Math.max(variance, 0.0));
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@
  */
 package ee.ria.xroad.opmonitordaemon;
 
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
 import ee.ria.xroad.common.util.JsonUtils;
 import ee.ria.xroad.common.util.RequestWrapper;
 
@@ -34,13 +35,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static ee.ria.xroad.common.util.TimeUtils.getEpochSecond;
 
 /**
- * The processor class for store operational monitoring data (JSON) requests.
+ * The processor class for store operational monitoring data requests, in JSON or binary
+ * ({@link OpMonitoringDataBinaryCodec}) format.
  */
 @Slf4j
 class StoreRequestProcessor {
@@ -57,10 +60,16 @@ class StoreRequestProcessor {
      */
     private MetricRegistry healthMetricRegistry;
 
+    /**
+     * Whether the request is in binary format.
+     */
+    private boolean binary;
+
     StoreRequestProcessor(RequestWrapper request,
-                          MetricRegistry healthMetricRegistry) {
+                          MetricRegistry healthMetricRegistry, boolean binary) {
         this.request = request;
         this.healthMetricRegistry = healthMetricRegistry;
+        this.binary = binary;
     }
 
     /**
@@ -70,12 +79,18 @@ class StoreRequestProcessor {
      * @throws Exception in case of any errors
      */
     void process() throws Exception {
-        String rawJson = IOUtils.toString(request.getInputStream(),
-                StandardCharsets.UTF_8);
+        List<OperationalDataRecord> records;
 
-        log.trace("Incoming JSON: {}", rawJson);
+        if (binary) {
+            records = prepareBinaryStoreData(request.getInputStream());
+        } else {
+            String rawJson = IOUtils.toString(request.getInputStream(),
+                    StandardCharsets.UTF_8);
 
-        List<OperationalDataRecord> records = prepareRawStoreData(rawJson);
+            log.trace("Incoming JSON: {}", rawJson);
+
+            records = prepareRawStoreData(rawJson);
+        }
 
         log.debug("Process {} record{}", records.size(),
                 records.size() == 1 ? "" : "s");
@@ -105,4 +120,22 @@ class StoreRequestProcessor {
         return records.getRecords();
     }
 
+    static List<OperationalDataRecord> prepareBinaryStoreData(
+            InputStream is) throws Exception {
+        List<OperationalDataRecord> records;
+
+        try {
+            records = OpMonitoringDataBinaryCodec.decode(is, OperationalDataRecordBinder.INSTANCE);
+        } catch (Exception e) {
+            throw new Exception("Received invalid request", e);
+        }
+
+        if (records.isEmpty()) {
+            throw new Exception(
+                    "No data was found in the request to store data");
+        }
+
+        return records;
+    }
+
 }
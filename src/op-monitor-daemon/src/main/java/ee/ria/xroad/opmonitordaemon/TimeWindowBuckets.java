@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import com.codahale.metrics.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A ring of buckets covering a sliding window of time. Each bucket collects
+ * the updates of one granularity period and is reused (reset) when the ring
+ * comes around to it again, so the memory used does not depend on the number
+ * of updates. Buckets are created on the first update of their period, so an
+ * idle window only holds the empty ring.
+ *
+ * @param <B> the bucket type
+ */
+class TimeWindowBuckets<B extends TimeWindowBuckets.Bucket> {
+
+    /**
+     * Base class of the buckets.
+     */
+    abstract static class Bucket {
+        private volatile long tick = Long.MIN_VALUE;
+
+        /**
+         * Clears the collected data of the bucket.
+         */
+        protected abstract void reset();
+
+        private synchronized void rotate(long newTick) {
+            if (newTick > tick) {
+                // the data is cleared before the new tick is published
+                reset();
+                tick = newTick;
+            }
+        }
+    }
+
+    private final AtomicReferenceArray<B> buckets;
+    private final Supplier<B> bucketFactory;
+    private final long granularityNanos;
+    private final Clock clock;
+
+    /**
+     * Creates the ring of buckets.
+     *
+     * @param window           the window of time
+     * @param granularity      the period of time covered by one bucket
+     * @param unit             the unit of {@code window} and {@code granularity}
+     * @param bucketFactory    creates the buckets
+     * @param clock            the clock used for placing updates to buckets
+     */
+    TimeWindowBuckets(long window, long granularity, TimeUnit unit, Supplier<B> bucketFactory, Clock clock) {
+        if (granularity <= 0 || window < granularity) {
+            throw new IllegalArgumentException("Invalid time window " + window + " with granularity " + granularity);
+        }
+
+        this.granularityNanos = unit.toNanos(granularity);
+        this.clock = clock;
+        this.bucketFactory = bucketFactory;
+        this.buckets = new AtomicReferenceArray<>((int) ((window + granularity - 1) / granularity));
+    }
+
+    /**
+     * @return the bucket collecting the updates of the current granularity period
+     */
+    B current() {
+        long tick = currentTick();
+        int index = index(tick);
+        B bucket = buckets.get(index);
+
+        if (bucket == null) {
+            B created = bucketFactory.get();
+            bucket = buckets.compareAndExchange(index, null, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        Bucket base = bucket;
+        if (base.tick != tick) {
+            base.rotate(tick);
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Calls the action for each bucket that is inside the time window.
+     *
+     * @param action the action
+     */
+    void forEachInWindow(Consumer<B> action) {
+        long oldestTick = currentTick() - buckets.length();
+
+        for (int i = 0; i < buckets.length(); i++) {
+            B bucket = buckets.get(i);
+            if (bucket != null && ((Bucket) bucket).tick > oldestTick) {
+                action.accept(bucket);
+            }
+        }
+    }
+
+    private long currentTick() {
+        return Math.floorDiv(clock.getTick(), granularityNanos);
+    }
+
+    private int index(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.length());
+    }
+}
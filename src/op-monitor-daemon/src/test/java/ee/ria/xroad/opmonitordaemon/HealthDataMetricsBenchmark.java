@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.opmonitoring.OpMonitoringData.SecurityServerType;
+
+import com.codahale.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the throughput of HealthDataMetrics.processRecords with a growing
+ * number of distinct services: records per second for 100 to 100 000 services.
+ */
+@Slf4j
+public final class HealthDataMetricsBenchmark {
+    private static final int RECORDS_IN_BATCH = 100;
+    private static final int DEFAULT_RECORDS = 1_000_000;
+    private static final int[] SERVICE_COUNTS = {100, 1_000, 10_000, 100_000};
+
+    private HealthDataMetricsBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args optional number of processed records per service count
+     */
+    public static void main(String[] args) {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+
+        // warm-up
+        run(100, records / 10);
+
+        for (int services : SERVICE_COUNTS) {
+            run(services, records);
+        }
+    }
+
+    private static void run(int services, int records) {
+        MetricRegistry registry = new MetricRegistry();
+        List<OperationalDataRecord> batch = new ArrayList<>(RECORDS_IN_BATCH);
+
+        // the records are created in advance, only their processing is measured
+        OperationalDataRecord[] successful = new OperationalDataRecord[services];
+        OperationalDataRecord[] unsuccessful = new OperationalDataRecord[services];
+        for (int i = 0; i < services; i++) {
+            successful[i] = createRecord(i, true);
+            unsuccessful[i] = createRecord(i, false);
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < records; i++) {
+            batch.add(i % 10 != 0 ? successful[i % services] : unsuccessful[i % services]);
+
+            if (batch.size() == RECORDS_IN_BATCH) {
+                HealthDataMetrics.processRecords(registry, batch);
+                batch = new ArrayList<>(RECORDS_IN_BATCH);
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("{} services: {} records/s, {} metrics", services, Math.round(records / seconds),
+                registry.getMetrics().size());
+    }
+
+    private static OperationalDataRecord createRecord(int service, boolean succeeded) {
+        OperationalDataRecord record = new OperationalDataRecord();
+        long now = System.currentTimeMillis();
+
+        record.setSecurityServerType(SecurityServerType.PRODUCER.getTypeString());
+        record.setRequestInTs(now - 20);
+        record.setResponseOutTs(now);
+        record.setServiceXRoadInstance("EE");
+        record.setServiceMemberClass("COM");
+        record.setServiceMemberCode("7654321");
+        record.setServiceSubsystemCode("producer");
+        record.setServiceCode("service" + service);
+        record.setServiceVersion("v1");
+        record.setRequestSize(1024L);
+        record.setResponseSize(2048L);
+        record.setSucceeded(succeeded);
+        record.setServiceType("WSDL");
+
+        return record;
+    }
+}
@@ -27,15 +27,23 @@ package ee.ria.xroad.opmonitordaemon;
 
 import ee.ria.xroad.common.identifier.ServiceId;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Test;
 
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.findCounter;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.findGauge;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.findHistogram;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getLastRequestTimestampGaugeName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestCounterName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestDurationName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestSizeName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getServiceTypeName;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Tests against the utility methods in HealthDataMetricsUtil.
@@ -63,34 +71,29 @@ public class HealthDataMetricsUtilTest {
         assertEquals(jmxKey, "lastSuccessfulRequestTimestamp("
                 + serviceId.toShortString() + ")");
 
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertFoundByExactName(jmxKey);
 
         jmxKey = getLastRequestTimestampGaugeName(serviceId, false);
         assertEquals(jmxKey, "lastUnsuccessfulRequestTimestamp("
                 + serviceId.toShortString() + ")");
 
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertFoundByExactName(jmxKey);
 
         jmxKey = getRequestCounterName(serviceId, true);
         assertEquals(jmxKey, "successfulRequestCount("
                 + serviceId.toShortString() + ")");
 
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertFoundByExactName(jmxKey);
 
         jmxKey = getRequestCounterName(serviceId, false);
         assertEquals(jmxKey, "unsuccessfulRequestCount("
                 + serviceId.toShortString() + ")");
 
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertFoundByExactName(jmxKey);
 
         jmxKey = getServiceTypeName(serviceId);
         assertEquals(jmxKey, "serviceType(" + serviceId.toShortString() + ")");
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertFoundByExactName(jmxKey);
     }
 
     @Test
@@ -141,9 +144,7 @@ public class HealthDataMetricsUtilTest {
                         + "/testservice_provider/&#91;&quot;Með_suð_í_"
                         + "eyrum&quot;&#93;/v012)");
 
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(
-                lastSuccessfulRequestTsKey);
-        assertTrue(lastSuccessfulRequestTsKey.matches(regex));
+        assertFoundByExactName(lastSuccessfulRequestTsKey);
     }
 
     @Test
@@ -166,9 +167,7 @@ public class HealthDataMetricsUtilTest {
                         + "/testservice_provider"
                         + "/Закрой&#46;за&#46;мной&#46;дверь&#46;я&#46;ухожу)");
 
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(
-                requestDurationKey);
-        assertTrue(requestDurationKey.matches(regex));
+        assertFoundByExactName(requestDurationKey);
     }
 
     @Test
@@ -191,8 +190,30 @@ public class HealthDataMetricsUtilTest {
                         + "/testmember&#44;&#32;simple/testservice_provider"
                         + "/a&#32;service&#32;with&#32;spaces)");
 
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(
-                requestDurationKey);
-        assertTrue(requestDurationKey.matches(regex));
+        assertFoundByExactName(requestDurationKey);
+    }
+
+    @Test
+    public void findsMetricsByExactNameAndType() {
+        MetricRegistry registry = new MetricRegistry();
+        Gauge<Long> gauge = () -> 1L;
+        registry.register("lastSuccessfulRequestTimestamp(EE/foo&#46;bar)", gauge);
+        Histogram histogram = registry.histogram("requestDuration(EE/foo&#46;bar)");
+
+        assertSame(gauge, findGauge(registry, "lastSuccessfulRequestTimestamp(EE/foo&#46;bar)"));
+        assertSame(histogram, findHistogram(registry, "requestDuration(EE/foo&#46;bar)"));
+        assertNull(findCounter(registry, "requestDuration(EE/foo&#46;bar)"));
+        assertNull(findHistogram(registry, "requestDuration(EE/foo.bar)"));
+        assertNull(findGauge(registry, "lastSuccessfulRequestTimestamp"));
+    }
+
+    private static void assertFoundByExactName(String metricName) {
+        MetricRegistry registry = new MetricRegistry();
+        Counter counter = registry.counter(metricName);
+        registry.counter(metricName + "x");
+        registry.counter("x" + metricName);
+
+        assertSame(counter, findCounter(registry, metricName));
+        assertNull(findCounter(registry, metricName.substring(0, metricName.length() - 1)));
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
+import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataRequest;
+import ee.ria.xroad.common.util.JsonUtils;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the JSON and binary transport of operational monitoring records between the operational monitoring
+ * buffer and the daemon: records per second for encoding plus decoding, and bytes per record.
+ */
+@Slf4j
+public final class OpMonitoringTransportBenchmark {
+    private static final int RECORDS_IN_MESSAGE = 100;
+    private static final int DEFAULT_ITERATIONS = 2000;
+    private static final int WARMUP_ITERATIONS = 500;
+
+    private static final ObjectWriter OBJECT_WRITER = JsonUtils.getObjectWriter();
+    private static final ObjectReader OBJECT_READER = JsonUtils.getObjectReader();
+
+    private OpMonitoringTransportBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args optional number of iterations
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        StoreOpMonitoringDataRequest request = new StoreOpMonitoringDataRequest();
+        for (int i = 0; i < RECORDS_IN_MESSAGE; i++) {
+            request.addRecord(createRecord(i));
+        }
+
+        run("JSON", request, WARMUP_ITERATIONS, false);
+        run("binary", request, WARMUP_ITERATIONS, true);
+
+        run("JSON", request, iterations, false);
+        run("binary", request, iterations, true);
+    }
+
+    private static void run(String name, StoreOpMonitoringDataRequest request, int iterations, boolean binary)
+            throws Exception {
+        long bytes = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            List<OperationalDataRecord> records;
+
+            if (binary) {
+                byte[] message = OpMonitoringDataBinaryCodec.encode(request.getRecords());
+                bytes += message.length;
+                records = StoreRequestProcessor.prepareBinaryStoreData(new ByteArrayInputStream(message));
+            } else {
+                String message = OBJECT_WRITER.writeValueAsString(request);
+                bytes += message.getBytes(UTF_8).length;
+                records = OBJECT_READER.readValue(message, OperationalDataRecords.class).getRecords();
+            }
+
+            if (records.size() != RECORDS_IN_MESSAGE) {
+                throw new IllegalStateException("Unexpected record count " + records.size());
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long recordCount = (long) iterations * RECORDS_IN_MESSAGE;
+
+        log.info("{}: {} records/s, {} bytes/record", name, Math.round(recordCount / seconds),
+                bytes / recordCount);
+    }
+
+    private static Map<String, Object> createRecord(int index) {
+        Map<String, Object> record = new HashMap<>();
+        long now = System.currentTimeMillis();
+
+        record.put("monitoringDataTs", now / 1000);
+        record.put("securityServerInternalIp", "10.0.0.1");
+        record.put("securityServerType", "Client");
+        record.put("requestInTs", now);
+        record.put("requestOutTs", now + 1);
+        record.put("responseInTs", now + 20);
+        record.put("responseOutTs", now + 21);
+        record.put("clientXRoadInstance", "EE");
+        record.put("clientMemberClass", "GOV");
+        record.put("clientMemberCode", "1234567" + index);
+        record.put("clientSubsystemCode", "consumer");
+        record.put("serviceXRoadInstance", "EE");
+        record.put("serviceMemberClass", "COM");
+        record.put("serviceMemberCode", "7654321");
+        record.put("serviceSubsystemCode", "producer");
+        record.put("serviceCode", "getRandom");
+        record.put("serviceVersion", "v1");
+        record.put("messageId", UUID.randomUUID().toString());
+        record.put("messageProtocolVersion", "4.0");
+        record.put("clientSecurityServerAddress", "ss1.example.org");
+        record.put("serviceSecurityServerAddress", "ss2.example.org");
+        record.put("requestSize", 1024L);
+        record.put("responseSize", 2048L);
+        record.put("requestAttachmentCount", 0);
+        record.put("responseAttachmentCount", 0);
+        record.put("succeeded", true);
+        record.put("serviceType", "WSDL");
+
+        return record;
+    }
+}
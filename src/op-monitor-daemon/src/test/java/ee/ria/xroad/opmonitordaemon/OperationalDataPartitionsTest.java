@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
+import ee.ria.xroad.opmonitordaemon.OperationalDataPartitions.Partition;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static ee.ria.xroad.common.SystemProperties.PREFIX;
+import static ee.ria.xroad.opmonitordaemon.OperationalDataPartitions.expiredPartitions;
+import static ee.ria.xroad.opmonitordaemon.OperationalDataPartitions.legacyPartitions;
+import static ee.ria.xroad.opmonitordaemon.OperationalDataPartitions.missingPeriods;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the selection of the operational data partitions to create and to drop.
+ */
+public class OperationalDataPartitionsTest {
+
+    private static final String PARTITION_INTERVAL = PREFIX + "op-monitor.partition-interval";
+
+    private static final long DAY = 24 * 60 * 60;
+    private static final long HOUR = 60 * 60;
+
+    private static final long MIDNIGHT = Instant.parse("2024-03-10T00:00:00Z").getEpochSecond();
+
+    private static final Partition LEGACY = new Partition("operational_data_legacy", null, MIDNIGHT);
+    private static final Partition DEFAULT = new Partition("operational_data_default", null, null);
+
+    @After
+    public void tearDown() {
+        System.clearProperty(PARTITION_INTERVAL);
+    }
+
+    @Test
+    public void dayPartitionsAreAlignedToMidnight() {
+        ChronoUnit interval = OpMonitoringSystemProperties.getOpMonitorPartitionInterval();
+        assertEquals(ChronoUnit.DAYS, interval);
+
+        long now = MIDNIGHT + 13 * HOUR + 17;
+
+        assertEquals(List.of(MIDNIGHT, MIDNIGHT + DAY, MIDNIGHT + 2 * DAY),
+                missingPeriods(List.of(), now, now + 2 * DAY, interval));
+    }
+
+    @Test
+    public void hourPartitionsAreAlignedToFullHour() {
+        System.setProperty(PARTITION_INTERVAL, "hour");
+        ChronoUnit interval = OpMonitoringSystemProperties.getOpMonitorPartitionInterval();
+        assertEquals(ChronoUnit.HOURS, interval);
+
+        long now = MIDNIGHT + 5 * HOUR + 59 * 60;
+
+        assertEquals(List.of(MIDNIGHT + 5 * HOUR, MIDNIGHT + 6 * HOUR, MIDNIGHT + 7 * HOUR),
+                missingPeriods(List.of(), now, MIDNIGHT + 7 * HOUR + 1, interval));
+    }
+
+    @Test
+    public void invalidIntervalFallsBackToDay() {
+        System.setProperty(PARTITION_INTERVAL, "week");
+
+        assertEquals(ChronoUnit.DAYS, OpMonitoringSystemProperties.getOpMonitorPartitionInterval());
+    }
+
+    @Test
+    public void existingPartitionsAreNotCreatedAgain() {
+        List<Partition> partitions = List.of(
+                LEGACY,
+                DEFAULT,
+                new Partition("operational_data_" + MIDNIGHT, MIDNIGHT, MIDNIGHT + DAY));
+
+        // the legacy partition covers everything before the first partition, the default partition covers nothing
+        assertEquals(List.of(MIDNIGHT + DAY, MIDNIGHT + 2 * DAY),
+                missingPeriods(partitions, MIDNIGHT - DAY, MIDNIGHT + 3 * DAY, ChronoUnit.DAYS));
+    }
+
+    @Test
+    public void hourPeriodsInsideExistingDayPartitionAreSkipped() {
+        List<Partition> partitions = List.of(
+                DEFAULT,
+                new Partition("operational_data_" + MIDNIGHT, MIDNIGHT, MIDNIGHT + DAY));
+
+        assertEquals(List.of(MIDNIGHT + DAY, MIDNIGHT + DAY + HOUR),
+                missingPeriods(partitions, MIDNIGHT + 22 * HOUR, MIDNIGHT + DAY + 2 * HOUR, ChronoUnit.HOURS));
+    }
+
+    @Test
+    public void onlyFullyExpiredPartitionsAreDropped() {
+        Partition first = new Partition("operational_data_" + MIDNIGHT, MIDNIGHT, MIDNIGHT + DAY);
+        Partition second = new Partition("operational_data_" + (MIDNIGHT + DAY), MIDNIGHT + DAY, MIDNIGHT + 2 * DAY);
+        List<Partition> partitions = List.of(LEGACY, DEFAULT, first, second);
+
+        assertEquals(List.of(), expiredPartitions(partitions, MIDNIGHT - 1));
+        assertEquals(List.of(LEGACY), expiredPartitions(partitions, MIDNIGHT));
+        // the partition holding records newer than the limit is kept until all its records have expired
+        assertEquals(List.of(LEGACY, first), expiredPartitions(partitions, MIDNIGHT + DAY + HOUR));
+        assertEquals(List.of(LEGACY, first, second), expiredPartitions(partitions, MIDNIGHT + 3 * DAY));
+    }
+
+    @Test
+    public void expiredRecordsAreDeletedFromLegacyPartitionUntilItIsDropped() {
+        Partition first = new Partition("operational_data_" + MIDNIGHT, MIDNIGHT, MIDNIGHT + DAY);
+        List<Partition> partitions = List.of(LEGACY, DEFAULT, first);
+
+        // the legacy partition holds records up to the end of the migration day, older records expire before it
+        assertEquals(List.of(LEGACY), legacyPartitions(partitions, MIDNIGHT - 5 * DAY));
+        assertEquals(List.of(LEGACY), legacyPartitions(partitions, MIDNIGHT - 1));
+        // once all its records have expired, the legacy partition is dropped instead
+        assertEquals(List.of(), legacyPartitions(partitions, MIDNIGHT));
+        assertEquals(List.of(LEGACY), expiredPartitions(partitions, MIDNIGHT));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import static ee.ria.xroad.opmonitordaemon.OperationalDataTestUtil.fillMinimalOperationalData;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the COPY text format encoding of OperationalDataRecordCopyWriter.
+ */
+public class OperationalDataRecordCopyWriterTest {
+
+    private static final int COLUMN_COUNT = 38;
+
+    @Test
+    public void appendsOneColumnPerCopiedField() {
+        OperationalDataRecord rec = fillMinimalOperationalData();
+        rec.setId(42L);
+
+        String row = encode(rec);
+        String[] columns = row.substring(0, row.length() - 1).split("\t", -1);
+
+        assertEquals('\n', row.charAt(row.length() - 1));
+        assertEquals(COLUMN_COUNT, columns.length);
+        assertEquals("42", columns[0]);
+        assertEquals("1474381269", columns[1]);
+        assertEquals("192.168.56.101", columns[2]);
+        assertEquals("Client", columns[3]);
+        assertEquals("\\N", columns[5]);
+        assertEquals("t", columns[32]);
+        assertEquals("\\N", columns[COLUMN_COUNT - 1]);
+    }
+
+    @Test
+    public void escapesSpecialCharacters() {
+        OperationalDataRecord rec = fillMinimalOperationalData();
+        rec.setFaultString("line1\nline2\r\tpath\\to");
+
+        String[] columns = encode(rec).split("\t", -1);
+
+        assertEquals("line1\\nline2\\r\\tpath\\\\to", columns[34]);
+    }
+
+    @Test
+    public void truncatesLongStrings() {
+        OperationalDataRecord rec = fillMinimalOperationalData();
+        rec.setServiceCode(StringUtils.repeat('a', 300));
+        rec.setFaultString(StringUtils.repeat('b', 3000));
+
+        String[] columns = encode(rec).split("\t", -1);
+
+        assertEquals(OpMonitorDaemonDatabaseCtx.MAX_LENGTH, columns[16].length());
+        assertEquals(OpMonitorDaemonDatabaseCtx.FAULT_MAX_LENGTH, columns[34].length());
+    }
+
+    private static String encode(OperationalDataRecord rec) {
+        StringBuilder rows = new StringBuilder();
+        OperationalDataRecordCopyWriter.appendRow(rows, rec);
+
+        return rows.toString();
+    }
+}
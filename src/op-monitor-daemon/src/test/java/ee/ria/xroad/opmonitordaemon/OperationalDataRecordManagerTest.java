@@ -37,8 +37,10 @@ import org.junit.rules.ExpectedException;
 
 import java.lang.reflect.Field;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
 import static ee.ria.xroad.opmonitordaemon.OpMonitorDaemonDatabaseCtx.doInTransaction;
 import static ee.ria.xroad.opmonitordaemon.OperationalDataRecordManager.queryAllRecords;
@@ -191,6 +193,41 @@ public class OperationalDataRecordManagerTest extends BaseTestUsingDB {
         assertEquals(1474968982L, result.getNextRecordsFrom().longValue());
     }
 
+    @Test
+    public void storeAndStreamDataCausingOverflow() throws Exception {
+        storeFullOperationalDataRecords(8, 1474968980L);
+        storeFullOperationalDataRecords(17, 1474968981L);
+        storeFullOperationalDataRecords(1, 1474968985L);
+
+        // Streaming gives the same records and overflow indication as
+        // querying.
+        for (int maxRecords : new int[] {5, 8, 10, 25, 26, 30}) {
+            OperationalDataRecordManager.setMaxRecordsInPayload(maxRecords);
+
+            for (long recordsFrom : new long[] {1474968960L, 1474968981L}) {
+                OperationalDataRecords expected = queryRecords(recordsFrom,
+                        1474968990L);
+
+                List<OperationalDataRecord> streamed = new ArrayList<>();
+                Long nextRecordsFrom = OperationalDataRecordManager
+                        .streamRecords(recordsFrom, 1474968990L, null, null,
+                                new HashSet<>(), streamed::add);
+
+                assertEquals(expected.size(), streamed.size());
+                assertEquals(expected.getNextRecordsFrom(), nextRecordsFrom);
+            }
+        }
+
+        // The monitoring data timestamp is left out unless requested.
+        List<OperationalDataRecord> streamed = new ArrayList<>();
+        OperationalDataRecordManager.streamRecords(1474968985L, 1474968985L,
+                null, null, Sets.newHashSet("messageId"), streamed::add);
+
+        assertEquals(1, streamed.size());
+        assertNull(streamed.get(0).getMonitoringDataTs());
+        assertNotNull(streamed.get(0).getMessageId());
+    }
+
     @Test
     public void storeAndQueryDataFilteringByOutputFields() throws Exception {
         ClientId client = ClientId.Conf.create(
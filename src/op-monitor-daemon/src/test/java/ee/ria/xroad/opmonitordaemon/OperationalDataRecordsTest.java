@@ -25,15 +25,20 @@
  */
 package ee.ria.xroad.opmonitordaemon;
 
+import ee.ria.xroad.common.opmonitoring.OpMonitoringDataBinaryCodec;
 import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse;
 import ee.ria.xroad.common.util.JsonUtils;
 
 import com.fasterxml.jackson.databind.ObjectWriter;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static ee.ria.xroad.opmonitordaemon.OperationalDataTestUtil.OBJECT_READER;
 import static org.junit.Assert.assertEquals;
@@ -153,4 +158,66 @@ public class OperationalDataRecordsTest {
         assertEquals(200, record.getStatusCode().intValue());
         assertTrue(record.getSucceeded());
     }
+
+    /**
+     * Test that records sent in binary format are stored the same way as records sent in JSON.
+     * @throws Exception if an error occurs.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void binaryRecordsMatchJsonRecords() throws Exception {
+        OperationalDataRecords jsonRecords = OBJECT_READER.readValue(RECORDS_JSON, OperationalDataRecords.class);
+        List<Map<String, Object>> rawRecords = (List<Map<String, Object>>) OBJECT_READER
+                .forType(Map.class).<Map<String, Object>>readValue(RECORDS_JSON).get("records");
+
+        byte[] message = OpMonitoringDataBinaryCodec.encode(rawRecords);
+        List<OperationalDataRecord> binaryRecords = StoreRequestProcessor.prepareBinaryStoreData(
+                new ByteArrayInputStream(message));
+
+        assertEquals(OBJECT_WRITER.writeValueAsString(jsonRecords.getRecords()),
+                OBJECT_WRITER.writeValueAsString(binaryRecords));
+    }
+
+    /**
+     * Test that a binary message with an oversized name count is rejected before the names are allocated.
+     * @throws Exception if an error occurs.
+     */
+    @Test(expected = IOException.class)
+    public void binaryRecordsWithOversizedNameCountAreRejected() throws Exception {
+        OpMonitoringDataBinaryCodec.decode(new ByteArrayInputStream(binaryHeader(Integer.MAX_VALUE)));
+    }
+
+    /**
+     * Test that a binary message with an oversized record count is rejected.
+     * @throws Exception if an error occurs.
+     */
+    @Test(expected = IOException.class)
+    public void binaryRecordsWithOversizedRecordCountAreRejected() throws Exception {
+        byte[] header = binaryHeader(0);
+        byte[] message = Arrays.copyOf(header, header.length + Integer.BYTES);
+        ByteBuffer.wrap(message, header.length, Integer.BYTES).putInt(Integer.MAX_VALUE);
+
+        OpMonitoringDataBinaryCodec.decode(new ByteArrayInputStream(message));
+    }
+
+    /**
+     * Test that a binary message declaring a string longer than its content is rejected.
+     * @throws Exception if an error occurs.
+     */
+    @Test(expected = IOException.class)
+    public void binaryRecordsWithTruncatedStringAreRejected() throws Exception {
+        byte[] header = binaryHeader(1);
+        byte[] message = Arrays.copyOf(header, header.length + Integer.BYTES);
+        ByteBuffer.wrap(message, header.length, Integer.BYTES).putInt(1000);
+
+        OpMonitoringDataBinaryCodec.decode(new ByteArrayInputStream(message));
+    }
+
+    private static byte[] binaryHeader(int nameCount) throws IOException {
+        byte[] empty = OpMonitoringDataBinaryCodec.encode(List.of());
+        // the version byte is followed by the name count
+        ByteBuffer.wrap(empty, 1, Integer.BYTES).putInt(nameCount);
+
+        return Arrays.copyOf(empty, 1 + Integer.BYTES);
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the store throughput of OperationalDataRecordManager: records per second and records per second
+ * per core, i.e. per CPU second used by the JVM. Uses the database configured in
+ * src/test/resources/hibernate.properties unless the database properties system property is set, so point
+ * it to PostgreSQL to measure the COPY path. Run with -Dxroad.op-monitor.bulk-copy-enabled=false to measure
+ * the Hibernate path against the same database.
+ */
+@Slf4j
+public final class OperationalDataStoreBenchmark {
+    private static final int RECORDS_IN_MESSAGE = 100;
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_MESSAGES_PER_THREAD = 1000;
+    private static final int WARMUP_MESSAGES_PER_THREAD = 100;
+
+    private OperationalDataStoreBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args optional number of storing threads and number of messages per thread
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MESSAGES_PER_THREAD;
+
+        if (System.getProperty(SystemProperties.DATABASE_PROPERTIES) == null) {
+            System.setProperty(SystemProperties.DATABASE_PROPERTIES, "src/test/resources/hibernate.properties");
+        }
+
+        log.info("Bulk copy enabled: {}", OpMonitoringSystemProperties.isOpMonitorBulkCopyEnabled());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            run(executor, threads, WARMUP_MESSAGES_PER_THREAD);
+            run(executor, threads, messages);
+        } finally {
+            executor.shutdown();
+            OpMonitorDaemonDatabaseCtx.get().closeSessionFactory();
+        }
+    }
+
+    private static void run(ExecutorService executor, int threads, int messages) throws Exception {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        long cpuStart = os.getProcessCpuTime();
+        long start = System.nanoTime();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < messages; i++) {
+                    long timestamp = System.currentTimeMillis() / 1000;
+                    OperationalDataRecordManager.storeRecords(createRecords(timestamp), timestamp);
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cpuSeconds = (os.getProcessCpuTime() - cpuStart) / 1e9;
+        long recordCount = (long) threads * messages * RECORDS_IN_MESSAGE;
+
+        log.info("{} threads: {} records/s, {} records/s/core ({} CPU seconds)", threads,
+                Math.round(recordCount / seconds), Math.round(recordCount / cpuSeconds),
+                String.format("%.1f", cpuSeconds));
+    }
+
+    private static List<OperationalDataRecord> createRecords(long timestamp) {
+        List<OperationalDataRecord> records = new ArrayList<>(RECORDS_IN_MESSAGE);
+        long millis = timestamp * 1000;
+
+        for (int i = 0; i < RECORDS_IN_MESSAGE; i++) {
+            OperationalDataRecord record = new OperationalDataRecord();
+            record.setSecurityServerInternalIp("10.0.0.1");
+            record.setSecurityServerType(OpMonitoringData.SecurityServerType.CLIENT.getTypeString());
+            record.setRequestInTs(millis);
+            record.setRequestOutTs(millis + 1);
+            record.setResponseInTs(millis + 20);
+            record.setResponseOutTs(millis + 21);
+            record.setClientXRoadInstance("EE");
+            record.setClientMemberClass("GOV");
+            record.setClientMemberCode("1234567" + i);
+            record.setClientSubsystemCode("consumer");
+            record.setServiceXRoadInstance("EE");
+            record.setServiceMemberClass("COM");
+            record.setServiceMemberCode("7654321");
+            record.setServiceSubsystemCode("producer");
+            record.setServiceCode("getRandom");
+            record.setServiceVersion("v1");
+            record.setMessageId(UUID.randomUUID().toString());
+            record.setMessageProtocolVersion("4.0");
+            record.setClientSecurityServerAddress("ss1.example.org");
+            record.setServiceSecurityServerAddress("ss2.example.org");
+            record.setRequestSize(1024L);
+            record.setResponseSize(2048L);
+            record.setRequestAttachmentCount(0);
+            record.setResponseAttachmentCount(0);
+            record.setSucceeded(true);
+            record.setServiceType("WSDL");
+
+            records.add(record);
+        }
+
+        return records;
+    }
+}
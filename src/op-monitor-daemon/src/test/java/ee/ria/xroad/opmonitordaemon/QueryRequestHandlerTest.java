@@ -53,7 +53,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -98,11 +97,12 @@ public class QueryRequestHandlerTest {
 
         QueryRequestHandler handler = new OperationalDataRequestHandler() {
             @Override
-            protected OperationalDataRecords getOperationalDataRecords(
+            protected Long streamOperationalDataRecords(
                     ClientId filterByClient, long recordsFrom, long recordsTo,
                     ClientId filterByServiceProvider,
-                    Set<String> outputFields) {
-                return new OperationalDataRecords(Collections.emptyList());
+                    Set<String> outputFields,
+                    OperationalDataRecordManager.RecordConsumer consumer) {
+                return null;
             }
 
             @Override
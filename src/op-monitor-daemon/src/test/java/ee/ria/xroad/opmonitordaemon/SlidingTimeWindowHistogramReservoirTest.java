@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+import com.sun.management.ThreadMXBean;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests against the bucketed sliding time window histogram reservoir.
+ */
+public class SlidingTimeWindowHistogramReservoirTest {
+
+    private static final long KB = 1024;
+
+    private final SlidingTimeWindowCounterTest.ManualClock clock = new SlidingTimeWindowCounterTest.ManualClock();
+
+    @Test
+    public void snapshotStatisticsMatchUniformSnapshot() {
+        SlidingTimeWindowHistogramReservoir reservoir =
+                new SlidingTimeWindowHistogramReservoir(60, 1, TimeUnit.SECONDS, clock);
+        UniformReservoir expected = new UniformReservoir(10_000);
+
+        for (int i = 1; i <= 10_000; i++) {
+            long value = (i * 7919L) % 5000;
+            reservoir.update(value);
+            expected.update(value);
+
+            if (i % 1000 == 0) {
+                clock.advanceSeconds(1);
+            }
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        Snapshot expectedSnapshot = expected.getSnapshot();
+
+        assertEquals(10_000, snapshot.size());
+        assertEquals(expectedSnapshot.getMin(), snapshot.getMin());
+        assertEquals(expectedSnapshot.getMax(), snapshot.getMax());
+        assertEquals(expectedSnapshot.getMean(), snapshot.getMean(), 1e-6);
+        assertEquals(expectedSnapshot.getStdDev(), snapshot.getStdDev(), 1e-6);
+
+        // quantiles are approximated by the value bins
+        double median = expectedSnapshot.getMedian();
+        assertTrue(Math.abs(snapshot.getMedian() - median) <= median / 8);
+    }
+
+    @Test
+    public void valuesLeaveWindow() {
+        SlidingTimeWindowHistogramReservoir reservoir =
+                new SlidingTimeWindowHistogramReservoir(10, 2, TimeUnit.SECONDS, clock);
+
+        reservoir.update(1000);
+        clock.advanceSeconds(6);
+        reservoir.update(10);
+        reservoir.update(20);
+
+        assertEquals(3, reservoir.size());
+        assertEquals(1000, reservoir.getSnapshot().getMax());
+
+        clock.advanceSeconds(6);
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(10, snapshot.getMin());
+        assertEquals(20, snapshot.getMax());
+        assertEquals(15.0, snapshot.getMean(), 0.0);
+
+        clock.advanceSeconds(10);
+        assertEquals(0, reservoir.getSnapshot().size());
+        assertEquals(0.0, reservoir.getSnapshot().getMean(), 0.0);
+    }
+
+    @Test
+    public void binsCoverWholeValueRange() {
+        long[] values = {0, 1, 7, 8, 15, 16, 1000, 123_456_789, Long.MAX_VALUE};
+
+        for (long value : values) {
+            int index = SlidingTimeWindowHistogramReservoir.binIndex(value);
+            long binValue = SlidingTimeWindowHistogramReservoir.binValue(index);
+
+            assertTrue(index >= 0);
+            assertTrue("bin value " + binValue + " too far from " + value,
+                    Math.abs((double) binValue - value) <= value / 8.0);
+        }
+    }
+
+    /**
+     * The metrics of one service (two counters and three histograms) over a 600 second window with 1 second
+     * buckets must stay small while idle and grow only by the buckets that get updates.
+     */
+    @Test
+    public void memoryFootprintDependsOnUsedBuckets() {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+
+        // warm up, so that class loading is not attributed to the measured allocations
+        createServiceMetrics();
+
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        SlidingTimeWindowHistogramReservoir[] reservoirs = createServiceMetrics();
+        long idle = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        assertTrue("Idle service metrics allocated " + idle + " bytes", idle < 32 * KB);
+
+        allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 10_000; i++) {
+            for (SlidingTimeWindowHistogramReservoir reservoir : reservoirs) {
+                reservoir.update(i);
+            }
+        }
+        long active = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        // one bucket per histogram
+        assertTrue("Updating one bucket per histogram allocated " + active + " bytes", active < 32 * KB);
+    }
+
+    /**
+     * A histogram with the default 600 second window and 10 second buckets that gets a few values in every bucket
+     * must stay well below the size of dense bins (about 4 KB per bucket), and the buckets reused by the next
+     * window must not allocate again.
+     */
+    @Test
+    public void memoryFootprintAcrossFullWindow() {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+
+        // warm up, so that class loading is not attributed to the measured allocations
+        fillWindow(new SlidingTimeWindowHistogramReservoir(600, 10, TimeUnit.SECONDS, clock));
+
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        SlidingTimeWindowHistogramReservoir reservoir =
+                new SlidingTimeWindowHistogramReservoir(600, 10, TimeUnit.SECONDS, clock);
+        fillWindow(reservoir);
+        long firstWindow = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        assertTrue("Filling the window allocated " + firstWindow + " bytes", firstWindow < 48 * KB);
+
+        allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        fillWindow(reservoir);
+        long secondWindow = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        assertTrue("Refilling the window allocated " + secondWindow + " bytes", secondWindow < 4 * KB);
+        assertEquals(600, reservoir.size());
+    }
+
+    private void fillWindow(SlidingTimeWindowHistogramReservoir reservoir) {
+        for (int bucket = 0; bucket < 60; bucket++) {
+            clock.advanceSeconds(10);
+            for (int i = 0; i < 10; i++) {
+                reservoir.update((i * 7919L) % 5000);
+            }
+        }
+    }
+
+    private SlidingTimeWindowHistogramReservoir[] createServiceMetrics() {
+        new SlidingTimeWindowCounter(600, 1, TimeUnit.SECONDS, clock);
+        new SlidingTimeWindowCounter(600, 1, TimeUnit.SECONDS, clock);
+
+        return new SlidingTimeWindowHistogramReservoir[] {
+                new SlidingTimeWindowHistogramReservoir(600, 1, TimeUnit.SECONDS, clock),
+                new SlidingTimeWindowHistogramReservoir(600, 1, TimeUnit.SECONDS, clock),
+                new SlidingTimeWindowHistogramReservoir(600, 1, TimeUnit.SECONDS, clock)
+        };
+    }
+}
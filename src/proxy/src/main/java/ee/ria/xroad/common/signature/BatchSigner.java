@@ -27,8 +27,13 @@ package ee.ria.xroad.common.signature;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.util.ProcessMetrics;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.signer.SignerProxy;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -41,7 +46,10 @@ import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -58,6 +66,9 @@ import static ee.ria.xroad.common.util.CryptoUtils.getDigestAlgorithmId;
  * Moreover, multiple signing requests for the same signing certificate
  * (and thus the same key id) are signed in batch and the resulting hash
  * chain is produced for each request.
+ * <p>
+ * Up to {@link SystemProperties#getBatchSignerMaxInFlight()} batches per key are sent to the signer concurrently,
+ * so that new requests can be collected into the next batch while the previous one is being signed.
  */
 @Slf4j
 public class BatchSigner {
@@ -68,6 +79,8 @@ public class BatchSigner {
 
     private final Map<String, WorkerImpl> workers = new ConcurrentHashMap<>();
 
+    private final ExecutorService signingExecutor = ThreadUtils.newCachedThreadPool("batch-signer");
+
     public static BatchSigner init() {
         instance = new BatchSigner();
         return instance;
@@ -76,6 +89,7 @@ public class BatchSigner {
     public void shutdown() {
         if (instance != null) {
             instance.workers.values().forEach(WorkerImpl::stop);
+            instance.signingExecutor.shutdown();
         }
     }
 
@@ -120,7 +134,7 @@ public class BatchSigner {
 
             return workers.computeIfAbsent(name, key -> {
                 log.trace("Creating new worker for cert '{}'", name);
-                return new WorkerImpl(signRequest.getKeyId());
+                return new WorkerImpl(name, signRequest.getKeyId(), signingExecutor);
             });
         } catch (Exception e) {
             throw new RuntimeException("Unable to get worker", e);
@@ -128,22 +142,42 @@ public class BatchSigner {
     }
 
     /**
-     * This is the worker that does the heavy lifting.
+     * This is the worker that does the heavy lifting. The worker thread collects the queued requests into
+     * batches and hands each batch over to the signing executor, as long as the in-flight limit allows.
      */
     private static class WorkerImpl {
 
         private final boolean batchSigningEnabled;
+        private final int maxBatchSize;
+        private final long lingerMillis;
+        private final Semaphore inFlight;
+        private final ExecutorService signingExecutor;
         private final BlockingQueue<SigningRequestWrapper> requestsQueue = new LinkedBlockingQueue<>();
-        private boolean stopping;
+        private volatile boolean stopping;
         private final Thread workerThread;
 
-        protected WorkerImpl(String keyId) {
+        private final Histogram batchSizes;
+        private final Timer queueWait;
+        private final Timer signerRtt;
+
+        protected WorkerImpl(String name, String keyId, ExecutorService signingExecutor) {
             try {
                 batchSigningEnabled = SignerProxy.isTokenBatchSigningEnabled(keyId);
             } catch (Exception e) {
                 log.error("Failed to query if batch signing is enabled for token with key {}", keyId, e);
                 throw new RuntimeException(e);
             }
+            int configuredBatchSize = SystemProperties.getBatchSignerMaxBatchSize();
+            maxBatchSize = configuredBatchSize > 0 ? configuredBatchSize : Integer.MAX_VALUE;
+            lingerMillis = Math.max(SystemProperties.getBatchSignerLingerMs(), 0);
+            inFlight = new Semaphore(Math.max(SystemProperties.getBatchSignerMaxInFlight(), 1));
+            this.signingExecutor = signingExecutor;
+
+            MetricRegistry metrics = ProcessMetrics.getMetrics();
+            batchSizes = metrics.histogram(MetricRegistry.name(BatchSigner.class, name, "batch-size"));
+            queueWait = metrics.timer(MetricRegistry.name(BatchSigner.class, name, "queue-wait"));
+            signerRtt = metrics.timer(MetricRegistry.name(BatchSigner.class, name, "signer-rtt"));
+
             workerThread = new Thread(this::process);
             workerThread.setDaemon(true);
             workerThread.start();
@@ -179,35 +213,30 @@ public class BatchSigner {
             return System.currentTimeMillis() - requestWrapper.getCreatedOn() > TIMEOUT_MILLIS;
         }
 
-        private synchronized void process() {
+        private void process() {
             while (!stopping) {
                 log.trace("polling queue");
                 List<SigningRequestWrapper> requests = new LinkedList<>();
                 try {
-                    SigningRequestWrapper first;
-                    do {
-                        first = requestsQueue.take();
-                    } while (isExpired(first));
-
-                    requests.add(first);
-                    if (batchSigningEnabled) {
-                        // poll all remaining
-                        requestsQueue.drainTo(requests);
-                    }
-
-                    log.trace("processing {} sign requests", requests.size());
-                    BatchSignatureCtx ctx = new BatchSignatureCtx(first.getKeyId(), first.getSignatureAlgorithmId());
-                    requests.stream()
-                            .filter(req -> !isExpired(req))
-                            .forEach(req -> ctx.add(req.getClientFuture(), req.getRequest()));
-
+                    // wait for an in-flight slot first, so that requests keep accumulating in the queue
+                    // while the previous batches are being signed
+                    inFlight.acquire();
                     try {
-                        byte[] digest = calculateDigest(getDigestAlgorithmId(ctx.getSignatureAlgorithmId()), ctx.getDataToBeSigned());
-                        final byte[] response = SignerProxy.sign(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest);
-                        sendSignatureResponse(ctx, response);
-                    } catch (Exception exception) {
-                        sendException(ctx, exception);
+                        SigningRequestWrapper first;
+                        do {
+                            first = requestsQueue.take();
+                        } while (isExpired(first));
+
+                        requests.add(first);
+                        if (batchSigningEnabled) {
+                            collectBatch(requests);
+                        }
+                    } catch (InterruptedException e) {
+                        inFlight.release();
+                        throw e;
                     }
+
+                    dispatch(requests.get(0), requests);
                 } catch (InterruptedException interruptedException) {
                     log.trace("queue polling interrupted");
                     Thread.currentThread().interrupt();
@@ -216,6 +245,69 @@ public class BatchSigner {
             log.trace("Worker thread stopped");
         }
 
+        private void collectBatch(List<SigningRequestWrapper> requests) throws InterruptedException {
+            requestsQueue.drainTo(requests, maxBatchSize - requests.size());
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            while (requests.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+
+                SigningRequestWrapper next = requestsQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                requests.add(next);
+                requestsQueue.drainTo(requests, maxBatchSize - requests.size());
+            }
+        }
+
+        private void dispatch(SigningRequestWrapper first, List<SigningRequestWrapper> requests) {
+            log.trace("processing {} sign requests", requests.size());
+            BatchSignatureCtx ctx = new BatchSignatureCtx(first.getKeyId(), first.getSignatureAlgorithmId());
+            long now = System.currentTimeMillis();
+            requests.stream()
+                    .filter(req -> !isExpired(req))
+                    .forEach(req -> {
+                        queueWait.update(now - req.getCreatedOn(), TimeUnit.MILLISECONDS);
+                        ctx.add(req.getClientFuture(), req.getRequest());
+                    });
+            if (ctx.getClients().isEmpty()) {
+                // all requests expired while the batch was being collected
+                inFlight.release();
+                return;
+            }
+            batchSizes.update(ctx.getClients().size());
+
+            try {
+                signingExecutor.execute(() -> {
+                    try {
+                        sign(ctx);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                sendException(ctx, e);
+            }
+        }
+
+        private void sign(BatchSignatureCtx ctx) {
+            try {
+                byte[] digest = calculateDigest(getDigestAlgorithmId(ctx.getSignatureAlgorithmId()), ctx.getDataToBeSigned());
+                final byte[] response;
+                try (Timer.Context ignored = signerRtt.time()) {
+                    response = SignerProxy.sign(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest);
+                }
+                sendSignatureResponse(ctx, response);
+            } catch (Exception exception) {
+                sendException(ctx, exception);
+            }
+        }
+
         protected void stop() {
             log.trace("stop()");
             this.stopping = true;
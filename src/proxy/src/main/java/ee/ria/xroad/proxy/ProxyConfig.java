@@ -27,11 +27,13 @@ package ee.ria.xroad.proxy;
 
 import ee.ria.xroad.common.opmonitoring.AbstractOpMonitoringBuffer;
 import ee.ria.xroad.common.signature.BatchSigner;
+import ee.ria.xroad.common.util.ProcessMetrics;
 import ee.ria.xroad.proxy.clientproxy.ClientProxy;
 import ee.ria.xroad.proxy.opmonitoring.OpMonitoring;
 import ee.ria.xroad.proxy.serverproxy.ServerProxy;
 import ee.ria.xroad.proxy.util.CertHashBasedOcspResponder;
 
+import com.codahale.metrics.jmx.JmxReporter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -47,6 +49,11 @@ import org.springframework.context.annotation.Import;
 @Configuration
 public class ProxyConfig {
 
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    JmxReporter metricsJmxReporter() {
+        return JmxReporter.forRegistry(ProcessMetrics.getMetrics()).inDomain("xroad.proxy").build();
+    }
+
     @Bean(destroyMethod = "shutdown")
     BatchSigner batchSigner() {
         return BatchSigner.init();
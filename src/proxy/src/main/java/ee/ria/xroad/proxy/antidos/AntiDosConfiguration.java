@@ -59,4 +59,12 @@ class AntiDosConfiguration {
     double getMaxHeapUsage() {
         return SystemProperties.getAntiDosMaxHeapUsage();
     }
+
+    /**
+     * @return the number of waiting connections processed in turn from a
+     * partner known from global configuration
+     */
+    int getKnownPartnerWeight() {
+        return SystemProperties.getAntiDosKnownPartnerWeight();
+    }
 }
@@ -36,18 +36,51 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages the incoming connections and prevents system resource exhaustion.
+ *
+ * Connections are accepted concurrently without a common lock and processed by a single consumer, which
+ * serves the partners with waiting connections in round-robin order. A partner known from global configuration
+ * may have up to {@link AntiDosConfiguration#getKnownPartnerWeight()} connections processed in its turn.
  */
 @Slf4j
 class AntiDosConnectionManager<T extends SocketChannelWrapper> {
 
     // Tiny wrapper class for active connections of a partner
     final class HostData {
-        final Deque<T> connections = new LinkedBlockingDeque<>();
+        final Deque<T> connections = new ConcurrentLinkedDeque<>();
+
+        // Set while the partner is in the buffer of active partners or being served by the consumer
+        final AtomicBoolean active = new AtomicBoolean();
+
+        // Number of connections processed in one turn
+        final int weight;
+
+        HostData(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    // Known partner addresses and their host data, valid for a global configuration version
+    final class AddressDatabase {
+        final long version;
+        final Set<String> addresses;
+        final Map<String, HostData> hosts;
+
+        AddressDatabase(long version, Set<String> addresses, Map<String, HostData> hosts) {
+            this.version = version;
+            this.addresses = addresses;
+            this.hosts = hosts;
+        }
+
+        HostData getHostData(String ip) {
+            HostData hostData = hosts.get(ip);
+            return hostData != null ? hostData : hosts.get(UNKNOWN_ORG_IP);
+        }
     }
 
     // The IP used for unknown members
@@ -56,16 +89,17 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     // Holds the configuration
     protected final AntiDosConfiguration configuration;
 
-    // IP to HostData mapping
-    protected Map<String, HostData> database = new HashMap<>();
+    // IP to HostData mapping, replaced when global configuration changes
+    protected volatile AddressDatabase database;
 
     // Buffer of partners with waiting connections
     protected LinkedBlockingQueue<HostData> activePartners =
             new LinkedBlockingQueue<>();
 
-    // Holds a cache of previously known member IPs.
-    // Used to determine if should sync the database when conf changed.
-    private Set<String> previousKnownOrganizations = new HashSet<>();
+    // The partner being served and the number of connections it may still
+    // have processed in its turn. Only accessed by the consumer.
+    private HostData currentPartner;
+    private int currentPartnerCredit;
 
     // Fallback cpu load value in cases where OS fails to properly respond.
     private double previousCpuLoad = 0d;
@@ -76,8 +110,10 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         }
 
         this.configuration = configuration;
-        this.previousKnownOrganizations.add(UNKNOWN_ORG_IP);
-        this.database.put(UNKNOWN_ORG_IP, new HostData());
+
+        Map<String, HostData> hosts = new HashMap<>();
+        hosts.put(UNKNOWN_ORG_IP, new HostData(1));
+        this.database = new AddressDatabase(Long.MIN_VALUE, Set.of(UNKNOWN_ORG_IP), hosts);
     }
 
     void init() throws Exception {
@@ -96,21 +132,24 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     }
 
     /**
-     * Adds the connection into the partner's connection queue.
+     * Adds the connection into the partner's connection queue. Safe to call
+     * from several threads.
      */
-    synchronized void accept(T connection) {
-        // We need to synchronize the database with the existing members.
-        syncDatabase();
+    void accept(T connection) {
+        AddressDatabase current = database;
+        if (current.version != GlobalConf.getVersion()) {
+            current = syncDatabase();
+        }
 
         // Find the host data for the incoming connection and register
         // the new connection to this host data
-        HostData currentPartner = getHostData(connection.getHostAddress());
-        currentPartner.connections.addFirst(connection);
+        HostData partner = current.getHostData(connection.getHostAddress());
+        partner.connections.addFirst(connection);
 
         // If the host data is not for an active partner,
         // add it to the connection buffer as the newest partner.
-        if (!activePartners.contains(currentPartner)) {
-            activePartners.add(currentPartner);
+        if (partner.active.compareAndSet(false, true)) {
+            activePartners.add(partner);
         }
     }
 
@@ -131,24 +170,26 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     }
 
     /**
-     * Retrieves the next connection to be processed. First, it checks that
-     * there are sufficient resources available (free file handles etc.).
-     * If not, then the connection is closed thus freeing some resources.
+     * Retrieves the next connection to be processed, blocking until a
+     * connection is available. First, it checks that there are sufficient
+     * resources available (free file handles etc.). If not, then the
+     * connection is closed thus freeing some resources and null is returned.
+     * Must be called from a single consumer thread.
      */
     protected T getNextConnection() throws InterruptedException {
-        // Take the oldest partner from the buffer (blocks until available).
-        HostData oldestPartner = activePartners.take();
+        T sock = null;
+        while (sock == null) {
+            if (currentPartner == null) {
+                // Take the oldest partner from the buffer (blocks until available).
+                currentPartner = activePartners.take();
+                currentPartnerCredit = currentPartner.weight;
+            }
 
-        // Take the oldest connection.
-        T sock = oldestPartner.connections.pollLast();
-        if (sock == null) {
-            return null;
-        }
+            // Take the oldest connection.
+            sock = currentPartner.connections.pollLast();
+            currentPartnerCredit--;
 
-        // If there are more connections left for this partner, add the partner
-        // back to the buffer as the first partner.
-        if (!oldestPartner.connections.isEmpty()) {
-            activePartners.add(oldestPartner);
+            endTurnIfDone();
         }
 
         // Processing a connection consumes file handles and other resources
@@ -166,6 +207,26 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         return null;
     }
 
+    private void endTurnIfDone() {
+        HostData partner = currentPartner;
+
+        if (partner.connections.isEmpty()) {
+            currentPartner = null;
+            partner.active.set(false);
+
+            // A connection may have been added before the flag was cleared,
+            // in that case the partner must stay active.
+            if (!partner.connections.isEmpty() && partner.active.compareAndSet(false, true)) {
+                activePartners.add(partner);
+            }
+        } else if (currentPartnerCredit <= 0) {
+            // If there are more connections left for this partner, add the
+            // partner back to the buffer as the newest partner.
+            currentPartner = null;
+            activePartners.add(partner);
+        }
+    }
+
     protected long getFreeFileDescriptorCount() {
         return SystemMetrics.getFreeFileDescriptorCount();
     }
@@ -190,41 +251,44 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         return SystemMetrics.getHeapUsage();
     }
 
-    private HostData getHostData(String ip) {
-        return database.containsKey(ip)
-                ? database.get(ip) : database.get(UNKNOWN_ORG_IP);
-    }
+    private synchronized AddressDatabase syncDatabase() {
+        AddressDatabase current = database;
+
+        // Read the version first, a reload during the sync is picked up on the next accept
+        long version = GlobalConf.getVersion();
+        if (current.version == version) {
+            return current;
+        }
 
-    private void syncDatabase() {
         Set<String> knownAddresses = getAllAddresses();
 
-        if (previousKnownOrganizations.equals(knownAddresses)) {
-            // Nothing has changed, do not sync.
-            return;
+        if (current.addresses.equals(knownAddresses)) {
+            // Nothing has changed, keep the existing host data.
+            database = new AddressDatabase(version, current.addresses, current.hosts);
+            return database;
         }
 
         Map<String, HostData> newDatabase = new HashMap<>();
 
-        // Retain existing members connections
-        database.keySet().stream()
-                .filter(knownAddresses::contains)
-                .forEach(existingAddress -> newDatabase.put(
-                        existingAddress, database.get(existingAddress)));
-
-        // Add new members
-        knownAddresses.stream()
-                .filter(knownAddress -> !database.containsKey(knownAddress))
-                .forEach(knownAddress ->
-                        registerHostData(newDatabase, knownAddress));
+        // Retain existing members connections, add new members
+        for (String knownAddress : knownAddresses) {
+            HostData existing = current.hosts.get(knownAddress);
+            if (existing != null) {
+                newDatabase.put(knownAddress, existing);
+            } else {
+                registerHostData(newDatabase, knownAddress);
+            }
+        }
 
-        previousKnownOrganizations = knownAddresses;
-        database = newDatabase;
+        database = new AddressDatabase(version, knownAddresses, newDatabase);
+        return database;
     }
 
     private void registerHostData(
             Map<String, HostData> newDatabase, String knownAddress) {
         log.trace("Registering HostData for " + knownAddress);
-        newDatabase.put(knownAddress, new HostData());
+        newDatabase.put(knownAddress, new HostData(
+                UNKNOWN_ORG_IP.equals(knownAddress) ? 1 : configuration.getKnownPartnerWeight()));
     }
 
     private boolean hasSufficientResources() {
@@ -251,11 +315,10 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         Set<String> addresses = new HashSet<>();
         try {
             addresses.addAll(GlobalConf.getKnownAddresses());
-        } catch (Exception ignored) {
-            // In case the conf was invalid, we do not sync. We should not
-            // log this exception, since this method might be
-            // called very frequently.
-            ignored.getClass(); //dummy code
+        } catch (Exception e) {
+            // In case the conf was invalid, all partners are treated as
+            // unknown until the configuration is reloaded.
+            log.warn("Unable to read known addresses from global configuration", e);
         }
 
         addresses.add(UNKNOWN_ORG_IP);
@@ -26,6 +26,7 @@
 package ee.ria.xroad.proxy.clientproxy;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.conf.serverconf.IsAuthenticationData;
 import ee.ria.xroad.common.identifier.ClientId;
@@ -42,6 +43,7 @@ import ee.ria.xroad.common.util.HttpSender;
 import ee.ria.xroad.common.util.MimeUtils;
 import ee.ria.xroad.common.util.RequestWrapper;
 import ee.ria.xroad.common.util.ResponseWrapper;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.proxy.conf.KeyConf;
 import ee.ria.xroad.proxy.messagelog.MessageLog;
 import ee.ria.xroad.proxy.protocol.ProxyMessage;
@@ -51,10 +53,13 @@ import ee.ria.xroad.proxy.protocol.ProxyMessageEncoder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.client.HttpClient;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.util.Arrays;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.net.URI;
@@ -63,9 +68,9 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INCONSISTENT_RESPONSE;
@@ -81,6 +86,8 @@ import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_ORIGINAL_CONTENT_TYPE;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_ORIGINAL_SOAP_ACTION;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_REQUEST_ID;
+import static ee.ria.xroad.common.util.MimeUtils.mpMixedContentType;
+import static ee.ria.xroad.common.util.MimeUtils.randomBoundary;
 import static ee.ria.xroad.common.util.TimeUtils.getEpochMillisecond;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
 
@@ -120,6 +127,20 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
      */
     private volatile CodedException executionException;
 
+    /**
+     * If true, the request SOAP is parsed, encoded and sent to the server
+     * proxy on the request thread without a separate SOAP handler thread.
+     */
+    private final boolean streaming = SystemProperties.isClientProxySoapStreamingPipelineEnabled();
+
+    /**
+     * Holds the request decoder and its callback while the request entity is
+     * streamed to the server proxy (streaming mode only).
+     */
+    private SoapMessageDecoder soapDecoder;
+    private SoapMessageHandler soapHandler;
+    private Map<String, String> requestSoapHeaders;
+
     /**
      * Holds the proxy message output stream and associated info.
      */
@@ -138,27 +159,18 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
      */
     private ProxyMessage response;
 
-    private static final ExecutorService SOAP_HANDLER_EXECUTOR =
-            createSoapHandlerExecutor();
-
-    private static ExecutorService createSoapHandlerExecutor() {
-        return Executors.newCachedThreadPool(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread handlerThread = new Thread(r);
-                handlerThread.setName(Thread.currentThread().getName() + "-soap");
+    private static final ExecutorService SOAP_HANDLER_EXECUTOR = ThreadUtils.newCachedThreadPool("soap-handler");
 
-                return handlerThread;
-            }
-        });
-    }
+    private static final ScheduledThreadPoolExecutor SOAP_READ_TIMER = createSoapReadTimer();
 
     ClientMessageProcessor(RequestWrapper request, ResponseWrapper response,
                            HttpClient httpClient, IsAuthenticationData clientCert, OpMonitoringData opMonitoringData)
             throws Exception {
         super(request, response, httpClient, clientCert, opMonitoringData);
-        this.reqIns = new PipedInputStream();
-        this.reqOuts = new PipedOutputStream(reqIns);
+        if (!streaming) {
+            this.reqIns = new PipedInputStream();
+            this.reqOuts = new PipedOutputStream(reqIns);
+        }
         this.xRequestId = UUID.randomUUID().toString();
     }
 
@@ -169,7 +181,15 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         opMonitoringData.setXRequestId(xRequestId);
         updateOpMonitoringClientSecurityServerAddress();
 
-        Future<?> soapHandler = SOAP_HANDLER_EXECUTOR.submit(this::handleSoap);
+        if (streaming) {
+            processStreaming();
+        } else {
+            processPiped();
+        }
+    }
+
+    private void processPiped() throws Exception {
+        Future<?> handlerTask = SOAP_HANDLER_EXECUTOR.submit(this::handleSoap);
 
         try {
             // Wait for the request SOAP message to be parsed before we can start sending stuff.
@@ -178,28 +198,14 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             // If the handler thread excepted, do not continue.
             checkError();
 
-            // Check that incoming identifiers do not contain illegal characters
-            checkRequestIdentifiers();
-
-            // Verify that the client is registered.
-            ClientId client = requestSoap.getClient();
-            verifyClientStatus(client);
-
-            // Check client authentication mode.
-            verifyClientAuthentication(client);
-
-            processRequest();
-
-            if (response != null) {
-                sendResponse();
-            }
+            processSoapRequest();
         } catch (Exception e) {
             if (reqIns != null) {
                 reqIns.close();
             }
 
             // Let's interrupt the handler thread so that it won't block forever waiting for us to do something.
-            soapHandler.cancel(true);
+            handlerTask.cancel(true);
 
             throw e;
         } finally {
@@ -209,6 +215,89 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         }
     }
 
+    private void processStreaming() throws Exception {
+        soapHandler = new SoapMessageHandler();
+        soapDecoder = new SoapMessageDecoder(jRequest.getContentType(), soapHandler, new SaxSoapParserImpl());
+
+        try {
+            // Read only the request SOAP message, the attachments are read
+            // while the request entity is written to the server proxy.
+            try {
+                originalSoapAction = validateSoapActionHeader(jRequest.getHeaders().get("SOAPAction"));
+            } catch (Exception ex) {
+                throw new ClientException(translateException(ex));
+            }
+            parseSoap();
+
+            if (requestSoap == null) {
+                throw new ClientException(X_MISSING_SOAP, "Request does not contain SOAP message");
+            }
+
+            processSoapRequest();
+        } finally {
+            soapHandler.close();
+
+            if (response != null) {
+                response.consume();
+            }
+        }
+    }
+
+    /**
+     * Reads the request SOAP message on the request thread. Like in the piped
+     * mode, the reading fails if the SOAP message has not been read within
+     * the timeout; the request thread is interrupted to stop a blocked read.
+     */
+    private void parseSoap() {
+        parseSoap(soapDecoder, jRequest.getInputStream(), WAIT_FOR_SOAP_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reads the SOAP message from the input stream with the given decoder on
+     * the current thread, interrupting the thread if the reading has not
+     * finished within the timeout. The interrupt flag is cleared before
+     * returning.
+     */
+    static void parseSoap(SoapMessageDecoder decoder, InputStream in, long timeout, TimeUnit unit) {
+        SoapReadTimeout readTimeout = new SoapReadTimeout(Thread.currentThread());
+        ScheduledFuture<?> timer = SOAP_READ_TIMER.schedule(readTimeout, timeout, unit);
+
+        Exception parseError = null;
+        try {
+            decoder.parseSoap(in);
+        } catch (Exception ex) {
+            parseError = ex;
+        } finally {
+            timer.cancel(false);
+        }
+
+        if (readTimeout.finish()) {
+            throw new CodedException(X_INTERNAL_ERROR, "Reading SOAP from request timed out");
+        }
+
+        if (parseError != null) {
+            throw new ClientException(translateException(parseError));
+        }
+    }
+
+    private void processSoapRequest() throws Exception {
+        // Check that incoming identifiers do not contain illegal characters
+        checkRequestIdentifiers();
+
+        // Verify that the client is registered.
+        ClientId client = requestSoap.getClient();
+        verifyClientStatus(client);
+
+        // Check client authentication mode.
+        verifyClientAuthentication(client);
+
+        processRequest();
+
+        if (response != null) {
+            sendResponse();
+        }
+    }
+
     private void checkRequestIdentifiers() {
         checkIdentifier(requestSoap.getClient());
         checkIdentifier(requestSoap.getService());
@@ -236,7 +325,9 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             sendRequest(httpSender);
 
             // Check for any errors from the handler thread once more.
-            waitForRequestSent();
+            if (!streaming) {
+                waitForRequestSent();
+            }
             checkError();
 
             parseResponse(httpSender);
@@ -259,7 +350,11 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             httpSender.addHeader(HEADER_REQUEST_ID, xRequestId);
 
             opMonitoringData.setRequestOutTs(getEpochMillisecond());
-            httpSender.doPost(getServiceAddress(addresses), reqIns, CHUNKED_LENGTH, outputContentType);
+            if (streaming) {
+                doPostStreaming(httpSender, getServiceAddress(addresses));
+            } else {
+                httpSender.doPost(getServiceAddress(addresses), reqIns, CHUNKED_LENGTH, outputContentType);
+            }
             opMonitoringData.setResponseInTs(getEpochMillisecond());
 
         } finally {
@@ -269,6 +364,19 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         }
     }
 
+    private void doPostStreaming(HttpSender httpSender, URI address) throws Exception {
+        String topBoundary = "xtop" + randomBoundary();
+
+        try {
+            httpSender.doPost(address, new SoapRequestEntity(topBoundary));
+        } catch (Exception e) {
+            // Report the original error if writing the request failed on our side.
+            checkError();
+
+            throw e;
+        }
+    }
+
     private void parseResponse(HttpSender httpSender) throws Exception {
         log.trace("parseResponse()");
 
@@ -461,6 +569,14 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
 
             updateOpMonitoringDataBySoapMessage(opMonitoringData, requestSoap);
 
+            if (streaming) {
+                // The request to the server proxy is not open yet, the SOAP
+                // part is encoded when the request entity is written.
+                requestSoapHeaders = headers;
+
+                return;
+            }
+
             if (request == null) {
                 request = new ProxyMessageEncoder(reqOuts, SoapUtils.getHashAlgoId());
                 outputContentType = request.getContentType();
@@ -534,6 +650,21 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             throw e;
         }
 
+        /**
+         * Starts encoding the request to the given output stream with the
+         * already parsed request SOAP message (streaming mode only).
+         */
+        private void startRequest(OutputStream out, String topBoundary) throws Exception {
+            request = new ProxyMessageEncoder(out, SoapUtils.getHashAlgoId(), topBoundary);
+
+            // In SSL mode, we need to send the OCSP response of our SSL cert.
+            if (isSslEnabled()) {
+                writeOcspResponses();
+            }
+
+            request.soap(requestSoap, requestSoapHeaders);
+        }
+
         private void writeOcspResponses() throws Exception {
             CertChain chain = KeyConf.getAuthKey().getCertChain();
             // exclude TopCA
@@ -552,8 +683,112 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
                 } catch (Exception e) {
                     setError(e);
                 }
+
+                request = null;
+            }
+        }
+    }
+
+    /**
+     * Request entity that encodes the request SOAP message and streams the
+     * remaining attachments from the client request directly to the server
+     * proxy connection (streaming mode only).
+     */
+    private final class SoapRequestEntity extends AbstractHttpEntity {
+
+        private final String topBoundary;
+
+        SoapRequestEntity(String topBoundary) {
+            super();
+            this.topBoundary = topBoundary;
+            setContentType(mpMixedContentType(topBoundary));
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public long getContentLength() {
+            return CHUNKED_LENGTH;
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void writeTo(OutputStream outstream) throws IOException {
+            try {
+                soapHandler.startRequest(outstream, topBoundary);
+
+                try {
+                    soapDecoder.parseAttachments();
+                } catch (Exception ex) {
+                    throw new ClientException(translateException(ex));
+                }
+            } catch (Exception ex) {
+                setError(ex);
+            } finally {
+                soapHandler.close();
+            }
+
+            if (executionException != null) {
+                // Abort the request, the server proxy must not receive an incomplete message.
+                throw new IOException("Failed to write request to server proxy", executionException);
             }
         }
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
+    }
+
+
+    private static ScheduledThreadPoolExecutor createSoapReadTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                ThreadUtils.threadFactory("soap-read-timeout"));
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(1, TimeUnit.MINUTES);
+        timer.allowCoreThreadTimeOut(true);
+        return timer;
     }
 
+    /**
+     * Interrupts the request thread if reading the request SOAP message takes
+     * too long (streaming mode only).
+     */
+    private static final class SoapReadTimeout implements Runnable {
+        private final Thread thread;
+        private boolean finished;
+        private boolean expired;
+
+        SoapReadTimeout(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!finished) {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Called by the request thread after reading, clears the interrupt
+         * caused by the timeout.
+         * @return true if the timeout expired before the reading finished
+         */
+        synchronized boolean finish() {
+            finished = true;
+            if (expired) {
+                Thread.interrupted();
+            }
+            return expired;
+        }
+    }
 }
@@ -28,6 +28,7 @@ package ee.ria.xroad.proxy.clientproxy;
 import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.db.HibernateUtil;
 import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.JettyUtils;
 import ee.ria.xroad.common.util.StartStop;
 import ee.ria.xroad.proxy.serverproxy.IdleConnectionMonitorThread;
 import ee.ria.xroad.proxy.util.SSLContextUtil;
@@ -116,6 +117,7 @@ public class ClientProxy implements StartStop {
 
         log.debug("Configuring server from {}", file);
         new XmlConfiguration(ResourceFactory.root().newResource(file)).configure(server);
+        JettyUtils.configureVirtualThreads(server);
 
         final var writer = new Slf4jRequestLogWriter();
         writer.setLoggerName(getClass().getPackage().getName() + ".RequestLog");
@@ -329,8 +329,7 @@ public class ProxyMessageDecoder {
         try {
             LOG.trace("Looking for OCSP, got: {} {}", bd.getMimeType(),
                     bd.getCharset());
-            byte[] buffer = IOUtils.toByteArray(is);
-            OCSPResp response = new OCSPResp(buffer);
+            OCSPResp response = new OCSPResp(is);
             callback.ocspResponse(response);
         } catch (Exception ex) {
             throw translateException(ex);
@@ -546,9 +546,13 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
             messageEncoder.restResponse(restResponse);
 
             if (response.getEntity() != null) {
-                restResponseBody = new CachingStream();
-                TeeInputStream tee = new TeeInputStream(response.getEntity().getContent(), restResponseBody);
-                messageEncoder.restBody(tee);
+                if (MessageLog.isBodyLogged(requestProxyMessage.getRest().getServiceId(), false)) {
+                    restResponseBody = new CachingStream();
+                    TeeInputStream tee = new TeeInputStream(response.getEntity().getContent(), restResponseBody);
+                    messageEncoder.restBody(tee);
+                } else {
+                    messageEncoder.restBody(response.getEntity().getContent());
+                }
                 EntityUtils.consume(response.getEntity());
             }
 
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.antidos;
+
+import ee.ria.xroad.common.conf.globalconf.EmptyGlobalConf;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the connection manager with 1000 partners connecting from several threads, both at a rate of
+ * 50000 connections per second and as fast as possible.
+ */
+@Slf4j
+public final class AntiDosConnectionManagerBenchmark {
+    private static final int PARTNERS = 1000;
+    private static final int PRODUCERS = 4;
+    private static final int CONNECTIONS_PER_SECOND = 50_000;
+    private static final int SECONDS = 5;
+
+    private AntiDosConnectionManagerBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        Set<String> addresses = new HashSet<>();
+        for (int i = 0; i < PARTNERS; i++) {
+            addresses.add(address(i));
+        }
+
+        GlobalConf.reload(new EmptyGlobalConf() {
+            @Override
+            public Set<String> getKnownAddresses() {
+                return addresses;
+            }
+        });
+
+        // Warmup
+        run(0, false);
+
+        run(CONNECTIONS_PER_SECOND, true);
+        run(0, true);
+    }
+
+    private static void run(int connectionsPerSecond, boolean report) throws Exception {
+        BenchmarkConnectionManager manager = new BenchmarkConnectionManager();
+        manager.init();
+
+        int total = CONNECTIONS_PER_SECOND * SECONDS;
+        long interval = connectionsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / connectionsPerSecond : 0;
+        LongAdder acceptNanos = new LongAdder();
+
+        long start = System.nanoTime();
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                for (int i = producer; i < total; i += PRODUCERS) {
+                    LockSupport.parkNanos(start + i * interval - System.nanoTime());
+
+                    long acceptStart = System.nanoTime();
+                    // Every tenth connection comes from an unknown address
+                    manager.accept(new BenchmarkConnection(i % 10 == 0 ? "unknown" + i : address(i % PARTNERS),
+                            acceptStart));
+                    acceptNanos.add(System.nanoTime() - acceptStart);
+                }
+            });
+            producers[p].start();
+        }
+
+        long waitNanos = 0;
+        long maxWaitNanos = 0;
+        for (int i = 0; i < total; i++) {
+            BenchmarkConnection connection = manager.takeNextConnection();
+            long wait = System.nanoTime() - connection.acceptedAt;
+            waitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+        }
+        long nanos = System.nanoTime() - start;
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        if (report) {
+            log.info("{}: {} connections/s, accept {} ns, wait in queue avg {} us, max {} us",
+                    connectionsPerSecond > 0 ? connectionsPerSecond + " offered" : "unlimited",
+                    total * TimeUnit.SECONDS.toNanos(1) / nanos, acceptNanos.sum() / total,
+                    TimeUnit.NANOSECONDS.toMicros(waitNanos / total), TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+        }
+    }
+
+    private static String address(int partner) {
+        return "10.0." + partner / 256 + "." + partner % 256;
+    }
+
+    private static final class BenchmarkConnection implements SocketChannelWrapper {
+        private final String address;
+        private final long acceptedAt;
+
+        BenchmarkConnection(String address, long acceptedAt) {
+            this.address = address;
+            this.acceptedAt = acceptedAt;
+        }
+
+        @Override
+        public String getHostAddress() {
+            return address;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+
+    private static final class BenchmarkConnectionManager extends AntiDosConnectionManager<BenchmarkConnection> {
+        BenchmarkConnectionManager() {
+            super(new AntiDosConfiguration());
+        }
+
+        @Override
+        protected long getFreeFileDescriptorCount() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        protected double getCpuLoad() {
+            return 0;
+        }
+
+        @Override
+        protected double getHeapUsage() {
+            return 0;
+        }
+    }
+}
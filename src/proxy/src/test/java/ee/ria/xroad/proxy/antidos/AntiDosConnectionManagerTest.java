@@ -31,9 +31,15 @@ import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -158,6 +164,126 @@ public class AntiDosConnectionManagerTest {
         cm.assertEmpty();
     }
 
+    /**
+     * Test to ensure known members get connections processed according to their weight.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void knownMembersAreServedByWeight() throws Exception {
+        TestConfiguration conf = new TestConfiguration(5, 1.1) {
+            @Override
+            int getKnownPartnerWeight() {
+                return 2;
+            }
+        };
+
+        TestSystemMetrics sm = new TestSystemMetrics();
+        sm.addLoad(7, 0.1);
+
+        TestSocketChannel member1 = createConnection("test1");
+        TestSocketChannel member2 = createConnection("test2");
+
+        TestSocketChannel attacker1 = createConnection("attacker1");
+        TestSocketChannel attacker2 = createConnection("attacker2");
+
+        TestConnectionManager cm = createConnectionManager(conf, sm);
+
+        cm.accept(member1, member1, member1, attacker1, attacker2, member2);
+
+        // Unknown addresses share a single partner with weight 1
+        cm.assertConnections(
+                member1,
+                member1,
+                attacker1,
+                member2,
+                member1,
+                attacker2);
+
+        cm.assertEmpty();
+    }
+
+    /**
+     * Test to ensure addresses added to global configuration are recognized after a reload.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void addressesAreSyncedOnGlobalConfReload() throws Exception {
+        TestConfiguration conf = new TestConfiguration(5, 1.1);
+
+        TestSystemMetrics sm = new TestSystemMetrics();
+        sm.addLoad(7, 0.1);
+
+        TestSocketChannel newMember = createConnection("test4");
+        TestSocketChannel attacker1 = createConnection("attacker1");
+
+        TestConnectionManager cm = createConnectionManager(conf, sm);
+
+        try {
+            cm.accept(newMember, attacker1);
+
+            Set<String> addresses = new HashSet<>(KNOWN_ADDRESSES);
+            addresses.add("test4");
+            GlobalConf.reload(new EmptyGlobalConf() {
+                @Override
+                public Set<String> getKnownAddresses() {
+                    return addresses;
+                }
+            });
+
+            cm.accept(newMember);
+
+            // The second connection of the new member does not wait behind attacker1
+            cm.assertConnections(newMember, newMember, attacker1);
+
+            cm.assertEmpty();
+        } finally {
+            reloadGlobalConf();
+        }
+    }
+
+    /**
+     * Test to ensure no connections are lost when accepting from several threads.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void concurrentAccept() throws Exception {
+        TestConfiguration conf = new TestConfiguration(5, 1.1);
+
+        TestSystemMetrics sm = new TestSystemMetrics();
+        sm.addLoad(7, 0.1);
+
+        TestConnectionManager cm = createConnectionManager(conf, sm);
+
+        int threads = 4;
+        int connectionsPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < connectionsPerThread; j++) {
+                        cm.accept(createConnection(j % 2 == 0 ? "test" + (j % 3 + 1) : "attacker" + j));
+                    }
+                }));
+            }
+
+            int processed = 0;
+            while (processed < threads * connectionsPerThread) {
+                cm.getNextConnection();
+                processed++;
+            }
+
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        cm.assertEmpty();
+        assertEquals(0, cm.numWaitingConnections());
+    }
+
     // ------------------------------------------------------------------------
 
     private static TestConnectionManager createConnectionManager(
@@ -60,6 +60,12 @@ class TestConnectionManager
         return activePartners.size();
     }
 
+    int numWaitingConnections() {
+        return database.hosts.values().stream()
+                .mapToInt(hostData -> hostData.connections.size())
+                .sum();
+    }
+
     void accept(TestSocketChannel... connections) {
         for (TestSocketChannel connection : connections) {
             accept(connection);
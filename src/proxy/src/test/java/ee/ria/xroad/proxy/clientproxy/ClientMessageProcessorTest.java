@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+package ee.ria.xroad.proxy.clientproxy;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.message.SaxSoapParserImpl;
+import ee.ria.xroad.common.message.SoapFault;
+import ee.ria.xroad.common.message.SoapMessage;
+import ee.ria.xroad.common.message.SoapMessageDecoder;
+import ee.ria.xroad.common.util.MimeTypes;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
+import static ee.ria.xroad.proxy.testsuite.MessageTestCase.QUERIES_DIR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests reading the request SOAP message on the request thread in the
+ * streaming mode of ClientMessageProcessor.
+ */
+public class ClientMessageProcessorTest {
+
+    @After
+    public void clearInterrupt() {
+        // Do not leak an interrupt to the other tests if an assertion fails.
+        Thread.interrupted();
+    }
+
+    @Test
+    public void parseSoapWithinTimeout() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(MimeTypes.TEXT_XML_UTF8, callback,
+                new SaxSoapParserImpl());
+
+        try (InputStream in = new FileInputStream(QUERIES_DIR + "/getstate.query")) {
+            ClientMessageProcessor.parseSoap(decoder, in, 30, TimeUnit.SECONDS);
+        }
+
+        assertNotNull(callback.soap);
+        assertNull(callback.error);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void parseSoapTimesOutAndClearsInterrupt() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(MimeTypes.TEXT_XML_UTF8, callback,
+                new SaxSoapParserImpl());
+
+        // Nothing is ever written to the pipe, so reading blocks until the thread is interrupted.
+        try (PipedOutputStream out = new PipedOutputStream(); InputStream in = new PipedInputStream(out)) {
+            ClientMessageProcessor.parseSoap(decoder, in, 100, TimeUnit.MILLISECONDS);
+            fail("Reading SOAP should have timed out");
+        } catch (CodedException expected) {
+            assertEquals(X_INTERNAL_ERROR, expected.getFaultCode());
+            assertEquals("Reading SOAP from request timed out", expected.getFaultString());
+        }
+
+        assertNull(callback.soap);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static final class RecordingCallback implements SoapMessageDecoder.Callback {
+        private SoapMessage soap;
+        private Exception error;
+
+        @Override
+        public void soap(SoapMessage message, Map<String, String> additionalHeaders) {
+            soap = message;
+        }
+
+        @Override
+        public void attachment(String contentType, InputStream content, Map<String, String> additionalHeaders) {
+            // Requests in these tests do not have attachments.
+        }
+
+        @Override
+        public void fault(SoapFault fault) {
+            error = fault.toCodedException();
+        }
+
+        @Override
+        public void onCompleted() {
+            // Nothing to do.
+        }
+
+        @Override
+        public void onError(Exception t) {
+            error = t;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.protocol;
+
+import ee.ria.xroad.common.message.SoapFault;
+import ee.ria.xroad.common.message.SoapMessageImpl;
+import ee.ria.xroad.common.signature.SignatureData;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.MimeUtils;
+
+import com.sun.management.ThreadMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time and heap allocation of decoding proxy messages with 1 MB to 1 GB attachments.
+ */
+@Slf4j
+public final class ProxyMessageDecoderBenchmark {
+    private static final long MB = 1024 * 1024;
+    private static final long[] ATTACHMENT_SIZES = {MB, 10 * MB, 100 * MB, 1024 * MB};
+
+    private ProxyMessageDecoderBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Warmup
+        for (int i = 0; i < 10; i++) {
+            decode(threadBean, 10 * MB, false);
+        }
+
+        for (long size : ATTACHMENT_SIZES) {
+            decode(threadBean, size, true);
+        }
+    }
+
+    private static void decode(ThreadMXBean threadBean, long size, boolean report) throws Exception {
+        ProxyMessageDecoder decoder = new ProxyMessageDecoder(new DiscardingConsumer(),
+                MimeUtils.mpMixedContentType("xtop569125687hcu8vfma"), true, CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID);
+        InputStream message = ProxyMessageDecoderTest.attachmentMessage(size);
+
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        decoder.parse(message);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        if (report) {
+            log.info("{} MB attachment: {} ms, {} MB/s, allocated {} KB", size / MB,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), size * TimeUnit.SECONDS.toNanos(1) / elapsed / MB,
+                    allocated / 1024);
+        }
+    }
+
+    private static final class DiscardingConsumer implements ProxyMessageConsumer {
+        @Override
+        public void soap(SoapMessageImpl message, Map<String, String> additionalHeaders) {
+        }
+
+        @Override
+        public void restBody(InputStream content) {
+        }
+
+        @Override
+        public void attachment(String contentType, InputStream content, Map<String, String> additionalHeaders)
+                throws Exception {
+            IOUtils.consume(content);
+        }
+
+        @Override
+        public void ocspResponse(OCSPResp resp) {
+        }
+
+        @Override
+        public void signature(SignatureData signature) {
+        }
+
+        @Override
+        public void fault(SoapFault fault) {
+        }
+    }
+}
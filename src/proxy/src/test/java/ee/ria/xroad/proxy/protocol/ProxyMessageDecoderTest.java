@@ -35,16 +35,29 @@ import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.MimeTypes;
 import ee.ria.xroad.common.util.MimeUtils;
 
+import com.sun.management.ThreadMXBean;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.NullInputStream;
 import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -55,6 +68,12 @@ import static org.junit.Assert.assertTrue;
  */
 public class ProxyMessageDecoderTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ProxyMessageDecoderTest.class);
+
+    private static final long MB = 1024 * 1024;
+    private static final long LARGE_ATTACHMENT_SIZE = 16 * MB;
+    private static final long MAX_ALLOCATION_GROWTH = MB;
+
     DummyMessageConsumer callback;
 
     /**
@@ -113,6 +132,53 @@ public class ProxyMessageDecoderTest {
         assertNotNull(callback.getSignature());
     }
 
+    /**
+     * Test to ensure large attachments are streamed through the decoder and not buffered in memory.
+     * Heap allocated while decoding must not grow with the attachment size.
+     * See {@link ProxyMessageDecoderBenchmark} for larger attachments.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void largeAttachmentsAreStreamed() throws Exception {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+
+        // warm up, so that one-time allocations are not attributed to the first measured run
+        decodeAttachment(threadBean, MB);
+
+        long smallAllocation = decodeAttachment(threadBean, MB);
+        long largeAllocation = decodeAttachment(threadBean, LARGE_ATTACHMENT_SIZE);
+
+        assertTrue("Allocated " + largeAllocation + " bytes for " + LARGE_ATTACHMENT_SIZE
+                        + " byte attachment, " + smallAllocation + " bytes for " + MB + " byte attachment",
+                largeAllocation < smallAllocation + MAX_ALLOCATION_GROWTH);
+    }
+
+    private long decodeAttachment(ThreadMXBean threadBean, long size) throws Exception {
+        ProxyMessageDecoder decoder = createDecoder(MimeUtils.mpMixedContentType("xtop569125687hcu8vfma"));
+        InputStream message = attachmentMessage(size);
+
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        decoder.parse(message);
+        long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        LOG.info("Decoded {} byte attachment, allocated {} bytes", size, allocated);
+
+        assertEquals(size, decoder.getAttachmentsByteCount());
+        assertNotNull(callback.getSignature());
+        return allocated;
+    }
+
+    static InputStream attachmentMessage(long attachmentSize) throws Exception {
+        String[] template = new String(Files.readAllBytes(Paths.get("src/test/proxymessages/attachment.request")),
+                StandardCharsets.UTF_8).split("blaah", 2);
+
+        return new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(template[0].getBytes(StandardCharsets.UTF_8)),
+                new NullInputStream(attachmentSize),
+                new ByteArrayInputStream(template[1].getBytes(StandardCharsets.UTF_8)))));
+    }
+
     /**
      * Test to ensure a request with OCSP responses is decoded correctly.
      * @throws Exception in case of any unexpected errors
@@ -342,6 +408,7 @@ public class ProxyMessageDecoderTest {
         public void attachment(String contentType, InputStream content,
                                Map<String, String> additionalHeaders) throws Exception {
             this.hasAttachments = true;
+            IOUtils.consume(content);
         }
 
         @Override
@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+package ee.ria.xroad.proxy.testsuite.testcases;
+
+/**
+ * Normal message and normal response with the client proxy SOAP streaming
+ * pipeline enabled, the request SOAP is read, encoded and sent to the server
+ * proxy on the request thread. The property is read again for every request
+ * handled by the client proxy.
+ * Result: client receives message.
+ */
+public class StreamingNormalMessage extends NormalMessage {
+
+    static final String STREAMING_PROPERTY = "xroad.proxy.client-soap-streaming-pipeline-enabled";
+
+    /**
+     * Enables the streaming pipeline, runs getstate.query request and restores the setting.
+     * @throws Exception
+     */
+    @Override
+    public void execute() throws Exception {
+        String original = System.getProperty(STREAMING_PROPERTY);
+        try {
+            System.setProperty(STREAMING_PROPERTY, "true");
+            super.execute();
+        } finally {
+            restoreProperty(original);
+        }
+    }
+
+    static void restoreProperty(String original) {
+        if (original == null) {
+            System.clearProperty(STREAMING_PROPERTY);
+        } else {
+            System.setProperty(STREAMING_PROPERTY, original);
+        }
+    }
+}
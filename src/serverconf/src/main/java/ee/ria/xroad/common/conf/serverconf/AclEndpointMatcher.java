@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.serverconf;
+
+import ee.ria.xroad.common.conf.serverconf.model.EndpointType;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compiled access rights of a client to a service.
+ *
+ * The endpoints are indexed by method (case-insensitively); within a method, plain paths are kept in a set and
+ * path globs are compiled to token lists matched in place with the same semantics as the {@link PathGlob} regular
+ * expressions. Deciding whether a request is allowed does not allocate, except for paths containing '?', which
+ * {@link PathGlob} passes to the regular expression as a quantifier and which are therefore matched by PathGlob.
+ */
+public final class AclEndpointMatcher {
+
+    private static final AclEndpointMatcher EMPTY = new AclEndpointMatcher(Collections.emptyList());
+
+    @Getter
+    private final List<EndpointType> endpoints;
+    private final Rules anyMethod = new Rules();
+    private final Map<String, Rules> byMethod = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private AclEndpointMatcher(List<EndpointType> endpoints) {
+        this.endpoints = endpoints;
+        for (EndpointType endpoint : endpoints) {
+            final Rules rules = EndpointType.ANY_METHOD.equals(endpoint.getMethod())
+                    ? anyMethod
+                    : byMethod.computeIfAbsent(endpoint.getMethod(), m -> new Rules());
+            rules.add(endpoint.getPath());
+        }
+    }
+
+    /**
+     * Compiles the given access right endpoints.
+     * @param endpoints endpoints the client has access to
+     * @return compiled matcher
+     */
+    public static AclEndpointMatcher compile(List<EndpointType> endpoints) {
+        if (endpoints.isEmpty()) {
+            return EMPTY;
+        }
+        return new AclEndpointMatcher(Collections.unmodifiableList(new ArrayList<>(endpoints)));
+    }
+
+    public boolean isEmpty() {
+        return endpoints.isEmpty();
+    }
+
+    /**
+     * Equivalent of testing {@link EndpointType#matches(String, String)} for each endpoint, except that
+     * a <code>null</code> path only matches the endpoints allowing any path.
+     * @param method request method
+     * @param path normalized request path
+     * @return true if any of the endpoints matches the request
+     */
+    public boolean matches(String method, String path) {
+        if (anyMethod.matches(path)) {
+            return true;
+        }
+        if (method == null) {
+            return false;
+        }
+        final Rules rules = byMethod.get(method);
+        return rules != null && rules.matches(path);
+    }
+
+    private static final class Rules {
+        private boolean anyPath;
+        private final Set<String> paths = new HashSet<>();
+        private final List<Glob> globs = new ArrayList<>();
+        private final List<String> pathGlobs = new ArrayList<>();
+
+        void add(String path) {
+            if (EndpointType.ANY_PATH.equals(path)) {
+                anyPath = true;
+            } else if (path.indexOf('?') != -1) {
+                pathGlobs.add(path);
+            } else if (path.indexOf('*') == -1 && path.indexOf('\\') == -1) {
+                paths.add(path);
+            } else {
+                globs.add(Glob.compile(path));
+            }
+        }
+
+        @SuppressWarnings("ForLoopReplaceableByForEach")
+        boolean matches(String path) {
+            if (anyPath) {
+                return true;
+            }
+            if (path == null) {
+                return false;
+            }
+            if (paths.contains(path)) {
+                return true;
+            }
+            // indexed loop, avoids creating an iterator
+            for (int i = 0; i < globs.size(); i++) {
+                if (globs.get(i).matches(path)) {
+                    return true;
+                }
+            }
+            for (int i = 0; i < pathGlobs.size(); i++) {
+                if (PathGlob.matches(pathGlobs.get(i), path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Path glob compiled to literal, '*' and '**' tokens. A '*' consumes the rest of the path segment without
+     * backtracking (like the possessive quantifier in the PathGlob pattern), a '**' matches any number of
+     * characters other than line terminators.
+     */
+    static final class Glob {
+        private static final String STAR = "*";
+        private static final String GLOBSTAR = "**";
+
+        // literal tokens are compared by value, wildcard tokens by identity
+        private final String[] tokens;
+
+        private Glob(String[] tokens) {
+            this.tokens = tokens;
+        }
+
+        @SuppressWarnings("squid:S3776")
+        static Glob compile(String glob) {
+            final List<String> tokens = new ArrayList<>();
+            final StringBuilder literal = new StringBuilder();
+            int i = 0;
+            while (i < glob.length()) {
+                final char ch = glob.charAt(i++);
+                if (ch == '\\') {
+                    if (i < glob.length() && (glob.charAt(i) == '*' || glob.charAt(i) == '\\')) {
+                        literal.append(glob.charAt(i++));
+                    } else {
+                        literal.append(ch);
+                    }
+                } else if (ch == '*') {
+                    if (!literal.isEmpty()) {
+                        tokens.add(literal.toString());
+                        literal.setLength(0);
+                    }
+                    if (i < glob.length() && glob.charAt(i) == '*') {
+                        while (i < glob.length() && glob.charAt(i) == '*') {
+                            i++;
+                        }
+                        tokens.add(GLOBSTAR);
+                    } else {
+                        tokens.add(STAR);
+                    }
+                } else {
+                    literal.append(ch);
+                }
+            }
+            if (!literal.isEmpty()) {
+                tokens.add(literal.toString());
+            }
+            return new Glob(tokens.toArray(new String[0]));
+        }
+
+        boolean matches(String path) {
+            return matches(path, 0, 0);
+        }
+
+        @SuppressWarnings("StringEquality")
+        private boolean matches(String path, int pos, int token) {
+            int p = pos;
+            for (int t = token; t < tokens.length; t++) {
+                final String tok = tokens[t];
+                if (tok == GLOBSTAR) {
+                    for (int end = lineEnd(path, p); end >= p; end--) {
+                        if (matches(path, end, t + 1)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                } else if (tok == STAR) {
+                    final int slash = path.indexOf('/', p);
+                    p = slash == -1 ? path.length() : slash;
+                } else {
+                    if (!path.startsWith(tok, p)) {
+                        return false;
+                    }
+                    p += tok.length();
+                }
+            }
+            return p == path.length();
+        }
+
+        // a '**' stops at a line terminator, like '.' in the PathGlob pattern
+        private static int lineEnd(String path, int from) {
+            for (int i = from; i < path.length(); i++) {
+                switch (path.charAt(i)) {
+                    case '\n', '\r', '\u0085', '\u2028', '\u2029':
+                        return i;
+                    default:
+                        break;
+                }
+            }
+            return path.length();
+        }
+    }
+}
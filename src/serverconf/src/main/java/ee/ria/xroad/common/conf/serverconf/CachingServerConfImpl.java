@@ -64,7 +64,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
     private volatile SecurityServerId.Conf serverId;
     private final Cache<Object, List<String>> tspCache;
     private final Cache<ServiceId, Optional<ServiceType>> serviceCache;
-    private final Cache<AclCacheKey, List<EndpointType>> aclCache;
+    private final Cache<AclCacheKey, AclEndpointMatcher> aclCache;
     private final Cache<ClientId, Optional<ClientType>> clientCache;
     private final Cache<String, InternalSSLKey> internalKeyCache;
 
@@ -100,7 +100,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
                 .build();
 
         aclCache = CacheBuilder.newBuilder()
-                .weigher((AclCacheKey k, List<EndpointType> v) -> v.size() + 1)
+                .weigher((AclCacheKey k, AclEndpointMatcher v) -> v.getEndpoints().size() + 1)
                 .maximumWeight(SystemProperties.getServerConfAclCacheSize())
                 .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
@@ -213,6 +213,11 @@ public class CachingServerConfImpl extends ServerConfImpl {
 
     @Override
     protected List<EndpointType> getAclEndpoints(Session session, ClientId client, ServiceId service) {
+        return getAcl(session, client, service).getEndpoints();
+    }
+
+    @Override
+    protected AclEndpointMatcher getAcl(Session session, ClientId client, ServiceId service) {
         final AclCacheKey key = new AclCacheKey(client, service);
         try {
             /*
@@ -220,13 +225,13 @@ public class CachingServerConfImpl extends ServerConfImpl {
              * transaction simply joins the current one. However, this is not explicitly promised by the API,
              * so we start a transaction if necessary.
              */
-            return aclCache.get(key, () -> tx(s -> super.getAclEndpoints(s, client, service)));
+            return aclCache.get(key, () -> tx(s -> super.getAcl(s, client, service)));
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
             }
             log.debug("Failed get list of endpoints", e);
-            return Collections.emptyList();
+            return AclEndpointMatcher.compile(Collections.emptyList());
         }
     }
 
@@ -272,6 +277,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
     public void clearCache() {
         log.info("Clearing configuration cache");
         internalKeyCache.invalidateAll();
+        aclCache.invalidateAll();
     }
 
 
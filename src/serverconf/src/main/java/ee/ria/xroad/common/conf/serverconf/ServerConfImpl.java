@@ -412,8 +412,14 @@ public class ServerConfImpl implements ServerConfProvider {
         } else {
             normalizedPath = UriUtils.uriPathPercentDecode(URI.create(path).normalize().getRawPath(), true);
         }
-        return getAclEndpoints(session, client, service).stream()
-                .anyMatch(ep -> ep.matches(method, normalizedPath));
+        return getAcl(session, client, service).matches(method, normalizedPath);
+    }
+
+    /**
+     * Returns the compiled access rights of the client to the service.
+     */
+    protected AclEndpointMatcher getAcl(Session session, ClientId client, ServiceId service) {
+        return AclEndpointMatcher.compile(findAclEndpoints(session, client, service));
     }
 
     /**
@@ -422,6 +428,10 @@ public class ServerConfImpl implements ServerConfProvider {
      * Includes only endpoints the client has a direct acl entry for, does not check for implicitly allowed endpoints.
      */
     protected List<EndpointType> getAclEndpoints(Session session, ClientId client, ServiceId service) {
+        return findAclEndpoints(session, client, service);
+    }
+
+    private List<EndpointType> findAclEndpoints(Session session, ClientId client, ServiceId service) {
         log.debug("getAcl, session = {}", session);
 
         final ClientType serviceOwner = getClient(session, service.getClientId());
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.conf;
+
+import ee.ria.xroad.common.conf.serverconf.AclEndpointMatcher;
+import ee.ria.xroad.common.conf.serverconf.PathGlob;
+import ee.ria.xroad.common.conf.serverconf.model.EndpointType;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AclEndpointMatcher Unit Tests
+ */
+public class AclEndpointMatcherTest {
+
+    private static final String[] GLOBS = {
+            "**", "***", "/*/", "", ".^$+{[]|()", "**/bar/**", "**\\*", "simple", "**/*/**", "\\A", "\\*",
+            "\\\\", "aa\\", "/api/*", "/api/**", "/api/*/items", "/api/**/items", "/api/*.json", "/api/a*b*c",
+            "/api/**x**y", "/api/test", "/foo?", "/api/items?x", "/api/**/x?y", "a??"
+    };
+
+    private static final String[] PATHS = {
+            "", " ", "/", "//", "/a/", "/a/b/", "/a/b/c", "match/anything/*", ".^$+{[]|()", "a/b/c/bar/e/f",
+            "a/b/c/foo/e/f", "/what/ever*", "/what/ever!", "simple", "prefix.simple.suffix",
+            "something/bar/something/else", "/bar/", "something/else", "\\A", "*", "\\*", "\\", "aa\\", "/api",
+            "/api/", "/api/test", "/api/test/", "/api/test/items", "/api/a/b/items", "/api/items", "/api/x.json",
+            "/api/abc", "/api/axbyc", "/api/q/x/y", "/api/xy", "\n", "/api/\n", "/api/a\nb", "/api/a\r/items",
+            "/api/\u0085", "/api/a\u2028b", "/api/a\u2029b", "\n/bar/\n", "/api/x\ny",
+            "/fo", "/foo", "/foo?", "/api/item", "/api/itemsx", "/api/items?x", "/api/b/xy", "/api/b/xxy", "a", "a?"
+    };
+
+    @Test
+    public void shouldMatchLikePathGlob() {
+        for (String glob : GLOBS) {
+            final AclEndpointMatcher matcher = AclEndpointMatcher.compile(List.of(endpoint("GET", glob)));
+            for (String path : PATHS) {
+                assertEquals("<" + glob + "> matches <" + path + ">",
+                        endpoint("GET", glob).matches("GET", path), matcher.matches("GET", path));
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotMatchLineTerminatorsWithGlobstar() {
+        final AclEndpointMatcher matcher = AclEndpointMatcher.compile(List.of(endpoint("GET", "/api/**")));
+
+        assertTrue(matcher.matches("GET", "/api/foo/bar"));
+        assertFalse(matcher.matches("GET", "/api/foo\n"));
+        assertFalse(matcher.matches("GET", "/api/\r\n/admin"));
+        assertFalse(matcher.matches("GET", "/api/foo\u2028bar"));
+        assertFalse(PathGlob.matches("/api/**", "/api/foo\n"));
+    }
+
+    @Test
+    public void shouldTreatQuestionMarkLikePathGlob() {
+        final AclEndpointMatcher matcher = AclEndpointMatcher.compile(List.of(endpoint("GET", "/foo?")));
+
+        // PathGlob does not escape '?', it makes the preceding character optional
+        assertTrue(matcher.matches("GET", "/fo"));
+        assertTrue(matcher.matches("GET", "/foo"));
+        assertFalse(matcher.matches("GET", "/foo?"));
+    }
+
+    @Test
+    public void shouldMatchMethod() {
+        final AclEndpointMatcher matcher = AclEndpointMatcher.compile(Arrays.asList(
+                endpoint("GET", "/api/**"),
+                endpoint("post", "/api/test/*"),
+                endpoint(EndpointType.ANY_METHOD, "/status")));
+
+        assertTrue(matcher.matches("GET", "/api/foo"));
+        assertTrue(matcher.matches("get", "/api/foo"));
+        assertTrue(matcher.matches("POST", "/api/test/foo"));
+        assertTrue(matcher.matches("DELETE", "/status"));
+        assertTrue(matcher.matches(null, "/status"));
+
+        assertFalse(matcher.matches("POST", "/api/foo"));
+        assertFalse(matcher.matches("DELETE", "/api/test/foo"));
+        assertFalse(matcher.matches("GET", null));
+        assertFalse(matcher.matches(null, "/api/foo"));
+    }
+
+    @Test
+    public void shouldMatchBaseEndpoint() {
+        final AclEndpointMatcher matcher = AclEndpointMatcher.compile(
+                List.of(endpoint(EndpointType.ANY_METHOD, EndpointType.ANY_PATH)));
+
+        assertTrue(matcher.matches(null, null));
+        assertTrue(matcher.matches("PUT", "/any/path"));
+    }
+
+    @Test
+    public void shouldNotMatchEmptyAcl() {
+        final AclEndpointMatcher matcher = AclEndpointMatcher.compile(Collections.emptyList());
+
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matches(null, null));
+        assertFalse(matcher.matches("GET", "/"));
+    }
+
+    private static EndpointType endpoint(String method, String path) {
+        return new EndpointType("service", method, path, false);
+    }
+}
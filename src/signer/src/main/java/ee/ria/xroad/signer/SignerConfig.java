@@ -26,12 +26,14 @@
 package ee.ria.xroad.signer;
 
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.util.ProcessMetrics;
 import ee.ria.xroad.signer.certmanager.OcspClientWorker;
 import ee.ria.xroad.signer.certmanager.OcspResponseManager;
 import ee.ria.xroad.signer.job.OcspClientExecuteScheduler;
 import ee.ria.xroad.signer.tokenmanager.module.AbstractModuleManager;
 import ee.ria.xroad.signer.tokenmanager.module.DefaultModuleManagerImpl;
 
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -76,7 +78,12 @@ public class SignerConfig {
         return ocspResponseManager;
     }
 
-    @Bean
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    JmxReporter metricsJmxReporter() {
+        return JmxReporter.forRegistry(ProcessMetrics.getMetrics()).inDomain("xroad.signer").build();
+    }
+
+    @Bean(destroyMethod = "shutdown")
     OcspClientWorker ocspClientWorker(OcspResponseManager ocspResponseManager) {
         return new OcspClientWorker(ocspResponseManager);
     }
@@ -30,6 +30,7 @@ import ee.ria.xroad.common.CertificationServiceStatus;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.DiagnosticsErrorCodes;
 import ee.ria.xroad.common.OcspResponderStatus;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.globalconfextension.GlobalConfExtensions;
@@ -37,11 +38,15 @@ import ee.ria.xroad.common.conf.globalconfextension.OcspFetchInterval;
 import ee.ria.xroad.common.ocsp.OcspVerifier;
 import ee.ria.xroad.common.ocsp.OcspVerifierOptions;
 import ee.ria.xroad.common.util.CertUtils;
+import ee.ria.xroad.common.util.ProcessMetrics;
+import ee.ria.xroad.common.util.ThreadUtils;
 import ee.ria.xroad.common.util.TimeUtils;
 import ee.ria.xroad.signer.job.OcspClientExecuteScheduler;
 import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.cert.ocsp.OCSPException;
@@ -50,6 +55,7 @@ import org.niis.xroad.signer.proto.SetOcspResponsesReq;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.nio.channels.ClosedByInterruptException;
 import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
@@ -63,6 +69,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
@@ -89,10 +106,29 @@ public class OcspClientWorker {
 
     private final CertificationServiceDiagnostics certServDiagnostics = new CertificationServiceDiagnostics();
 
+    // certificates are queried in parallel, the requests to a single responder are limited by responderPermits
+    private final ExecutorService queryExecutor =
+            ThreadUtils.newFixedThreadPool(SystemProperties.getOcspFetchParallelism(), "ocsp-query");
+    private final ExecutorService fetchExecutor = ThreadUtils.newCachedThreadPool("ocsp-fetch");
+    private final Map<String, Semaphore> responderPermits = new ConcurrentHashMap<>();
+    private final int responderMaxConcurrency = SystemProperties.getOcspResponderMaxConcurrency();
+    private final long hedgeDelayMs = SystemProperties.getOcspHedgeDelayMs();
+
+    private final Timer cycleDuration = ProcessMetrics.getMetrics()
+            .timer(MetricRegistry.name(OcspClientWorker.class, "cycle"));
+
     public CertificationServiceDiagnostics getDiagnostics() {
         return certServDiagnostics;
     }
 
+    /**
+     * Stops the threads used for fetching the OCSP responses.
+     */
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
     public void reload(OcspClientExecuteScheduler ocspClientExecuteScheduler) {
         log.trace("reload()");
         log.debug("Checking global configuration for validity and extension changes");
@@ -167,25 +203,48 @@ public class OcspClientWorker {
 
         log.info("Fetching OCSP responses for {} certificates", certs.size());
 
+        final Timer.Context cycleTimer = cycleDuration.time();
+        final OcspVerifierOptions verifierOptions = new OcspVerifierOptions(
+                GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate());
+
+        List<Future<OCSPResp>> results;
+        try {
+            results = queryExecutor.invokeAll(certs.stream()
+                    .map(subject -> (Callable<OCSPResp>) () -> queryCertStatus(subject, verifierOptions))
+                    .toList());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("OCSP-response refresh cycle interrupted");
+            return;
+        }
+
         boolean failed = false;
         Map<String, OCSPResp> statuses = new HashMap<>();
 
-        for (X509Certificate subject : certs) {
+        for (int i = 0; i < certs.size(); i++) {
+            final X509Certificate subject = certs.get(i);
             try {
-                OCSPResp status = queryCertStatus(subject, new OcspVerifierOptions(
-                        GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate()));
+                OCSPResp status = results.get(i).get();
                 if (status != null) {
                     String subjectHash = calculateCertSha1HexHash(subject);
                     statuses.put(subjectHash, status);
                 } else {
                     failed = true;
                 }
+            } catch (ExecutionException e) {
+                failed = true;
+
+                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e.getCause());
             } catch (Exception e) {
                 failed = true;
 
                 log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
             }
         }
+
+        log.info("OCSP-response refresh cycle finished in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(cycleTimer.stop()));
+
         if (ocspClientExecuteScheduler != null) {
             if (failed) {
                 ocspClientExecuteScheduler.failure();
@@ -257,50 +316,131 @@ public class OcspClientWorker {
             throw new ConnectException("No OCSP responder URIs available");
         }
 
-        final OcspVerifier verifier = new OcspVerifier(GlobalConf.getOcspFreshnessSeconds(), verifierOptions);
-
-        for (String responderURI : responderURIs) {
-            final OffsetDateTime prevUpdate = TimeUtils.offsetDateTimeNow();
-            final OffsetDateTime nextUpdate = prevUpdate
-                    .plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval());
-            int errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
+        final CompletionService<FetchResult> completionService = new ExecutorCompletionService<>(fetchExecutor);
+        final List<Attempt> attempts = new ArrayList<>(responderURIs.size());
 
-            try {
-                log.debug("Fetching response from: {}", responderURI);
-                final OCSPResp response = OcspClient
-                        .fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+        try {
+            attempts.add(startAttempt(completionService, responderURIs.get(0), subject, issuer, signerKey, signer,
+                    signAlgoId, verifierOptions));
+            int pending = 1;
+
+            while (pending > 0) {
+                final boolean canHedge = hedgeDelayMs > 0 && attempts.size() < responderURIs.size();
+                final Future<FetchResult> done = canHedge
+                        ? completionService.poll(hedgeDelayMs, TimeUnit.MILLISECONDS)
+                        : completionService.take();
+
+                if (done != null) {
+                    pending--;
+                    final FetchResult result = done.get();
+                    reportOcspDiagnostics(issuer, result.responderURI(), result.errorCode(), result.prevUpdate(),
+                            result.nextUpdate());
+                    if (result.response() != null) {
+                        return result.response();
+                    }
+                } else {
+                    log.debug("No response from OCSP responder in {} ms, sending a hedged request", hedgeDelayMs);
+                }
 
-                if (response != null) {
-                    log.debug("Verifying response: {}", response);
-                    verifier.verifyValidity(response, subject, issuer);
-                    log.debug("Verified OCSP response for certificate '{}'", subject.getSubjectX500Principal());
+                // the previous responder failed or is slow, try the next one
+                if (attempts.size() < responderURIs.size()) {
+                    attempts.add(startAttempt(completionService, responderURIs.get(attempts.size()), subject,
+                            issuer, signerKey, signer, signAlgoId, verifierOptions));
+                    pending++;
+                }
+            }
+        } finally {
+            attempts.forEach(Attempt::cancel);
+        }
 
-                    reportOcspDiagnostics(issuer, responderURI, DiagnosticsErrorCodes.RETURN_SUCCESS, prevUpdate,
-                            nextUpdate);
+        return null;
+    }
 
-                    return response;
+    /**
+     * Waits for a permit to the responder before submitting the request, so that the time spent waiting for the
+     * permit is not counted towards the hedge delay. The permit is released by the request or, if the request is
+     * cancelled before it starts, by {@link Attempt#cancel()}.
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private Attempt startAttempt(CompletionService<FetchResult> completionService, String responderURI,
+                                 X509Certificate subject, X509Certificate issuer, PrivateKey signerKey,
+                                 X509Certificate signer, String signAlgoId, OcspVerifierOptions verifierOptions)
+            throws InterruptedException {
+        final Semaphore permits = responderPermits.computeIfAbsent(responderURI,
+                uri -> new Semaphore(responderMaxConcurrency));
+        permits.acquire();
+
+        final Attempt attempt = new Attempt(permits);
+        try {
+            attempt.future = completionService.submit(() -> {
+                if (!attempt.claim()) {
+                    return null; // cancelled before it started
                 }
-            } catch (OCSPException e) {
-                log.error("Parsing OCSP response from {} failed", responderURI, e);
-                errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
-            } catch (IOException e) {
-                log.error("Unable to connect to responder at {}", responderURI, e);
-                errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_CONNECTION_ERROR;
-            } catch (CodedException e) {
-                log.warn("Received OCSP response that failed verification", e);
-                errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_UNVERIFIED;
-            } catch (Exception e) {
-                log.error("Unable to fetch response from responder at {}", responderURI, e);
-                errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
-            }
+                try {
+                    return fetchAndVerify(responderURI, subject, issuer, signerKey, signer, signAlgoId,
+                            verifierOptions);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
 
-            reportOcspDiagnostics(issuer, responderURI, errorCode, prevUpdate, nextUpdate);
+        return attempt;
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private FetchResult fetchAndVerify(String responderURI, X509Certificate subject, X509Certificate issuer,
+                                       PrivateKey signerKey, X509Certificate signer, String signAlgoId,
+                                       OcspVerifierOptions verifierOptions) {
+        final OffsetDateTime prevUpdate = TimeUtils.offsetDateTimeNow();
+        final OffsetDateTime nextUpdate = prevUpdate
+                .plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval());
+        int errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
+
+        final Timer.Context latency = ProcessMetrics.getMetrics()
+                .timer(MetricRegistry.name(OcspClientWorker.class, "responder", responderURI)).time();
+        try {
+            log.debug("Fetching response from: {}", responderURI);
+            final OCSPResp response = OcspClient
+                    .fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+
+            if (response != null) {
+                log.debug("Verifying response: {}", response);
+                new OcspVerifier(GlobalConf.getOcspFreshnessSeconds(), verifierOptions)
+                        .verifyValidity(response, subject, issuer);
+                log.debug("Verified OCSP response for certificate '{}'", subject.getSubjectX500Principal());
+
+                return new FetchResult(responderURI, response, DiagnosticsErrorCodes.RETURN_SUCCESS, prevUpdate,
+                        nextUpdate);
+            }
+        } catch (OCSPException e) {
+            log.error("Parsing OCSP response from {} failed", responderURI, e);
+            errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
+        } catch (ClosedByInterruptException e) {
+            log.debug("Request to responder at {} was cancelled", responderURI);
+        } catch (IOException e) {
+            log.error("Unable to connect to responder at {}", responderURI, e);
+            errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_CONNECTION_ERROR;
+        } catch (CodedException e) {
+            log.warn("Received OCSP response that failed verification", e);
+            errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_UNVERIFIED;
+        } catch (InterruptedException e) {
+            log.debug("Request to responder at {} was cancelled", responderURI);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Unable to fetch response from responder at {}", responderURI, e);
+            errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
+        } finally {
+            latency.stop();
         }
 
-        return null;
+        return new FetchResult(responderURI, null, errorCode, prevUpdate, nextUpdate);
     }
 
-    private void reportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
+    private synchronized void reportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
                                        OffsetDateTime prevUpdate, OffsetDateTime nextUpdate) {
 
         OcspResponderStatus responderStatus = new OcspResponderStatus(statusCode, responderURI, prevUpdate, nextUpdate);
@@ -383,7 +523,7 @@ public class OcspClientWorker {
         return emptyList();
     }
 
-    private void initializeDiagnostics() {
+    private synchronized void initializeDiagnostics() {
 
         final int fetchInterval = GlobalConfExtensions.getInstance().getOcspFetchInterval();
         final Map<String, CertificationServiceStatus> serviceStatusMap = certServDiagnostics
@@ -426,4 +566,26 @@ public class OcspClientWorker {
 
         return interval;
     }
+
+    private record FetchResult(String responderURI, OCSPResp response, int errorCode, OffsetDateTime prevUpdate,
+                               OffsetDateTime nextUpdate) {
+    }
+
+    @RequiredArgsConstructor
+    private static final class Attempt {
+        private final Semaphore permits;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private Future<FetchResult> future;
+
+        boolean claim() {
+            return started.compareAndSet(false, true);
+        }
+
+        void cancel() {
+            future.cancel(true);
+            if (claim()) {
+                permits.release();
+            }
+        }
+    }
 }
@@ -38,6 +38,10 @@ import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
 import ee.ria.xroad.signer.protocol.dto.TokenInfo;
 import ee.ria.xroad.signer.protocol.dto.TokenInfoAndKeyId;
 import ee.ria.xroad.signer.protocol.dto.TokenStatusInfo;
+import ee.ria.xroad.signer.tokenmanager.TokenSnapshot.CertEntry;
+import ee.ria.xroad.signer.tokenmanager.TokenSnapshot.CertRequestEntry;
+import ee.ria.xroad.signer.tokenmanager.TokenSnapshot.KeyEntry;
+import ee.ria.xroad.signer.tokenmanager.TokenSnapshot.TokenEntry;
 import ee.ria.xroad.signer.tokenmanager.merge.MergeOntoFileTokensStrategy;
 import ee.ria.xroad.signer.tokenmanager.merge.TokenMergeAddedCertificatesListener;
 import ee.ria.xroad.signer.tokenmanager.merge.TokenMergeStrategy;
@@ -57,7 +61,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.ErrorCodes.X_WRONG_CERT_USAGE;
 import static ee.ria.xroad.signer.util.ExceptionHelper.certWithHashNotFound;
@@ -69,12 +72,17 @@ import static java.util.Collections.unmodifiableList;
 
 /**
  * Manages the current state of tokens, their keys and certificates.
+ *
+ * Modifications are serialized and each one publishes a new {@link TokenSnapshot}, queries are served
+ * from the latest snapshot without locking.
  */
 @Slf4j
 public final class TokenManager {
 
     private static volatile List<Token> currentTokens = new ArrayList<>();
 
+    private static volatile TokenSnapshot snapshot = TokenSnapshot.EMPTY;
+
     private static boolean initialized;
 
     // configure the implementation somewhere else if multiple implementations created
@@ -95,7 +103,10 @@ public final class TokenManager {
             log.error("Failed to load token conf", e);
         }
 
-        currentTokens = new ArrayList<>(TokenConf.getInstance().getTokens());
+        synchronized (TokenManager.class) {
+            currentTokens = new ArrayList<>(TokenConf.getInstance().getTokens());
+            snapshot = TokenSnapshot.of(currentTokens);
+        }
 
         initialized = true;
     }
@@ -137,6 +148,7 @@ public final class TokenManager {
             synchronized (TokenManager.class) {
                 result = mergeStrategy.merge(fileTokens, currentTokens);
                 currentTokens = result.getResultTokens();
+                snapshot = TokenSnapshot.of(currentTokens);
             }
             if (listener != null) {
                 listener.mergeDone(result.getAddedCertificates());
@@ -155,11 +167,8 @@ public final class TokenManager {
     /**
      * @return list of tokens
      */
-    public static synchronized List<TokenInfo> listTokens() {
-        return unmodifiableList(
-                currentTokens.stream()
-                        .map(Token::toDTO)
-                        .collect(Collectors.toList()));
+    public static List<TokenInfo> listTokens() {
+        return snapshot.getTokens();
     }
 
     /**
@@ -188,8 +197,9 @@ public final class TokenManager {
         token.setAvailable(true);
 
         currentTokens.add(token);
+        snapshot = snapshot.withToken(token);
 
-        return token.toDTO();
+        return snapshot.getToken(token.getId()).info();
     }
 
     /**
@@ -210,13 +220,11 @@ public final class TokenManager {
      * @param tokenId the token id
      * @return the token info DTO for the token id or null of not found
      */
-    public static synchronized TokenInfo getTokenInfo(String tokenId) {
+    public static TokenInfo getTokenInfo(String tokenId) {
         log.trace("getTokenInfo({})", tokenId);
 
-        return currentTokens.stream()
-                .filter(t -> t.getId().equals(tokenId))
-                .map(Token::toDTO)
-                .findFirst().orElse(null);
+        TokenEntry token = snapshot.getToken(tokenId);
+        return token != null ? token.info() : null;
     }
 
     /**
@@ -224,81 +232,83 @@ public final class TokenManager {
      * @return the token info DTO for the token
      * @throws Exception if key was not found
      */
-    public static synchronized TokenInfo findTokenInfoForKeyId(String keyId) {
+    public static TokenInfo findTokenInfoForKeyId(String keyId) {
         log.trace("getTokenInfoForKeyId({})", keyId);
-        String tokenId = findTokenIdForKeyId(keyId);
-        return getTokenInfo(tokenId);
+
+        TokenSnapshot current = snapshot;
+        return current.getToken(findKeyEntry(current, keyId).tokenId()).info();
     }
 
     /**
      * @param keyId the key id
      * @return the token and key or throws exception if not found
      */
-    public static synchronized TokenAndKey findTokenAndKey(String keyId) {
+    public static TokenAndKey findTokenAndKey(String keyId) {
         log.trace("findTokenAndKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenAndKey(t.getId(), k.toDTO()))
-                .orElseThrow(() -> keyNotFound(keyId));
+        KeyEntry key = findKeyEntry(snapshot, keyId);
+        return new TokenAndKey(key.tokenId(), key.info());
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return the tokenInfo and key id, or throws exception if not found
      */
-    public static synchronized TokenInfoAndKeyId findTokenAndKeyIdForCertHash(String certHash) {
+    public static TokenInfoAndKeyId findTokenAndKeyIdForCertHash(String certHash) {
         log.trace("findTokenAndKeyIdForCertHash({})", certHash);
 
-        String keyId = forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> k.getId())
-                .orElseThrow(() -> certWithHashNotFound(certHash));
+        TokenSnapshot current = snapshot;
+        CertEntry cert = current.getCertBySha256Hash(certHash);
+        if (cert == null) {
+            throw certWithHashNotFound(certHash);
+        }
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenInfoAndKeyId(t.toDTO(), keyId))
-                .orElseThrow(() -> keyNotFound(keyId));
+        return toTokenInfoAndKeyId(current, cert.key().getId());
     }
 
     /**
      * @param certRequestId the certificate request id
      * @return the tokenInfo and key id, or throws exception if not found
      */
-    public static synchronized TokenInfoAndKeyId findTokenAndKeyIdForCertRequestId(String certRequestId) {
+    public static TokenInfoAndKeyId findTokenAndKeyIdForCertRequestId(String certRequestId) {
         log.trace("findTokenAndKeyIdForCertRequestId({})", certRequestId);
 
-        String keyId = forCertRequest((k, c) -> certRequestId.equals(c.getId()),
-                (k, c) -> k.getId())
-                .orElseThrow(() -> csrWithIdNotFound(certRequestId));
+        TokenSnapshot current = snapshot;
+        CertRequestEntry certRequest = current.getCertRequest(certRequestId);
+        if (certRequest == null) {
+            throw csrWithIdNotFound(certRequestId);
+        }
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenInfoAndKeyId(t.toDTO(), keyId))
-                .orElseThrow(() -> keyNotFound(keyId));
+        return toTokenInfoAndKeyId(current, certRequest.key().info().getId());
     }
 
     /**
      * @param keyId the key id
      * @return the token id for the key id or throws exception if not found
      */
-    public static synchronized String findTokenIdForKeyId(String keyId) {
+    public static String findTokenIdForKeyId(String keyId) {
         log.trace("findTokenIdForKeyId({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> t.getId()).orElseThrow(() -> keyNotFound(keyId));
+        return findKeyEntry(snapshot, keyId).tokenId();
     }
 
     /**
      * @return the software token id
      */
-    public static synchronized String getSoftwareTokenId() {
-        return forToken(t -> t.getType().equals(SoftwareModuleType.TYPE),
-                t -> t.getId()).orElse(null);
+    public static String getSoftwareTokenId() {
+        return snapshot.getTokenEntries().stream()
+                .filter(t -> t.type().equals(SoftwareModuleType.TYPE))
+                .map(TokenEntry::id)
+                .findFirst().orElse(null);
     }
 
     /**
      * @param tokenId the token id
      * @return the module id for the token id or null if not found
      */
-    public static synchronized String getModuleId(String tokenId) {
-        return forToken(t -> t.getId().equals(tokenId),
-                t -> t.getModuleId()).orElse(null);
+    public static String getModuleId(String tokenId) {
+        TokenEntry token = snapshot.getToken(tokenId);
+        return token != null ? token.moduleId() : null;
     }
 
     /**
@@ -318,50 +328,21 @@ public final class TokenManager {
      * @param keyId the key id
      * @return the key info for the key id or null if not found
      */
-    public static synchronized KeyInfo getKeyInfo(String keyId) {
+    public static KeyInfo getKeyInfo(String keyId) {
         log.trace("getKeyInfo({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> k.toDTO()).orElse(null);
+        KeyEntry key = snapshot.getKey(keyId);
+        return key != null ? key.info() : null;
     }
 
     /**
      * @param clientId the client id
      * @return the list of keys for the given client id
      */
-    public static synchronized List<KeyInfo> getKeyInfo(ClientId clientId) {
+    public static List<KeyInfo> getKeyInfo(ClientId clientId) {
         log.trace("getKeyInfo({})", clientId);
 
-        List<KeyInfo> keyInfo = new ArrayList<>();
-
-        for (Token token : currentTokens) {
-            if (token.isInActive()) {
-                // Ignore inactive (not usable) tokens
-                continue;
-            }
-
-            for (Key key : token.getKeys()) {
-                if (!key.isValidForSigning()) {
-                    // Ignore authentication keys
-                    continue;
-                }
-
-                for (Cert cert : key.getCerts()) {
-                    if (cert.isInvalid()) {
-                        // Ignore inactive and invalid certificates
-                        continue;
-                    }
-
-                    if (certBelongsToMember(cert.toDTO(), clientId)) {
-                        log.debug("Found key '{}' for client '{}'",
-                                key.getId(), cert.getMemberId());
-                        keyInfo.add(key.toDTO());
-                    }
-                }
-            }
-        }
-
-        return keyInfo;
+        return snapshot.getSigningKeys(clientId);
     }
 
     /**
@@ -382,43 +363,42 @@ public final class TokenManager {
      * @param certId the certificate id
      * @return the certificate info for the certificate id or null if not found
      */
-    public static synchronized CertificateInfo getCertificateInfo(String certId) {
+    public static CertificateInfo getCertificateInfo(String certId) {
         log.trace("getCertificateInfo({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> c.toDTO()).orElse(null);
+        CertEntry cert = snapshot.getCert(certId);
+        return cert != null ? cert.info() : null;
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return the certificate info for the certificate hash or null
      */
-    public static synchronized CertificateInfo getCertificateInfoForCertHash(String certHash) {
+    public static CertificateInfo getCertificateInfoForCertHash(String certHash) {
         log.trace("getCertificateInfoForCertHash({})", certHash);
 
-        return forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> c.toDTO()).orElse(null);
+        CertEntry cert = snapshot.getCertBySha256Hash(certHash);
+        return cert != null ? cert.info() : null;
     }
 
     /**
      * @param certSha1Hash the certificate SHA-1 hash in HEX
      * @return the certificate for the certificate hash or null
      */
-    public static synchronized X509Certificate getCertificateForCerHash(String certSha1Hash) {
+    public static X509Certificate getCertificateForCerHash(String certSha1Hash) {
         log.trace("getCertificateForCertHash({})", certSha1Hash);
 
-        return forCert((k, c) -> certSha1Hash.equals(c.getSha1hash()), (k, c) -> c.getCertificate()).orElse(null);
+        CertEntry cert = snapshot.getCertBySha1Hash(certSha1Hash);
+        return cert != null ? cert.certificate() : null;
     }
 
     /**
      * @return all certificates
      */
-    public static synchronized List<CertificateInfo> getAllCerts() {
+    public static List<CertificateInfo> getAllCerts() {
         log.trace("getAllCerts()");
 
-        return currentTokens.stream()
-                .flatMap(t -> t.getKeys().stream())
-                .flatMap(k -> k.getCerts().stream())
-                .map(Cert::toDTO)
-                .toList();
+        return snapshot.getCerts();
     }
 
     /**
@@ -432,6 +412,7 @@ public final class TokenManager {
 
         forCert((k, c) -> certSha1Hash.equals(c.getSha1hash()), (k, c) -> {
             c.setOcspResponse(response);
+            snapshot = snapshot.withCert(k, c);
             return null;
         });
     }
@@ -441,47 +422,47 @@ public final class TokenManager {
      * @param memberId the member id
      * @return the certificate request info or null if not found
      */
-    public static synchronized CertRequestInfo getCertRequestInfo(String keyId, ClientId memberId) {
+    public static CertRequestInfo getCertRequestInfo(String keyId, ClientId memberId) {
         log.trace("getCertRequestInfo({}, {})", keyId, memberId);
 
-        Key key = findKey(keyId);
+        KeyInfo key = findKeyEntry(snapshot, keyId).info();
         return key.getCertRequests().stream()
                 .filter(c -> key.getUsage() == KeyUsageInfo.AUTHENTICATION
                         || memberId.equals(c.getMemberId()))
-                .map(c -> c.toDTO()).findFirst().orElse(null);
+                .findFirst().orElse(null);
     }
 
     /**
      * @param certReqId cert request id
      * @return the certificate request info or null if not found
      */
-    public static synchronized CertRequestInfo getCertRequestInfo(String certReqId) {
+    public static CertRequestInfo getCertRequestInfo(String certReqId) {
         log.trace("getCertRequestInfo({})", certReqId);
 
-        return forCertRequest((k, c) -> certReqId.equals(c.getId()),
-                (k, c) -> c.toDTO())
-                .orElse(null);
+        CertRequestEntry certRequest = snapshot.getCertRequest(certReqId);
+        return certRequest != null ? certRequest.info() : null;
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return key info for the certificate hash
      */
-    public static synchronized KeyInfo getKeyInfoForCertHash(String certHash) {
+    public static KeyInfo getKeyInfoForCertHash(String certHash) {
         log.trace("getKeyInfoForCertHash({})", certHash);
 
-        return forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> k.toDTO()).orElse(null);
+        CertEntry cert = snapshot.getCertBySha256Hash(certHash);
+        return cert != null ? cert.key() : null;
     }
 
     /**
      * @param certId the certificate id
      * @return key info for certificate id
      */
-    public static synchronized KeyInfo getKeyInfoForCertId(String certId) {
+    public static KeyInfo getKeyInfoForCertId(String certId) {
         log.trace("getKeyInfoForCertId({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId),
-                (k, c) -> k.toDTO()).orElse(null);
+        CertEntry cert = snapshot.getCert(certId);
+        return cert != null ? cert.key() : null;
     }
 
     /**
@@ -499,20 +480,20 @@ public final class TokenManager {
      * @param tokenId the token id
      * @return true if token is available
      */
-    public static synchronized boolean isTokenAvailable(String tokenId) {
+    public static boolean isTokenAvailable(String tokenId) {
         log.trace("isTokenAvailable({})", tokenId);
 
-        return findToken(tokenId).isAvailable();
+        return findTokenEntry(tokenId).info().isAvailable();
     }
 
     /**
      * @param tokenId the token id
      * @return true if token is active (logged in)
      */
-    public static synchronized boolean isTokenActive(String tokenId) {
+    public static boolean isTokenActive(String tokenId) {
         log.trace("isTokenActive({})", tokenId);
 
-        return findToken(tokenId).isActive();
+        return findTokenEntry(tokenId).info().isActive();
     }
 
     /**
@@ -530,6 +511,7 @@ public final class TokenManager {
         Token token = findToken(tokenId);
         token.setAvailable(available);
         token.setModuleId(tokenType.getModuleType());
+        publish(token);
     }
 
     /**
@@ -541,7 +523,9 @@ public final class TokenManager {
     public static synchronized void setTokenAvailable(String tokenId, boolean available) {
         log.trace("setTokenAvailable({}, {})", tokenId, available);
 
-        findToken(tokenId).setAvailable(available);
+        Token token = findToken(tokenId);
+        token.setAvailable(available);
+        publish(token);
     }
 
     /**
@@ -554,7 +538,9 @@ public final class TokenManager {
                                                    boolean active) {
         log.trace("setTokenActive({}, {})", tokenId, active);
 
-        findToken(tokenId).setActive(active);
+        Token token = findToken(tokenId);
+        token.setActive(active);
+        publish(token);
     }
 
     /**
@@ -567,17 +553,19 @@ public final class TokenManager {
                                                          String friendlyName) {
         log.trace("setTokenFriendlyName({}, {})", tokenId, friendlyName);
 
-        findToken(tokenId).setFriendlyName(friendlyName);
+        Token token = findToken(tokenId);
+        token.setFriendlyName(friendlyName);
+        publish(token);
     }
 
     /**
      * @param tokenId the token if
      * @return the token status info
      */
-    public static synchronized TokenStatusInfo getTokenStatus(String tokenId) {
+    public static TokenStatusInfo getTokenStatus(String tokenId) {
         log.trace("getTokenStatus({})", tokenId);
 
-        return findToken(tokenId).getStatus();
+        return findTokenEntry(tokenId).status();
     }
 
     /**
@@ -590,7 +578,9 @@ public final class TokenManager {
                                                    TokenStatusInfo status) {
         log.trace("setTokenStatus({}, {})", tokenId, status);
 
-        findToken(tokenId).setStatus(status);
+        Token token = findToken(tokenId);
+        token.setStatus(status);
+        publish(token);
     }
 
     /**
@@ -603,17 +593,19 @@ public final class TokenManager {
                                                     boolean available) {
         log.trace("setKeyAvailable({}, {})", keyId, available);
 
-        findKey(keyId).setAvailable(available);
+        Key key = findKey(keyId);
+        key.setAvailable(available);
+        publish(key.getToken());
     }
 
     /**
      * @param keyId the key id
      * @return true if key is available
      */
-    public static synchronized boolean isKeyAvailable(String keyId) {
+    public static boolean isKeyAvailable(String keyId) {
         log.trace("isKeyAvailable()");
 
-        return findKey(keyId).isAvailable();
+        return findKeyEntry(snapshot, keyId).info().isAvailable();
     }
 
     /**
@@ -626,7 +618,9 @@ public final class TokenManager {
                                                        String friendlyName) {
         log.trace("setKeyFriendlyName({}, {})", keyId, friendlyName);
 
-        findKey(keyId).setFriendlyName(friendlyName);
+        Key key = findKey(keyId);
+        key.setFriendlyName(friendlyName);
+        publish(key.getToken());
     }
 
     /**
@@ -638,7 +632,9 @@ public final class TokenManager {
     public static synchronized void setKeyLabel(String keyId, String label) {
         log.trace("setKeyLabel({}, {})", keyId, label);
 
-        findKey(keyId).setLabel(label);
+        Key key = findKey(keyId);
+        key.setLabel(label);
+        publish(key.getToken());
     }
 
     /**
@@ -651,7 +647,9 @@ public final class TokenManager {
                                                 KeyUsageInfo keyUsage) {
         log.trace("setKeyUsage({}, {})", keyId, keyUsage);
 
-        findKey(keyId).setUsage(keyUsage);
+        Key key = findKey(keyId);
+        key.setUsage(keyUsage);
+        publish(key.getToken());
     }
 
     /**
@@ -671,8 +669,9 @@ public final class TokenManager {
         key.setPublicKey(publicKeyBase64);
 
         token.addKey(key);
+        publish(token);
 
-        return key.toDTO();
+        return snapshot.getKey(keyId).info();
     }
 
     /**
@@ -684,8 +683,11 @@ public final class TokenManager {
     public static synchronized boolean removeKey(String keyId) {
         log.trace("removeKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> t.getKeys().remove(k)).orElse(false);
+        return forKey((t, k) -> k.getId().equals(keyId), (t, k) -> {
+            boolean removed = t.getKeys().remove(k);
+            publish(t);
+            return removed;
+        }).orElse(false);
     }
 
     /**
@@ -698,7 +700,9 @@ public final class TokenManager {
                                                  String publicKeyBase64) {
         log.trace("setPublicKey({}, {})", keyId, publicKeyBase64);
 
-        findKey(keyId).setPublicKey(publicKeyBase64);
+        Key key = findKey(keyId);
+        key.setPublicKey(publicKeyBase64);
+        publish(key.getToken());
     }
 
     /**
@@ -716,6 +720,7 @@ public final class TokenManager {
         cert.setCertificate(certBytes);
 
         key.addCert(cert);
+        publish(key.getToken());
     }
 
     /**
@@ -735,6 +740,7 @@ public final class TokenManager {
         cert.setStatus(initialStatus);
 
         key.addCert(cert);
+        publish(key.getToken());
     }
 
     /**
@@ -747,7 +753,11 @@ public final class TokenManager {
                                                   boolean active) {
         log.trace("setCertActive({}, {})", certId, active);
 
-        findCert(certId).setActive(active);
+        forCert((k, c) -> c.getId().equals(certId), (k, c) -> {
+            c.setActive(active);
+            snapshot = snapshot.withCert(k, c);
+            return c;
+        }).orElseThrow(() -> certWithIdNotFound(certId));
     }
 
     /**
@@ -760,7 +770,11 @@ public final class TokenManager {
                                                   String status) {
         log.trace("setCertStatus({}, {})", certId, status);
 
-        findCert(certId).setStatus(status);
+        forCert((k, c) -> c.getId().equals(certId), (k, c) -> {
+            c.setStatus(status);
+            snapshot = snapshot.withCert(k, c);
+            return c;
+        }).orElseThrow(() -> certWithIdNotFound(certId));
     }
 
     /**
@@ -772,8 +786,11 @@ public final class TokenManager {
     public static synchronized boolean removeCert(String certId) {
         log.trace("removeCert({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId),
-                (k, c) -> k.getCerts().remove(c)).orElse(false);
+        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> {
+            boolean removed = k.getCerts().remove(c);
+            publish(k.getToken());
+            return removed;
+        }).orElse(false);
     }
 
     /**
@@ -801,6 +818,7 @@ public final class TokenManager {
         }
 
         key.setUsage(keyUsage);
+        publish(key.getToken());
 
         for (CertRequest certRequest : key.getCertRequests()) {
             ClientId crMember = certRequest.getMemberId();
@@ -818,6 +836,7 @@ public final class TokenManager {
 
         String certId = SignerUtil.randomId();
         key.addCertRequest(new CertRequest(certId, memberId, subjectName));
+        publish(key.getToken());
 
         log.info("Added new certificate request (memberId: {}, "
                         + "subjectId: {}) under key {}",
@@ -841,6 +860,7 @@ public final class TokenManager {
                         return null;
                     }
 
+                    publish(k.getToken());
                     return k.getId();
                 }).orElse(null);
     }
@@ -851,22 +871,61 @@ public final class TokenManager {
      * @param tokenId the token id
      * @param info    the token info
      */
-    public static synchronized void setTokenInfo(String tokenId, Map<String, String> info) {
-        findToken(tokenId).setInfo(info);
+    public static void setTokenInfo(String tokenId, Map<String, String> info) {
+        // called after every action on a hardware token, the info seldom changes and is compared with the
+        // published info without taking the lock
+        TokenEntry published = snapshot.getToken(tokenId);
+        if (published != null && published.info().getTokenInfo().equals(info)) {
+            return;
+        }
+
+        synchronized (TokenManager.class) {
+            Token token = findToken(tokenId);
+            token.setInfo(info);
+            snapshot = snapshot.withTokenInfo(token);
+        }
     }
 
     /**
      * @param tokenId the token id
      * @return true if batch signing is enabled for a token
      */
-    public static synchronized boolean isBatchSigningEnabled(String tokenId) {
+    public static boolean isBatchSigningEnabled(String tokenId) {
         log.trace("isBatchSigningEnabled({})", tokenId);
 
-        return findToken(tokenId).isBatchSigningEnabled();
+        return findTokenEntry(tokenId).batchSigningEnabled();
     }
 
     // ------------------------------------------------------------------------
 
+    // called with the lock held, after the token (or one of its keys, certificates or requests) was modified
+    private static void publish(Token token) {
+        snapshot = snapshot.withToken(token);
+    }
+
+    private static TokenEntry findTokenEntry(String tokenId) {
+        TokenEntry token = snapshot.getToken(tokenId);
+        if (token == null) {
+            throw tokenNotFound(tokenId);
+        }
+
+        return token;
+    }
+
+    private static KeyEntry findKeyEntry(TokenSnapshot current, String keyId) {
+        KeyEntry key = current.getKey(keyId);
+        if (key == null) {
+            throw keyNotFound(keyId);
+        }
+
+        return key;
+    }
+
+    private static TokenInfoAndKeyId toTokenInfoAndKeyId(TokenSnapshot current, String keyId) {
+        KeyEntry key = findKeyEntry(current, keyId);
+        return new TokenInfoAndKeyId(current.getToken(key.tokenId()).info(), keyId);
+    }
+
     private static <T> Optional<T> forToken(Function<Token, Boolean> tester, Function<Token, T> mapper) {
         for (Token token : currentTokens) {
             if (tester.apply(token)) {
@@ -937,13 +996,6 @@ public final class TokenManager {
                 .orElseThrow(() -> keyNotFound(keyId));
     }
 
-    private static Cert findCert(String certId) {
-        log.trace("findCert({})", certId);
-
-        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> c)
-                .orElseThrow(() -> certWithIdNotFound(certId));
-    }
-
     private static String getDefaultFriendlyName(TokenType tokenType) {
         String name = tokenType.getModuleType();
 
@@ -0,0 +1,314 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.model.Cert;
+import ee.ria.xroad.signer.model.Key;
+import ee.ria.xroad.signer.model.Token;
+import ee.ria.xroad.signer.protocol.dto.CertRequestInfo;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfoProto;
+import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfoProto;
+import ee.ria.xroad.signer.protocol.dto.TokenStatusInfo;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Immutable, indexed view of the tokens, their keys and certificates. {@link TokenManager} builds a new
+ * snapshot after every modification and publishes it atomically, readers only ever see a consistent
+ * snapshot and do not need to take the token manager lock.
+ *
+ * Building a snapshot reuses the entries of the tokens that were not modified, the DTOs of a modified
+ * token are rebuilt (or, if only a single certificate or the token info changed, patched).
+ */
+@Slf4j
+final class TokenSnapshot {
+
+    static final TokenSnapshot EMPTY = new TokenSnapshot(List.of());
+
+    private final List<TokenEntry> tokens;
+    private final List<TokenInfo> tokenInfos;
+    private final List<CertificateInfo> certInfos;
+
+    private final Map<String, TokenEntry> tokensById = new HashMap<>();
+    private final Map<String, KeyEntry> keysById = new HashMap<>();
+    private final Map<String, CertEntry> certsById = new HashMap<>();
+    private final Map<String, CertEntry> certsBySha256Hash = new HashMap<>();
+    private final Map<String, CertEntry> certsBySha1Hash = new HashMap<>();
+    private final Map<String, CertRequestEntry> certRequestsById = new HashMap<>();
+
+    // certificates of signing keys on active tokens, the candidates when looking up the keys of a client
+    private final List<CertEntry> signingCerts = new ArrayList<>();
+    private final Map<ClientId, List<KeyInfo>> signingKeysByClient = new ConcurrentHashMap<>();
+
+    private TokenSnapshot(List<TokenEntry> tokens) {
+        this.tokens = unmodifiableList(tokens);
+
+        List<TokenInfo> tmpTokenInfos = new ArrayList<>(tokens.size());
+        List<CertificateInfo> tmpCertInfos = new ArrayList<>();
+
+        // the first match wins on duplicate ids, as it did when the token list was searched
+        for (TokenEntry token : tokens) {
+            tokensById.putIfAbsent(token.id(), token);
+            tmpTokenInfos.add(token.info());
+
+            boolean tokenActive = token.info().isActive() && token.info().isAvailable();
+
+            for (KeyEntry key : token.keys()) {
+                keysById.putIfAbsent(key.info().getId(), key);
+
+                boolean validForSigning = key.info().isAvailable() && key.info().getUsage() == KeyUsageInfo.SIGNING;
+
+                for (CertEntry cert : key.certs()) {
+                    certsById.putIfAbsent(cert.info().getId(), cert);
+                    if (cert.certificate() != null) {
+                        certsBySha256Hash.putIfAbsent(cert.sha256Hash(), cert);
+                        certsBySha1Hash.putIfAbsent(cert.sha1Hash(), cert);
+                    }
+                    tmpCertInfos.add(cert.info());
+
+                    if (tokenActive && validForSigning && cert.info().isActive() && cert.memberId() != null) {
+                        signingCerts.add(cert);
+                    }
+                }
+
+                for (CertRequestInfo certRequest : key.info().getCertRequests()) {
+                    certRequestsById.putIfAbsent(certRequest.getId(), new CertRequestEntry(key, certRequest));
+                }
+            }
+        }
+
+        tokenInfos = unmodifiableList(tmpTokenInfos);
+        certInfos = unmodifiableList(tmpCertInfos);
+    }
+
+    /**
+     * @param tokens the tokens
+     * @return a snapshot of the given tokens
+     */
+    static TokenSnapshot of(List<Token> tokens) {
+        return new TokenSnapshot(tokens.stream().map(t -> createEntry(t, t.toDTO())).toList());
+    }
+
+    /**
+     * @param token the modified (or added) token
+     * @return a snapshot where the entry of the token is rebuilt
+     */
+    TokenSnapshot withToken(Token token) {
+        return replace(createEntry(token, token.toDTO()));
+    }
+
+    /**
+     * Only the DTO of the modified certificate is rebuilt, the rest of the token DTO is reused.
+     *
+     * @param key  the key of the certificate
+     * @param cert the modified certificate
+     * @return a snapshot where the entry of the certificate's token is updated
+     */
+    TokenSnapshot withCert(Key key, Cert cert) {
+        Token token = key.getToken();
+        TokenEntry previous = tokensById.get(token.getId());
+
+        int keyIndex = indexOf(token.getKeys(), key);
+        int certIndex = indexOf(key.getCerts(), cert);
+
+        if (previous == null || keyIndex < 0 || certIndex < 0
+                || keyIndex >= previous.info().asMessage().getKeyInfoCount()) {
+            return withToken(token);
+        }
+
+        KeyInfoProto keyProto = previous.info().asMessage().getKeyInfo(keyIndex);
+        if (!keyProto.getId().equals(key.getId()) || certIndex >= keyProto.getCertsCount()
+                || !keyProto.getCerts(certIndex).getId().equals(cert.getId())) {
+            return withToken(token);
+        }
+
+        TokenInfoProto tokenProto = previous.info().asMessage().toBuilder()
+                .setKeyInfo(keyIndex, keyProto.toBuilder().setCerts(certIndex, cert.toProtoDTO()))
+                .build();
+
+        return replace(createEntry(token, new TokenInfo(tokenProto)));
+    }
+
+    /**
+     * Only the token info map of the token DTO is replaced, the key and certificate DTOs are reused.
+     *
+     * @param token the token whose info was modified
+     * @return a snapshot where the entry of the token is updated
+     */
+    TokenSnapshot withTokenInfo(Token token) {
+        TokenEntry previous = tokensById.get(token.getId());
+        if (previous == null || previous.keys().size() != token.getKeys().size()) {
+            return withToken(token);
+        }
+
+        TokenInfoProto tokenProto = previous.info().asMessage().toBuilder()
+                .clearTokenInfo()
+                .putAllTokenInfo(token.getTokenInfo())
+                .build();
+
+        return replace(createEntry(token, new TokenInfo(tokenProto)));
+    }
+
+    List<TokenInfo> getTokens() {
+        return tokenInfos;
+    }
+
+    List<TokenEntry> getTokenEntries() {
+        return tokens;
+    }
+
+    TokenEntry getToken(String tokenId) {
+        return tokensById.get(tokenId);
+    }
+
+    KeyEntry getKey(String keyId) {
+        return keysById.get(keyId);
+    }
+
+    CertEntry getCert(String certId) {
+        return certsById.get(certId);
+    }
+
+    CertEntry getCertBySha256Hash(String certHash) {
+        return certsBySha256Hash.get(certHash);
+    }
+
+    CertEntry getCertBySha1Hash(String certSha1Hash) {
+        return certsBySha1Hash.get(certSha1Hash);
+    }
+
+    CertRequestEntry getCertRequest(String certReqId) {
+        return certRequestsById.get(certReqId);
+    }
+
+    List<CertificateInfo> getCerts() {
+        return certInfos;
+    }
+
+    /**
+     * @param clientId the client id
+     * @return the signing keys having a valid certificate of the client on an active token, the
+     * result is memoized for the lifetime of the snapshot
+     */
+    List<KeyInfo> getSigningKeys(ClientId clientId) {
+        return signingKeysByClient.computeIfAbsent(clientId, this::findSigningKeys);
+    }
+
+    private List<KeyInfo> findSigningKeys(ClientId clientId) {
+        List<KeyInfo> keyInfo = new ArrayList<>();
+
+        for (CertEntry cert : signingCerts) {
+            if (TokenManager.certBelongsToMember(cert.info(), clientId)) {
+                log.debug("Found key '{}' for client '{}'", cert.key().getId(), cert.memberId());
+                keyInfo.add(cert.key());
+            }
+        }
+
+        return unmodifiableList(keyInfo);
+    }
+
+    private TokenSnapshot replace(TokenEntry entry) {
+        List<TokenEntry> result = new ArrayList<>(tokens.size() + 1);
+        boolean replaced = false;
+
+        for (TokenEntry token : tokens) {
+            if (!replaced && token.id().equals(entry.id())) {
+                result.add(entry);
+                replaced = true;
+            } else {
+                result.add(token);
+            }
+        }
+
+        if (!replaced) {
+            result.add(entry);
+        }
+
+        return new TokenSnapshot(result);
+    }
+
+    // the key and certificate DTOs are in the same order as the keys and certificates of the token
+    private static TokenEntry createEntry(Token token, TokenInfo info) {
+        List<KeyInfo> keyInfos = info.getKeyInfo();
+        List<KeyEntry> keys = new ArrayList<>(keyInfos.size());
+
+        for (int i = 0; i < keyInfos.size(); i++) {
+            KeyInfo keyInfo = keyInfos.get(i);
+            List<Cert> certs = token.getKeys().get(i).getCerts();
+            List<CertificateInfo> certInfos = keyInfo.getCerts();
+            List<CertEntry> certEntries = new ArrayList<>(certInfos.size());
+
+            for (int j = 0; j < certInfos.size(); j++) {
+                Cert cert = certs.get(j);
+                certEntries.add(new CertEntry(keyInfo, certInfos.get(j), cert.getMemberId(), cert.getSha1hash(),
+                        cert.getSha256hash(), cert.getCertificate()));
+            }
+
+            keys.add(new KeyEntry(token.getId(), keyInfo, unmodifiableList(certEntries)));
+        }
+
+        return new TokenEntry(token.getId(), token.getType(), token.getModuleId(), token.getStatus(),
+                token.isBatchSigningEnabled(), info, unmodifiableList(keys));
+    }
+
+    private static <T> int indexOf(List<T> list, T element) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == element) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    record TokenEntry(String id, String type, String moduleId, TokenStatusInfo status, boolean batchSigningEnabled,
+                      TokenInfo info, List<KeyEntry> keys) {
+    }
+
+    record KeyEntry(String tokenId, KeyInfo info, List<CertEntry> certs) {
+    }
+
+    record CertEntry(KeyInfo key, CertificateInfo info, ClientId.Conf memberId, String sha1Hash, String sha256Hash,
+                     X509Certificate certificate) {
+    }
+
+    record CertRequestEntry(KeyEntry key, CertRequestInfo info) {
+    }
+}
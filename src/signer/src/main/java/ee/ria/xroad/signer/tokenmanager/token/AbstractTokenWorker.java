@@ -27,11 +27,14 @@ package ee.ria.xroad.signer.tokenmanager.token;
 
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.PasswordStore;
+import ee.ria.xroad.common.util.ProcessMetrics;
 import ee.ria.xroad.signer.protocol.dto.KeyInfo;
 import ee.ria.xroad.signer.protocol.dto.TokenInfo;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
 import ee.ria.xroad.signer.util.SignerUtil;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.x500.X500Name;
@@ -65,9 +68,12 @@ public abstract class AbstractTokenWorker implements TokenWorker, WorkerWithLife
 
     protected final String tokenId;
 
+    private final Timer signTimer;
+
     AbstractTokenWorker(TokenInfo tokenInfo) {
         this.tokenId = tokenInfo.getId();
         this.workerId = SignerUtil.getWorkerId(tokenInfo);
+        this.signTimer = ProcessMetrics.getMetrics().timer(MetricRegistry.name(TokenWorker.class, tokenId, "sign"));
     }
 
     @Override
@@ -139,7 +145,9 @@ public abstract class AbstractTokenWorker implements TokenWorker, WorkerWithLife
         try {
             byte[] data = SignerUtil.createDataToSign(request.getDigest().toByteArray(), request.getSignatureAlgorithmId());
 
-            return sign(request.getKeyId(), request.getSignatureAlgorithmId(), data);
+            try (Timer.Context ignored = signTimer.time()) {
+                return sign(request.getKeyId(), request.getSignatureAlgorithmId(), data);
+            }
         } catch (Exception e) {
             log.error("Error while signing with key '{}'", request.getKeyId(), e);
 
@@ -178,6 +186,14 @@ public abstract class AbstractTokenWorker implements TokenWorker, WorkerWithLife
         }
     }
 
+    /**
+     * @return true if {@link #handleSign(SignReq)} can be called concurrently with itself (but not with the
+     * other operations of the worker)
+     */
+    public boolean isConcurrentSigningSupported() {
+        return false;
+    }
+
     protected String getWorkerId() {
         return workerId;
     }
@@ -34,16 +34,25 @@ import org.niis.xroad.signer.proto.GenerateKeyReq;
 import org.niis.xroad.signer.proto.SignCertificateReq;
 import org.niis.xroad.signer.proto.SignReq;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 
 /**
  * A blocking (calls to token are synchronized) token worker.
+ * <p>
+ * Signing requests to a token worker that supports concurrent signing only exclude the other (management)
+ * operations, not each other.
  */
 @Slf4j
 @RequiredArgsConstructor
 public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
     private final AbstractTokenWorker tokenWorker;
 
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
     @Override
     public void handleActivateToken(ActivateTokenReq message) {
         synchronizedAction(() -> tokenWorker.handleActivateToken(message));
@@ -66,21 +75,21 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
 
     @Override
     public byte[] handleSign(SignReq request) {
-        return synchronizedAction(() -> tokenWorker.handleSign(request));
+        return signAction(() -> tokenWorker.handleSign(request));
     }
 
     @Override
-    public synchronized byte[] handleSignCertificate(SignCertificateReq request) {
+    public byte[] handleSignCertificate(SignCertificateReq request) {
         return synchronizedAction(() -> tokenWorker.handleSignCertificate(request));
     }
 
     @Override
-    public synchronized void initializeToken(char[] pin) {
+    public void initializeToken(char[] pin) {
         synchronizedAction(() -> tokenWorker.initializeToken(pin));
     }
 
     @Override
-    public synchronized void handleUpdateTokenPin(char[] oldPin, char[] newPin) {
+    public void handleUpdateTokenPin(char[] oldPin, char[] newPin) {
         synchronizedAction(() -> tokenWorker.handleUpdateTokenPin(oldPin, newPin));
     }
 
@@ -120,20 +129,40 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
     }
 
 
-    private synchronized <T> T synchronizedAction(ThrowingSupplier<T, Exception> action) {
+    private <T> T signAction(ThrowingSupplier<T, Exception> action) {
+        final Lock readLock = lock.readLock();
+        readLock.lock();
         try {
-            return action.get();
-        } catch (Exception e) {
-            throw translateException(e);
+            // the worker state only changes under the write lock
+            if (tokenWorker.isConcurrentSigningSupported()) {
+                return handle(action);
+            }
         } finally {
-            tokenWorker.onActionHandled();
+            readLock.unlock();
         }
+        return synchronizedAction(action);
     }
 
-
-    private synchronized void synchronizedAction(ThrowingRunnable<Exception> action) {
+    private <T> T synchronizedAction(ThrowingSupplier<T, Exception> action) {
+        final Lock writeLock = lock.writeLock();
+        writeLock.lock();
         try {
+            return handle(action);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void synchronizedAction(ThrowingRunnable<Exception> action) {
+        synchronizedAction(() -> {
             action.run();
+            return null;
+        });
+    }
+
+    private <T> T handle(ThrowingSupplier<T, Exception> action) {
+        try {
+            return action.get();
         } catch (Exception e) {
             throw translateException(e);
         } finally {
@@ -66,8 +66,8 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_TOKEN_PIN_POLICY_FAILURE;
@@ -114,7 +114,8 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
     // Use no digesting algorithm, since the input data is already a digest
     private static final String SIGNATURE_ALGORITHM = "NONEwithRSA";
 
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    // accessed concurrently by signing requests
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
 
     private boolean isTokenLoginAllowed = true;
 
@@ -149,6 +150,15 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         //No-OP
     }
 
+    /**
+     * Signing uses a new {@link Signature} instance per request and only reads the key cache, so the
+     * signing requests do not need to wait for each other.
+     */
+    @Override
+    public boolean isConcurrentSigningSupported() {
+        return true;
+    }
+
     @Override
     protected void activateToken(ActivateTokenReq message) {
         if (message.getActivate()) {
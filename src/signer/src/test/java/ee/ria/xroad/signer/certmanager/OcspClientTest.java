@@ -26,6 +26,7 @@
 package ee.ria.xroad.signer.certmanager;
 
 import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.TestCertUtil;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
@@ -42,6 +43,7 @@ import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Response;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.Callback;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -66,6 +68,7 @@ import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
 import static ee.ria.xroad.common.util.JettyUtils.setContentType;
 import static org.eclipse.jetty.io.Content.Sink.asOutputStream;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -81,6 +84,10 @@ public class OcspClientTest {
 
     private static final String RESPONDER_URI = "http://127.0.0.1:" + RESPONDER_PORT;
 
+    private static final int SLOW_RESPONDER_PORT = 8092;
+
+    private static final String SLOW_RESPONDER_URI = "http://127.0.0.1:" + SLOW_RESPONDER_PORT;
+
     private static Server ocspResponder;
     private static byte[] responseData;
 
@@ -146,6 +153,44 @@ public class OcspClientTest {
         verifier.verifyValidityAndStatus(ocsp, subject, GlobalConf.getCaCert("EE", subject));
     }
 
+    /**
+     * Test.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void goodCertificateStatusFromSecondResponderWhenFirstIsSlow() throws Exception {
+        X509Certificate subject = getDefaultClientCert();
+
+        GlobalConfProvider conf = getTestGlobalConf();
+        when(conf.getOcspResponderAddresses(Mockito.any(X509Certificate.class))).thenReturn(
+                Arrays.asList(SLOW_RESPONDER_URI, RESPONDER_URI));
+        GlobalConf.reload(conf);
+
+        Date thisUpdate = Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS));
+
+        responseData = OcspTestUtils.createOCSPResponse(subject, GlobalConf.getCaCert("EE", subject), ocspResponderCert,
+                getOcspSignerKey(), CertificateStatus.GOOD, thisUpdate, null).getEncoded();
+
+        Server slowResponder = new Server(SLOW_RESPONDER_PORT);
+        slowResponder.setHandler(new SlowOCSPResponder());
+        slowResponder.start();
+
+        System.setProperty(SystemProperties.SIGNER_OCSP_HEDGE_DELAY_MS, "100");
+        OcspClientWorker hedgingClient = new TestOcspClient(new OcspResponseManager());
+        try {
+            long start = System.currentTimeMillis();
+            queryAndUpdateCertStatus(hedgingClient, subject);
+
+            assertNotNull(getOcspResponse(subject));
+            assertTrue(System.currentTimeMillis() - start < SlowOCSPResponder.DELAY_MS);
+        } finally {
+            System.clearProperty(SystemProperties.SIGNER_OCSP_HEDGE_DELAY_MS);
+            hedgingClient.shutdown();
+            slowResponder.stop();
+        }
+    }
+
     /**
      * Test.
      *
@@ -276,6 +321,14 @@ public class OcspClientTest {
         ocspClient = new TestOcspClient(ocspResponseManager);
     }
 
+    /**
+     * After
+     */
+    @After
+    public void teardown() {
+        ocspClient.shutdown();
+    }
+
     /**
      * AfterClass
      *
@@ -363,4 +416,15 @@ public class OcspClientTest {
             return true;
         }
     }
+
+    private static final class SlowOCSPResponder extends Handler.Abstract {
+        static final long DELAY_MS = 5000;
+
+        @Override
+        public boolean handle(Request request, Response response, Callback callback) throws Exception {
+            Thread.sleep(DELAY_MS);
+            Response.writeError(request, response, callback, HttpStatus.SERVICE_UNAVAILABLE_503);
+            return true;
+        }
+    }
 }
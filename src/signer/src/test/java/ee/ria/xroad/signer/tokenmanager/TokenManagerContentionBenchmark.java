@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
+import ee.ria.xroad.signer.tokenmanager.token.SoftwareTokenType;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+import static ee.ria.xroad.signer.protocol.dto.CertificateInfo.STATUS_REGISTERED;
+import static ee.ria.xroad.signer.protocol.dto.CertificateInfo.STATUS_SAVED;
+
+/**
+ * Measures the throughput of the {@link TokenManager} lookups done on the signing path with a growing
+ * number of concurrent readers while a writer periodically updates certificate state (as the OCSP
+ * refresh does). The reader throughput should scale with the number of readers.
+ */
+@Slf4j
+public final class TokenManagerContentionBenchmark {
+    private static final int KEY_COUNT = 50;
+    private static final int[] READER_COUNTS = {1, 4, 16};
+    private static final long RUN_MILLIS = 5_000;
+    private static final long WRITE_INTERVAL_MILLIS = 10;
+
+    private static final ClientId.Conf MEMBER = ClientId.Conf.create("EE", "GOV", "member");
+
+    private TokenManagerContentionBenchmark() {
+    }
+
+    /**
+     * Main function.
+     * @param args not used
+     * @throws Exception if something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        byte[] certBytes = TestCertUtil.getConsumer().certChain[0].getEncoded();
+        String certHash = calculateCertHexHash(certBytes);
+
+        String tokenId = TokenManager.createToken(new SoftwareTokenType()).getId();
+        TokenManager.setTokenActive(tokenId, true);
+
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String keyId = "key" + i;
+            TokenManager.addKey(tokenId, keyId, null);
+            TokenManager.setKeyAvailable(keyId, true);
+            TokenManager.setKeyUsage(keyId, KeyUsageInfo.SIGNING);
+            TokenManager.addCert(keyId, MEMBER, true, true, STATUS_REGISTERED, "cert" + i, certBytes);
+        }
+
+        // Warmup
+        run(READER_COUNTS[0], certHash, false);
+
+        for (int readerCount : READER_COUNTS) {
+            run(readerCount, certHash, true);
+        }
+    }
+
+    private static void run(int readerCount, String certHash, boolean report) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(readerCount + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        try {
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int i = 0; i < readerCount; i++) {
+                readers.add(executor.submit(() -> read(running, certHash)));
+            }
+
+            Future<Long> writer = executor.submit(() -> write(running));
+
+            TimeUnit.MILLISECONDS.sleep(RUN_MILLIS);
+            running.set(false);
+
+            long reads = 0;
+            for (Future<Long> reader : readers) {
+                reads += reader.get();
+            }
+
+            long writes = writer.get();
+
+            if (report) {
+                log.info("{} readers: {} lookups/s, {} writes", readerCount, reads * 1000 / RUN_MILLIS, writes);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long read(AtomicBoolean running, String certHash) {
+        long reads = 0;
+
+        while (running.get()) {
+            String keyId = "key" + ThreadLocalRandom.current().nextInt(KEY_COUNT);
+
+            TokenManager.isKeyAvailable(keyId);
+            TokenManager.findTokenAndKey(keyId);
+            TokenManager.getKeyInfo(MEMBER);
+            TokenManager.findTokenAndKeyIdForCertHash(certHash);
+            reads += 4;
+        }
+
+        return reads;
+    }
+
+    private static long write(AtomicBoolean running) throws InterruptedException {
+        long writes = 0;
+
+        while (running.get()) {
+            String certId = "cert" + ThreadLocalRandom.current().nextInt(KEY_COUNT);
+
+            TokenManager.setCertStatus(certId, STATUS_SAVED);
+            TokenManager.setCertStatus(certId, STATUS_REGISTERED);
+            writes += 2;
+
+            TimeUnit.MILLISECONDS.sleep(WRITE_INTERVAL_MILLIS);
+        }
+
+        return writes;
+    }
+}
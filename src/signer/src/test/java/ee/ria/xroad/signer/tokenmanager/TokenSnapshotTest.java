@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.model.Cert;
+import ee.ria.xroad.signer.model.Key;
+import ee.ria.xroad.signer.model.Token;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static ee.ria.xroad.signer.protocol.dto.CertificateInfo.STATUS_REGISTERED;
+import static ee.ria.xroad.signer.protocol.dto.CertificateInfo.STATUS_SAVED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link TokenSnapshot} updates match the DTOs built from the token model.
+ */
+public class TokenSnapshotTest {
+
+    private static final ClientId.Conf MEMBER = ClientId.Conf.create("EE", "GOV", "member");
+
+    private Token token;
+    private Token otherToken;
+    private Key signKey;
+    private Cert cert;
+
+    @Before
+    public void setUp() {
+        token = new Token("softToken", "0", "CKM_RSA_PKCS");
+        token.setActive(true);
+        token.setAvailable(true);
+
+        signKey = new Key(token, "sign");
+        signKey.setAvailable(true);
+        signKey.setUsage(KeyUsageInfo.SIGNING);
+        token.addKey(signKey);
+
+        cert = new Cert("cert");
+        cert.setActive(true);
+        cert.setMemberId(MEMBER);
+        cert.setStatus(STATUS_REGISTERED);
+        cert.setCertificate(TestCertUtil.getConsumer().certChain[0]);
+        signKey.addCert(cert);
+
+        Key authKey = new Key(token, "auth");
+        authKey.setUsage(KeyUsageInfo.AUTHENTICATION);
+        token.addKey(authKey);
+
+        otherToken = new Token("pkcs11", "1", "CKM_RSA_PKCS");
+    }
+
+    @Test
+    public void indexesTokensKeysAndCerts() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token, otherToken));
+
+        assertEquals(2, snapshot.getTokens().size());
+        assertEquals("0", snapshot.getKey("auth").tokenId());
+        assertEquals("sign", snapshot.getCert("cert").key().getId());
+        assertSame(snapshot.getCert("cert"), snapshot.getCertBySha256Hash(cert.getSha256hash()));
+        assertSame(cert.getCertificate(), snapshot.getCertBySha1Hash(cert.getSha1hash()).certificate());
+        assertEquals(1, snapshot.getCerts().size());
+        assertNull(snapshot.getKey("missing"));
+    }
+
+    @Test
+    public void patchedCertMatchesRebuiltToken() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token, otherToken));
+
+        cert.setStatus(STATUS_SAVED);
+        TokenSnapshot updated = snapshot.withCert(signKey, cert);
+
+        assertEquals(token.toDTO().asMessage(), updated.getToken("0").info().asMessage());
+        assertEquals(STATUS_SAVED, updated.getCert("cert").info().getStatus());
+        assertEquals(STATUS_REGISTERED, snapshot.getCert("cert").info().getStatus());
+        assertSame(snapshot.getToken("1"), updated.getToken("1"));
+    }
+
+    @Test
+    public void patchedTokenInfoMatchesRebuiltToken() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token, otherToken));
+
+        token.setInfo(Map.of("Free Private Memory", "1024"));
+        TokenSnapshot updated = snapshot.withTokenInfo(token);
+
+        assertEquals(token.toDTO().asMessage(), updated.getToken("0").info().asMessage());
+        assertEquals("1024", updated.getToken("0").info().getTokenInfo().get("Free Private Memory"));
+        assertTrue(snapshot.getToken("0").info().getTokenInfo().isEmpty());
+        assertEquals("sign", updated.getCert("cert").key().getId());
+        assertSame(snapshot.getToken("1"), updated.getToken("1"));
+    }
+
+    @Test
+    public void addedTokenIsAppended() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token)).withToken(otherToken);
+
+        assertEquals(List.of("0", "1"), snapshot.getTokens().stream().map(t -> t.getId()).toList());
+    }
+
+    @Test
+    public void signingKeysFollowCertAndTokenState() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token, otherToken));
+
+        List<KeyInfo> keys = snapshot.getSigningKeys(MEMBER);
+        assertEquals(1, keys.size());
+        assertEquals("sign", keys.get(0).getId());
+        assertSame(keys, snapshot.getSigningKeys(MEMBER));
+
+        token.setActive(false);
+        assertTrue(snapshot.withToken(token).getSigningKeys(MEMBER).isEmpty());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import org.junit.After;
+import org.junit.Test;
+import org.niis.xroad.signer.proto.SignReq;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the locking of token worker operations
+ */
+public class BlockingTokenWorkerTest {
+
+    private static final byte[] SIGNATURE = {1, 2, 3};
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Signing requests run in parallel when the token worker supports it
+     */
+    @Test
+    public void shouldSignConcurrently() throws Exception {
+        AbstractTokenWorker tokenWorker = mock(AbstractTokenWorker.class);
+        when(tokenWorker.isConcurrentSigningSupported()).thenReturn(true);
+
+        CountDownLatch signing = new CountDownLatch(2);
+        when(tokenWorker.handleSign(any())).thenAnswer(invocation -> {
+            signing.countDown();
+            // completes only if the other request is being signed at the same time
+            return signing.await(5, TimeUnit.SECONDS) ? SIGNATURE : null;
+        });
+
+        BlockingTokenWorker worker = new BlockingTokenWorker(tokenWorker);
+        Future<byte[]> first = executor.submit(() -> worker.handleSign(SignReq.getDefaultInstance()));
+        Future<byte[]> second = executor.submit(() -> worker.handleSign(SignReq.getDefaultInstance()));
+
+        assertArrayEquals(SIGNATURE, first.get());
+        assertArrayEquals(SIGNATURE, second.get());
+    }
+
+    /**
+     * Signing requests run one at a time when the token worker does not support concurrent signing,
+     * management operations never run together with signing
+     */
+    @Test
+    public void shouldSerializeSigningAndManagement() throws Exception {
+        AbstractTokenWorker tokenWorker = mock(AbstractTokenWorker.class);
+        when(tokenWorker.isConcurrentSigningSupported()).thenReturn(false);
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(tokenWorker.handleSign(any())).thenAnswer(invocation -> {
+            track(active, maxActive);
+            return SIGNATURE;
+        });
+        doAnswer(invocation -> {
+            track(active, maxActive);
+            return null;
+        }).when(tokenWorker).handleDeleteKey(any());
+
+        BlockingTokenWorker worker = new BlockingTokenWorker(tokenWorker);
+        Future<?> signs = executor.submit(() -> {
+            for (int i = 0; i < 20; i++) {
+                worker.handleSign(SignReq.getDefaultInstance());
+            }
+        });
+        Future<?> deletes = executor.submit(() -> {
+            for (int i = 0; i < 20; i++) {
+                worker.handleDeleteKey("key");
+            }
+        });
+        signs.get();
+        deletes.get();
+
+        assertEquals(1, maxActive.get());
+    }
+
+    private static void track(AtomicInteger active, AtomicInteger maxActive) throws InterruptedException {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        Thread.sleep(1);
+        active.decrementAndGet();
+    }
+}